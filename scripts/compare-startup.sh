@@ -0,0 +1,35 @@
+#!/usr/bin/env bash
+# Compares startup time (until the first successful GET /api/employees) and memory (RSS) of the
+# jvm and the native docker image. The app runs with the embedded h2 database, so we measure the
+# application and not the database.
+#
+# usage: scripts/compare-startup.sh [jvm-image] [native-image]
+set -euo pipefail
+
+JVM_IMAGE=${1:-ems-jvm}
+NATIVE_IMAGE=${2:-ems-native}
+
+if [[ $# -eq 0 ]]; then
+  docker build -t "$JVM_IMAGE" .
+  docker build --target native -t "$NATIVE_IMAGE" .
+fi
+
+measure() {
+  local image=$1
+  local container
+  local start
+  start=$(date +%s%N)
+  container=$(docker run -d -p 18080:8080 "$image")
+  until curl -sf -o /dev/null http://localhost:18080/api/employees; do
+    sleep 0.05
+  done
+  local millis=$(( ($(date +%s%N) - start) / 1000000 ))
+  local rss
+  rss=$(docker stats --no-stream --format '{{.MemUsage}}' "$container" | cut -d/ -f1)
+  docker rm -f "$container" > /dev/null
+  printf "%-20s %10s ms %12s\n" "$image" "$millis" "$rss"
+}
+
+printf "%-20s %13s %12s\n" "image" "first request" "rss"
+measure "$JVM_IMAGE"
+measure "$NATIVE_IMAGE"
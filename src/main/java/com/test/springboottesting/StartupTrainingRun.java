@@ -0,0 +1,51 @@
+package com.test.springboottesting;
+
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * A training run for the class data sharing (AppCDS) archive of the docker image: the application
+ * is started once during the image build with -XX:ArchiveClassesAtExit, sends a few requests to
+ * itself, reports the startup time and the time to the first request and exits. Every class loaded
+ * until then ends up in the archive, so the real container starts much faster. See the Dockerfile.
+ */
+@Component
+@ConditionalOnProperty(name = "startup.training-run", havingValue = "true")
+public class StartupTrainingRun {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(StartupTrainingRun.class);
+
+  @EventListener
+  public void onApplicationReady(ApplicationReadyEvent event) throws Exception {
+    long startupMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+    int port =
+        ((WebServerApplicationContext) event.getApplicationContext()).getWebServer().getPort();
+
+    HttpClient client = HttpClient.newHttpClient();
+    int status = client
+        .send(request(port, "/api/employees"), HttpResponse.BodyHandlers.discarding())
+        .statusCode();
+    long firstRequestMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+    // some more code paths for the archive
+    client.send(request(port, "/api/employees/1"), HttpResponse.BodyHandlers.discarding());
+
+    LOGGER.info("Training run: started in {} ms, first request to /api/employees ({}) after {} ms",
+        startupMillis, status, firstRequestMillis);
+    System.exit(SpringApplication.exit(event.getApplicationContext()));
+  }
+
+  private static HttpRequest request(int port, String path) {
+    return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).build();
+  }
+}
@@ -0,0 +1,99 @@
+package com.test.springboottesting.config;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limits the number of requests which are processed at the same time, the limit adapts itself to
+ * what the service (and mostly its database) can handle right now. The idea comes from TCP
+ * congestion control (TCP Vegas) and Netflix' concurrency-limits library: a request which takes
+ * longer than the same request without load (the shortest time we have seen lately) waited
+ * somewhere, for a connection, a lock or the cpu. From the ratio of the two times we estimate how
+ * many of the concurrent requests are waiting:
+ *
+ * queue = limit * (1 - minRtt / rtt)
+ *
+ * If only a few are waiting (at most alpha, 3 * log10(limit)), the service could do more and the
+ * limit grows, if many are waiting (more than beta, 6 * log10(limit)) it shrinks. A request which
+ * exceeds the limit is rejected at once instead of waiting in a queue which makes all requests
+ * slow.
+ *
+ * The shortest time is taken from the last 1000 to 2000 requests, so the limit follows a service
+ * which got slower for good (e.g. a bigger table) instead of shrinking forever. It doesn't drift
+ * upwards under a permanent overload, because the limit keeps the queue short and so there are
+ * always requests which didn't wait.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+  private static final int MIN_RTT_WINDOW = 1000;
+
+  private final int minLimit;
+  private final int maxLimit;
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private volatile int limit;
+
+  // guarded by this
+  private double estimatedLimit;
+  private long minRttNanos = Long.MAX_VALUE;
+  private long windowMinRttNanos = Long.MAX_VALUE;
+  private int windowSamples;
+
+  public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.estimatedLimit = initialLimit;
+    this.limit = initialLimit;
+  }
+
+  /**
+   * @return false if the limit is reached, otherwise the request must call {@link #release(long)}
+   *         when it is done
+   */
+  public boolean tryAcquire() {
+    while (true) {
+      int current = inFlight.get();
+      if (current >= limit)
+        return false;
+      if (inFlight.compareAndSet(current, current + 1))
+        return true;
+    }
+  }
+
+  /**
+   * @param rttNanos how long the request took
+   */
+  public void release(long rttNanos) {
+    int current = inFlight.getAndDecrement();
+    update(Math.max(1, rttNanos), current);
+  }
+
+  public int getLimit() {
+    return limit;
+  }
+
+  public int getInFlight() {
+    return inFlight.get();
+  }
+
+  private synchronized void update(long rttNanos, int inFlight) {
+    minRttNanos = Math.min(minRttNanos, rttNanos);
+    windowMinRttNanos = Math.min(windowMinRttNanos, rttNanos);
+    if (++windowSamples == MIN_RTT_WINDOW) {
+      minRttNanos = windowMinRttNanos;
+      windowMinRttNanos = Long.MAX_VALUE;
+      windowSamples = 0;
+    }
+
+    double queue = Math.ceil(estimatedLimit * (1 - (double) minRttNanos / rttNanos));
+    double log = Math.max(1, Math.log10(estimatedLimit));
+    if (queue <= 3 * log) {
+      // with only a few concurrent requests the times say nothing about a higher limit
+      if (inFlight < estimatedLimit / 2)
+        return;
+      estimatedLimit += log;
+    } else if (queue > 6 * log) {
+      estimatedLimit -= log;
+    }
+    estimatedLimit = Math.max(minLimit, Math.min(maxLimit, estimatedLimit));
+    limit = (int) estimatedLimit;
+  }
+}
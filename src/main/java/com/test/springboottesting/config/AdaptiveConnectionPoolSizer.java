@@ -0,0 +1,101 @@
+package com.test.springboottesting.config;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Grows and shrinks the HikariCP pool within [minSize, maxSize] depending on how long threads
+ * waited for a connection since the last check (the hikaricp.connections.acquire timer):
+ *
+ * <ul>
+ * <li>the mean wait time is above the grow threshold, or threads are waiting right now: the pool
+ * grows by a quarter (at least one connection)</li>
+ * <li>nobody waited and less than half of the connections are in use for {@link #SHRINK_AFTER}
+ * checks in a row: the pool shrinks by one connection</li>
+ * </ul>
+ *
+ * So the pool grows fast when it saturates, but does not flap. HikariCP applies a new maximum
+ * right away, surplus idle connections are closed by its housekeeper after the idle timeout. For
+ * that the minimum idle connections are set to minSize, a fixed size pool would never shrink.
+ */
+public class AdaptiveConnectionPoolSizer {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(AdaptiveConnectionPoolSizer.class);
+  static final int SHRINK_AFTER = 3;
+
+  private final HikariDataSource dataSource;
+  private final MeterRegistry meterRegistry;
+  private final int minSize;
+  private final int maxSize;
+  private final Duration growThreshold;
+
+  private long lastCount;
+  private double lastTotalNanos;
+  private int calmChecks;
+
+  /**
+   * @param dataSource the pool to size, may be null if the application doesn't use HikariCP
+   */
+  public AdaptiveConnectionPoolSizer(HikariDataSource dataSource, MeterRegistry meterRegistry,
+      int minSize, int maxSize, Duration growThreshold) {
+    this.dataSource = dataSource;
+    this.meterRegistry = meterRegistry;
+    this.minSize = minSize;
+    this.maxSize = Math.max(minSize, maxSize);
+    this.growThreshold = growThreshold;
+  }
+
+  @Scheduled(fixedDelayString = "${employee.datasource.adaptive.interval:PT10S}",
+      initialDelayString = "${employee.datasource.adaptive.interval:PT10S}")
+  public void adjust() {
+    HikariPoolMXBean pool = dataSource == null ? null : dataSource.getHikariPoolMXBean();
+    if (pool == null) // no hikari pool or not started yet
+      return;
+    HikariConfigMXBean config = dataSource.getHikariConfigMXBean();
+    int size = config.getMaximumPoolSize();
+    if (config.getMinimumIdle() > minSize)
+      config.setMinimumIdle(minSize);
+
+    Duration meanWait = meanWaitSinceLastCheck();
+    int newSize = size;
+    if (meanWait.compareTo(growThreshold) > 0 || pool.getThreadsAwaitingConnection() > 0) {
+      calmChecks = 0;
+      newSize = Math.min(maxSize, size + Math.max(1, size / 4));
+    } else if (pool.getActiveConnections() < size / 2) {
+      if (++calmChecks >= SHRINK_AFTER) {
+        calmChecks = 0;
+        newSize = Math.max(minSize, size - 1);
+      }
+    } else {
+      calmChecks = 0;
+    }
+
+    if (newSize != size) {
+      LOGGER.info("Resizing connection pool {} from {} to {} connections (mean wait {} ms)",
+          dataSource.getPoolName(), size, newSize, meanWait.toMillis());
+      config.setMaximumPoolSize(newSize);
+    }
+  }
+
+  private Duration meanWaitSinceLastCheck() {
+    Timer timer = meterRegistry.find("hikaricp.connections.acquire")
+        .tag("pool", dataSource.getPoolName()).timer();
+    if (timer == null)
+      return Duration.ZERO;
+    long count = timer.count();
+    double totalNanos = timer.totalTime(TimeUnit.NANOSECONDS);
+    long acquired = count - lastCount;
+    double waitedNanos = totalNanos - lastTotalNanos;
+    lastCount = count;
+    lastTotalNanos = totalNanos;
+    return acquired <= 0 ? Duration.ZERO : Duration.ofNanos((long) (waitedNanos / acquired));
+  }
+}
@@ -0,0 +1,49 @@
+package com.test.springboottesting.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Registers the {@link AdmissionControlInterceptor} for the employee API (employee.admission.*).
+ * The export and the import are excluded, they are long transfers which would hold a slot of the
+ * concurrency limit and their duration says nothing about the load of a single request. The current
+ * concurrency limit is published as metric employee.admission.concurrency.limit.
+ */
+@Configuration
+@ConditionalOnProperty(name = "employee.admission.enabled", havingValue = "true")
+public class AdmissionControlConfig implements WebMvcConfigurer {
+
+  private final AdmissionControlInterceptor interceptor;
+
+  public AdmissionControlConfig(
+      @Value("${employee.admission.rate-limit.permits-per-second:100}") double permitsPerSecond,
+      @Value("${employee.admission.rate-limit.burst:200}") int burst,
+      @Value("${employee.admission.rate-limit.max-clients:100000}") int maxClients,
+      @Value("${employee.admission.concurrency.initial-limit:20}") int initialLimit,
+      @Value("${employee.admission.concurrency.min-limit:2}") int minLimit,
+      @Value("${employee.admission.concurrency.max-limit:200}") int maxLimit,
+      ObjectProvider<MeterRegistry> meterRegistry) {
+    AdaptiveConcurrencyLimiter concurrencyLimiter =
+        new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit);
+    meterRegistry.ifAvailable(registry -> {
+      Gauge.builder("employee.admission.concurrency.limit", concurrencyLimiter,
+          AdaptiveConcurrencyLimiter::getLimit).register(registry);
+      Gauge.builder("employee.admission.concurrency.in-flight", concurrencyLimiter,
+          AdaptiveConcurrencyLimiter::getInFlight).register(registry);
+    });
+    interceptor = new AdmissionControlInterceptor(
+        new TokenBucketRateLimiter(permitsPerSecond, burst, maxClients), concurrencyLimiter);
+  }
+
+  @Override
+  public void addInterceptors(InterceptorRegistry registry) {
+    registry.addInterceptor(interceptor).addPathPatterns("/api/employees", "/api/employees/**")
+        .excludePathPatterns("/api/employees/export", "/api/employees/import");
+  }
+}
@@ -0,0 +1,55 @@
+package com.test.springboottesting.config;
+
+import java.time.Duration;
+import org.springframework.web.servlet.HandlerInterceptor;
+import com.test.springboottesting.exception.ServiceOverloadedException;
+import com.test.springboottesting.exception.TooManyRequestsException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Admission control in front of our controllers (and so in front of the EmployeeService): a
+ * request must first pass the rate limit of its client (429 otherwise) and then the concurrency
+ * limit of the service (503 otherwise). The exceptions are turned into problem+json responses by
+ * the GlobalExceptionHandler. A rejected request costs microseconds instead of waiting for a
+ * thread and a database connection it won't get in time anyway.
+ *
+ * The client is the remote address. Behind a proxy that is the proxy, so we set
+ * server.forward-headers-strategy=native: Tomcat then takes the remote address of the client from
+ * the X-Forwarded-For header of a trusted proxy (server.tomcat.remoteip.internal-proxies).
+ */
+public class AdmissionControlInterceptor implements HandlerInterceptor {
+
+  private static final String START = AdmissionControlInterceptor.class.getName() + ".start";
+
+  private final TokenBucketRateLimiter rateLimiter;
+  private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+
+  public AdmissionControlInterceptor(TokenBucketRateLimiter rateLimiter,
+      AdaptiveConcurrencyLimiter concurrencyLimiter) {
+    this.rateLimiter = rateLimiter;
+    this.concurrencyLimiter = concurrencyLimiter;
+  }
+
+  @Override
+  public boolean preHandle(HttpServletRequest request, HttpServletResponse response,
+      Object handler) {
+    long waitNanos = rateLimiter.tryAcquire(request.getRemoteAddr());
+    if (waitNanos > 0)
+      throw new TooManyRequestsException(Duration.ofNanos(waitNanos));
+    if (!concurrencyLimiter.tryAcquire())
+      throw new ServiceOverloadedException();
+    request.setAttribute(START, System.nanoTime());
+    return true;
+  }
+
+  /**
+   * not called if preHandle threw an exception, so only admitted requests are released
+   */
+  @Override
+  public void afterCompletion(HttpServletRequest request, HttpServletResponse response,
+      Object handler, Exception ex) {
+    if (request.getAttribute(START) instanceof Long start)
+      concurrencyLimiter.release(System.nanoTime() - start);
+  }
+}
@@ -0,0 +1,95 @@
+package com.test.springboottesting.config;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Configuration of the HikariCP connection pool, which Spring Boot creates from the
+ * spring.datasource.hikari.* properties. Before the pool is started we
+ *
+ * <ul>
+ * <li>derive its size from the cpu cores, see {@link #poolSize(int, int)}</li>
+ * <li>enable the statement cache of the postgres driver</li>
+ * </ul>
+ *
+ * and afterwards the {@link AdaptiveConnectionPoolSizer} adjusts the size to the load. The time
+ * threads wait for a connection is published as histogram (hikaricp.connections.acquire, see
+ * application.properties), so we can see the pool saturate before the latency spikes.
+ */
+@Configuration
+public class ConnectionPoolConfig {
+
+  /**
+   * static, since a BeanPostProcessor has to be created before all other beans
+   */
+  @Bean
+  public static BeanPostProcessor hikariPoolTuning(Environment environment,
+      @Value("${employee.datasource.max-connections:20}") int maxConnections) {
+    return new BeanPostProcessor() {
+      @Override
+      public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (bean instanceof HikariDataSource dataSource)
+          tune(dataSource, environment, maxConnections);
+        return bean;
+      }
+    };
+  }
+
+  @Bean
+  @ConditionalOnProperty(name = "employee.datasource.adaptive.enabled", havingValue = "true")
+  public AdaptiveConnectionPoolSizer adaptiveConnectionPoolSizer(DataSource dataSource,
+      ObjectProvider<MeterRegistry> meterRegistry,
+      @Value("${employee.datasource.adaptive.min-size:4}") int minSize,
+      @Value("${employee.datasource.max-connections:20}") int maxConnections,
+      @Value("${employee.datasource.adaptive.grow-threshold:5ms}") Duration growThreshold)
+      throws SQLException {
+    // the data source may be wrapped (or even no hikari pool at all, like in a @DataJpaTest)
+    HikariDataSource hikariDataSource = dataSource.isWrapperFor(HikariDataSource.class)
+        ? dataSource.unwrap(HikariDataSource.class)
+        : null;
+    return new AdaptiveConnectionPoolSizer(hikariDataSource,
+        meterRegistry.getIfAvailable(SimpleMeterRegistry::new), minSize, maxConnections,
+        growThreshold);
+  }
+
+  static void tune(HikariDataSource dataSource, Environment environment, int maxConnections) {
+    if (!environment.containsProperty("spring.datasource.hikari.maximum-pool-size"))
+      dataSource.setMaximumPoolSize(
+          poolSize(Runtime.getRuntime().availableProcessors(), maxConnections));
+
+    String url = dataSource.getJdbcUrl();
+    if (url != null && url.startsWith("jdbc:postgresql:")) {
+      // server side prepared statements after the 3rd execution (default 5) and a bigger cache
+      // of them per connection, our queries are few and always the same
+      addIfAbsent(dataSource, "prepareThreshold", "3");
+      addIfAbsent(dataSource, "preparedStatementCacheQueries", "512");
+      addIfAbsent(dataSource, "preparedStatementCacheSizeMiB", "8");
+    }
+  }
+
+  /**
+   * the formula of the postgres wiki cores * 2 + 1 (for a single disk, see
+   * https://wiki.postgresql.org/wiki/Number_Of_Database_Connections), more connections only fight
+   * for the same cpus. But never more than the database allows for this instance (max_connections
+   * divided by the number of instances)
+   */
+  static int poolSize(int cores, int maxConnections) {
+    return Math.max(2, Math.min(cores * 2 + 1, maxConnections));
+  }
+
+  private static void addIfAbsent(HikariDataSource dataSource, String name, String value) {
+    if (!dataSource.getDataSourceProperties().containsKey(name))
+      dataSource.addDataSourceProperty(name, value);
+  }
+}
@@ -0,0 +1,151 @@
+package com.test.springboottesting.config;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+/**
+ * The global email directory of the sharded employee storage: the table employee_email_directory
+ * of the first shard maps every email to the shard of its employee. A lookup by email asks the
+ * directory first and then only the one shard, instead of all of them. Its primary key keeps the
+ * emails unique across all shards, the unique index of a shard only sees its own employees.
+ *
+ * The directory and the shards are different databases, so there is no transaction around both.
+ * An email is claimed before the employee is written and released after the employee is gone (or
+ * its write failed). If the instance dies in between or the release fails, the email stays claimed
+ * (like an email which exists), the directory never points to a shard which doesn't have it yet.
+ * Such a claim would block its email for good, so {@link #releaseOrphanedClaims()} regularly
+ * releases the claims whose shard has no employee with the email. Only claims older than a grace
+ * period, a younger one may belong to a save which is still running.
+ */
+public class EmployeeEmailDirectory {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(EmployeeEmailDirectory.class);
+  private static final int RECONCILE_BATCH_SIZE = 1000;
+
+  private final ShardedDataSources shards;
+  private final Duration gracePeriod;
+  private final JdbcTemplate jdbcTemplate;
+  private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+  /**
+   * the directory on the first shard
+   *
+   * @param gracePeriod how old a claim without employee must be before it is released
+   */
+  public EmployeeEmailDirectory(ShardedDataSources shards, Duration gracePeriod) {
+    this.shards = shards;
+    this.gracePeriod = gracePeriod;
+    jdbcTemplate = new JdbcTemplate(shards.shard(0));
+    namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+  }
+
+  /**
+   * @throws org.springframework.dao.DataIntegrityViolationException if the email is claimed
+   *         already, like the unique index of an unsharded database
+   */
+  public void claim(String email, int shard) {
+    jdbcTemplate.update("insert into employee_email_directory (email, shard) values (?, ?)", email,
+        shard);
+  }
+
+  public void release(String email) {
+    jdbcTemplate.update("delete from employee_email_directory where email = ?", email);
+  }
+
+  public void clear() {
+    jdbcTemplate.update("delete from employee_email_directory");
+  }
+
+  public Optional<Integer> shardOf(String email) {
+    return jdbcTemplate
+        .queryForList("select shard from employee_email_directory where email = ?", Integer.class,
+            email)
+        .stream().findFirst();
+  }
+
+  public Map<String, Integer> shardsOf(Collection<String> emails) {
+    Map<String, Integer> shards = new HashMap<>();
+    if (!emails.isEmpty())
+      namedJdbcTemplate.query(
+          "select email, shard from employee_email_directory where email in (:emails)",
+          Map.of("emails", emails),
+          resultSet -> {
+            shards.put(resultSet.getString("email"), resultSet.getInt("shard"));
+          });
+    return shards;
+  }
+
+  /**
+   * Goes through the claims of every shard in batches and releases the claims older than the
+   * grace period whose email the shard doesn't have (the email of a terminated employee is still
+   * taken). The claimed_at of the directory and the cut-off are both the time of the first shard,
+   * so the clocks of the instances don't matter
+   *
+   * @return the number of released claims
+   */
+  @Scheduled(fixedDelayString = "${employee.sharding.reconcile-interval:PT10M}",
+      initialDelayString = "${employee.sharding.reconcile-interval:PT10M}")
+  public int releaseOrphanedClaims() {
+    OffsetDateTime cutOff = jdbcTemplate
+        .queryForObject("select current_timestamp", OffsetDateTime.class).minus(gracePeriod);
+    int released = 0;
+    for (int shard = 0; shard < shards.count(); shard++) {
+      NamedParameterJdbcTemplate shardJdbcTemplate =
+          new NamedParameterJdbcTemplate(shards.shard(shard));
+      String after = "";
+      for (List<String> claimed = claimedBefore(shard, cutOff, after); !claimed.isEmpty();
+          claimed = claimedBefore(shard, cutOff, after)) {
+        Set<String> stored = new HashSet<>(shardJdbcTemplate.queryForList(
+            "select email from employees where email in (:emails)", Map.of("emails", claimed),
+            String.class));
+        for (String email : claimed)
+          // a new claim of the email in the meantime is younger than the cut-off
+          if (!stored.contains(email))
+            released += jdbcTemplate.update("delete from employee_email_directory "
+                + "where email = ? and shard = ? and claimed_at < ?", email, shard, cutOff);
+        after = claimed.get(claimed.size() - 1);
+      }
+    }
+    if (released > 0)
+      LOGGER.warn("Released {} claimed emails without employee", released);
+    return released;
+  }
+
+  private List<String> claimedBefore(int shard, OffsetDateTime cutOff, String after) {
+    return jdbcTemplate.queryForList("select email from employee_email_directory "
+        + "where shard = ? and claimed_at < ? and email > ? order by email limit "
+        + RECONCILE_BATCH_SIZE, String.class, shard, cutOff, after);
+  }
+
+  /**
+   * fills an empty directory with the employees which exist already, e.g. when an unsharded
+   * database becomes the first shard
+   */
+  public void rebuildIfEmpty() {
+    if (jdbcTemplate.queryForObject("select count(*) from employee_email_directory",
+        Long.class) > 0)
+      return;
+    for (int shard = 0; shard < shards.count(); shard++) {
+      List<String> emails = new JdbcTemplate(shards.shard(shard))
+          .queryForList("select email from employees", String.class);
+      int shardIndex = shard;
+      jdbcTemplate.batchUpdate("insert into employee_email_directory (email, shard) values (?, ?)",
+          emails, 1000, (statement, email) -> {
+            statement.setString(1, email);
+            statement.setInt(2, shardIndex);
+          });
+    }
+  }
+}
@@ -0,0 +1,171 @@
+package com.test.springboottesting.config;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.Optional;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.config.SmartInstantiationAwareBeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import com.test.springboottesting.employee.Employee;
+import com.test.springboottesting.employee.EmployeeEmailCheck;
+import com.test.springboottesting.employee.EmployeeQueryEvent;
+import com.test.springboottesting.employee.EmployeeRepository;
+import com.test.springboottesting.employee.EmployeeService;
+import com.test.springboottesting.employee.EmployeeServiceEvent;
+
+/**
+ * Custom Java Flight Recorder events, so a recording (e.g. java -XX:StartFlightRecording or jcmd
+ * PID JFR.start) shows which request, EmployeeService call and EmployeeRepository query a slow
+ * sample belongs to. The events are only written while a recording runs, otherwise they cost a
+ * check of a flag. {@link FlightRecordingSummary} summarizes the latencies of a .jfr file per
+ * operation.
+ *
+ * The requests are recorded by the {@link FlightRecorderInterceptor}, the queries by a proxy
+ * around the EmployeeRepository and the service calls by a class proxy around the EmployeeService
+ * and its EmployeeEmailCheck, so none of them knows about the events.
+ */
+@Configuration
+@ConditionalOnProperty(name = "employee.jfr.enabled", havingValue = "true", matchIfMissing = true)
+public class FlightRecorderConfig implements WebMvcConfigurer {
+
+  @Override
+  public void addInterceptors(InterceptorRegistry registry) {
+    registry.addInterceptor(new FlightRecorderInterceptor())
+        .addPathPatterns("/api/employees", "/api/employees/**")
+        .order(Ordered.HIGHEST_PRECEDENCE);
+  }
+
+  @Bean
+  public static BeanPostProcessor employeeQueryEventRecorder() {
+    return new BeanPostProcessor() {
+      @Override
+      public Object postProcessAfterInitialization(Object bean, String beanName) {
+        return bean instanceof EmployeeRepository repository ? recordQueries(repository) : bean;
+      }
+    };
+  }
+
+  /**
+   * Only the calls from outside pass the proxy: the lookup within updateEmployee is part of the
+   * updateEmployee event and not an event of its own. Spring AOT asks determineBeanType for the
+   * type of the beans, so the proxy classes are generated at build time, which a native image
+   * needs (it can't generate classes at runtime)
+   */
+  @Bean
+  public static SmartInstantiationAwareBeanPostProcessor employeeServiceEventRecorder() {
+    return new SmartInstantiationAwareBeanPostProcessor() {
+      @Override
+      public Class<?> determineBeanType(Class<?> beanClass, String beanName) {
+        return isServiceClass(beanClass)
+            ? recordServiceCalls(beanClass).getProxyClass(beanClass.getClassLoader())
+            : beanClass;
+      }
+
+      @Override
+      public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!isServiceClass(bean.getClass()))
+          return bean;
+        ProxyFactory proxyFactory = recordServiceCalls(bean.getClass());
+        proxyFactory.setTarget(bean);
+        return proxyFactory.getProxy(bean.getClass().getClassLoader());
+      }
+    };
+  }
+
+  private static boolean isServiceClass(Class<?> beanClass) {
+    return beanClass == EmployeeService.class || beanClass == EmployeeEmailCheck.class;
+  }
+
+  private static ProxyFactory recordServiceCalls(Class<?> serviceClass) {
+    ProxyFactory proxyFactory = new ProxyFactory();
+    proxyFactory.setTargetClass(serviceClass);
+    proxyFactory.setProxyTargetClass(true);
+    proxyFactory.addAdvice((MethodInterceptor) FlightRecorderConfig::recordServiceCall);
+    return proxyFactory;
+  }
+
+  /**
+   * the public methods, the package private setters of the beans are no service calls
+   */
+  static Object recordServiceCall(MethodInvocation invocation) throws Throwable {
+    Method method = invocation.getMethod();
+    if (!Modifier.isPublic(method.getModifiers()) || method.getDeclaringClass() == Object.class)
+      return invocation.proceed();
+    EmployeeServiceEvent event = new EmployeeServiceEvent();
+    event.begin();
+    Object result = null;
+    try {
+      result = invocation.proceed();
+      return result;
+    } finally {
+      event.end();
+      if (event.shouldCommit()) {
+        event.operation = method.getName();
+        event.employeeId = employeeId(invocation.getArguments(), result);
+        event.commit();
+      }
+    }
+  }
+
+  /**
+   * the id the call is about, of a new employee the id it got
+   */
+  private static long employeeId(Object[] args, Object result) {
+    if (args.length > 0 && args[0] instanceof Long id)
+      return id;
+    if (result instanceof Employee employee)
+      return employee.getId();
+    return args.length > 0 && args[0] instanceof Employee employee ? employee.getId() : 0;
+  }
+
+  static EmployeeRepository recordQueries(EmployeeRepository repository) {
+    return (EmployeeRepository) Proxy.newProxyInstance(FlightRecorderConfig.class.getClassLoader(),
+        new Class<?>[] {EmployeeRepository.class}, (proxy, method, args) -> {
+          if (method.getDeclaringClass() == Object.class)
+            return invoke(repository, method, args);
+          EmployeeQueryEvent event = new EmployeeQueryEvent();
+          event.begin();
+          Object result = null;
+          try {
+            result = invoke(repository, method, args);
+            return result;
+          } finally {
+            event.end();
+            if (event.shouldCommit()) {
+              event.operation = method.getName();
+              event.employeeId = args != null && args.length == 1
+                  && args[0] instanceof Long id ? id : 0;
+              event.rows = rows(result);
+              event.commit();
+            }
+          }
+        });
+  }
+
+  private static long rows(Object result) {
+    if (result instanceof Collection<?> employees)
+      return employees.size();
+    if (result instanceof Optional<?> employee)
+      return employee.isPresent() ? 1 : 0;
+    return result instanceof Employee ? 1 : -1;
+  }
+
+  private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+    try {
+      return method.invoke(target, args);
+    } catch (InvocationTargetException e) {
+      throw e.getCause();
+    }
+  }
+}
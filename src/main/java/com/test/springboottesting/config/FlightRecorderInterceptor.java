@@ -0,0 +1,48 @@
+package com.test.springboottesting.config;
+
+import java.util.Map;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import com.test.springboottesting.employee.EmployeeRequestEvent;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Records an {@link EmployeeRequestEvent} per request. The operation is the path pattern and not
+ * the path, so all requests of an endpoint can be grouped (GET /api/employees/{id} instead of one
+ * group per id). It runs first, so requests rejected by the admission control are recorded too
+ */
+public class FlightRecorderInterceptor implements HandlerInterceptor {
+
+  private static final String EVENT = FlightRecorderInterceptor.class.getName() + ".event";
+
+  @Override
+  public boolean preHandle(HttpServletRequest request, HttpServletResponse response,
+      Object handler) {
+    EmployeeRequestEvent event = new EmployeeRequestEvent();
+    if (event.isEnabled()) {
+      event.begin();
+      request.setAttribute(EVENT, event);
+    }
+    return true;
+  }
+
+  @Override
+  public void afterCompletion(HttpServletRequest request, HttpServletResponse response,
+      Object handler, Exception ex) {
+    if (!(request.getAttribute(EVENT) instanceof EmployeeRequestEvent event))
+      return;
+    event.end();
+    if (!event.shouldCommit())
+      return;
+    Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+    event.operation =
+        request.getMethod() + " " + (pattern != null ? pattern : request.getRequestURI());
+    Object variables = request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+    if (variables instanceof Map<?, ?> map && map.get("id") instanceof String id
+        && id.matches("\\d{1,18}"))
+      event.employeeId = Long.parseLong(id);
+    event.status = response.getStatus();
+    event.commit();
+  }
+}
@@ -0,0 +1,88 @@
+package com.test.springboottesting.config;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Summarizes the latency per operation of our custom events (see {@link FlightRecorderConfig}) in
+ * a .jfr file, e.g. the p99 of every EmployeeRepository query. It only needs the JDK, so it runs
+ * without the application:
+ *
+ * java -cp target/classes com.test.springboottesting.config.FlightRecordingSummary recording.jfr
+ *
+ * The rows are sorted by the total time, the operations which cost the most come first.
+ */
+public final class FlightRecordingSummary {
+
+  static final String EVENT_PREFIX = "com.test.springboottesting.";
+
+  private FlightRecordingSummary() {}
+
+  public record Row(String event, String operation, int count, Duration p50, Duration p99,
+      Duration max, Duration total) {
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length == 0) {
+      System.err.println("Usage: FlightRecordingSummary <recording.jfr>...");
+      System.exit(2);
+    }
+    for (String file : args) {
+      System.out.println(file);
+      System.out.print(format(summarize(Path.of(file))));
+    }
+  }
+
+  public static List<Row> summarize(Path recording) throws IOException {
+    // event name -> operation -> durations in nanos
+    Map<String, Map<String, List<Long>>> durations = new TreeMap<>();
+    try (RecordingFile file = new RecordingFile(recording)) {
+      while (file.hasMoreEvents()) {
+        RecordedEvent event = file.readEvent();
+        String name = event.getEventType().getName();
+        if (!name.startsWith(EVENT_PREFIX) || !event.hasField("operation"))
+          continue;
+        durations.computeIfAbsent(name.substring(EVENT_PREFIX.length()), k -> new TreeMap<>())
+            .computeIfAbsent(String.valueOf(event.getString("operation")),
+                k -> new ArrayList<>())
+            .add(event.getDuration().toNanos());
+      }
+    }
+    List<Row> rows = new ArrayList<>();
+    durations.forEach((event, operations) -> operations.forEach((operation, nanos) -> {
+      nanos.sort(null);
+      rows.add(new Row(event, operation, nanos.size(), percentile(nanos, 0.5),
+          percentile(nanos, 0.99), Duration.ofNanos(nanos.get(nanos.size() - 1)),
+          Duration.ofNanos(nanos.stream().mapToLong(Long::longValue).sum())));
+    }));
+    rows.sort(Comparator.comparing(Row::total).reversed());
+    return rows;
+  }
+
+  public static String format(List<Row> rows) {
+    StringBuilder table = new StringBuilder(String.format("%-16s %-40s %8s %10s %10s %10s %12s%n",
+        "event", "operation", "count", "p50 [us]", "p99 [us]", "max [us]", "total [ms]"));
+    for (Row row : rows)
+      table.append(String.format("%-16s %-40s %8d %10d %10d %10d %12d%n", row.event(),
+          row.operation(), row.count(), micros(row.p50()), micros(row.p99()), micros(row.max()),
+          row.total().toMillis()));
+    return table.toString();
+  }
+
+  private static Duration percentile(List<Long> sortedNanos, double percentile) {
+    int index = (int) Math.ceil(percentile * sortedNanos.size()) - 1;
+    return Duration.ofNanos(sortedNanos.get(Math.max(0, index)));
+  }
+
+  private static long micros(Duration duration) {
+    return duration.toNanos() / 1_000;
+  }
+}
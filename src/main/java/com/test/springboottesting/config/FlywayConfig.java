@@ -0,0 +1,26 @@
+package com.test.springboottesting.config;
+
+import java.util.Map;
+import org.springframework.boot.autoconfigure.flyway.FlywayConfigurationCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Flyway settings which have no spring.flyway.* property (yet). The migrations themselves are in
+ * src/main/resources/db/migration.
+ */
+@Configuration
+public class FlywayConfig {
+
+  /**
+   * On postgres flyway holds an advisory lock during the migration. Per default it is a
+   * transaction level lock, which means there is an open transaction the whole time. CREATE INDEX
+   * CONCURRENTLY waits for all open transactions to finish, so it would wait for flyway forever.
+   * With a session level lock there is no such transaction.
+   */
+  @Bean
+  public FlywayConfigurationCustomizer postgresSessionLockCustomizer() {
+    return configuration -> configuration
+        .configuration(Map.of("flyway.postgresql.transactional.lock", "false"));
+  }
+}
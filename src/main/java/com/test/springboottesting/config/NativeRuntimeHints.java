@@ -0,0 +1,45 @@
+package com.test.springboottesting.config;
+
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.data.repository.Repository;
+import org.springframework.transaction.interceptor.TransactionalProxy;
+import com.test.springboottesting.employee.Employee;
+import com.test.springboottesting.employee.EmployeeIdentifierGenerator;
+import com.test.springboottesting.employee.EmployeeRepository;
+
+/**
+ * Hints for a GraalVM native image (mvn -Pnative native:compile). A native image only knows the
+ * classes, proxies and resources found by static analysis, everything used reflectively must be
+ * registered. Spring AOT already contributes most hints (e.g. for the request/response bodies of
+ * our controllers and the repositories), these are the ones it can't see or we don't want to rely
+ * on:
+ * <ul>
+ * <li>Employee is (de)serialized by Jackson outside of controllers (export snapshot, CBOR) and
+ * validated by Hibernate Validator, which reads the constraint annotations of the fields</li>
+ * <li>the id generator of Employee, hibernate instantiates it by its class name</li>
+ * <li>the JDK proxy Spring Data creates for the EmployeeRepository and our proxy around it</li>
+ * <li>the swagger-ui resources of springdoc</li>
+ * </ul>
+ */
+public class NativeRuntimeHints implements RuntimeHintsRegistrar {
+
+  @Override
+  public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+    new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(),
+        Employee.class);
+    hints.reflection().registerType(Employee.class, MemberCategory.DECLARED_FIELDS,
+        MemberCategory.INVOKE_DECLARED_CONSTRUCTORS, MemberCategory.INVOKE_PUBLIC_METHODS);
+    hints.reflection().registerType(EmployeeIdentifierGenerator.class,
+        MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+
+    hints.proxies().registerJdkProxy(AopProxyUtils.completeJdkProxyInterfaces(
+        EmployeeRepository.class, Repository.class, TransactionalProxy.class));
+    hints.proxies().registerJdkProxy(EmployeeRepository.class); // see FlightRecorderConfig
+
+    hints.resources().registerPattern("META-INF/resources/webjars/swagger-ui/**");
+  }
+}
@@ -0,0 +1,13 @@
+package com.test.springboottesting.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables @Scheduled methods, e.g. the periodic refresh of the EmployeeExportSnapshot
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+
+}
@@ -0,0 +1,113 @@
+package com.test.springboottesting.config;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.sql.DataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * The databases (shards) of a sharded employee storage, see {@link ShardingConfig}. The employee
+ * with the id i is on the shard i % n, the id generator only hands out ids of the current shard.
+ *
+ * JPA only knows a single DataSource, the {@link #routingDataSource()}. It hands out connections
+ * of the shard a thread selected with {@link #callOn(int, ShardCall)}, or of the first shard if
+ * none is selected (e.g. for the tables which are not sharded). A transaction keeps the connection
+ * it started with, so a shard must be selected before the transaction starts and all calls within
+ * a transaction must go to the same shard (see {@link #callOn(int, ShardCall)}).
+ */
+public class ShardedDataSources implements AutoCloseable {
+
+  private static final ThreadLocal<Integer> CURRENT_SHARD = new ThreadLocal<>();
+
+  private final List<DataSource> shards;
+  private final DataSource routingDataSource;
+
+  public ShardedDataSources(List<DataSource> shards) {
+    if (shards.isEmpty())
+      throw new IllegalArgumentException("At least one shard is required");
+    this.shards = List.copyOf(shards);
+    Map<Object, Object> targets = new HashMap<>();
+    for (int shard = 0; shard < shards.size(); shard++)
+      targets.put(shard, shards.get(shard));
+    AbstractRoutingDataSource routing = new AbstractRoutingDataSource() {
+      @Override
+      protected Object determineCurrentLookupKey() {
+        return CURRENT_SHARD.get();
+      }
+    };
+    routing.setTargetDataSources(targets);
+    routing.setDefaultTargetDataSource(shards.get(0));
+    routing.afterPropertiesSet();
+    routingDataSource = routing;
+  }
+
+  public int count() {
+    return shards.size();
+  }
+
+  public DataSource shard(int shard) {
+    return shards.get(shard);
+  }
+
+  /**
+   * the shard selected by {@link #callOn(int, ShardCall)}, else the first one
+   */
+  public int currentShard() {
+    Integer shard = CURRENT_SHARD.get();
+    return shard != null ? shard : 0;
+  }
+
+  public DataSource routingDataSource() {
+    return routingDataSource;
+  }
+
+  public int shardOf(long id) {
+    return (int) Math.floorMod(id, (long) shards.size());
+  }
+
+  /**
+   * the shard of a new employee: the emails spread evenly, and the same email always lands on the
+   * same shard
+   */
+  public int shardOf(String email) {
+    return Math.floorMod(email.hashCode(), shards.size());
+  }
+
+  /**
+   * runs the call with connections of the shard. Within a transaction only the shard the
+   * transaction was started on can be called, so the shard must be selected before it starts
+   */
+  public <T> T callOn(int shard, ShardCall<T> call) throws Throwable {
+    if (TransactionSynchronizationManager.isActualTransactionActive()) {
+      if (!Integer.valueOf(shard).equals(CURRENT_SHARD.get()))
+        throw new IllegalStateException("A transaction can't select another shard, it keeps the "
+            + "connection it started with. Select the shard before the transaction starts");
+      return call.call();
+    }
+    Integer previous = CURRENT_SHARD.get();
+    CURRENT_SHARD.set(shard);
+    try {
+      return call.call();
+    } finally {
+      if (previous == null)
+        CURRENT_SHARD.remove();
+      else
+        CURRENT_SHARD.set(previous);
+    }
+  }
+
+  @Override
+  public void close() {
+    for (DataSource shard : shards)
+      if (shard instanceof HikariDataSource pool)
+        pool.close();
+  }
+
+  @FunctionalInterface
+  public interface ShardCall<T> {
+    T call() throws Throwable;
+  }
+}
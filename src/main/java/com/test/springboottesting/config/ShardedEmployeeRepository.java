@@ -0,0 +1,367 @@
+package com.test.springboottesting.config;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.NullHandling;
+import org.springframework.jdbc.core.JdbcTemplate;
+import com.test.springboottesting.employee.Employee;
+import com.test.springboottesting.employee.EmployeeRepository;
+
+/**
+ * The sharding layer under the {@link EmployeeRepository}: a proxy which sends every call to the
+ * shards which have the employees, the repository itself (and the service above it) doesn't know
+ * about the shards.
+ *
+ * <ul>
+ * <li>calls with an id go to the shard of the id (id % shards, see {@link ShardedDataSources})</li>
+ * <li>a new employee goes to the shard of its email hash, its email is claimed in the
+ * {@link EmployeeEmailDirectory} first. A claimed email fails like the unique index of a single
+ * database, with a DataIntegrityViolationException. A release which fails (after a failed write,
+ * a new email or a delete) is logged and left to the reconciliation of the directory, the outcome
+ * of the call is the one of the shard</li>
+ * <li>the lookups by email ask the directory for the shard</li>
+ * <li>all other calls (e.g. findAll, count, the stats) are scattered to all shards and their results
+ * gathered: lists are concatenated, numbers summed up, the first present Optional wins</li>
+ * </ul>
+ *
+ * Every shard call runs in its own transaction, so the repository can only be called within a
+ * transaction which was started on the shard of the call (see EmployeeTransactionRouting) and a
+ * saveAll is not atomic across the shards (the async writer, which relies on
+ * it, is disabled). Pages and sorted lists are merged: every shard returns its part in the order of
+ * the sort, and the gathered lists are merged like in a merge sort, see
+ * {@link #gatherOrdered(Method, Object[], int)}.
+ */
+class ShardedEmployeeRepository implements InvocationHandler {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ShardedEmployeeRepository.class);
+
+  private final EmployeeRepository repository;
+  private final ShardedDataSources shards;
+  private final EmployeeEmailDirectory directory;
+
+  private ShardedEmployeeRepository(EmployeeRepository repository, ShardedDataSources shards,
+      EmployeeEmailDirectory directory) {
+    this.repository = repository;
+    this.shards = shards;
+    this.directory = directory;
+  }
+
+  static EmployeeRepository shard(EmployeeRepository repository, ShardedDataSources shards,
+      EmployeeEmailDirectory directory) {
+    return (EmployeeRepository) Proxy.newProxyInstance(
+        ShardedEmployeeRepository.class.getClassLoader(),
+        new Class<?>[] {EmployeeRepository.class},
+        new ShardedEmployeeRepository(repository, shards, directory));
+  }
+
+  @Override
+  public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+    if (method.getDeclaringClass() == Object.class)
+      return call(repository, method, args);
+    return switch (method.getName()) {
+      case "findById", "existsById", "getReferenceById", "getById", "getOne", "terminateById",
+          "terminateReturningById" ->
+        onShard(shards.shardOf((Long) args[0]), method, args);
+      case "deleteReturningById" -> deleteReturningById(method, (Long) args[0]);
+      case "save", "saveAndFlush" -> save(method, (Employee) args[0]);
+      case "saveAll", "saveAllAndFlush" -> saveAll(method, (Iterable<?>) args[0]);
+      case "deleteById" -> {
+        deleteById(method, (Long) args[0]);
+        yield null;
+      }
+      case "delete" -> {
+        deleteById(method("deleteById", Object.class), ((Employee) args[0]).getId());
+        yield null;
+      }
+      case "deleteAllById", "deleteAllByIdInBatch" -> {
+        for (Object id : (Iterable<?>) args[0])
+          deleteById(method("deleteById", Object.class), (Long) id);
+        yield null;
+      }
+      case "deleteAll", "deleteAllInBatch" -> {
+        if (args == null || args.length == 0) {
+          scatter(method, args);
+          directory.clear();
+        } else {
+          for (Object employee : (Iterable<?>) args[0])
+            deleteById(method("deleteById", Object.class), ((Employee) employee).getId());
+        }
+        yield null;
+      }
+      case "findByEmail" -> {
+        Optional<Integer> shard = directory.shardOf((String) args[0]);
+        yield shard.isPresent() ? onShard(shard.get(), method, args) : Optional.empty();
+      }
+      case "existsByEmail" -> directory.shardOf((String) args[0]).isPresent();
+      case "findAllByEmailIn" -> findAllByEmailIn(method, (Collection<?>) args[0]);
+      case "findAllById" -> findAllById(method, (Iterable<?>) args[0]);
+      default -> scatter(method, args);
+    };
+  }
+
+  private Object save(Method method, Employee employee) throws Throwable {
+    if (employee.getId() == 0) {
+      int shard = shards.shardOf(employee.getEmail());
+      directory.claim(employee.getEmail(), shard);
+      try {
+        return onShard(shard, method, new Object[] {employee});
+      } catch (Throwable e) {
+        release(employee.getEmail(), e);
+        throw e;
+      }
+    }
+    int shard = shards.shardOf(employee.getId());
+    String previousEmail = emailOf(shard, employee.getId());
+    if (employee.getEmail().equals(previousEmail))
+      return onShard(shard, method, new Object[] {employee});
+    directory.claim(employee.getEmail(), shard);
+    Object saved;
+    try {
+      saved = onShard(shard, method, new Object[] {employee});
+    } catch (Throwable e) {
+      release(employee.getEmail(), e);
+      throw e;
+    }
+    if (previousEmail != null)
+      release(previousEmail, null);
+    return saved;
+  }
+
+  private List<Object> saveAll(Method method, Iterable<?> employees) throws Throwable {
+    Method save = method(method.getName().endsWith("Flush") ? "saveAndFlush" : "save",
+        Object.class);
+    List<Object> saved = new ArrayList<>();
+    for (Object employee : employees)
+      saved.add(save(save, (Employee) employee));
+    return saved;
+  }
+
+  private void deleteById(Method deleteById, long id) throws Throwable {
+    int shard = shards.shardOf(id);
+    String email = emailOf(shard, id);
+    onShard(shard, deleteById, new Object[] {id});
+    if (email != null)
+      release(email, null);
+  }
+
+  private Object deleteReturningById(Method method, long id) throws Throwable {
+    Optional<?> deleted = (Optional<?>) onShard(shards.shardOf(id), method, new Object[] {id});
+    deleted.ifPresent(employee -> release(((Employee) employee).getEmail(), null));
+    return deleted;
+  }
+
+  private List<Object> findAllByEmailIn(Method method, Collection<?> emails) throws Throwable {
+    Map<Integer, List<Object>> emailsByShard = new TreeMap<>();
+    directory.shardsOf(emails.stream().map(String.class::cast).toList()).forEach(
+        (email, shard) -> emailsByShard.computeIfAbsent(shard, s -> new ArrayList<>()).add(email));
+    List<Object> employees = new ArrayList<>();
+    for (Map.Entry<Integer, List<Object>> entry : emailsByShard.entrySet())
+      employees.addAll((Collection<?>) onShard(entry.getKey(), method,
+          new Object[] {entry.getValue()}));
+    return employees;
+  }
+
+  private List<Object> findAllById(Method method, Iterable<?> ids) throws Throwable {
+    Map<Integer, List<Object>> idsByShard = new TreeMap<>();
+    for (Object id : ids)
+      idsByShard.computeIfAbsent(shards.shardOf((Long) id), s -> new ArrayList<>()).add(id);
+    List<Object> employees = new ArrayList<>();
+    for (Map.Entry<Integer, List<Object>> entry : idsByShard.entrySet())
+      employees.addAll((Collection<?>) onShard(entry.getKey(), method,
+          new Object[] {entry.getValue()}));
+    return employees;
+  }
+
+  private Object scatter(Method method, Object[] args) throws Throwable {
+    Class<?> type = method.getReturnType();
+    // concatenated, a page or a sorted list would be wrong
+    int ordered = args == null ? -1 : IntStream.range(0, args.length).filter(
+        i -> args[i] instanceof Pageable || args[i] instanceof Sort sort && sort.isSorted())
+        .findFirst().orElse(-1);
+    if (ordered >= 0 && (type == List.class || type == Page.class))
+      return gatherOrdered(method, args, ordered);
+    if (ordered >= 0 || !(type == void.class || List.class.isAssignableFrom(type)
+        || type == Optional.class || type == long.class || type == Long.class || type == int.class
+        || type == boolean.class))
+      throw new UnsupportedOperationException(
+          method.getName() + " can't be gathered from the shards");
+    List<Object> gathered = new ArrayList<>();
+    long sum = 0;
+    boolean any = false;
+    Optional<?> first = Optional.empty();
+    for (int shard = 0; shard < shards.count(); shard++) {
+      Object result = onShard(shard, method, args);
+      if (result instanceof Iterable<?> rows)
+        rows.forEach(gathered::add);
+      else if (result instanceof Number number)
+        sum += number.longValue();
+      else if (result instanceof Boolean value)
+        any |= value;
+      else if (result instanceof Optional<?> optional && first.isEmpty())
+        first = optional;
+    }
+    if (type == void.class)
+      return null;
+    if (type == Optional.class)
+      return first;
+    if (type == boolean.class)
+      return any;
+    if (type == int.class)
+      return Math.toIntExact(sum);
+    return type == long.class || type == Long.class ? sum : gathered;
+  }
+
+  /**
+   * @param failure the failed write of the shard, which the caller gets to see, or null
+   */
+  private void release(String email, Throwable failure) {
+    try {
+      directory.release(email);
+    } catch (RuntimeException e) {
+      LOGGER.warn("Could not release the claimed email {}, the reconciliation of the directory "
+          + "releases it later", email, e);
+      if (failure != null)
+        failure.addSuppressed(e);
+    }
+  }
+
+  /**
+   * A sorted list or a page of all shards. Every shard returns its first offset + size employees in
+   * the order of the sort (by id without one, the shards must agree on an order), the k sorted
+   * lists are merged with a priority queue of their heads and the page is cut out of the result.
+   * So a deep page gets expensive, every shard reads all employees before it.
+   *
+   * The merge compares the properties of the employees with their natural order in java, which is
+   * the order of a database with a binary collation (like H2 or the C collation of postgres). With
+   * a linguistic collation strings of different shards may interleave in another order than one
+   * database would return them, the employees of each shard keep their order though
+   */
+  private Object gatherOrdered(Method method, Object[] args, int ordered) throws Throwable {
+    Pageable pageable = args[ordered] instanceof Pageable page && page.isPaged() ? page : null;
+    Sort sort = args[ordered] instanceof Pageable page ? page.getSort() : (Sort) args[ordered];
+    if (sort.isUnsorted())
+      sort = Sort.by("id");
+    long end = pageable == null ? Long.MAX_VALUE : pageable.getOffset() + pageable.getPageSize();
+    Object[] shardArgs = args.clone();
+    shardArgs[ordered] = pageable != null
+        ? PageRequest.of(0, (int) Math.min(end, Integer.MAX_VALUE), sort)
+        : args[ordered] instanceof Pageable ? Pageable.unpaged() : sort;
+    Comparator<Object> comparator = comparator(sort);
+    List<List<?>> sortedLists = new ArrayList<>();
+    long total = 0;
+    for (int shard = 0; shard < shards.count(); shard++) {
+      Object result = onShard(shard, method, shardArgs);
+      if (result instanceof Page<?> page) {
+        total += page.getTotalElements();
+        if (page.getPageable().isPaged()) {
+          sortedLists.add(page.getContent());
+        } else { // an unpaged request has no sort, but all the employees anyway
+          List<Object> employees = new ArrayList<>(page.getContent());
+          employees.sort(comparator);
+          sortedLists.add(employees);
+        }
+      } else {
+        sortedLists.add((List<?>) result);
+      }
+    }
+    List<Object> merged = merge(sortedLists, comparator, end);
+    if (method.getReturnType() == List.class)
+      return merged;
+    if (pageable == null)
+      return new PageImpl<>(merged);
+    int from = (int) Math.min(pageable.getOffset(), merged.size());
+    return new PageImpl<>(new ArrayList<>(merged.subList(from, merged.size())), pageable, total);
+  }
+
+  /**
+   * k-way merge of sorted lists, at most limit elements. Equal elements come in the order of the
+   * lists, so the result is the same on every call
+   */
+  private static List<Object> merge(List<List<?>> sortedLists, Comparator<Object> comparator,
+      long limit) {
+    // the heads: the index of the list and the position in it
+    PriorityQueue<int[]> heads = new PriorityQueue<>((first, second) -> {
+      int order = comparator.compare(sortedLists.get(first[0]).get(first[1]),
+          sortedLists.get(second[0]).get(second[1]));
+      return order != 0 ? order : Integer.compare(first[0], second[0]);
+    });
+    for (int list = 0; list < sortedLists.size(); list++)
+      if (!sortedLists.get(list).isEmpty())
+        heads.add(new int[] {list, 0});
+    List<Object> merged = new ArrayList<>();
+    while (!heads.isEmpty() && merged.size() < limit) {
+      int[] head = heads.poll();
+      List<?> list = sortedLists.get(head[0]);
+      merged.add(list.get(head[1]));
+      if (++head[1] < list.size())
+        heads.add(head);
+    }
+    return merged;
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static Comparator<Object> comparator(Sort sort) {
+    Comparator<Object> comparator = (first, second) -> 0;
+    for (Sort.Order order : sort) {
+      Comparator<Comparable> values =
+          order.isAscending() ? Comparator.naturalOrder() : Comparator.reverseOrder();
+      Comparator<Comparable> nullsToo = order.getNullHandling() == NullHandling.NULLS_FIRST
+          ? Comparator.nullsFirst(values) : Comparator.nullsLast(values);
+      comparator = comparator.thenComparing(employee -> {
+        Object value = new BeanWrapperImpl(employee).getPropertyValue(order.getProperty());
+        return (Comparable) (order.isIgnoreCase() && value instanceof String text
+            ? text.toLowerCase(Locale.ROOT) : value);
+      }, nullsToo);
+    }
+    return comparator;
+  }
+
+  private Object onShard(int shard, Method method, Object[] args) throws Throwable {
+    return shards.callOn(shard, () -> call(repository, method, args));
+  }
+
+  /**
+   * the current email of the employee on its shard, including terminated employees
+   */
+  private String emailOf(int shard, long id) {
+    return new JdbcTemplate(shards.shard(shard))
+        .queryForList("select email from employees where id = ?", String.class, id).stream()
+        .findFirst().orElse(null);
+  }
+
+  private static Method method(String name, Class<?>... parameterTypes) {
+    try {
+      return EmployeeRepository.class.getMethod(name, parameterTypes);
+    } catch (NoSuchMethodException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static Object call(Object target, Method method, Object[] args) throws Throwable {
+    try {
+      return method.invoke(target, args);
+    } catch (InvocationTargetException e) {
+      throw e.getCause();
+    }
+  }
+}
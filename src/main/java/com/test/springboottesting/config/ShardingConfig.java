@@ -0,0 +1,147 @@
+package com.test.springboottesting.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import javax.sql.DataSource;
+import org.flywaydb.core.Flyway;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.jdbc.DatabaseDriver;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import com.test.springboottesting.employee.EmployeeIdGenerator;
+import com.test.springboottesting.employee.EmployeeRepository;
+import com.test.springboottesting.employee.EmployeeTransactionRouting;
+import com.test.springboottesting.employee.SnowflakeIdGenerator;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Spreads the employees over several databases (employee.sharding.urls, all with the credentials
+ * of spring.datasource.*), when a single one can't keep up with the writes or the data no longer
+ * fits. Every shard gets its own connection pool and its schema is migrated by flyway on startup.
+ *
+ * The shard of an employee is its id % shards: the {@link SnowflakeIdGenerator} only hands out
+ * ids with id % shards == shard for a new employee of a shard, so a lookup by id needs no
+ * directory. The {@link ShardedEmployeeRepository} routes the repository calls, the
+ * {@link EmployeeEmailDirectory} keeps the emails unique.
+ *
+ * The other tables (e.g. idempotency_keys) and everything which uses the DataSource directly stay
+ * on the first shard. The bulk import and the archiver work with set-based SQL on a single database
+ * and the async writer needs an atomic saveAll, they are disabled.
+ */
+@Configuration
+@ConditionalOnProperty(name = "employee.sharding.enabled", havingValue = "true")
+public class ShardingConfig {
+
+  @Bean
+  public ShardedDataSources shardedDataSources(DataSourceProperties properties,
+      Environment environment, @Value("${employee.sharding.urls}") List<String> urls,
+      @Value("${employee.datasource.max-connections:20}") int maxConnections,
+      @Value("${spring.flyway.locations}") String[] locations) {
+    List<DataSource> shards = new ArrayList<>();
+    for (int shard = 0; shard < urls.size(); shard++) {
+      String url = urls.get(shard).strip();
+      HikariDataSource dataSource = DataSourceBuilder.create().type(HikariDataSource.class)
+          .url(url).username(properties.determineUsername())
+          .password(properties.determinePassword()).build();
+      dataSource.setPoolName("employees-shard-" + shard);
+      ConnectionPoolConfig.tune(dataSource, environment, maxConnections);
+      shards.add(dataSource);
+      migrate(dataSource, url, locations);
+    }
+    return new ShardedDataSources(shards);
+  }
+
+  /**
+   * the DataSource of JPA, see {@link ShardedDataSources#routingDataSource()}
+   */
+  @Bean
+  public DataSource dataSource(ShardedDataSources shards) {
+    return shards.routingDataSource();
+  }
+
+  @Bean
+  public EmployeeEmailDirectory employeeEmailDirectory(ShardedDataSources shards,
+      @Value("${employee.sharding.orphaned-claim-grace-period:PT10M}") Duration gracePeriod) {
+    EmployeeEmailDirectory directory = new EmployeeEmailDirectory(shards, gracePeriod);
+    directory.rebuildIfEmpty();
+    return directory;
+  }
+
+  /**
+   * a transaction of the service (e.g. a patch) starts on the shard of the employee, the calls of
+   * the sharded repository within it then stay on that shard
+   */
+  @Bean
+  public EmployeeTransactionRouting employeeTransactionRouting(ShardedDataSources shards) {
+    return new EmployeeTransactionRouting() {
+      @Override
+      public <T> T onDatabaseOf(long id, Supplier<T> transaction) {
+        try {
+          return shards.callOn(shards.shardOf(id), transaction::get);
+        } catch (RuntimeException | Error e) {
+          throw e;
+        } catch (Throwable e) { // a Supplier throws no checked exceptions
+          throw new IllegalStateException(e);
+        }
+      }
+    };
+  }
+
+  /**
+   * puts the sharding layer under the EmployeeRepository and lets the id generator hand out the
+   * ids of the shard the employee is saved on
+   */
+  @Bean
+  public static BeanPostProcessor shardedEmployeeRepository(
+      ObjectProvider<ShardedDataSources> shards, ObjectProvider<EmployeeEmailDirectory> directory) {
+    return new BeanPostProcessor() {
+      @Override
+      public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof EmployeeRepository repository)
+          return ShardedEmployeeRepository.shard(repository, shards.getObject(),
+              directory.getObject());
+        if (bean instanceof SnowflakeIdGenerator idGenerator) {
+          ShardedDataSources dataSources = shards.getObject();
+          return (EmployeeIdGenerator) () -> idGenerator.nextId(dataSources.currentShard(),
+              dataSources.count());
+        }
+        if (bean instanceof EmployeeIdGenerator)
+          throw new IllegalStateException("Sharding needs the ids of the SnowflakeIdGenerator, "
+              + "they tell the shard of an employee");
+        return bean;
+      }
+    };
+  }
+
+  /**
+   * by default Hibernate holds the connection of a session until the session ends, with open
+   * session in view until the end of the request. The routing data source picks the shard when
+   * the connection is acquired, so every transaction has to get its own one
+   */
+  @Bean
+  public HibernatePropertiesCustomizer releaseConnectionsAfterTransaction() {
+    return properties -> properties.put(AvailableSettings.CONNECTION_HANDLING,
+        PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+  }
+
+  private static void migrate(DataSource dataSource, String url, String[] locations) {
+    String vendor = DatabaseDriver.fromJdbcUrl(url).getId();
+    String[] vendorLocations = new String[locations.length];
+    for (int i = 0; i < locations.length; i++)
+      vendorLocations[i] = locations[i].strip().replace("{vendor}", vendor);
+    Flyway.configure().dataSource(dataSource).locations(vendorLocations).baselineOnMigrate(true)
+        .load().migrate();
+  }
+
+}
@@ -0,0 +1,140 @@
+package com.test.springboottesting.config;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.test.springboottesting.SpringBootTestingApplication;
+
+/**
+ * Wraps a DataSource so that statements which take longer than a threshold are logged with their
+ * bind parameters and the method of our code which ran them (e.g. EmployeeService.getEmployeeById),
+ * instead of logging every statement like spring.jpa.show-sql does. Fast statements only cost two
+ * System.nanoTime() calls.
+ *
+ * Only a sample of the slow statements is logged (sampleRate 0.1 logs every 10th on average), so
+ * an overloaded database doesn't also flood the log. Each message tells how many slow statements
+ * were skipped since the last one. The logger writes through an async appender (see
+ * logback-spring.xml), so the request thread never waits for the console.
+ */
+public final class SlowQueryLogging {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(SlowQueryLogging.class);
+  private static final Set<String> EXECUTE_METHODS = Set.of("execute", "executeQuery",
+      "executeUpdate", "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+  private static final String APPLICATION_PACKAGE =
+      SpringBootTestingApplication.class.getPackageName() + ".";
+
+  private final long thresholdNanos;
+  private final double sampleRate;
+  private final AtomicLong skipped = new AtomicLong();
+
+  private SlowQueryLogging(Duration threshold, double sampleRate) {
+    this.thresholdNanos = threshold.toNanos();
+    this.sampleRate = sampleRate;
+  }
+
+  /**
+   * @param threshold statements which take longer are logged
+   * @param sampleRate 0 (log none) - 1 (log all) of the slow statements
+   */
+  public static DataSource wrap(DataSource dataSource, Duration threshold, double sampleRate) {
+    SlowQueryLogging logging = new SlowQueryLogging(threshold, sampleRate);
+    return proxy(DataSource.class, dataSource, (proxy, method, args) -> {
+      if (method.getName().equals("unwrap") && ((Class<?>) args[0]).isInstance(proxy))
+        return proxy;
+      Object result = invoke(dataSource, method, args);
+      return result instanceof Connection connection ? logging.connection(connection) : result;
+    });
+  }
+
+  private Connection connection(Connection connection) {
+    return proxy(Connection.class, connection, (proxy, method, args) -> {
+      Object result = invoke(connection, method, args);
+      if (result instanceof Statement statement) {
+        // prepareStatement(sql, ...) and prepareCall(sql, ...): the sql is known in advance
+        String sql = method.getName().startsWith("prepare") ? (String) args[0] : null;
+        @SuppressWarnings("unchecked")
+        Class<Statement> type = (Class<Statement>) method.getReturnType();
+        return statement(type, statement, sql);
+      }
+      return result;
+    });
+  }
+
+  private Statement statement(Class<Statement> type, Statement statement, String preparedSql) {
+    Map<Integer, Object> parameters = new TreeMap<>();
+    return proxy(type, statement, (proxy, method, args) -> {
+      String name = method.getName();
+      if (name.startsWith("set") && args != null && args.length >= 2
+          && args[0] instanceof Integer index) {
+        parameters.put(index, name.equals("setNull") ? null : args[1]);
+      } else if (name.equals("clearParameters")) {
+        parameters.clear();
+      } else if (EXECUTE_METHODS.contains(name)) {
+        long start = System.nanoTime();
+        try {
+          return invoke(statement, method, args);
+        } finally {
+          long elapsed = System.nanoTime() - start;
+          if (elapsed > thresholdNanos) {
+            String sql = preparedSql != null ? preparedSql
+                : args != null && args.length > 0 && args[0] instanceof String s ? s : "(batch)";
+            log(sql, parameters, elapsed);
+          }
+        }
+      }
+      return invoke(statement, method, args);
+    });
+  }
+
+  private void log(String sql, Map<Integer, Object> parameters, long elapsedNanos) {
+    if (sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+      skipped.incrementAndGet();
+      return;
+    }
+    LOGGER.warn("Slow statement ({} ms) from {}: {} parameters {} ({} slow statements skipped)",
+        Duration.ofNanos(elapsedNanos).toMillis(), caller(), sql, parameters.values(),
+        skipped.getAndSet(0));
+  }
+
+  /**
+   * the first method of our application on the stack, everything above it are proxies of spring,
+   * hibernate and the connection pool
+   */
+  private static String caller() {
+    return StackWalker.getInstance().walk(frames -> frames
+        .filter(frame -> frame.getClassName().startsWith(APPLICATION_PACKAGE)
+            && !frame.getClassName().equals(SlowQueryLogging.class.getName())
+            && !frame.getClassName().contains("$$"))
+        .findFirst()
+        .map(frame -> frame.getClassName().substring(frame.getClassName().lastIndexOf('.') + 1)
+            + "." + frame.getMethodName() + ":" + frame.getLineNumber())
+        .orElse("unknown"));
+  }
+
+  private static <T> T proxy(Class<T> type, T target, InvocationHandler handler) {
+    return type.cast(
+        Proxy.newProxyInstance(SlowQueryLogging.class.getClassLoader(), new Class<?>[] {type},
+            handler));
+  }
+
+  private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+    try {
+      return method.invoke(target, args);
+    } catch (InvocationTargetException e) {
+      throw e.getCause();
+    }
+  }
+}
@@ -0,0 +1,33 @@
+package com.test.springboottesting.config;
+
+import java.time.Duration;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Wraps the DataSource with {@link SlowQueryLogging}. The wrapper delegates unwrap(), so Spring
+ * Boot (e.g. the connection pool metrics) and the {@link AdaptiveConnectionPoolSizer} still find
+ * the HikariDataSource behind it.
+ */
+@Configuration
+@ConditionalOnProperty(name = "employee.sql.slow-query.enabled", havingValue = "true")
+public class SlowQueryLoggingConfig {
+
+  @Bean
+  public static BeanPostProcessor slowQueryLoggingDataSourceWrapper(
+      @Value("${employee.sql.slow-query.threshold:200ms}") Duration threshold,
+      @Value("${employee.sql.slow-query.sample-rate:0.1}") double sampleRate) {
+    return new BeanPostProcessor() {
+      @Override
+      public Object postProcessAfterInitialization(Object bean, String beanName) {
+        return bean instanceof DataSource dataSource
+            ? SlowQueryLogging.wrap(dataSource, threshold, sampleRate)
+            : bean;
+      }
+    };
+  }
+}
@@ -0,0 +1,103 @@
+package com.test.springboottesting.config;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * A token bucket per client: every client may send burst requests at once and then permitsPerSecond
+ * requests per second. The bucket doesn't count tokens, it only stores the point in time at which
+ * it is full again (the "generic cell rate algorithm"): every request moves that point by the time
+ * one token needs to refill, and a request is allowed as long as the point is at most burst tokens
+ * in the future. So a bucket is a single AtomicLong which is updated with compareAndSet, requests
+ * never wait for a lock, not even requests of the same client.
+ *
+ * A full bucket is the same as no bucket, so when there are maxClients buckets the full ones are
+ * dropped. That sweep looks at every bucket, so it runs at most once per refill time of a whole
+ * burst (before that, hardly any bucket got full again). In between, and when all buckets are in
+ * use, a new client drops the fullest of a few buckets: the one which forgets the least. So there
+ * are never more than maxClients buckets (plus the new clients of concurrent requests).
+ */
+public class TokenBucketRateLimiter {
+
+  private final long nanosPerPermit;
+  private final long burstNanos;
+  private final int maxClients;
+  private final LongSupplier nanoClock;
+  private final ConcurrentMap<String, AtomicLong> fullAt = new ConcurrentHashMap<>();
+  private final AtomicLong nextSweep;
+
+  private static final int EVICTION_SAMPLES = 8;
+
+  public TokenBucketRateLimiter(double permitsPerSecond, int burst, int maxClients) {
+    this(permitsPerSecond, burst, maxClients, System::nanoTime);
+  }
+
+  TokenBucketRateLimiter(double permitsPerSecond, int burst, int maxClients,
+      LongSupplier nanoClock) {
+    this.nanosPerPermit = (long) (1_000_000_000L / permitsPerSecond);
+    this.burstNanos = burst * nanosPerPermit;
+    this.maxClients = maxClients;
+    this.nanoClock = nanoClock;
+    this.nextSweep = new AtomicLong(nanoClock.getAsLong());
+  }
+
+  /**
+   * @return 0 if the client may send the request, otherwise the nanoseconds until it may send the
+   *         next one
+   */
+  public long tryAcquire(String client) {
+    long now = nanoClock.getAsLong();
+    AtomicLong bucket = fullAt.get(client);
+    if (bucket == null) {
+      makeRoom(now);
+      bucket = fullAt.computeIfAbsent(client, key -> new AtomicLong(now));
+    }
+    while (true) {
+      long full = bucket.get();
+      long newFull = (full - now > 0 ? full : now) + nanosPerPermit;
+      long overdraft = newFull - now - burstNanos;
+      if (overdraft > 0)
+        return overdraft;
+      if (bucket.compareAndSet(full, newFull))
+        return 0;
+    }
+  }
+
+  private void makeRoom(long now) {
+    if (fullAt.size() < maxClients)
+      return;
+    long sweep = nextSweep.get();
+    // only one of the concurrent requests sweeps
+    if (now - sweep >= 0 && nextSweep.compareAndSet(sweep, now + Math.max(burstNanos, 1)))
+      fullAt.values().removeIf(full -> full.get() - now <= 0);
+    while (fullAt.size() >= maxClients)
+      evictOne(now);
+  }
+
+  /**
+   * removes a full bucket or else the one of the first few buckets of the map which is full first
+   */
+  private void evictOne(long now) {
+    Map.Entry<String, AtomicLong> fullest = null;
+    Iterator<Map.Entry<String, AtomicLong>> iterator = fullAt.entrySet().iterator();
+    for (int i = 0; i < EVICTION_SAMPLES && iterator.hasNext(); i++) {
+      Map.Entry<String, AtomicLong> candidate = iterator.next();
+      if (candidate.getValue().get() - now <= 0) {
+        fullest = candidate;
+        break;
+      }
+      if (fullest == null || candidate.getValue().get() - fullest.getValue().get() < 0)
+        fullest = candidate;
+    }
+    if (fullest != null)
+      fullAt.remove(fullest.getKey(), fullest.getValue());
+  }
+
+  int clients() {
+    return fullAt.size();
+  }
+}
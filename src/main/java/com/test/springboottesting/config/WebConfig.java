@@ -0,0 +1,26 @@
+package com.test.springboottesting.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+
+/**
+ * Web related configuration. Spring Boot picks up every HttpMessageConverter bean and uses it for
+ * content negotiation, so a client which sends "Accept: application/cbor" (or a body with
+ * "Content-Type: application/cbor") gets the compact binary CBOR format
+ * (https://datatracker.ietf.org/doc/html/rfc8949) instead of JSON. Error responses (ProblemDetail)
+ * are serialized the same way. We build the CBOR mapper from the Spring Boot builder so it shares
+ * all customizations (modules, spring.jackson.* properties) of the JSON ObjectMapper.
+ */
+@Configuration
+public class WebConfig {
+
+  @Bean
+  public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(
+      Jackson2ObjectMapperBuilder builder) {
+    return new MappingJackson2CborHttpMessageConverter(
+        builder.factory(new CBORFactory()).build());
+  }
+}
@@ -1,9 +1,12 @@
 package com.test.springboottesting.employee;
 
+import java.util.Locale;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Where;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
 import jakarta.validation.constraints.Email;
@@ -15,13 +18,28 @@ import jakarta.validation.constraints.NotBlank;
  * field must not be blank. E.g. in the {@link EmployeeController} we can call @Valid if we create
  * an Employee from a Body and fail early if the Body is not a valid Employee. The validation is
  * also tested as a demonstration in EmployeeTest.
+ *
+ * With @DynamicUpdate hibernate builds the UPDATE statement for the changed columns only, instead
+ * of one statement which sets all columns, e.g. a PATCH of the email only sends the email.
+ *
+ * With @Where every query of hibernate (including the lookup by id) only sees the active
+ * employees. Terminated ones are invisible until the EmployeeArchiver moves them into the archive
+ * table. Native queries must add the condition themselves.
+ *
+ * The ids are generated by the application, not by the database (see
+ * {@link EmployeeIdentifierGenerator}). The IDENTITY column of the table is only used by the
+ * set-based inserts of the EmployeeImporter.
  */
 @Entity
+@DynamicUpdate
+@Where(clause = "terminated_at is null")
 @Table(name = "employees")
 public class Employee {
 
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(generator = "employee-id")
+  @GenericGenerator(name = "employee-id",
+      strategy = "com.test.springboottesting.employee.EmployeeIdentifierGenerator")
   private long id;
 
   @NotBlank
@@ -43,7 +61,7 @@ public class Employee {
     super();
     this.firstName = firstName;
     this.lastName = lastName;
-    this.email = email;
+    this.email = normalizeEmail(email);
     this.id = id;
   }
 
@@ -51,7 +69,7 @@ public class Employee {
     this.id = builder.id;
     this.firstName = builder.firstName;
     this.lastName = builder.lastName;
-    this.email = builder.email;
+    this.email = normalizeEmail(builder.email);
   }
 
   public long getId() {
@@ -83,7 +101,17 @@ public class Employee {
   }
 
   public void setEmail(String email) {
-    this.email = email;
+    this.email = normalizeEmail(email);
+  }
+
+  /**
+   * Emails are case-insensitive in practice, "John.Doe@Email.com" and "johndoe@email.com" are
+   * the same person. So we store them in lower case: a lookup by email is an exact match on the
+   * unique email index (V4 of the migrations) and duplicates which only differ in case are rejected.
+   * A lower(email) index would do the same on postgres, but h2 has no indexes on expressions.
+   */
+  public static String normalizeEmail(String email) {
+    return email == null ? null : email.toLowerCase(Locale.ROOT);
   }
 
   public static Builder builder() {
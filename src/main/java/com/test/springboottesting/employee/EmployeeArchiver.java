@@ -0,0 +1,139 @@
+package com.test.springboottesting.employee;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Moves terminated employees (see {@link EmployeeService#terminateEmployee(long)}) from the
+ * employees table into employees_archive, once they are terminated longer than a grace period. So
+ * the employees table and its indexes only contain the active employees and a few recently
+ * terminated ones, instead of every employee we ever had.
+ *
+ * The rows are moved in small batches, each one in its own short transaction, so the job never
+ * holds the locks of many rows for long and the requests which write employees at the same time
+ * only wait for a single batch. On PostgreSQL a batch skips rows which are locked by someone else
+ * (they are moved by the next run) and gives up if it waits longer than the lock timeout for a
+ * lock. The next run continues where it stopped.
+ *
+ * We use an archive table instead of a partition per state or time range: with declarative
+ * partitioning of PostgreSQL the primary key and the unique email index would have to contain the
+ * partition key, so neither the id nor the email would be unique across all partitions anymore.
+ *
+ * The statements move the rows within a single database, so the archiver is disabled for a sharded
+ * storage (see com.test.springboottesting.config.ShardingConfig).
+ */
+@Component
+@ConditionalOnExpression("${employee.archive.enabled:true} and !${employee.sharding.enabled:false}")
+public class EmployeeArchiver {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(EmployeeArchiver.class);
+
+  private JdbcTemplate jdbcTemplate;
+  private TransactionTemplate transactionTemplate;
+  private Duration gracePeriod;
+  private int batchSize;
+  private Duration lockTimeout;
+  private Duration pause;
+  private Clock clock;
+
+  private volatile Boolean postgres;
+
+  @Autowired
+  public EmployeeArchiver(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+      @Value("${employee.archive.grace-period:P30D}") Duration gracePeriod,
+      @Value("${employee.archive.batch-size:500}") int batchSize,
+      @Value("${employee.archive.lock-timeout:PT1S}") Duration lockTimeout,
+      @Value("${employee.archive.pause:PT0.1S}") Duration pause) {
+    this(jdbcTemplate, transactionTemplate, gracePeriod, batchSize, lockTimeout, pause,
+        Clock.systemUTC());
+  }
+
+  EmployeeArchiver(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+      Duration gracePeriod, int batchSize, Duration lockTimeout, Duration pause, Clock clock) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionTemplate = transactionTemplate;
+    this.gracePeriod = gracePeriod;
+    this.batchSize = batchSize;
+    this.lockTimeout = lockTimeout;
+    this.pause = pause;
+    this.clock = clock;
+  }
+
+  @Scheduled(fixedDelayString = "${employee.archive.interval:PT1H}",
+      initialDelayString = "${employee.archive.interval:PT1H}")
+  public void archiveScheduled() {
+    try {
+      long archived = archive();
+      if (archived > 0)
+        LOGGER.info("Archived {} terminated employees", archived);
+    } catch (DataAccessException e) {
+      LOGGER.warn("Archiving terminated employees failed, the next run continues", e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * @return the number of archived employees
+   */
+  public long archive() throws InterruptedException {
+    Timestamp cutoff = Timestamp.from(clock.instant().minus(gracePeriod));
+    long archived = 0;
+    int moved;
+    do {
+      moved = archiveBatch(cutoff);
+      archived += moved;
+      if (moved == batchSize && !pause.isZero())
+        Thread.sleep(pause.toMillis()); // let the vacuum and the other writers catch up
+    } while (moved == batchSize);
+    return archived;
+  }
+
+  private int archiveBatch(Timestamp cutoff) {
+    return transactionTemplate.execute(status -> {
+      boolean isPostgres = isPostgres();
+      if (isPostgres)
+        jdbcTemplate.execute("set local lock_timeout = " + lockTimeout.toMillis());
+      List<Long> ids = jdbcTemplate.queryForList(
+          "select id from employees where terminated_at < ? order by terminated_at, id "
+              + "fetch first " + batchSize + " rows only"
+              + (isPostgres ? " for update skip locked" : ""),
+          Long.class, cutoff);
+      if (ids.isEmpty())
+        return 0;
+      String in = String.join(", ", Collections.nCopies(ids.size(), "?"));
+      Object[] archiveArgs = new Object[ids.size() + 1];
+      archiveArgs[0] = Timestamp.from(clock.instant());
+      for (int i = 0; i < ids.size(); i++)
+        archiveArgs[i + 1] = ids.get(i);
+      jdbcTemplate.update("insert into employees_archive "
+          + "(id, first_name, last_name, email, terminated_at, archived_at) "
+          + "select id, first_name, last_name, email, terminated_at, ? from employees "
+          + "where id in (" + in + ")", archiveArgs);
+      jdbcTemplate.update("delete from employees where id in (" + in + ")", ids.toArray());
+      return ids.size();
+    });
+  }
+
+  private boolean isPostgres() {
+    Boolean result = postgres;
+    if (result == null)
+      postgres = result = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> connection
+          .getMetaData().getDatabaseProductName().equals("PostgreSQL"));
+    return result;
+  }
+}
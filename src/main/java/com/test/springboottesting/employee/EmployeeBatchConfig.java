@@ -0,0 +1,25 @@
+package com.test.springboottesting.employee;
+
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Enables the {@link EmployeeBatchLoader} with employee.batch.enabled=true. It is off per default,
+ * since the window adds latency which only pays off if there are many concurrent lookups.
+ */
+@Configuration
+public class EmployeeBatchConfig {
+
+  @Bean
+  @ConditionalOnProperty(name = "employee.batch.enabled", havingValue = "true")
+  public EmployeeBatchLoader employeeBatchLoader(EmployeeRepository employeeRepository,
+      @Value("${employee.batch.window:2ms}") Duration window,
+      @Value("${employee.batch.max-size:100}") int maxSize,
+      @Value("${employee.batch.timeout:PT2S}") Duration timeout,
+      @Value("${employee.batch.threads:2}") int threads) {
+    return new EmployeeBatchLoader(employeeRepository, window, maxSize, timeout, threads);
+  }
+}
@@ -0,0 +1,174 @@
+package com.test.springboottesting.employee;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Micro-batching of lookups by id (like the DataLoader of GraphQL): lookups which arrive within a
+ * short window are collected and loaded with a single findAllById (select ... where id in (...))
+ * instead of one query per id. A batch is sent when the window is over or when it is full
+ * (maxBatchSize), whatever comes first. A full batch is loaded by the thread which filled it,
+ * the others by a small pool of loader threads.
+ *
+ * The window adds up to its length to the latency of a single lookup, but thousands of concurrent
+ * lookups need only a few database round trips instead of thousands.
+ */
+public class EmployeeBatchLoader implements AutoCloseable {
+
+  private final EmployeeRepository employeeRepository;
+  private final Duration window;
+  private final int maxBatchSize;
+  private final Duration timeout;
+  private final ScheduledExecutorService scheduler;
+  private final AtomicInteger batches = new AtomicInteger();
+
+  private Batch current;
+
+  /**
+   * @param timeout how long a caller waits for its batch at most
+   */
+  public EmployeeBatchLoader(EmployeeRepository employeeRepository, Duration window,
+      int maxBatchSize, Duration timeout, int threads) {
+    this.employeeRepository = employeeRepository;
+    this.window = window;
+    this.maxBatchSize = maxBatchSize;
+    this.timeout = timeout;
+    AtomicInteger threadNumber = new AtomicInteger();
+    this.scheduler = Executors.newScheduledThreadPool(threads, runnable -> {
+      Thread thread = new Thread(runnable, "employee-batch-" + threadNumber.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  public CompletableFuture<Optional<Employee>> load(long id) {
+    CompletableFuture<Optional<Employee>> future = new CompletableFuture<>();
+    Batch fullBatch = null;
+    synchronized (this) {
+      if (current == null) {
+        Batch batch = new Batch();
+        current = batch;
+        scheduler.schedule(() -> dispatchIfCurrent(batch), window.toNanos(), TimeUnit.NANOSECONDS);
+      }
+      current.add(id, future);
+      if (current.size() >= maxBatchSize) {
+        fullBatch = current;
+        current = null;
+      }
+    }
+    if (fullBatch != null)
+      dispatch(fullBatch);
+    return future;
+  }
+
+  /**
+   * blocks until the batch with the id was loaded
+   */
+  public Optional<Employee> get(long id) {
+    return await(load(id));
+  }
+
+  /**
+   * @return the found employees by id, ids which don't exist are missing
+   */
+  public Map<Long, Employee> getAll(Collection<Long> ids) {
+    Map<Long, CompletableFuture<Optional<Employee>>> futures = new HashMap<>();
+    for (long id : new LinkedHashSet<>(ids))
+      futures.put(id, load(id));
+    Map<Long, Employee> employees = new HashMap<>();
+    futures.forEach(
+        (id, future) -> await(future).ifPresent(employee -> employees.put(id, employee)));
+    return employees;
+  }
+
+  /**
+   * @return the number of queries sent to the database so far
+   */
+  public int batches() {
+    return batches.get();
+  }
+
+  @Override
+  public void close() {
+    scheduler.shutdownNow();
+  }
+
+  private void dispatchIfCurrent(Batch batch) {
+    synchronized (this) {
+      if (current != batch)
+        return; // it was full and is already dispatched
+      current = null;
+    }
+    dispatch(batch);
+  }
+
+  private void dispatch(Batch batch) {
+    batches.incrementAndGet();
+    try {
+      Map<Long, Employee> employees = new HashMap<>();
+      for (Employee employee : employeeRepository.findAllById(batch.ids()))
+        employees.put(employee.getId(), employee);
+      Set<Long> completed = new HashSet<>();
+      for (Request request : batch.requests) {
+        Employee employee = employees.get(request.id());
+        // every caller gets its own instance, an id may have been requested more than once
+        if (employee != null && !completed.add(request.id()))
+          employee = OnHeapEmployeeCache.copy(employee);
+        request.future().complete(Optional.ofNullable(employee));
+      }
+    } catch (RuntimeException | Error e) {
+      batch.requests.forEach(request -> request.future().completeExceptionally(e));
+    }
+  }
+
+  private Optional<Employee> await(CompletableFuture<Optional<Employee>> future) {
+    try {
+      return future.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      throw new IllegalStateException("Batch lookup timed out after " + timeout, e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException runtimeException)
+        throw runtimeException;
+      throw (Error) e.getCause();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for a batch lookup", e);
+    }
+  }
+
+  private record Request(long id, CompletableFuture<Optional<Employee>> future) {
+  }
+
+  private static class Batch {
+    private final List<Request> requests = new ArrayList<>();
+
+    void add(long id, CompletableFuture<Optional<Employee>> future) {
+      requests.add(new Request(id, future));
+    }
+
+    int size() {
+      return requests.size();
+    }
+
+    Set<Long> ids() {
+      Set<Long> ids = new LinkedHashSet<>();
+      requests.forEach(request -> ids.add(request.id()));
+      return ids;
+    }
+  }
+}
@@ -0,0 +1,46 @@
+package com.test.springboottesting.employee;
+
+import java.util.Optional;
+
+/**
+ * A read cache in front of the {@link EmployeeRepository}, used by the {@link EmployeeService} for
+ * lookups by id. The service keeps it up to date on every write. Which implementation is used is
+ * configured with the property employee.cache.type (see {@link EmployeeCacheConfig}).
+ */
+public interface EmployeeCache {
+
+  /**
+   * a cache which never caches anything, this is the default
+   */
+  EmployeeCache NONE = new EmployeeCache() {
+    @Override
+    public Optional<Employee> get(long id) {
+      return Optional.empty();
+    }
+
+    @Override
+    public void put(Employee employee) {}
+
+    @Override
+    public void evict(long id) {}
+  };
+
+  Optional<Employee> get(long id);
+
+  void put(Employee employee);
+
+  void evict(long id);
+
+  default void putAll(Iterable<Employee> employees) {
+    employees.forEach(this::put);
+  }
+
+  /**
+   * for an employee which may be older than what other instances cached (e.g. from the
+   * {@link EmployeeSnapshotStore}): only caches it in this instance, a cache shared with other
+   * instances keeps its entry
+   */
+  default void putLocal(Employee employee) {
+    put(employee);
+  }
+}
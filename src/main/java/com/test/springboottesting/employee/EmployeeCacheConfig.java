@@ -0,0 +1,73 @@
+package com.test.springboottesting.employee;
+
+import java.net.URI;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Selects the {@link EmployeeCache} with the property employee.cache.type. Per default nothing is
+ * cached, since our tests (and maybe other applications) write directly into the database and
+ * would otherwise read stale data. Every cache has a time to live, which bounds how long a change
+ * the cache didn't see (e.g. made by another instance or directly in the database) is served stale.
+ */
+@Configuration
+public class EmployeeCacheConfig {
+
+  @Bean
+  @ConditionalOnProperty(name = "employee.cache.type", havingValue = "on-heap")
+  public EmployeeCache onHeapEmployeeCache(
+      @Value("${employee.cache.max-size:1000000}") int maxSize,
+      @Value("${employee.cache.ttl:PT10M}") Duration ttl) {
+    return new OnHeapEmployeeCache(maxSize, ttl);
+  }
+
+  @Bean
+  @ConditionalOnProperty(name = "employee.cache.type", havingValue = "off-heap")
+  public EmployeeCache offHeapEmployeeStore(
+      @Value("${employee.cache.off-heap.max-size:1GB}") DataSize maxSize,
+      @Value("${employee.cache.ttl:PT10M}") Duration ttl) {
+    return new OffHeapEmployeeStore(maxSize.toBytes(), ttl);
+  }
+
+  /**
+   * without employee.cache.shared.uri (e.g. redis://localhost:6379) the shared tier is an in-memory
+   * stand-in, that's only useful for a single instance
+   */
+  @Bean
+  @ConditionalOnProperty(name = "employee.cache.type", havingValue = "two-tier")
+  public SharedEmployeeCache sharedEmployeeCache(
+      @Value("${employee.cache.shared.uri:}") String uri,
+      @Value("${employee.cache.shared.ttl:PT10M}") Duration ttl,
+      @Value("${employee.cache.shared.pool-size:4}") int poolSize,
+      @Value("${employee.cache.max-size:1000000}") int maxSize) {
+    if (uri.isBlank())
+      return new InMemorySharedEmployeeCache(maxSize, ttl);
+    URI serverUri = URI.create(uri);
+    return new RespSharedEmployeeCache(serverUri.getHost(),
+        serverUri.getPort() < 0 ? 6379 : serverUri.getPort(), ttl, poolSize);
+  }
+
+  /**
+   * the return type must be the class and not EmployeeCache, otherwise spring doesn't find the
+   * event listener of a lazy (not yet created) bean
+   */
+  @Bean
+  @ConditionalOnProperty(name = "employee.cache.type", havingValue = "two-tier")
+  public TwoTierEmployeeCache twoTierEmployeeCache(SharedEmployeeCache sharedEmployeeCache,
+      @Value("${employee.cache.near.max-size:10000}") int nearMaxSize,
+      @Value("${employee.cache.near.ttl:PT1M}") Duration nearTtl) {
+    return new TwoTierEmployeeCache(new OnHeapEmployeeCache(nearMaxSize, nearTtl),
+        sharedEmployeeCache);
+  }
+
+  @Bean
+  @ConditionalOnMissingBean
+  public EmployeeCache employeeCache() {
+    return EmployeeCache.NONE;
+  }
+}
@@ -0,0 +1,30 @@
+package com.test.springboottesting.employee;
+
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counts the changes made through the {@link EmployeeService} of this instance. Components which
+ * derive data from the employees table (e.g. the {@link EmployeeExportSnapshot}) remember the
+ * counter value they were built with and can cheaply check whether they are stale.
+ */
+@Component
+public class EmployeeChangeCounter {
+
+  private final AtomicLong changes = new AtomicLong();
+
+  @EventListener
+  public void onEmployeeChanged(EmployeeChangedEvent event) {
+    changes.incrementAndGet();
+  }
+
+  @EventListener
+  public void onEmployeesImported(EmployeesImportedEvent event) {
+    changes.addAndGet(event.count());
+  }
+
+  public long get() {
+    return changes.get();
+  }
+}
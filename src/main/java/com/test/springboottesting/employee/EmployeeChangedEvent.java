@@ -0,0 +1,9 @@
+package com.test.springboottesting.employee;
+
+/**
+ * Published by the {@link EmployeeService} after an {@link Employee} was created, updated or
+ * deleted. Other components (e.g. {@link EmployeeChangeCounter}) can listen to it with
+ * an @EventListener and don't need to know the service.
+ */
+public record EmployeeChangedEvent(long employeeId) {
+}
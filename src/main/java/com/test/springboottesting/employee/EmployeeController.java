@@ -1,33 +1,59 @@
 package com.test.springboottesting.employee;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import com.test.springboottesting.exception.InvalidFieldsException;
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
 
 @RestController
 @RequestMapping("/api/employees")
 public class EmployeeController {
 
+  static final int MAX_IDS = 1000;
+  static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+  private static final Set<String> PATCHABLE_FIELDS = Set.of("firstName", "lastName", "email");
+
   private EmployeeService employeeService;
 
-  public EmployeeController(EmployeeService employeeService) {
+  private Validator validator;
+
+  public EmployeeController(EmployeeService employeeService, Validator validator) {
     this.employeeService = employeeService;
+    this.validator = validator;
   }
 
+  /**
+   * with an Idempotency-Key header (e.g. a UUID per employee the client wants to create) the client
+   * can safely retry, it gets the employee of the first successful request again
+   */
   @PostMapping
   @ResponseStatus(HttpStatus.CREATED)
-  public Employee createEmployee(@Valid @RequestBody Employee employee) {
-    return employeeService.saveEmployee(employee);
+  public Employee createEmployee(@Valid @RequestBody Employee employee,
+      @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey) {
+    if (idempotencyKey == null)
+      return employeeService.saveEmployee(employee);
+    if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH)
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+          "The Idempotency-Key must have 1 to " + MAX_IDEMPOTENCY_KEY_LENGTH + " characters");
+    return employeeService.saveEmployee(employee, idempotencyKey);
   }
 
   @GetMapping
@@ -35,6 +61,18 @@ public class EmployeeController {
     return employeeService.getAllEmployees();
   }
 
+  /**
+   * multi-get, e.g. /api/employees?ids=1,2,3: one request and one query instead of one per id.
+   * Employees which don't exist are missing in the result
+   */
+  @GetMapping(params = "ids")
+  public List<Employee> getEmployeesByIds(@RequestParam("ids") List<Long> ids) {
+    if (ids.size() > MAX_IDS)
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+          "At most " + MAX_IDS + " ids are allowed, but got " + ids.size());
+    return employeeService.getEmployeesByIds(ids);
+  }
+
   @GetMapping("{id}")
   public ResponseEntity<Employee> getEmployeeById(@PathVariable("id") long employeeId) {
     // we could also throw an exception here! It would be more standardized to have a problem+json
@@ -49,6 +87,25 @@ public class EmployeeController {
     return employeeService.updateEmployee(employee);
   }
 
+  /**
+   * a partial update, e.g. {"email": "john.doe@email.com"} only changes the email. The fields of
+   * the patch are validated one by one, since the patch itself is no valid employee
+   */
+  @PatchMapping(path = "{id}", consumes = "application/merge-patch+json")
+  public Employee patchEmployee(@PathVariable("id") long employeeId,
+      @RequestBody Map<String, Object> patch) {
+    return employeeService.patchEmployee(employeeId, toMergePatch(employeeId, patch));
+  }
+
+  /**
+   * the employee left the company. Unlike a delete the employee is kept, in the archive
+   */
+  @PostMapping("{id}/termination")
+  @ResponseStatus(HttpStatus.NO_CONTENT)
+  public void terminateEmployee(@PathVariable("id") long employeeId) {
+    employeeService.terminateEmployee(employeeId);
+  }
+
   @DeleteMapping("{id}")
   public ResponseEntity<String> deleteEmployee(@PathVariable("id") long employeeId) {
 
@@ -57,4 +114,27 @@ public class EmployeeController {
     return new ResponseEntity<>("Employee deleted successfully!", HttpStatus.OK);
 
   }
+
+  private EmployeeMergePatch toMergePatch(long employeeId, Map<String, Object> patch) {
+    Map<String, String> values = new HashMap<>();
+    Map<String, String> errors = new HashMap<>();
+    patch.forEach((field, value) -> {
+      if (field.equals("id")) {
+        if (!(value instanceof Number id) || id.longValue() != employeeId)
+          errors.put(field, "must be the id of the path");
+      } else if (!PATCHABLE_FIELDS.contains(field)) {
+        errors.put(field, "is unknown");
+      } else if (value != null && !(value instanceof String)) {
+        errors.put(field, "must be a string");
+      } else {
+        // null would remove the field, which fails like a blank value: every field is required
+        validator.validateValue(Employee.class, field, value)
+            .forEach(violation -> errors.put(field, violation.getMessage()));
+        values.put(field, (String) value);
+      }
+    });
+    if (!errors.isEmpty())
+      throw new InvalidFieldsException(errors);
+    return new EmployeeMergePatch(values);
+  }
 }
@@ -0,0 +1,8 @@
+package com.test.springboottesting.employee;
+
+/**
+ * @param count the number of employees
+ * @param approximate true if the count is the estimate of the database statistics
+ */
+public record EmployeeCount(long count, boolean approximate) {
+}
@@ -0,0 +1,42 @@
+package com.test.springboottesting.employee;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * The number of employees without the employees: GET /api/employees/count returns it as body,
+ * HEAD /api/employees in the X-Total-Count header. With approximate=true the count may be a bit
+ * off, but it is much cheaper for a large table (see {@link EmployeeCounter}).
+ *
+ * Without the explicit HEAD mapping spring would answer HEAD /api/employees with the GET mapping
+ * and load all employees just to discard them.
+ */
+@RestController
+@RequestMapping("/api/employees")
+public class EmployeeCountController {
+
+  static final String TOTAL_COUNT = "X-Total-Count";
+
+  private EmployeeCounter counter;
+
+  public EmployeeCountController(EmployeeCounter counter) {
+    this.counter = counter;
+  }
+
+  @GetMapping("count")
+  public EmployeeCount getEmployeeCount(
+      @RequestParam(name = "approximate", defaultValue = "false") boolean approximate) {
+    return counter.count(approximate);
+  }
+
+  @RequestMapping(method = RequestMethod.HEAD)
+  public ResponseEntity<Void> headEmployees(
+      @RequestParam(name = "approximate", defaultValue = "false") boolean approximate) {
+    return ResponseEntity.ok()
+        .header(TOTAL_COUNT, Long.toString(counter.count(approximate).count())).build();
+  }
+}
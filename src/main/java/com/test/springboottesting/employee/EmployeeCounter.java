@@ -0,0 +1,107 @@
+package com.test.springboottesting.employee;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.LongSupplier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counts the employees for clients which only want to show the total (see
+ * {@link EmployeeCountController}). An exact count(*) has to visit every row (on postgres at least
+ * the whole index because of MVCC), so there is an approximate mode which reads the estimate that
+ * postgres keeps in pg_class.reltuples (updated by VACUUM, ANALYZE and CREATE INDEX). Both modes
+ * count the active employees: the table still has the terminated ones until they are archived, so
+ * the estimate of the partial index of the terminated employees is subtracted. With shards the
+ * estimates of all shards are summed up. Other databases, and a postgres table which was never
+ * analyzed, get the exact count instead.
+ *
+ * Both counts are cached for a short time (employee.count.ttl). A change made through this
+ * instance (see {@link EmployeeChangeCounter}) makes them stale right away, changes of other
+ * instances are visible after the ttl.
+ */
+@Component
+public class EmployeeCounter {
+
+  private EmployeeRepository employeeRepository;
+  private JdbcTemplate jdbcTemplate;
+  private EmployeeChangeCounter changeCounter;
+  private long ttlNanos;
+  private LongSupplier nanoClock;
+
+  private volatile Boolean postgres;
+  private volatile Cached exact;
+  private volatile Cached approximate;
+
+  @Autowired
+  public EmployeeCounter(EmployeeRepository employeeRepository, JdbcTemplate jdbcTemplate,
+      EmployeeChangeCounter changeCounter, @Value("${employee.count.ttl:PT5S}") Duration ttl) {
+    this(employeeRepository, jdbcTemplate, changeCounter, ttl, System::nanoTime);
+  }
+
+  EmployeeCounter(EmployeeRepository employeeRepository, JdbcTemplate jdbcTemplate,
+      EmployeeChangeCounter changeCounter, Duration ttl, LongSupplier nanoClock) {
+    this.employeeRepository = employeeRepository;
+    this.jdbcTemplate = jdbcTemplate;
+    this.changeCounter = changeCounter;
+    this.ttlNanos = ttl.toNanos();
+    this.nanoClock = nanoClock;
+  }
+
+  public EmployeeCount count(boolean approximateCount) {
+    Cached cached = approximateCount ? approximate : exact;
+    long now = nanoClock.getAsLong();
+    // read the counter before the table, so changes made while we count make the result stale
+    long changeCount = changeCounter.get();
+    if (cached != null && cached.changeCount() == changeCount
+        && now - cached.loadedAt() < ttlNanos)
+      return cached.count();
+    cached = new Cached(load(approximateCount), changeCount, now);
+    if (approximateCount)
+      approximate = cached;
+    else
+      exact = cached;
+    return cached.count();
+  }
+
+  private EmployeeCount load(boolean approximateCount) {
+    if (approximateCount && isPostgres()) {
+      long estimate = estimate();
+      if (estimate >= 0)
+        return new EmployeeCount(estimate, true);
+    }
+    return new EmployeeCount(employeeRepository.count(), false);
+  }
+
+  /**
+   * @return the active employees of all shards, or -1 if a shard has no estimate
+   */
+  private long estimate() {
+    List<Object[]> shards = employeeRepository.estimateRowsAndTerminated();
+    if (shards.isEmpty())
+      return -1;
+    long estimate = 0;
+    for (Object[] shard : shards) {
+      long rows = Math.round(((Number) shard[0]).doubleValue());
+      long terminated = Math.round(((Number) shard[1]).doubleValue());
+      if (rows < 0 || terminated < 0) // -1: never analyzed
+        return -1;
+      estimate += Math.max(rows - terminated, 0);
+    }
+    return estimate;
+  }
+
+  private boolean isPostgres() {
+    Boolean result = postgres;
+    if (result == null)
+      postgres = result = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> connection
+          .getMetaData().getDatabaseProductName().equals("PostgreSQL"));
+    return result;
+  }
+
+  private record Cached(EmployeeCount count, long changeCount, long loadedAt) {
+  }
+}
@@ -0,0 +1,26 @@
+package com.test.springboottesting.employee;
+
+import java.util.Optional;
+
+/**
+ * The deletes of the {@link EmployeeRepository} which return the removed employee, from the same
+ * statement which removes it. The {@link EmployeeStatsSummary} needs the old values, a query
+ * before the delete would cost a round trip and a cached copy may be stale. Implemented in
+ * {@link EmployeeDeletionsImpl}, Spring Data adds it to the repository.
+ */
+public interface EmployeeDeletions {
+
+  /**
+   * like deleteById, but an unknown or terminated employee is no error
+   *
+   * @return the deleted employee
+   */
+  Optional<Employee> deleteReturningById(long id);
+
+  /**
+   * like terminateById
+   *
+   * @return the terminated employee
+   */
+  Optional<Employee> terminateReturningById(long id);
+}
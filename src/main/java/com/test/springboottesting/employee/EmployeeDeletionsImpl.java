@@ -0,0 +1,61 @@
+package com.test.springboottesting.employee;
+
+import java.util.List;
+import java.util.Optional;
+import org.hibernate.Session;
+import org.springframework.transaction.annotation.Transactional;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+/**
+ * PostgreSQL returns the removed row with RETURNING, h2 with a select from the OLD TABLE of the
+ * statement (a data change delta table). Both are native queries, so like the @Modifying queries
+ * of the repository the persistence context is flushed before and cleared after the statement.
+ * The terminated_at condition is the @Where of {@link Employee}.
+ */
+class EmployeeDeletionsImpl implements EmployeeDeletions {
+
+  private static final String COLUMNS = "id, first_name, last_name, email";
+  private static final String DELETE =
+      "delete from employees where id = ?1 and terminated_at is null";
+  private static final String TERMINATE = "update employees set terminated_at = current_timestamp "
+      + "where id = ?1 and terminated_at is null";
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  private volatile Boolean postgres;
+
+  @Override
+  @Transactional
+  public Optional<Employee> deleteReturningById(long id) {
+    return returning(DELETE, id);
+  }
+
+  @Override
+  @Transactional
+  public Optional<Employee> terminateReturningById(long id) {
+    return returning(TERMINATE, id);
+  }
+
+  private Optional<Employee> returning(String statement, long id) {
+    entityManager.flush();
+    String sql = isPostgres() ? statement + " returning " + COLUMNS
+        : "select " + COLUMNS + " from old table (" + statement + ")";
+    @SuppressWarnings("unchecked")
+    List<Object[]> rows = entityManager.createNativeQuery(sql).setParameter(1, id).getResultList();
+    entityManager.clear();
+    return rows.stream().findFirst()
+        .map(row -> Employee.builder().id(((Number) row[0]).longValue())
+            .firstName((String) row[1]).lastName((String) row[2]).email((String) row[3])
+            .build());
+  }
+
+  private boolean isPostgres() {
+    Boolean result = postgres;
+    if (result == null)
+      postgres = result = entityManager.unwrap(Session.class).doReturningWork(
+          connection -> connection.getMetaData().getDatabaseProductName().equals("PostgreSQL"));
+    return result;
+  }
+}
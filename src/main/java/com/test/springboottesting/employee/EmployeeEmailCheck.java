@@ -0,0 +1,54 @@
+package com.test.springboottesting.employee;
+
+import java.time.Duration;
+import java.util.function.UnaryOperator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import com.test.springboottesting.exception.DuplicateEmailException;
+
+/**
+ * The only business rule of the {@link EmployeeService}: an email must not exist multiple times.
+ * Its own bean, since it's a query before every create and every change of an email, which shows
+ * up as its own {@link EmployeeServiceEvent}
+ */
+@Component
+public class EmployeeEmailCheck {
+
+  private final EmployeeRepository employeeRepository;
+
+  // concurrent checks of the same email share one query, see SingleFlight
+  private SingleFlight<String, Boolean> existsByEmailFlight;
+
+  public EmployeeEmailCheck(EmployeeRepository employeeRepository) {
+    this.employeeRepository = employeeRepository;
+    setSingleFlightTimeout(Duration.ofSeconds(2));
+  }
+
+  /**
+   * see EmployeeService.setSingleFlightTimeout
+   */
+  @Value("${employee.single-flight.timeout:PT2S}")
+  void setSingleFlightTimeout(Duration timeout) {
+    existsByEmailFlight = new SingleFlight<>(timeout, UnaryOperator.identity()); // immutable
+  }
+
+  /**
+   * The check is not enough on its own: two concurrent requests with the same new email both pass
+   * it, the unique email index then lets only one of them save. The email of a terminated
+   * employee is still taken, see EmployeeRepository.existsByEmail
+   *
+   * @throws DuplicateEmailException if an employee has the email
+   */
+  public void validateThatEmailDoesNotExist(String email) {
+    if (existsByEmailFlight.execute(email, () -> employeeRepository.existsByEmail(email)))
+      throw new DuplicateEmailException(email);
+  }
+
+  /**
+   * after the commit of a write of the email: checks which start now must not join a query which
+   * may have read the old rows
+   */
+  public void forget(String email) {
+    existsByEmailFlight.forget(email);
+  }
+}
@@ -0,0 +1,111 @@
+package com.test.springboottesting.employee;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Serves the full employee list from the pre-compressed {@link EmployeeExportSnapshot}. If the
+ * client accepts gzip (which every http client does) the file is sent as it is. On Tomcat we even
+ * hand the file over to the connector, which sends it with the sendfile syscall (zero copy,
+ * https://tomcat.apache.org/tomcat-10.1-doc/config/http.html#Send_file_support).
+ */
+@RestController
+@RequestMapping("/api/employees")
+public class EmployeeExportController {
+
+  private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+  private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+  private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+  private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+  private EmployeeExportSnapshot exportSnapshot;
+
+  public EmployeeExportController(EmployeeExportSnapshot exportSnapshot) {
+    this.exportSnapshot = exportSnapshot;
+  }
+
+  @GetMapping("export")
+  public void exportEmployees(HttpServletRequest request, HttpServletResponse response)
+      throws IOException {
+    Path snapshot = exportSnapshot.current().toRealPath();
+    response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+    response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+    if (!acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING))) {
+      // rare case, we have to decompress it for the client
+      try (InputStream in = new GZIPInputStream(Files.newInputStream(snapshot))) {
+        in.transferTo(response.getOutputStream());
+      }
+      return;
+    }
+
+    long size = Files.size(snapshot);
+    response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+    response.setContentLengthLong(size);
+    if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+      request.setAttribute(SENDFILE_FILENAME, snapshot.toString());
+      request.setAttribute(SENDFILE_START, 0L);
+      request.setAttribute(SENDFILE_END, size);
+      return;
+    }
+    try (FileChannel channel = FileChannel.open(snapshot)) {
+      long position = 0;
+      var target = Channels.newChannel(response.getOutputStream());
+      while (position < size)
+        position += channel.transferTo(position, size - position, target);
+    }
+  }
+
+  /**
+   * gzip (or *) with a q-value above 0, e.g. "gzip, deflate" or "br;q=1.0, gzip;q=0.8". A q-value
+   * of 0 ("gzip;q=0") means the client refuses gzip, the named coding wins over *
+   */
+  static boolean acceptsGzip(String acceptEncoding) {
+    if (acceptEncoding == null)
+      return false;
+    Double gzip = null;
+    Double any = null;
+    for (String coding : acceptEncoding.split(",")) {
+      String[] parameters = coding.split(";");
+      String name = parameters[0].trim().toLowerCase(Locale.ROOT);
+      double quality = 1;
+      for (int i = 1; i < parameters.length; i++) {
+        String parameter = parameters[i].trim();
+        if (parameter.regionMatches(true, 0, "q=", 0, 2))
+          quality = quality(parameter.substring(2).trim());
+      }
+      if (name.equals("gzip") || name.equals("x-gzip"))
+        gzip = quality;
+      else if (name.equals("*"))
+        any = quality;
+    }
+    if (gzip != null)
+      return gzip > 0;
+    return any != null && any > 0;
+  }
+
+  /**
+   * a broken q-value counts as 0, we then rather decompress than send gzip to a client which may
+   * not understand it
+   */
+  private static double quality(String value) {
+    try {
+      return Double.parseDouble(value);
+    } catch (NumberFormatException e) {
+      return 0;
+    }
+  }
+}
@@ -0,0 +1,187 @@
+package com.test.springboottesting.employee;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * A pre-compressed (gzip) JSON file with all employees on the local disk. Clients which want the
+ * full list can get this file (see {@link EmployeeExportController}) without us querying and
+ * serializing the whole table for every request.
+ *
+ * Staleness checks like the {@link EmployeeSnapshotStore}: the {@link EmployeeChangeCounter} only
+ * sees the changes made through this instance, so the snapshot also stores the
+ * {@link EmployeeSnapshotFile.Watermark} of the table, which the periodic refresh compares with
+ * the database (inserts, deletes and terminations of any instance, of the async writer or
+ * directly in the database). Updates elsewhere change neither, so a snapshot older than
+ * employee.export.max-age is stale as well. A request only checks the counter and the age (no
+ * query), if the snapshot is stale it starts the refresh in the background and still gets the
+ * current file, so it never waits for the whole table to be queried and compressed.
+ *
+ * Every snapshot is written to a new file (employees-{generation}.json.gz) and the previous one is
+ * kept, so a file which is currently sent to a client is never overwritten.
+ *
+ * The bean is created eagerly even with lazy initialization (prod profile), otherwise the
+ * scheduled refresh would only start with the first export request.
+ */
+@Component
+@Lazy(false)
+public class EmployeeExportSnapshot {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(EmployeeExportSnapshot.class);
+
+  private EmployeeRepository employeeRepository;
+  private EmployeeChangeCounter changeCounter;
+  private ObjectMapper objectMapper;
+  private Path directory;
+  private int compressionLevel;
+  private Duration maxAge;
+  private Clock clock;
+
+  private long generation;
+  private volatile Snapshot current;
+
+  // one refresh at a time, requests which find the snapshot stale meanwhile don't queue another
+  private final AtomicBoolean refreshing = new AtomicBoolean();
+  private final ExecutorService refresher = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "employee-export");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  @Autowired // more than one constructor
+  public EmployeeExportSnapshot(EmployeeRepository employeeRepository,
+      EmployeeChangeCounter changeCounter, ObjectMapper objectMapper,
+      @Value("${employee.export.directory:${java.io.tmpdir}/employee-export}") Path directory,
+      @Value("${employee.export.compression-level:6}") int compressionLevel,
+      @Value("${employee.export.max-age:PT10M}") Duration maxAge) {
+    this(employeeRepository, changeCounter, objectMapper, directory, compressionLevel, maxAge,
+        Clock.systemUTC());
+  }
+
+  EmployeeExportSnapshot(EmployeeRepository employeeRepository,
+      EmployeeChangeCounter changeCounter, ObjectMapper objectMapper, Path directory,
+      int compressionLevel, Duration maxAge, Clock clock) {
+    this.employeeRepository = employeeRepository;
+    this.changeCounter = changeCounter;
+    this.objectMapper = objectMapper;
+    this.directory = directory;
+    this.compressionLevel = compressionLevel;
+    this.maxAge = maxAge;
+    this.clock = clock;
+  }
+
+  /**
+   * @return the current snapshot, which may miss the latest changes: if it is stale, it is
+   *         refreshed in the background and the next requests get the new file. Only the first
+   *         request waits, there is no snapshot yet
+   */
+  public Path current() {
+    Snapshot snapshot = current;
+    if (snapshot == null)
+      return refresh().file();
+    if (snapshot.changeCount() != changeCounter.get() || isTooOld(snapshot))
+      refreshInBackground();
+    return snapshot.file();
+  }
+
+  @Scheduled(fixedDelayString = "${employee.export.interval:PT1M}",
+      initialDelayString = "${employee.export.initial-delay:PT10S}")
+  public void refreshIfStale() {
+    refresh();
+  }
+
+  private void refreshInBackground() {
+    if (!refreshing.compareAndSet(false, true))
+      return;
+    try {
+      refresher.execute(() -> {
+        try {
+          refresh();
+        } catch (RuntimeException e) {
+          LOGGER.warn("Could not refresh the employee export snapshot, serving the previous one",
+              e);
+        } finally {
+          refreshing.set(false);
+        }
+      });
+    } catch (RejectedExecutionException e) { // shut down
+      refreshing.set(false);
+    }
+  }
+
+  @PreDestroy
+  void close() {
+    refresher.shutdownNow();
+  }
+
+  private boolean isTooOld(Snapshot snapshot) {
+    return Duration.between(snapshot.createdAt(), clock.instant()).compareTo(maxAge) > 0;
+  }
+
+  synchronized Snapshot refresh() {
+    // read the counter and the watermark before the table, so changes made while we query make
+    // the snapshot stale
+    long changeCount = changeCounter.get();
+    EmployeeSnapshotFile.Watermark watermark =
+        EmployeeSnapshotFile.Watermark.of(employeeRepository.countAndMaxId());
+    Instant createdAt = clock.instant();
+    Snapshot snapshot = current;
+    if (snapshot != null && snapshot.changeCount() == changeCount
+        && snapshot.watermark().equals(watermark) && !isTooOld(snapshot))
+      return snapshot;
+    try {
+      Files.createDirectories(directory);
+      Path file = directory.resolve("employees-" + ++generation + ".json.gz");
+      Path tempFile = Files.createTempFile(directory, "employees-", ".tmp");
+      try (OutputStream out = new LeveledGZIPOutputStream(Files.newOutputStream(tempFile),
+          compressionLevel)) {
+        objectMapper.writeValue(out, employeeRepository.findAll());
+      }
+      Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE,
+          StandardCopyOption.REPLACE_EXISTING);
+      // keep the previous file for clients which are still downloading it
+      if (generation > 2)
+        Files.deleteIfExists(directory.resolve("employees-" + (generation - 2) + ".json.gz"));
+      current = new Snapshot(file, changeCount, watermark, createdAt);
+      return current;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not write the employee export snapshot", e);
+    }
+  }
+
+  record Snapshot(Path file, long changeCount, EmployeeSnapshotFile.Watermark watermark,
+      Instant createdAt) {
+  }
+
+  /**
+   * the GZIPOutputStream does not expose the compression level. Higher levels cost more CPU for
+   * slightly smaller files, so we make it configurable
+   */
+  private static class LeveledGZIPOutputStream extends GZIPOutputStream {
+    LeveledGZIPOutputStream(OutputStream out, int level) throws IOException {
+      super(out, 64 * 1024);
+      def.setLevel(level);
+    }
+  }
+}
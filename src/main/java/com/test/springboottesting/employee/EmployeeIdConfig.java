@@ -0,0 +1,60 @@
+package com.test.springboottesting.employee;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+
+/**
+ * The ids of new employees, see {@link EmployeeIdentifierGenerator}. Every instance must have its
+ * own node, two instances with the same node hand out the same ids. So there is no default node:
+ * it's either employee.id.node or the ordinal of a StatefulSet pod at the end of the host name
+ * (employees-3 is node 3). Without both we use node 0 for development and tests, but the prod
+ * profile refuses to start.
+ */
+@Configuration
+public class EmployeeIdConfig {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(EmployeeIdConfig.class);
+  private static final Pattern POD_ORDINAL = Pattern.compile(".*-(\\d{1,4})");
+
+  @Bean
+  @ConditionalOnMissingBean(EmployeeIdGenerator.class)
+  public EmployeeIdGenerator snowflakeIdGenerator(@Value("${employee.id.node:}") String node,
+      @Value("${HOSTNAME:}") String hostname, Environment environment,
+      @Value("${employee.id.epoch:2023-01-01T00:00:00Z}") Instant epoch,
+      @Value("${employee.id.max-clock-drift:PT5S}") Duration maxClockDrift) {
+    return new SnowflakeIdGenerator(
+        node(node, hostname, environment.acceptsProfiles(Profiles.of("prod"))), epoch,
+        maxClockDrift);
+  }
+
+  @Bean
+  public HibernatePropertiesCustomizer employeeIdGeneratorProperty(
+      EmployeeIdGenerator idGenerator) {
+    return properties -> properties.put(EmployeeIdentifierGenerator.ID_GENERATOR, idGenerator);
+  }
+
+  static long node(String node, String hostname, boolean production) {
+    if (!node.isBlank())
+      return Long.parseLong(node.trim());
+    Matcher podOrdinal = POD_ORDINAL.matcher(hostname);
+    if (podOrdinal.matches())
+      return Long.parseLong(podOrdinal.group(1));
+    if (production)
+      throw new IllegalStateException("Every instance needs its own employee.id.node (0 - "
+          + SnowflakeIdGenerator.MAX_NODE + "), the host name '" + hostname
+          + "' ends with no pod ordinal either");
+    LOGGER.warn("No employee.id.node set, using node 0. Fine for a single instance only");
+    return 0;
+  }
+}
@@ -0,0 +1,14 @@
+package com.test.springboottesting.employee;
+
+/**
+ * Hands out the ids of new employees, see {@link EmployeeIdentifierGenerator}. The default is the
+ * {@link SnowflakeIdGenerator}, a bean of this type replaces it.
+ */
+@FunctionalInterface
+public interface EmployeeIdGenerator {
+
+  /**
+   * @return a positive id which was never handed out before, by any instance. Must be thread-safe
+   */
+  long nextId();
+}
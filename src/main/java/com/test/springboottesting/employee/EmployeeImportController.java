@@ -0,0 +1,38 @@
+package com.test.springboottesting.employee;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.SQLException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import com.test.springboottesting.employee.EmployeeImporter.Format;
+
+/**
+ * POST /api/employees/import with a CSV (text/csv) or NDJSON (application/x-ndjson) body. The body
+ * is read as a stream by the {@link EmployeeImporter}, so its size is only limited by the database.
+ * The response reports how many rows were imported and why the others were not.
+ */
+@RestController
+@ConditionalOnProperty(name = "employee.sharding.enabled", havingValue = "false",
+    matchIfMissing = true)
+@RequestMapping("/api/employees")
+public class EmployeeImportController {
+
+  private EmployeeImporter importer;
+
+  public EmployeeImportController(EmployeeImporter importer) {
+    this.importer = importer;
+  }
+
+  @PostMapping(path = "import", consumes = "text/csv")
+  public EmployeeImportResult importCsv(InputStream body) throws IOException, SQLException {
+    return importer.importEmployees(body, Format.CSV);
+  }
+
+  @PostMapping(path = "import", consumes = "application/x-ndjson")
+  public EmployeeImportResult importNdjson(InputStream body) throws IOException, SQLException {
+    return importer.importEmployees(body, Format.NDJSON);
+  }
+}
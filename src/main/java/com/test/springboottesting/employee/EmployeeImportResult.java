@@ -0,0 +1,22 @@
+package com.test.springboottesting.employee;
+
+import java.util.List;
+
+/**
+ * The report of a bulk import
+ *
+ * @param rows the number of rows in the body (without a csv header)
+ * @param imported the new employees
+ * @param invalid rows which violate the constraints of {@link Employee} or can't be parsed
+ * @param duplicates valid rows whose email already exists or appeared in an earlier row
+ * @param errors the first invalid and duplicate rows
+ */
+public record EmployeeImportResult(long rows, long imported, long invalid, long duplicates,
+    List<RowError> errors) {
+
+  /**
+   * @param line the line of the body, starting with 1
+   */
+  public record RowError(long line, String message) {
+  }
+}
@@ -0,0 +1,351 @@
+package com.test.springboottesting.employee;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.sql.DataSource;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.test.springboottesting.employee.EmployeeImportResult.RowError;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+
+/**
+ * Bulk import of employees (e.g. the nightly sync with the HR system) from a CSV (first name, last
+ * name, email, an optional header) or NDJSON (one employee as JSON object per line) stream. Saving
+ * hundreds of thousands of employees one by one with the {@link EmployeeRepository} takes ages, so
+ * we bypass JPA:
+ *
+ * <ol>
+ * <li>the body is read row by row, every row is validated against the constraints of
+ * {@link Employee}. Invalid rows are skipped and reported, the body is never held in memory. A
+ * valid row gets its id from the {@link EmployeeIdGenerator}, like every employee saved with JPA:
+ * the IDENTITY column would hand out small ids which are neither ordered by time nor unique across
+ * the nodes of the generator</li>
+ * <li>the valid rows are streamed into a temporary staging table, on PostgreSQL with COPY (the
+ * fastest way to load data into PostgreSQL), on other databases (H2 in our tests) with batched
+ * inserts</li>
+ * <li>one set-based statement inserts the first row of every email which doesn't exist yet, the
+ * other rows are reported as duplicates</li>
+ * </ol>
+ *
+ * Everything runs in one transaction, so the import is visible all at once or not at all. That
+ * needs a single database, so there is no bulk import for a sharded storage (see
+ * com.test.springboottesting.config.ShardingConfig).
+ */
+@Service
+@ConditionalOnProperty(name = "employee.sharding.enabled", havingValue = "false",
+    matchIfMissing = true)
+public class EmployeeImporter {
+
+  static final int MAX_ERRORS = 100;
+  private static final int BATCH_SIZE = 1000;
+
+  private static final String CREATE_STAGING_TABLE = """
+      create local temporary table employees_import (line bigint not null, id bigint not null,
+        first_name varchar(255) not null, last_name varchar(255) not null,
+        email varchar(255) not null) on commit drop""";
+
+  /**
+   * the first result row is the number of imported employees, the others are the first duplicates.
+   * The employees table in the outer query is the snapshot before the insert
+   */
+  private static final String POSTGRES_MERGE = """
+      with first_rows as (
+        select distinct on (email) line, id, first_name, last_name, email
+        from employees_import order by email, line
+      ), inserted as (
+        insert into employees (id, first_name, last_name, email)
+        select f.id, f.first_name, f.last_name, f.email from first_rows f
+        where not exists (select 1 from employees e where e.email = f.email)
+        order by f.line
+        returning email
+      )
+      (select null::bigint as line, null as email, count(*) as imported from inserted)
+      union all
+      (select s.line, s.email, null from employees_import s
+       where not exists (select 1 from inserted i join first_rows f on f.email = i.email
+                         where f.line = s.line)
+       order by s.line limit""" + " " + MAX_ERRORS + ")";
+
+  private static final String FIRST_ROW_OF_NEW_EMAIL = """
+      s.line = (select min(f.line) from employees_import f where f.email = s.email)
+      and not exists (select 1 from employees e where e.email = s.email)""";
+
+  private static final String DUPLICATES = "select s.line, s.email from employees_import s where not ("
+      + FIRST_ROW_OF_NEW_EMAIL + ") order by s.line limit " + MAX_ERRORS;
+
+  private static final String INSERT_NEW_EMAILS =
+      "insert into employees (id, first_name, last_name, email) "
+          + "select s.id, s.first_name, s.last_name, s.email from employees_import s where "
+          + FIRST_ROW_OF_NEW_EMAIL + " order by s.line";
+
+  public enum Format {
+    CSV, NDJSON
+  }
+
+  private DataSource dataSource;
+  private Validator validator;
+  private ObjectMapper objectMapper;
+  private ApplicationEventPublisher eventPublisher;
+  private EmployeeIdGenerator idGenerator;
+
+  public EmployeeImporter(DataSource dataSource, Validator validator, ObjectMapper objectMapper,
+      ApplicationEventPublisher eventPublisher, EmployeeIdGenerator idGenerator) {
+    this.dataSource = dataSource;
+    this.validator = validator;
+    this.objectMapper = objectMapper;
+    this.eventPublisher = eventPublisher;
+    this.idGenerator = idGenerator;
+  }
+
+  public EmployeeImportResult importEmployees(InputStream body, Format format)
+      throws IOException, SQLException {
+    Report report = new Report();
+    long imported;
+    try (Connection connection = dataSource.getConnection()) {
+      boolean autoCommit = connection.getAutoCommit();
+      connection.setAutoCommit(false);
+      try {
+        try (Statement statement = connection.createStatement()) {
+          statement.execute(CREATE_STAGING_TABLE);
+        }
+        boolean postgres = connection.isWrapperFor(PGConnection.class);
+        try (Staging staging = postgres ? new CopyStaging(connection.unwrap(PGConnection.class))
+            : new BatchInsertStaging(connection)) {
+          readRows(body, format, report, staging);
+        }
+        imported = postgres ? mergePostgres(connection, report) : merge(connection, report);
+        connection.commit();
+      } catch (IOException | SQLException | RuntimeException e) {
+        connection.rollback();
+        throw e;
+      } finally {
+        connection.setAutoCommit(autoCommit);
+      }
+    }
+    if (imported > 0)
+      eventPublisher.publishEvent(new EmployeesImportedEvent(imported));
+    report.errors.sort((first, second) -> Long.compare(first.line(), second.line()));
+    return new EmployeeImportResult(report.rows, imported, report.invalid,
+        report.rows - report.invalid - imported,
+        List.copyOf(report.errors.subList(0, Math.min(MAX_ERRORS, report.errors.size()))));
+  }
+
+  private void readRows(InputStream body, Format format, Report report, Staging staging)
+      throws IOException, SQLException {
+    BufferedReader reader =
+        new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8), 64 * 1024);
+    long line = 0;
+    for (String text = reader.readLine(); text != null; text = reader.readLine()) {
+      line++;
+      if (text.isBlank() || (line == 1 && format == Format.CSV && isCsvHeader(text)))
+        continue;
+      report.rows++;
+      Employee employee;
+      try {
+        employee = format == Format.CSV ? parseCsv(text) : parseJson(text);
+      } catch (IllegalArgumentException e) {
+        report.invalid(line, e.getMessage());
+        continue;
+      }
+      Set<ConstraintViolation<Employee>> violations = validator.validate(employee);
+      if (!violations.isEmpty()) {
+        report.invalid(line, violations.stream()
+            .map(violation -> violation.getPropertyPath() + " " + violation.getMessage()).sorted()
+            .collect(Collectors.joining(", ")));
+        continue;
+      }
+      // rows with a duplicate email waste their id, which doesn't matter with 64 bits
+      employee.setId(idGenerator.nextId());
+      staging.add(line, employee);
+    }
+  }
+
+  private static long mergePostgres(Connection connection, Report report) throws SQLException {
+    try (Statement statement = connection.createStatement()) {
+      statement.execute("analyze employees_import"); // the planner knows nothing about it yet
+      long imported = 0;
+      try (ResultSet resultSet = statement.executeQuery(POSTGRES_MERGE)) {
+        while (resultSet.next())
+          if (resultSet.getObject("line") == null)
+            imported = resultSet.getLong("imported");
+          else
+            report.duplicate(resultSet.getLong("line"), resultSet.getString("email"));
+      }
+      return imported;
+    }
+  }
+
+  /**
+   * the same as {@link #POSTGRES_MERGE} with standard SQL: h2 has no insert in a with clause, so
+   * we need two statements
+   */
+  private static long merge(Connection connection, Report report) throws SQLException {
+    try (Statement statement = connection.createStatement()) {
+      statement.execute("create index on employees_import (email, line)");
+      try (ResultSet resultSet = statement.executeQuery(DUPLICATES)) {
+        while (resultSet.next())
+          report.duplicate(resultSet.getLong("line"), resultSet.getString("email"));
+      }
+      return statement.executeUpdate(INSERT_NEW_EMAILS);
+    }
+  }
+
+  private static boolean isCsvHeader(String text) {
+    return text.replace("_", "").replace("\"", "").replace(" ", "")
+        .equalsIgnoreCase("firstname,lastname,email");
+  }
+
+  /**
+   * RFC 4180 without line breaks in fields: fields may be quoted, "" is a quote in a quoted field
+   */
+  static Employee parseCsv(String text) {
+    List<String> fields = new ArrayList<>(3);
+    StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (quoted) {
+        if (c != '"')
+          field.append(c);
+        else if (i + 1 < text.length() && text.charAt(i + 1) == '"')
+          field.append(text.charAt(++i));
+        else
+          quoted = false;
+      } else if (c == '"') {
+        quoted = true;
+      } else if (c == ',') {
+        fields.add(field.toString());
+        field.setLength(0);
+      } else {
+        field.append(c);
+      }
+    }
+    if (quoted)
+      throw new IllegalArgumentException("Unterminated quoted field");
+    fields.add(field.toString());
+    if (fields.size() != 3)
+      throw new IllegalArgumentException(
+          "Expected 3 fields (first name, last name, email), but got " + fields.size());
+    return Employee.builder().firstName(fields.get(0).strip()).lastName(fields.get(1).strip())
+        .email(fields.get(2).strip()).build();
+  }
+
+  private Employee parseJson(String text) {
+    try {
+      Employee employee = objectMapper.readValue(text, Employee.class);
+      employee.setId(0); // new employees only
+      return employee;
+    } catch (JsonProcessingException e) {
+      throw new IllegalArgumentException("Invalid JSON: " + e.getOriginalMessage());
+    }
+  }
+
+  private static class Report {
+    private long rows;
+    private long invalid;
+    private final List<RowError> errors = new ArrayList<>();
+
+    void invalid(long line, String message) {
+      invalid++;
+      if (errors.size() < MAX_ERRORS)
+        errors.add(new RowError(line, message));
+    }
+
+    void duplicate(long line, String email) {
+      errors.add(new RowError(line, "Email \"" + email + "\" already exists"));
+    }
+  }
+
+  private interface Staging extends AutoCloseable {
+
+    void add(long line, Employee employee) throws IOException, SQLException;
+
+    @Override
+    void close() throws IOException, SQLException;
+  }
+
+  /**
+   * streams the rows as CSV into COPY ... FROM STDIN, the driver sends them in 64 KB chunks
+   */
+  private static class CopyStaging implements Staging {
+    private final Writer writer;
+
+    CopyStaging(PGConnection connection) throws SQLException {
+      writer = new BufferedWriter(new OutputStreamWriter(new PGCopyOutputStream(connection,
+          "copy employees_import (line, id, first_name, last_name, email) "
+              + "from stdin (format csv)",
+          64 * 1024), StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    @Override
+    public void add(long line, Employee employee) throws IOException {
+      writer.append(Long.toString(line)).append(',').append(Long.toString(employee.getId()))
+          .append(',').append(csv(employee.getFirstName()))
+          .append(',').append(csv(employee.getLastName())).append(',')
+          .append(csv(employee.getEmail())).append('\n');
+    }
+
+    @Override
+    public void close() throws IOException {
+      writer.close(); // ends the copy
+    }
+
+    private static String csv(String value) {
+      return '"' + value.replace("\"", "\"\"") + '"';
+    }
+  }
+
+  private static class BatchInsertStaging implements Staging {
+    private final PreparedStatement statement;
+    private int batched;
+
+    BatchInsertStaging(Connection connection) throws SQLException {
+      statement = connection.prepareStatement(
+          "insert into employees_import (line, id, first_name, last_name, email) "
+              + "values (?, ?, ?, ?, ?)");
+    }
+
+    @Override
+    public void add(long line, Employee employee) throws SQLException {
+      statement.setLong(1, line);
+      statement.setLong(2, employee.getId());
+      statement.setString(3, employee.getFirstName());
+      statement.setString(4, employee.getLastName());
+      statement.setString(5, employee.getEmail());
+      statement.addBatch();
+      if (++batched == BATCH_SIZE) {
+        statement.executeBatch();
+        batched = 0;
+      }
+    }
+
+    @Override
+    public void close() throws SQLException {
+      try (statement) {
+        if (batched > 0)
+          statement.executeBatch();
+      }
+    }
+  }
+}
@@ -0,0 +1,37 @@
+package com.test.springboottesting.employee;
+
+import java.util.Map;
+
+/**
+ * A JSON Merge Patch (https://datatracker.ietf.org/doc/html/rfc7396) of an employee: the fields in
+ * the patch replace the fields of the employee, all others stay as they are. The patch is already
+ * checked by the {@link EmployeeController}, it only contains known fields with valid values.
+ *
+ * @param values the new values by field name (firstName, lastName, email)
+ */
+public record EmployeeMergePatch(Map<String, String> values) {
+
+  public EmployeeMergePatch {
+    values = Map.copyOf(values);
+  }
+
+  public boolean contains(String field) {
+    return values.containsKey(field);
+  }
+
+  /**
+   * @return a patched copy, the employee itself is not changed
+   */
+  public Employee applyTo(Employee employee) {
+    Employee patched = OnHeapEmployeeCache.copy(employee);
+    values.forEach((field, value) -> {
+      switch (field) {
+        case "firstName" -> patched.setFirstName(value);
+        case "lastName" -> patched.setLastName(value);
+        case "email" -> patched.setEmail(value);
+        default -> throw new IllegalArgumentException("Unknown field " + field);
+      }
+    });
+    return patched;
+  }
+}
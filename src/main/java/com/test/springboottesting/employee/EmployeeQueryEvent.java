@@ -0,0 +1,32 @@
+package com.test.springboottesting.employee;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Java Flight Recorder event per call of the {@link EmployeeRepository}, see
+ * FlightRecorderConfig. Calls which are answered by a cache or shared by the {@link SingleFlight}
+ * don't reach the repository, so they have no query event
+ */
+@Name("com.test.springboottesting.EmployeeQuery")
+@Label("Employee Query")
+@Category({"Employee Management", "Repository"})
+@StackTrace(false)
+public class EmployeeQueryEvent extends Event {
+
+  @Label("Operation")
+  @Description("The method of the EmployeeRepository, e.g. findById")
+  public String operation;
+
+  @Label("Employee Id")
+  @Description("The id argument or 0")
+  public long employeeId;
+
+  @Label("Rows")
+  @Description("The number of returned employees, -1 if the result is no employee")
+  public long rows;
+}
@@ -1,19 +1,68 @@
 package com.test.springboottesting.employee;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * The {@link JpaRepository} provides some default queries which can be extended, e.g. by field
  * https://www.baeldung.com/spring-data-jpa-findby-multiple-columns or with custom Queries (JPQL or
  * native)
  */
-public interface EmployeeRepository extends JpaRepository<Employee, Long> {
+public interface EmployeeRepository
+    extends JpaRepository<Employee, Long>, EmployeeDeletions {
 
+  // the emails are stored in lower case, so pass Employee.normalizeEmail(email) to the email
+  // queries, an IgnoreCase query would wrap the column in upper() and miss the index
   Optional<Employee> findByEmail(String email);
 
+  // an index only scan on postgres. It is native, since the email of a terminated employee stays
+  // taken (the unique index contains it) until the employee is archived
+  @Query(value = "select exists (select 1 from employees e where e.email = ?1)",
+      nativeQuery = true)
+  boolean existsByEmail(String email);
+
+  // the employee disappears for all other queries, see Employee and EmployeeArchiver
+  @Transactional
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(value = "update employees set terminated_at = current_timestamp "
+      + "where id = ?1 and terminated_at is null", nativeQuery = true)
+  int terminateById(long id);
+
+  // the watermark of the EmployeeSnapshotStore. A list, since a sharded repository returns a row
+  // per shard
+  @Query("select count(e), coalesce(max(e.id), 0) from Employee e")
+  List<Object[]> countAndMaxId();
+
+  // the estimates of postgres for the EmployeeCounter (pg_class.reltuples, updated by VACUUM and
+  // ANALYZE): the rows of the table and the terminated ones, which the partial index
+  // idx_employees_terminated_at has. A list, since a sharded repository returns a row per shard,
+  // and no row without the index
+  @Query(value = "select t.reltuples, i.reltuples from pg_class t, pg_class i "
+      + "where t.oid = to_regclass('employees') "
+      + "and i.oid = to_regclass('idx_employees_terminated_at')", nativeQuery = true)
+  List<Object[]> estimateRowsAndTerminated();
+
+  // one query for many emails: where email in (...). Native like existsByEmail, a terminated
+  // employee keeps the email taken, so the EmployeeWriteQueue has to see it
+  @Query(value = "select * from employees e where e.email in (?1)", nativeQuery = true)
+  List<Employee> findAllByEmailIn(Collection<String> emails);
+
+  // headcount per group for EmployeeStatsSummary, hibernate translates the functions for the
+  // database. Each row is the group and its count
+  @Query("select substring(e.email, locate('@', e.email) + 1), count(e) from Employee e "
+      + "group by substring(e.email, locate('@', e.email) + 1)")
+  List<Object[]> countByEmailDomain();
+
+  @Query("select upper(substring(e.lastName, 1, 1)), count(e) from Employee e "
+      + "group by upper(substring(e.lastName, 1, 1))")
+  List<Object[]> countByLastNameInitial();
+
   // define custom query using JPQL with index params
   @Query("select e from Employee e where e.firstName = ?1 and e.lastName = ?2")
   Optional<Employee> findByJPQL(String firstName, String lastName);
@@ -24,13 +73,14 @@ public interface EmployeeRepository extends JpaRepository<Employee, Long> {
       @Param("lastName") String lastName);
 
   // define custom query using Native SQL with index params
-  @Query(value = "select * from employees e where e.first_name =?1 and e.last_name =?2",
-      nativeQuery = true)
+  @Query(value = "select * from employees e where e.first_name =?1 and e.last_name =?2 "
+      + "and e.terminated_at is null", nativeQuery = true)
   Optional<Employee> findByNativeSQL(String firstName, String lastName);
 
   // define custom query using Native SQL with named params
   @Query(
-      value = "select * from employees e where e.first_name =:firstName and e.last_name =:lastName",
+      value = "select * from employees e where e.first_name =:firstName and e.last_name =:lastName "
+          + "and e.terminated_at is null",
       nativeQuery = true)
   Optional<Employee> findByNativeSQLNamed(@Param("firstName") String firstName,
       @Param("lastName") String lastName);
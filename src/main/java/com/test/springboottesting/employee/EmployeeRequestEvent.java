@@ -0,0 +1,32 @@
+package com.test.springboottesting.employee;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Java Flight Recorder event per request to /api/employees, from the first interceptor until the
+ * response is written. See FlightRecorderConfig. Like all our events it has no stack trace (it
+ * would always be the same one) so it costs little more than two timestamps
+ */
+@Name("com.test.springboottesting.EmployeeRequest")
+@Label("Employee Request")
+@Category({"Employee Management", "Requests"})
+@Description("A request to the employee API")
+@StackTrace(false)
+public class EmployeeRequestEvent extends Event {
+
+  @Label("Operation")
+  @Description("The http method and the path pattern, e.g. GET /api/employees/{id}")
+  public String operation;
+
+  @Label("Employee Id")
+  @Description("The id of the path or 0")
+  public long employeeId;
+
+  @Label("Status")
+  public int status;
+}
@@ -1,60 +1,377 @@
 package com.test.springboottesting.employee;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import com.test.springboottesting.exception.DuplicateEmailException;
 import com.test.springboottesting.exception.ResourceNotFoundException;
 
 /**
  * This class contains the business logic of our employee management system. At the moment the only
- * business logic is that an email must not exist multiple times
+ * business logic is that an email must not exist multiple times, see {@link EmployeeEmailCheck}.
+ * Every call records an {@link EmployeeServiceEvent} for Java Flight Recorder, see
+ * FlightRecorderConfig
  */
 @Service
 public class EmployeeService {
 
   private EmployeeRepository employeeRepository;
 
-  @Autowired // could be removed:
-             // https://stackoverflow.com/questions/41092751/spring-injects-dependencies-in-constructor-without-autowired-annotation
+  private EmployeeCache employeeCache;
+
+  private ApplicationEventPublisher eventPublisher;
+
+  private EmployeeEmailCheck emailCheck;
+
+  // concurrent lookups of the same id share one query, see SingleFlight
+  private SingleFlight<Long, Optional<Employee>> findByIdFlight;
+
+  // bumped with every write of an id (striped by id), a lookup only caches the employee it loaded
+  // if no write of the id happened meanwhile, see cacheLoaded
+  private final AtomicLongArray writeVersions = new AtomicLongArray(1024);
+
+  // optional, collects concurrent lookups by id into one query, see EmployeeBatchLoader
+  private EmployeeBatchLoader batchLoader;
+
+  // optional, the headcount per group which we keep up to date with every change
+  private EmployeeStatsSummary statsSummary;
+
+  // optional, a patch reads and writes the row in one transaction
+  private TransactionTemplate transactionTemplate;
+
+  // optional, selects the shard of the employee before the transaction starts
+  private EmployeeTransactionRouting transactionRouting;
+
+  // optional, creates with an Idempotency-Key run at most once
+  private IdempotentRequests idempotentRequests;
+
+  /**
+   * convenience constructor for tests without spring, nothing is cached and changes are not
+   * published to anyone
+   */
   public EmployeeService(EmployeeRepository employeeRepository) {
+    this(employeeRepository, EmployeeCache.NONE, event -> {
+    });
+  }
+
+  @Autowired // needed since we have more than one constructor:
+             // https://stackoverflow.com/questions/41092751/spring-injects-dependencies-in-constructor-without-autowired-annotation
+  public EmployeeService(EmployeeRepository employeeRepository, EmployeeCache employeeCache,
+      ApplicationEventPublisher eventPublisher) {
     this.employeeRepository = employeeRepository;
+    this.employeeCache = employeeCache;
+    this.eventPublisher = eventPublisher;
+    this.emailCheck = new EmployeeEmailCheck(employeeRepository);
+    setSingleFlightTimeout(Duration.ofSeconds(2));
+  }
+
+  /**
+   * the maximum time a lookup waits for the query of a concurrent lookup, afterwards it queries
+   * the database itself. Every waiting thread gets its own copy of the employee, since it is a
+   * mutable JPA entity
+   */
+  @Value("${employee.single-flight.timeout:PT2S}")
+  void setSingleFlightTimeout(Duration timeout) {
+    findByIdFlight =
+        new SingleFlight<>(timeout, employee -> employee.map(OnHeapEmployeeCache::copy));
+  }
+
+  /**
+   * the bean, so its checks are recorded on their own
+   */
+  @Autowired
+  void setEmailCheck(EmployeeEmailCheck emailCheck) {
+    this.emailCheck = emailCheck;
+  }
+
+  @Autowired(required = false)
+  void setBatchLoader(EmployeeBatchLoader batchLoader) {
+    this.batchLoader = batchLoader;
+  }
+
+  @Autowired(required = false)
+  void setStatsSummary(EmployeeStatsSummary statsSummary) {
+    this.statsSummary = statsSummary;
+  }
+
+  @Autowired(required = false)
+  void setTransactionTemplate(TransactionTemplate transactionTemplate) {
+    this.transactionTemplate = transactionTemplate;
+  }
+
+  @Autowired(required = false)
+  void setTransactionRouting(EmployeeTransactionRouting transactionRouting) {
+    this.transactionRouting = transactionRouting;
+  }
+
+  @Autowired(required = false)
+  void setIdempotentRequests(IdempotentRequests idempotentRequests) {
+    this.idempotentRequests = idempotentRequests;
+  }
+
+  /**
+   * a retry with the same key gets the employee of the first request instead of a duplicate email
+   * error, see {@link IdempotentRequests}. Without idempotency support the key is ignored
+   */
+  public Employee saveEmployee(Employee employee, String idempotencyKey) {
+    if (idempotentRequests == null)
+      return saveEmployee(employee);
+    return idempotentRequests.execute(idempotencyKey, employee, () -> saveEmployee(employee));
   }
 
   public Employee saveEmployee(Employee employee) {
-    validateThatEmailDoesNotExist(employee.getEmail());
-    return employeeRepository.save(employee);
+    emailCheck.validateThatEmailDoesNotExist(employee.getEmail());
+    long statsGeneration = statsGeneration();
+    Employee savedEmployee = save(employee);
+    cacheWritten(savedEmployee);
+    if (statsSummary != null)
+      statsSummary.added(statsGeneration, savedEmployee);
+    eventPublisher.publishEvent(new EmployeeChangedEvent(savedEmployee.getId()));
+    return savedEmployee;
   }
 
   public List<Employee> getAllEmployees() {
     return employeeRepository.findAll();
   }
 
+  /**
+   * the event tells cache hits (no EmployeeQueryEvent within it) from misses
+   */
   public Optional<Employee> getEmployeeById(long id) {
-    return employeeRepository.findById(id);
+    Optional<Employee> cachedEmployee = employeeCache.get(id);
+    if (cachedEmployee.isPresent())
+      return cachedEmployee;
+    long writeVersion = writeVersion(id);
+    Optional<Employee> employee = findByIdFlight.execute(id,
+        () -> batchLoader != null ? batchLoader.get(id) : employeeRepository.findById(id));
+    employee.ifPresent(loadedEmployee -> cacheLoaded(loadedEmployee, writeVersion));
+    return employee;
+  }
+
+  /**
+   * @return the employees in the order of the ids, ids which don't exist are skipped. Only the ids
+   *         which are not cached are loaded, with a single query
+   */
+  public List<Employee> getEmployeesByIds(List<Long> ids) {
+    Map<Long, Employee> employees = new HashMap<>();
+    Set<Long> missingIds = new LinkedHashSet<>();
+    for (long id : ids)
+      employeeCache.get(id).ifPresentOrElse(employee -> employees.put(id, employee),
+          () -> missingIds.add(id));
+    if (!missingIds.isEmpty()) {
+      Map<Long, Long> writeVersions = new HashMap<>();
+      for (long id : missingIds)
+        writeVersions.put(id, writeVersion(id));
+      Map<Long, Employee> loadedEmployees = batchLoader != null ? batchLoader.getAll(missingIds)
+          : findAllById(missingIds);
+      for (Employee employee : loadedEmployees.values())
+        cacheLoaded(employee, writeVersions.get(employee.getId()));
+      employees.putAll(loadedEmployees);
+    }
+    List<Employee> result = new ArrayList<>(ids.size());
+    for (long id : ids) {
+      Employee employee = employees.get(id);
+      if (employee != null)
+        result.add(employee);
+    }
+    return result;
   }
 
   public Employee updateEmployee(Employee updatedEmployee) {
-    Employee oldEmployee =
-        getEmployeeById(updatedEmployee.getId()).orElseThrow(() -> new ResourceNotFoundException(
+    Employee oldEmployee = getEmployeeById(updatedEmployee.getId())
+        .orElseThrow(() -> new ResourceNotFoundException(
             "The Employee to update does not exist in the database yet (id="
                 + updatedEmployee.getId() + ")"));
 
     if (!oldEmployee.getEmail().equals(updatedEmployee.getEmail()))
-      validateThatEmailDoesNotExist(updatedEmployee.getEmail());
+      emailCheck.validateThatEmailDoesNotExist(updatedEmployee.getEmail());
+
+    // with open session in view oldEmployee is the managed entity, which the save overwrites
+    Employee previousEmployee = OnHeapEmployeeCache.copy(oldEmployee);
+    long statsGeneration = statsGeneration();
+    Employee savedEmployee = save(updatedEmployee);
+    cacheWritten(savedEmployee);
+    if (statsSummary != null)
+      statsSummary.changed(statsGeneration, previousEmployee, savedEmployee);
+    eventPublisher.publishEvent(new EmployeeChangedEvent(savedEmployee.getId()));
+    return savedEmployee;
+  }
 
-    return employeeRepository.save(updatedEmployee);
+  /**
+   * Only the fields of the patch are compared and only the email of the patch is checked for
+   * duplicates. The patch is applied to the row as it is in the database (not to a maybe stale
+   * cached copy), within one transaction. The entity has dynamic updates, so the UPDATE statement
+   * only sets the patched columns which changed: concurrent patches of other fields are kept, a
+   * patch which changes nothing doesn't write at all
+   */
+  public Employee patchEmployee(long id, EmployeeMergePatch patch) {
+    long statsGeneration = statsGeneration();
+    Patched patched = inTransaction(id, () -> {
+      Employee employee = employeeRepository.findById(id)
+          .orElseThrow(() -> new ResourceNotFoundException(
+              "The Employee to patch does not exist in the database yet (id=" + id + ")"));
+      Employee previousEmployee = OnHeapEmployeeCache.copy(employee); // see updateEmployee
+      Employee patchedEmployee = patch.applyTo(employee);
+
+      boolean emailChanged = patch.contains("email")
+          && !employee.getEmail().equals(patchedEmployee.getEmail());
+      if (emailChanged)
+        emailCheck.validateThatEmailDoesNotExist(patchedEmployee.getEmail());
+      if (!emailChanged
+          && employee.getFirstName().equals(patchedEmployee.getFirstName())
+          && employee.getLastName().equals(patchedEmployee.getLastName()))
+        return new Patched(previousEmployee, employee, false);
+
+      // the managed entity: the fields which are not patched are already the current ones
+      employee.setFirstName(patchedEmployee.getFirstName());
+      employee.setLastName(patchedEmployee.getLastName());
+      employee.setEmail(patchedEmployee.getEmail());
+      return new Patched(previousEmployee, save(employee), true);
+    }, patch.values().get("email"));
+    if (!patched.changed())
+      return patched.employee();
+
+    cacheWritten(patched.employee());
+    if (statsSummary != null)
+      statsSummary.changed(statsGeneration, patched.previousEmployee(), patched.employee());
+    eventPublisher.publishEvent(new EmployeeChangedEvent(id));
+    return patched.employee();
   }
 
   public void deleteEmployee(long id) {
-    employeeRepository.deleteById(id);
+    // the stats need the old values, the delete returns them
+    long statsGeneration = statsGeneration();
+    Employee oldEmployee = employeeRepository.deleteReturningById(id)
+        .orElseThrow(() -> new ResourceNotFoundException(
+            "The Employee to delete does not exist in the database (id=" + id + ")"));
+    evictWritten(id);
+    if (statsSummary != null)
+      statsSummary.removed(statsGeneration, oldEmployee);
+    eventPublisher.publishEvent(new EmployeeChangedEvent(id));
   }
 
-  private void validateThatEmailDoesNotExist(String email) {
-    if (employeeRepository.findByEmail(email).isPresent())
-      throw new DuplicateEmailException(email);
+  /**
+   * a former employee: from now on invisible like a deleted one, but the row is kept and later
+   * moved into the archive table by the {@link EmployeeArchiver}
+   */
+  public void terminateEmployee(long id) {
+    long statsGeneration = statsGeneration(); // see deleteEmployee
+    Employee oldEmployee = employeeRepository.terminateReturningById(id)
+        .orElseThrow(() -> new ResourceNotFoundException(
+            "The Employee to terminate does not exist in the database (id=" + id + ")"));
+    evictWritten(id);
+    if (statsSummary != null)
+      statsSummary.removed(statsGeneration, oldEmployee);
+    eventPublisher.publishEvent(new EmployeeChangedEvent(id));
   }
 
-}
+  /**
+   * read before a write, see EmployeeStatsSummary
+   */
+  private long statsGeneration() {
+    return statsSummary != null ? statsSummary.generation() : 0;
+  }
+
+  private long writeVersion(long id) {
+    return writeVersions.get(writeVersionIndex(id));
+  }
+
+  /**
+   * after the commit of a write: lookups which start now must not join a query which may have read
+   * the old row (see SingleFlight), and lookups which started before must not cache what they read
+   */
+  private void cacheWritten(Employee employee) {
+    findByIdFlight.forget(employee.getId());
+    emailCheck.forget(employee.getEmail());
+    writeVersions.incrementAndGet(writeVersionIndex(employee.getId()));
+    employeeCache.put(employee);
+  }
+
+  private void evictWritten(long id) {
+    findByIdFlight.forget(id);
+    writeVersions.incrementAndGet(writeVersionIndex(id));
+    employeeCache.evict(id);
+  }
 
+  /**
+   * A lookup which read the row before a concurrent write committed must not cache its (older)
+   * result after the write updated the cache. So we skip the put if the id was written since the
+   * lookup started. A write can still come between the check and the put, we then evict what we
+   * put: the next lookup loads the employee again
+   */
+  private void cacheLoaded(Employee employee, long writeVersion) {
+    if (writeVersion(employee.getId()) != writeVersion)
+      return;
+    employeeCache.put(employee);
+    if (writeVersion(employee.getId()) != writeVersion)
+      employeeCache.evict(employee.getId());
+  }
+
+  /**
+   * the top 10 bits of a fibonacci hash, for the 1024 write versions
+   */
+  private static int writeVersionIndex(long id) {
+    return (int) ((id * 0x9E3779B97F4A7C15L) >>> 54);
+  }
+
+  private Map<Long, Employee> findAllById(Set<Long> ids) {
+    Map<Long, Employee> employees = new HashMap<>();
+    for (Employee employee : employeeRepository.findAllById(ids))
+      employees.put(employee.getId(), employee);
+    return employees;
+  }
+
+  /**
+   * the check before the save is not enough: two concurrent requests with the same new email both
+   * pass it. The unique email index lets only one of them save, the other one gets the same error
+   * as if the check had caught it
+   */
+  private Employee save(Employee employee) {
+    try {
+      return employeeRepository.save(employee);
+    } catch (DataIntegrityViolationException e) {
+      throw duplicateEmailOr(e, employee.getEmail());
+    }
+  }
+
+  private RuntimeException duplicateEmailOr(DataIntegrityViolationException e, String email) {
+    String normalizedEmail = Employee.normalizeEmail(email);
+    if (normalizedEmail != null && employeeRepository.existsByEmail(normalizedEmail))
+      return new DuplicateEmailException(normalizedEmail);
+    return e;
+  }
+
+  /**
+   * Without spring (tests) there is no transaction manager, the work then runs without one. In a
+   * transaction, the UPDATE is only sent at the commit, so the unique email index is checked
+   * there. With shards the transaction starts on the shard of the employee id
+   */
+  private <T> T inTransaction(long id, Supplier<T> work, String email) {
+    if (transactionTemplate == null)
+      return work.get();
+    try {
+      if (transactionRouting == null)
+        return transactionTemplate.execute(status -> work.get());
+      return transactionRouting.onDatabaseOf(id,
+          () -> transactionTemplate.execute(status -> work.get()));
+    } catch (DataIntegrityViolationException e) {
+      throw duplicateEmailOr(e, email);
+    }
+  }
+
+  private record Patched(Employee previousEmployee, Employee employee, boolean changed) {
+  }
+}
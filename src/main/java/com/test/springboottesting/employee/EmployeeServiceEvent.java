@@ -0,0 +1,29 @@
+package com.test.springboottesting.employee;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Java Flight Recorder event per call of the {@link EmployeeService}, including the check that
+ * an email doesn't exist yet ({@link EmployeeEmailCheck}). Recorded by a proxy, see
+ * FlightRecorderConfig. A slow request can be broken down into the service calls (and with
+ * the {@link EmployeeQueryEvent} into the queries) it made on the same thread
+ */
+@Name("com.test.springboottesting.EmployeeService")
+@Label("Employee Service Call")
+@Category({"Employee Management", "Service"})
+@StackTrace(false)
+public class EmployeeServiceEvent extends Event {
+
+  @Label("Operation")
+  @Description("The method of the EmployeeService or EmployeeEmailCheck, e.g. saveEmployee")
+  public String operation;
+
+  @Label("Employee Id")
+  @Description("The id of the employee or 0")
+  public long employeeId;
+}
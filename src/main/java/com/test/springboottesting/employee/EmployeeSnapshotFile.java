@@ -0,0 +1,209 @@
+package com.test.springboottesting.employee;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * A compact binary file with all employees, which is memory mapped when it is read. Layout (big
+ * endian):
+ *
+ * <pre>
+ * header  magic (int) | version (int) | count (int) | reserved (int)
+ *         changeCount (long) | createdAt (long) | watermark count (long) | watermark maxId (long)
+ * index   count * [ id (long) | offset of the record (long) ], sorted by id
+ * records count * [ firstName | lastName | email ], each as length (unsigned short) + UTF-8 bytes
+ * </pre>
+ *
+ * Since the index is sorted we can look up a single employee with a binary search directly in the
+ * mapped file, without reading (or even deserializing) the whole file.
+ *
+ * The {@link Watermark} is the state of the table in the database when the snapshot was taken,
+ * other than the changeCount it's the same for all instances.
+ */
+public final class EmployeeSnapshotFile {
+
+  static final int MAGIC = 0x454D5053; // "EMPS"
+  static final int VERSION = 2;
+  static final int HEADER_SIZE = 48;
+  static final int INDEX_ENTRY_SIZE = 16;
+
+  private final ByteBuffer buffer;
+  private final int count;
+  private final long changeCount;
+  private final Instant createdAt;
+  private final Watermark watermark;
+
+  private EmployeeSnapshotFile(ByteBuffer buffer) {
+    if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC)
+      throw new IllegalArgumentException("Not an employee snapshot file");
+    if (buffer.getInt(4) != VERSION)
+      throw new IllegalArgumentException("Unsupported snapshot version " + buffer.getInt(4));
+    this.buffer = buffer;
+    this.count = buffer.getInt(8);
+    this.changeCount = buffer.getLong(16);
+    this.createdAt = Instant.ofEpochMilli(buffer.getLong(24));
+    this.watermark = new Watermark(buffer.getLong(32), buffer.getLong(40));
+  }
+
+  /**
+   * maps the file into memory. The mapping stays valid after the file was replaced by a newer
+   * snapshot
+   */
+  public static EmployeeSnapshotFile open(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      return new EmployeeSnapshotFile(
+          channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  /**
+   * writes the employees to a temporary file which then atomically replaces the given file, so a
+   * reader never sees a half written snapshot
+   */
+  public static void write(Path file, List<Employee> employees, long changeCount,
+      Watermark watermark, Instant createdAt) throws IOException {
+    List<Employee> sortedEmployees = new ArrayList<>(employees);
+    sortedEmployees.sort(Comparator.comparingLong(Employee::getId));
+    int count = sortedEmployees.size();
+    long[] offsets = new long[count];
+
+    Path tempFile = Files.createTempFile(file.toAbsolutePath().getParent(), "employees-", ".tmp");
+    try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+      ByteBuffer out = ByteBuffer.allocate(128 * 1024);
+      long position = HEADER_SIZE + (long) count * INDEX_ENTRY_SIZE;
+      channel.position(position);
+      for (int i = 0; i < count; i++) {
+        Employee employee = sortedEmployees.get(i);
+        byte[][] fields = {utf8(employee.getFirstName()), utf8(employee.getLastName()),
+            utf8(employee.getEmail())};
+        offsets[i] = position;
+        for (byte[] field : fields) {
+          if (out.remaining() < 2 + field.length)
+            flush(out, channel);
+          out.putShort((short) field.length).put(field);
+          position += 2 + field.length;
+        }
+      }
+      flush(out, channel);
+
+      channel.position(0);
+      out.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(0).putLong(changeCount)
+          .putLong(createdAt.toEpochMilli()).putLong(watermark.count())
+          .putLong(watermark.maxId());
+      for (int i = 0; i < count; i++) {
+        if (out.remaining() < INDEX_ENTRY_SIZE)
+          flush(out, channel);
+        out.putLong(sortedEmployees.get(i).getId()).putLong(offsets[i]);
+      }
+      flush(out, channel);
+      channel.force(true);
+    }
+    Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE,
+        StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  public int size() {
+    return count;
+  }
+
+  /**
+   * the value of the {@link EmployeeChangeCounter} when the snapshot was written
+   */
+  public long changeCount() {
+    return changeCount;
+  }
+
+  public Instant createdAt() {
+    return createdAt;
+  }
+
+  public Watermark watermark() {
+    return watermark;
+  }
+
+  public Optional<Employee> find(long id) {
+    int low = 0;
+    int high = count - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      long middleId = idAt(middle);
+      if (middleId < id)
+        low = middle + 1;
+      else if (middleId > id)
+        high = middle - 1;
+      else
+        return Optional.of(employeeAt(middle));
+    }
+    return Optional.empty();
+  }
+
+  public void forEach(Consumer<Employee> consumer) {
+    for (int i = 0; i < count; i++)
+      consumer.accept(employeeAt(i));
+  }
+
+  private long idAt(int index) {
+    return buffer.getLong(HEADER_SIZE + index * INDEX_ENTRY_SIZE);
+  }
+
+  private Employee employeeAt(int index) {
+    // we only use absolute get methods, so the buffer can be shared between threads
+    int position = (int) buffer.getLong(HEADER_SIZE + index * INDEX_ENTRY_SIZE + 8);
+    String[] fields = new String[3];
+    for (int i = 0; i < fields.length; i++) {
+      int length = Short.toUnsignedInt(buffer.getShort(position));
+      byte[] bytes = new byte[length];
+      buffer.get(position + 2, bytes);
+      fields[i] = new String(bytes, StandardCharsets.UTF_8);
+      position += 2 + length;
+    }
+    return Employee.builder().id(idAt(index)).firstName(fields[0]).lastName(fields[1])
+        .email(fields[2]).build();
+  }
+
+  /**
+   * The number of employees and the highest id. An insert, delete or termination changes it, an
+   * update doesn't
+   */
+  public record Watermark(long count, long maxId) {
+
+    /**
+     * of the rows of EmployeeRepository.countAndMaxId, a sharded repository has one per shard
+     */
+    static Watermark of(List<Object[]> rows) {
+      long count = 0;
+      long maxId = 0;
+      for (Object[] row : rows) {
+        count += ((Number) row[0]).longValue();
+        maxId = Math.max(maxId, ((Number) row[1]).longValue());
+      }
+      return new Watermark(count, maxId);
+    }
+  }
+
+  private static byte[] utf8(String value) {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    if (bytes.length > 0xFFFF)
+      throw new IllegalArgumentException("Field is too long for the snapshot: " + bytes.length);
+    return bytes;
+  }
+
+  private static void flush(ByteBuffer out, FileChannel channel) throws IOException {
+    out.flip();
+    while (out.hasRemaining())
+      channel.write(out);
+    out.clear();
+  }
+}
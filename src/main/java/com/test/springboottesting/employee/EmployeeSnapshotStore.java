@@ -0,0 +1,143 @@
+package com.test.springboottesting.employee;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Writes the employees table periodically as {@link EmployeeSnapshotFile} to the local disk and
+ * uses the file at startup to warm up the {@link EmployeeCache}. A new instance can then serve
+ * lookups from the cache right away, instead of hitting the database until the cache is filled.
+ *
+ * Staleness checks: the snapshot stores the {@link EmployeeSnapshotFile.Watermark} of the table
+ * (number of employees and highest id, one cheap query), which we compare with the database at
+ * startup. Inserts, deletes and terminations of any instance (or directly in the database) change
+ * it and the snapshot is ignored. An update changes neither, so a snapshot older than
+ * employee.snapshot.max-age is ignored as well, and the time to live of the cache bounds how long
+ * an update we missed is served. For the same reason the snapshot only warms up the local tier of a
+ * {@link TwoTierEmployeeCache}, it never overwrites the shared one. The snapshot is rewritten if
+ * the watermark or the
+ * {@link EmployeeChangeCounter} (the changes made through this instance, including updates)
+ * changed since the last write, and once more on shutdown, so the last updates of this instance
+ * are in it.
+ *
+ * Warming up is the whole point of this bean, so it is never initialized lazily (prod profile).
+ */
+@Component
+@Lazy(false)
+@ConditionalOnProperty(name = "employee.snapshot.enabled", havingValue = "true")
+public class EmployeeSnapshotStore {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(EmployeeSnapshotStore.class);
+
+  private EmployeeRepository employeeRepository;
+  private EmployeeChangeCounter changeCounter;
+  private EmployeeCache employeeCache;
+  private Path file;
+  private Duration maxAge;
+  private Clock clock;
+
+  private long writtenChangeCount = -1;
+  private EmployeeSnapshotFile.Watermark writtenWatermark;
+
+  @Autowired
+  public EmployeeSnapshotStore(EmployeeRepository employeeRepository,
+      EmployeeChangeCounter changeCounter, EmployeeCache employeeCache,
+      @Value("${employee.snapshot.file:${java.io.tmpdir}/employee-snapshot/employees.bin}")
+      Path file,
+      @Value("${employee.snapshot.max-age:PT10M}") Duration maxAge) {
+    this(employeeRepository, changeCounter, employeeCache, file, maxAge, Clock.systemUTC());
+  }
+
+  EmployeeSnapshotStore(EmployeeRepository employeeRepository,
+      EmployeeChangeCounter changeCounter, EmployeeCache employeeCache, Path file,
+      Duration maxAge, Clock clock) {
+    this.employeeRepository = employeeRepository;
+    this.changeCounter = changeCounter;
+    this.employeeCache = employeeCache;
+    this.file = file;
+    this.maxAge = maxAge;
+    this.clock = clock;
+  }
+
+  @PostConstruct
+  void warmUpOnStartup() {
+    warmUp();
+  }
+
+  /**
+   * @return the number of employees put into the cache
+   */
+  public int warmUp() {
+    if (employeeCache == EmployeeCache.NONE || !Files.exists(file))
+      return 0;
+    try {
+      long start = System.nanoTime();
+      EmployeeSnapshotFile snapshot = EmployeeSnapshotFile.open(file);
+      Duration age = Duration.between(snapshot.createdAt(), clock.instant());
+      if (age.compareTo(maxAge) > 0) {
+        LOGGER.info("Ignoring employee snapshot {}, it is {} old", file, age);
+        return 0;
+      }
+      EmployeeSnapshotFile.Watermark watermark = watermark();
+      if (!snapshot.watermark().equals(watermark)) {
+        LOGGER.info("Ignoring employee snapshot {}, it was taken at {}, the database is at {}",
+            file, snapshot.watermark(), watermark);
+        return 0;
+      }
+      // the watermark doesn't see updates, the other instances may have newer versions cached
+      snapshot.forEach(employeeCache::putLocal);
+      LOGGER.info("Warmed up the employee cache with {} employees in {} ms", snapshot.size(),
+          Duration.ofNanos(System.nanoTime() - start).toMillis());
+      return snapshot.size();
+    } catch (IOException | RuntimeException e) {
+      // a broken snapshot must never prevent the application from starting
+      LOGGER.warn("Could not read employee snapshot {}", file, e);
+      return 0;
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${employee.snapshot.interval:PT5M}",
+      initialDelayString = "${employee.snapshot.initial-delay:PT1M}")
+  public synchronized void writeIfChanged() throws IOException {
+    // read the counter and the watermark before the table, so changes made while we query make
+    // the snapshot stale
+    long changeCount = changeCounter.get();
+    EmployeeSnapshotFile.Watermark watermark = watermark();
+    if (changeCount == writtenChangeCount && watermark.equals(writtenWatermark)
+        && Files.exists(file))
+      return;
+    Files.createDirectories(file.toAbsolutePath().getParent());
+    Instant createdAt = clock.instant();
+    EmployeeSnapshotFile.write(file, employeeRepository.findAll(), changeCount, watermark,
+        createdAt);
+    writtenChangeCount = changeCount;
+    writtenWatermark = watermark;
+  }
+
+  @PreDestroy
+  void writeOnShutdown() {
+    try {
+      writeIfChanged();
+    } catch (IOException | RuntimeException e) {
+      LOGGER.warn("Could not write employee snapshot {} on shutdown", file, e);
+    }
+  }
+
+  private EmployeeSnapshotFile.Watermark watermark() {
+    return EmployeeSnapshotFile.Watermark.of(employeeRepository.countAndMaxId());
+  }
+}
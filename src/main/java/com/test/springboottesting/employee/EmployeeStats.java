@@ -0,0 +1,13 @@
+package com.test.springboottesting.employee;
+
+import java.util.SortedMap;
+
+/**
+ * The headcount of all employees, in total and per group
+ *
+ * @param byEmailDomain e.g. email.com=42 for all employees with an email ...@email.com
+ * @param byLastNameInitial e.g. D=42 for all employees whose last name starts with d or D
+ */
+public record EmployeeStats(long total, SortedMap<String, Long> byEmailDomain,
+    SortedMap<String, Long> byLastNameInitial) {
+}
@@ -0,0 +1,25 @@
+package com.test.springboottesting.employee;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * GET /api/employees/stats: the headcount per email domain and per last name initial for reports,
+ * served from the {@link EmployeeStatsSummary} instead of a scan of all employees
+ */
+@RestController
+@RequestMapping("/api/employees")
+public class EmployeeStatsController {
+
+  private EmployeeStatsSummary statsSummary;
+
+  public EmployeeStatsController(EmployeeStatsSummary statsSummary) {
+    this.statsSummary = statsSummary;
+  }
+
+  @GetMapping("stats")
+  public EmployeeStats getEmployeeStats() {
+    return statsSummary.get();
+  }
+}
@@ -0,0 +1,160 @@
+package com.test.springboottesting.employee;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * The {@link EmployeeStats} without a full table scan per request: counters per email domain and
+ * per last name initial, which the {@link EmployeeService} (and the {@link EmployeeWriteQueue})
+ * update with every created, changed and deleted employee. Reading the stats costs O(groups).
+ *
+ * The counters are computed with two group by queries on the first read, after a bulk import (see
+ * {@link EmployeesImportedEvent}) and periodically (employee.stats.recompute-interval). The
+ * periodic recompute corrects what the counters can't see: changes of other instances, and
+ * concurrent updates of the same employee, which each apply their own old and new values.
+ *
+ * A recompute replaces the counters with a new generation. A write which started before (its
+ * caller reads {@link #generation()} before the write) may or may not be counted by the queries of
+ * the recompute, so its change is only applied to the generation it started with. The new counters
+ * only get the changes of writes which started after them, which the queries can't have seen. A
+ * write which started before but committed after the queries is missing until the next recompute,
+ * but no write is counted twice.
+ */
+@Component
+public class EmployeeStatsSummary {
+
+  private EmployeeRepository employeeRepository;
+
+  private volatile Counters counters;
+  private long generations;
+
+  public EmployeeStatsSummary(EmployeeRepository employeeRepository) {
+    this.employeeRepository = employeeRepository;
+  }
+
+  public EmployeeStats get() {
+    Counters current = counters;
+    if (current == null)
+      current = computeIfAbsent();
+    return stats(current);
+  }
+
+  /**
+   * counts all employees with the database, O(rows). The result replaces the counters
+   */
+  public EmployeeStats recompute() {
+    return stats(compute());
+  }
+
+  private synchronized Counters computeIfAbsent() {
+    return counters != null ? counters : compute();
+  }
+
+  private synchronized Counters compute() {
+    Counters recomputed = new Counters(++generations);
+    for (Object[] row : employeeRepository.countByEmailDomain()) {
+      add(recomputed.byEmailDomain, (String) row[0], (Long) row[1]);
+      recomputed.total.add((Long) row[1]);
+    }
+    for (Object[] row : employeeRepository.countByLastNameInitial())
+      add(recomputed.byLastNameInitial, (String) row[0], (Long) row[1]);
+    counters = recomputed;
+    return recomputed;
+  }
+
+  @Scheduled(fixedDelayString = "${employee.stats.recompute-interval:PT10M}",
+      initialDelayString = "${employee.stats.recompute-interval:PT10M}")
+  public void recomputeIfUsed() {
+    if (counters != null)
+      recompute();
+  }
+
+  @EventListener
+  public void onEmployeesImported(EmployeesImportedEvent event) {
+    counters = null; // recomputed with the next read
+  }
+
+  /**
+   * to be read before a write and passed with its change
+   */
+  public long generation() {
+    Counters current = counters;
+    return current == null ? 0 : current.generation;
+  }
+
+  public void added(long generation, Employee employee) {
+    apply(generation, employee, 1);
+  }
+
+  public void removed(long generation, Employee employee) {
+    apply(generation, employee, -1);
+  }
+
+  public void changed(long generation, Employee oldEmployee, Employee newEmployee) {
+    removed(generation, oldEmployee);
+    added(generation, newEmployee);
+  }
+
+  private void apply(long generation, Employee employee, long delta) {
+    Counters current = counters;
+    if (current == null)
+      return; // not computed yet, the first read counts everything
+    if (current.generation != generation)
+      return; // recomputed since the write started, see above
+    current.total.add(delta);
+    add(current.byEmailDomain, emailDomain(employee.getEmail()), delta);
+    add(current.byLastNameInitial, lastNameInitial(employee.getLastName()), delta);
+  }
+
+  /**
+   * the same as substring(email, locate('@', email) + 1) of {@link EmployeeRepository}
+   */
+  static String emailDomain(String email) {
+    return email.substring(email.indexOf('@') + 1);
+  }
+
+  /**
+   * the same as upper(substring(lastName, 1, 1)) of {@link EmployeeRepository}, by code point
+   * like the databases
+   */
+  static String lastNameInitial(String lastName) {
+    return lastName.isEmpty() ? ""
+        : Character.toString(Character.toUpperCase(lastName.codePointAt(0)));
+  }
+
+  private static EmployeeStats stats(Counters counters) {
+    return new EmployeeStats(counters.total.sum(), snapshot(counters.byEmailDomain),
+        snapshot(counters.byLastNameInitial));
+  }
+
+  private static void add(Map<String, LongAdder> counters, String group, long delta) {
+    counters.computeIfAbsent(group, key -> new LongAdder()).add(delta);
+  }
+
+  private static SortedMap<String, Long> snapshot(Map<String, LongAdder> counters) {
+    SortedMap<String, Long> snapshot = new TreeMap<>();
+    counters.forEach((group, count) -> {
+      long sum = count.sum();
+      if (sum > 0)
+        snapshot.put(group, sum);
+    });
+    return snapshot;
+  }
+
+  private static class Counters {
+    private final long generation;
+    private final LongAdder total = new LongAdder();
+    private final Map<String, LongAdder> byEmailDomain = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> byLastNameInitial = new ConcurrentHashMap<>();
+
+    Counters(long generation) {
+      this.generation = generation;
+    }
+  }
+}
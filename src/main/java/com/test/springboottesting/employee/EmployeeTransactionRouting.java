@@ -0,0 +1,16 @@
+package com.test.springboottesting.employee;
+
+import java.util.function.Supplier;
+
+/**
+ * Selects the database of an employee before a transaction of the {@link EmployeeService} starts.
+ * Only a sharded storage has one (see ShardingConfig): a transaction keeps the connection it
+ * started with, so the transaction of an employee has to start on the shard of the employee
+ */
+public interface EmployeeTransactionRouting {
+
+  /**
+   * runs the transaction with the connections of the database which has the employee
+   */
+  <T> T onDatabaseOf(long id, Supplier<T> transaction);
+}
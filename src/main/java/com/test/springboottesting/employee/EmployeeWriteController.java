@@ -0,0 +1,51 @@
+package com.test.springboottesting.employee;
+
+import java.net.URI;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import jakarta.validation.Valid;
+
+/**
+ * The asynchronous variant of POST /api/employees, a client asks for it with the header
+ * "Prefer: respond-async" (https://datatracker.ietf.org/doc/html/rfc7240#section-4.1), also
+ * next to other preferences (see {@link PreferRespondAsyncMapping}). The employee is validated
+ * right away, but only queued (see {@link EmployeeWriteQueue}). The response is 202 Accepted with
+ * the status URL in the Location header.
+ */
+@RestController
+@RequestMapping("/api/employees")
+// saveAll of the sharded repository is not atomic, which the writer relies on
+@ConditionalOnExpression("${employee.async-write.enabled:false}"
+    + " and !${employee.sharding.enabled:false}")
+public class EmployeeWriteController {
+
+  private EmployeeWriteQueue writeQueue;
+
+  public EmployeeWriteController(EmployeeWriteQueue writeQueue) {
+    this.writeQueue = writeQueue;
+  }
+
+  @PostMapping
+  @PreferRespondAsync
+  public ResponseEntity<EmployeeWriteStatus> createEmployeeAsync(
+      @Valid @RequestBody Employee employee) {
+    EmployeeWriteStatus status = writeQueue.submit(employee);
+    return ResponseEntity.accepted().location(statusUri(status.ticket())).body(status);
+  }
+
+  @GetMapping("writes/{ticket}")
+  public ResponseEntity<EmployeeWriteStatus> getWriteStatus(@PathVariable("ticket") String ticket) {
+    return writeQueue.getStatus(ticket).map(ResponseEntity::ok)
+        .orElseGet(() -> ResponseEntity.notFound().build());
+  }
+
+  private static URI statusUri(String ticket) {
+    return URI.create("/api/employees/writes/" + ticket);
+  }
+}
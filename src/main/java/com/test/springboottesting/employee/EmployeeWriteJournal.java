@@ -0,0 +1,133 @@
+package com.test.springboottesting.employee;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The write ahead log of the {@link EmployeeWriteQueue}: an employee is appended (and forced to the
+ * disk) before the client gets its 202, the outcome is appended when it was written to the
+ * database. After a crash the employees without outcome are written again. One record per line:
+ *
+ * Q {ticket} {employee as json}
+ *
+ * D {ticket} {SAVED|FAILED} {employee id or -} {detail}
+ *
+ * The fields are separated by tabs (JSON has no raw tabs). A line which was only partly written
+ * when we crashed is ignored, its client never got a 202.
+ */
+class EmployeeWriteJournal implements Closeable {
+
+  private final Path file;
+  private FileChannel channel;
+
+  /**
+   * the content of the journal at startup
+   *
+   * @param queued the employee json by ticket of all employees without outcome
+   * @param done the outcome of all others
+   */
+  record Replay(Map<String, String> queued, Map<String, EmployeeWriteStatus> done) {
+  }
+
+  EmployeeWriteJournal(Path file) {
+    this.file = file;
+  }
+
+  /**
+   * reads the journal and rewrites it with the queued employees only, afterwards records can be
+   * appended
+   */
+  Replay open() throws IOException {
+    Files.createDirectories(file.toAbsolutePath().getParent());
+    Map<String, String> queued = new LinkedHashMap<>();
+    Map<String, EmployeeWriteStatus> done = new LinkedHashMap<>();
+    if (Files.exists(file))
+      try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+        for (String line = reader.readLine(); line != null; line = reader.readLine())
+          read(line, queued, done);
+      }
+    Path compacted = file.resolveSibling(file.getFileName() + ".tmp");
+    try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      for (Map.Entry<String, String> entry : queued.entrySet())
+        write(out, "Q\t" + entry.getKey() + "\t" + entry.getValue() + "\n");
+      out.force(true);
+    }
+    Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+    channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    return new Replay(queued, done);
+  }
+
+  /**
+   * the record is durable after the next {@link #force()}
+   */
+  synchronized void appendQueued(String ticket, String employeeJson) throws IOException {
+    write(channel, "Q\t" + ticket + "\t" + employeeJson + "\n");
+  }
+
+  void force() throws IOException {
+    channel.force(false);
+  }
+
+  /**
+   * one force for the whole batch
+   */
+  synchronized void appendDone(Collection<EmployeeWriteStatus> statuses) throws IOException {
+    StringBuilder records = new StringBuilder();
+    for (EmployeeWriteStatus status : statuses) {
+      String detail = status.detail() == null ? "" : status.detail().replaceAll("\\s", " ");
+      records.append("D\t").append(status.ticket()).append('\t').append(status.state())
+          .append('\t').append(status.employeeId() == null ? "-" : status.employeeId())
+          .append('\t').append(detail).append('\n');
+    }
+    write(channel, records.toString());
+    channel.force(false);
+  }
+
+  /**
+   * starts a new, empty journal. Only allowed if nothing is queued anymore
+   */
+  synchronized void truncate() throws IOException {
+    channel.truncate(0);
+    channel.force(true);
+  }
+
+  synchronized long size() throws IOException {
+    return channel.size();
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (channel != null)
+      channel.close();
+  }
+
+  private static void read(String line, Map<String, String> queued,
+      Map<String, EmployeeWriteStatus> done) {
+    String[] fields = line.split("\t", -1);
+    if (fields.length == 3 && fields[0].equals("Q") && fields[2].endsWith("}"))
+      queued.put(fields[1], fields[2]);
+    else if (fields.length == 5 && fields[0].equals("D") && queued.remove(fields[1]) != null)
+      done.put(fields[1], fields[2].equals("SAVED")
+          ? EmployeeWriteStatus.saved(fields[1], Long.parseLong(fields[3]))
+          : EmployeeWriteStatus.failed(fields[1], fields[4]));
+  }
+
+  private static void write(FileChannel channel, String records) throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(records.getBytes(StandardCharsets.UTF_8));
+    while (buffer.hasRemaining())
+      channel.write(buffer);
+  }
+}
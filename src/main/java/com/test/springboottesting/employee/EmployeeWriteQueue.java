@@ -0,0 +1,382 @@
+package com.test.springboottesting.employee;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.test.springboottesting.exception.DuplicateEmailException;
+import com.test.springboottesting.exception.ServiceOverloadedException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * The asynchronous write path for bulk onboarding: {@link #submit(Employee)} only appends the
+ * employee to the {@link EmployeeWriteJournal} and a bounded queue and returns a ticket. A single
+ * writer thread takes up to batchSize employees at once from the queue, checks all their emails
+ * with one query and saves them with one saveAll (one transaction). The status of every ticket can
+ * be looked up, the last maxStatuses outcomes are kept in memory.
+ *
+ * Back-pressure: if the queue is full, submit throws a {@link ServiceOverloadedException} (503),
+ * the client should slow down instead of us buffering more and more.
+ *
+ * Crash safety: the journal is forced to the disk before the employee is queued, so the writer
+ * never saves an employee which may still be lost (or whose submit still fails). At startup all
+ * employees of the journal without outcome are queued again. An employee which was saved right
+ * before the crash (but whose outcome didn't make it into the journal) is recognized by its email
+ * and names and reported as saved, instead of failing as duplicate. A batch which fails as a whole (e.g. the
+ * database is down) is written again and again with a growing pause in between, its employees are
+ * never dropped. The journal is only truncated when every employee in it has its outcome.
+ *
+ * The writer is the whole point of this bean, so it is never initialized lazily (prod profile).
+ */
+@Component
+@Lazy(false)
+// saveAll of the sharded repository is not atomic, which the writer relies on
+@ConditionalOnExpression("${employee.async-write.enabled:false}"
+    + " and !${employee.sharding.enabled:false}")
+public class EmployeeWriteQueue {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(EmployeeWriteQueue.class);
+  private static final Duration FIRST_RETRY_BACKOFF = Duration.ofMillis(100);
+
+  private final EmployeeRepository employeeRepository;
+  private final ApplicationEventPublisher eventPublisher;
+  private final ObjectMapper objectMapper;
+  private final EmployeeWriteJournal journal;
+  private final int capacity;
+  private final int batchSize;
+  private final int maxStatuses;
+
+  private BlockingQueue<Item> queue;
+  // the places in the queue not reserved by a submit, which journals before it queues
+  private Semaphore freeSlots;
+  // the tickets without outcome in the journal (or about to be journaled)
+  private final Map<String, EmployeeWriteStatus> queuedStatuses = new ConcurrentHashMap<>();
+  private final Map<String, EmployeeWriteStatus> doneStatuses;
+  // queued or being written
+  private final AtomicInteger unfinished = new AtomicInteger();
+  private Thread writer;
+  private volatile boolean closed;
+  private Duration maxRetryBackoff = Duration.ofSeconds(30);
+  // optional, see EmployeeService
+  private EmployeeStatsSummary statsSummary;
+
+  public EmployeeWriteQueue(EmployeeRepository employeeRepository,
+      ApplicationEventPublisher eventPublisher, ObjectMapper objectMapper,
+      @Value("${employee.async-write.journal:${java.io.tmpdir}/employee-writes/journal.log}")
+      Path journal,
+      @Value("${employee.async-write.capacity:10000}") int capacity,
+      @Value("${employee.async-write.batch-size:500}") int batchSize,
+      @Value("${employee.async-write.max-statuses:100000}") int maxStatuses) {
+    this.employeeRepository = employeeRepository;
+    this.eventPublisher = eventPublisher;
+    this.objectMapper = objectMapper;
+    this.journal = new EmployeeWriteJournal(journal);
+    this.capacity = capacity;
+    this.batchSize = batchSize;
+    this.maxStatuses = maxStatuses;
+    this.doneStatuses = Collections.synchronizedMap(new LinkedHashMap<>() {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, EmployeeWriteStatus> eldest) {
+        return size() > EmployeeWriteQueue.this.maxStatuses;
+      }
+    });
+  }
+
+  /**
+   * the longest pause between two attempts to write a failed batch, it doubles from 100 ms
+   */
+  @Value("${employee.async-write.max-retry-backoff:PT30S}")
+  void setMaxRetryBackoff(Duration maxRetryBackoff) {
+    this.maxRetryBackoff = maxRetryBackoff;
+  }
+
+  @Autowired(required = false)
+  void setStatsSummary(EmployeeStatsSummary statsSummary) {
+    this.statsSummary = statsSummary;
+  }
+
+  /**
+   * replays the journal and starts the writer
+   */
+  @PostConstruct
+  public void start() throws IOException {
+    EmployeeWriteJournal.Replay replay = journal.open();
+    doneStatuses.putAll(replay.done());
+    queue = new ArrayBlockingQueue<>(Math.max(capacity, replay.queued().size()));
+    for (Map.Entry<String, String> entry : replay.queued().entrySet()) {
+      Employee employee = objectMapper.readValue(entry.getValue(), Employee.class);
+      queuedStatuses.put(entry.getKey(), EmployeeWriteStatus.queued(entry.getKey()));
+      queue.add(new Item(entry.getKey(), employee, true));
+      unfinished.incrementAndGet();
+    }
+    freeSlots = new Semaphore(queue.remainingCapacity());
+    if (!replay.queued().isEmpty())
+      LOGGER.info("Replaying {} queued employees from the journal", replay.queued().size());
+    writer = new Thread(this::write, "employee-writer");
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  /**
+   * @return the status QUEUED with the ticket to look up the outcome
+   * @throws ServiceOverloadedException if the queue is full
+   */
+  public EmployeeWriteStatus submit(Employee employee) {
+    if (closed)
+      throw new ServiceOverloadedException();
+    String ticket = UUID.randomUUID().toString();
+    EmployeeWriteStatus status = EmployeeWriteStatus.queued(ticket);
+    // a place in the queue is reserved first, so a rejected employee never gets into the journal
+    if (!freeSlots.tryAcquire())
+      throw new ServiceOverloadedException();
+    // before the journal, see truncateJournalIfIdle
+    queuedStatuses.put(ticket, status);
+    try {
+      journal.appendQueued(ticket, objectMapper.writeValueAsString(employee));
+      // no lock held, so the forces of concurrent submits overlap (group commit)
+      journal.force();
+    } catch (IOException e) {
+      // without the journal entry we must not promise anything, and the writer never saw it
+      queuedStatuses.remove(ticket);
+      freeSlots.release();
+      throw new UncheckedIOException("Could not write the employee to the journal", e);
+    }
+    // durable now, and the outcome can only be journaled after the employee
+    unfinished.incrementAndGet();
+    queue.add(new Item(ticket, employee, false));
+    return status;
+  }
+
+  public Optional<EmployeeWriteStatus> getStatus(String ticket) {
+    EmployeeWriteStatus status = queuedStatuses.get(ticket);
+    return status != null ? Optional.of(status) : Optional.ofNullable(doneStatuses.get(ticket));
+  }
+
+  /**
+   * @return the number of employees which are queued or being written
+   */
+  public int pending() {
+    return unfinished.get();
+  }
+
+  /**
+   * waits until all queued employees are written, e.g. for tests
+   *
+   * @return false if the timeout was over before
+   */
+  public boolean awaitDrained(Duration timeout) throws InterruptedException {
+    long end = System.nanoTime() + timeout.toNanos();
+    while (pending() > 0) {
+      if (System.nanoTime() - end > 0)
+        return false;
+      Thread.sleep(5);
+    }
+    return true;
+  }
+
+  /**
+   * stops the writer, queued employees stay in the journal and are written after the next start
+   */
+  @PreDestroy
+  public void close() throws IOException, InterruptedException {
+    closed = true;
+    if (writer != null) {
+      writer.interrupt();
+      writer.join(TimeUnit.SECONDS.toMillis(10));
+    }
+    journal.close();
+  }
+
+  private void write() {
+    List<Item> batch = new ArrayList<>(batchSize);
+    while (!closed) {
+      try {
+        Item first = queue.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null)
+          continue;
+        batch.add(first);
+        queue.drainTo(batch, batchSize - 1);
+        int size = batch.size();
+        freeSlots.release(size);
+        writeWithRetries(batch);
+        unfinished.addAndGet(-size);
+      } catch (InterruptedException e) {
+        // closed, the employees of the batch have no outcome in the journal yet and are written
+        // again after the next start
+        return;
+      } finally {
+        batch.clear();
+      }
+    }
+  }
+
+  /**
+   * the employees of a failed batch are treated like replayed ones: if the failure came after the
+   * save (e.g. writing the outcome), the retry recognizes them as saved instead of duplicates
+   */
+  private void writeWithRetries(List<Item> batch) throws InterruptedException {
+    long backoff = FIRST_RETRY_BACKOFF.toMillis();
+    while (true) {
+      try {
+        writeBatch(batch);
+        return;
+      } catch (IOException | RuntimeException e) {
+        if (closed)
+          throw new InterruptedException();
+        LOGGER.error("Could not write {} queued employees, trying again in {} ms", batch.size(),
+            backoff, e);
+        for (Item item : batch)
+          item.replayed = true;
+        Thread.sleep(backoff);
+        backoff = Math.min(backoff * 2, Math.max(maxRetryBackoff.toMillis(), 1));
+      }
+    }
+  }
+
+  private void writeBatch(List<Item> batch) throws IOException {
+    if (batch.isEmpty())
+      return;
+    Map<String, Employee> existing = new HashMap<>();
+    for (Employee employee : employeeRepository.findAllByEmailIn(
+        batch.stream().map(item -> item.employee.getEmail()).toList()))
+      existing.put(employee.getEmail(), employee);
+
+    List<EmployeeWriteStatus> statuses = new ArrayList<>(batch.size());
+    List<Item> toSave = new ArrayList<>(batch.size());
+    Set<String> emails = new HashSet<>();
+    for (Item item : batch) {
+      Employee existingEmployee = existing.get(item.employee.getEmail());
+      if (existingEmployee != null && item.replayed && sameNames(existingEmployee, item.employee))
+        statuses.add(EmployeeWriteStatus.saved(item.ticket, existingEmployee.getId()));
+      else if (existingEmployee != null || !emails.add(item.employee.getEmail()))
+        statuses.add(EmployeeWriteStatus.failed(item.ticket,
+            new DuplicateEmailException(item.employee.getEmail()).getMessage()));
+      else
+        toSave.add(item);
+    }
+    long statsGeneration = statsSummary != null ? statsSummary.generation() : 0;
+    List<EmployeeWriteStatus> saved = save(toSave);
+    if (statsSummary != null)
+      for (int i = 0; i < toSave.size(); i++)
+        if (saved.get(i).state() == EmployeeWriteStatus.State.SAVED)
+          statsSummary.added(statsGeneration, toSave.get(i).employee);
+    statuses.addAll(saved);
+
+    journal.appendDone(statuses);
+    for (EmployeeWriteStatus status : statuses) {
+      doneStatuses.put(status.ticket(), status);
+      queuedStatuses.remove(status.ticket());
+      if (status.employeeId() != null)
+        eventPublisher.publishEvent(new EmployeeChangedEvent(status.employeeId()));
+    }
+    if (queue.isEmpty() && journal.size() > 64 * 1024 * 1024)
+      truncateJournalIfIdle();
+  }
+
+  /**
+   * saves all employees in one transaction. If that fails, we save them one by one, so only the
+   * broken ones fail
+   */
+  private List<EmployeeWriteStatus> save(List<Item> items) {
+    List<EmployeeWriteStatus> statuses = new ArrayList<>(items.size());
+    if (items.isEmpty())
+      return statuses;
+    // a failed attempt (of this batch or the one before a retry) leaves its ids behind
+    for (Item item : items)
+      item.employee.setId(0);
+    try {
+      List<Employee> saved =
+          employeeRepository.saveAll(items.stream().map(item -> item.employee).toList());
+      for (int i = 0; i < items.size(); i++)
+        statuses.add(EmployeeWriteStatus.saved(items.get(i).ticket, saved.get(i).getId()));
+      return statuses;
+    } catch (RuntimeException e) {
+      LOGGER.warn("Could not save a batch of {} employees, saving them one by one: {}",
+          items.size(), e.toString());
+    }
+    for (Item item : items)
+      try {
+        item.employee.setId(0); // an id of the failed batch
+        statuses.add(
+            EmployeeWriteStatus.saved(item.ticket, employeeRepository.save(item.employee).getId()));
+      } catch (DataIntegrityViolationException e) {
+        statuses.add(EmployeeWriteStatus.failed(item.ticket, duplicateEmailOr(e, item.employee)));
+      } catch (RuntimeException e) {
+        statuses.add(EmployeeWriteStatus.failed(item.ticket, e.getMessage()));
+      }
+    return statuses;
+  }
+
+  /**
+   * the unique email index wins a race with the check of writeBatch, the status then tells the
+   * same as the check and not the raw sql message
+   */
+  private String duplicateEmailOr(DataIntegrityViolationException e, Employee employee) {
+    try {
+      if (employeeRepository.existsByEmail(employee.getEmail()))
+        return new DuplicateEmailException(employee.getEmail()).getMessage();
+    } catch (RuntimeException checkFailed) {
+      e.addSuppressed(checkFailed);
+    }
+    return e.getMessage();
+  }
+
+  /**
+   * only if every employee of the journal has its outcome, i.e. no ticket is queued, being written
+   * or waiting for a retry
+   */
+  private void truncateJournalIfIdle() throws IOException {
+    synchronized (journal) {
+      // submit registers the ticket before it journals the employee, so nothing can slip in
+      // between
+      if (queue.isEmpty() && queuedStatuses.isEmpty())
+        journal.truncate();
+    }
+  }
+
+  private static boolean sameNames(Employee first, Employee second) {
+    return first.getFirstName().equals(second.getFirstName())
+        && first.getLastName().equals(second.getLastName());
+  }
+
+  private static class Item {
+    private final String ticket;
+    private final Employee employee;
+    private boolean replayed;
+
+    Item(String ticket, Employee employee, boolean replayed) {
+      this.ticket = ticket;
+      this.employee = employee;
+      this.replayed = replayed;
+    }
+  }
+}
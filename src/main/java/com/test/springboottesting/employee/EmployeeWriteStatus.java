@@ -0,0 +1,26 @@
+package com.test.springboottesting.employee;
+
+/**
+ * The status of an employee which was accepted by the {@link EmployeeWriteQueue}
+ *
+ * @param employeeId the id of the saved employee, null if it is not saved (yet)
+ * @param detail why it failed, null otherwise
+ */
+public record EmployeeWriteStatus(String ticket, State state, Long employeeId, String detail) {
+
+  public enum State {
+    QUEUED, SAVED, FAILED
+  }
+
+  static EmployeeWriteStatus queued(String ticket) {
+    return new EmployeeWriteStatus(ticket, State.QUEUED, null, null);
+  }
+
+  static EmployeeWriteStatus saved(String ticket, long employeeId) {
+    return new EmployeeWriteStatus(ticket, State.SAVED, employeeId, null);
+  }
+
+  static EmployeeWriteStatus failed(String ticket, String detail) {
+    return new EmployeeWriteStatus(ticket, State.FAILED, null, detail);
+  }
+}
@@ -0,0 +1,9 @@
+package com.test.springboottesting.employee;
+
+/**
+ * Published by the {@link EmployeeImporter} after a bulk import. One event for the whole import
+ * instead of an {@link EmployeeChangedEvent} per employee: there can be hundreds of thousands and
+ * new employees are in no cache anyway.
+ */
+public record EmployeesImportedEvent(long count) {
+}
@@ -0,0 +1,42 @@
+package com.test.springboottesting.employee;
+
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Idempotency-Key support for POST /api/employees (see {@link IdempotentRequests}). The property
+ * employee.idempotency.store selects where the responses are kept: memory (per instance) or jdbc
+ * (the table idempotency_keys, shared by all instances)
+ */
+@Configuration
+@ConditionalOnProperty(name = "employee.idempotency.enabled", havingValue = "true",
+    matchIfMissing = true)
+public class IdempotencyConfig {
+
+  @Bean
+  @ConditionalOnProperty(name = "employee.idempotency.store", havingValue = "jdbc")
+  public JdbcIdempotencyStore jdbcIdempotencyStore(JdbcTemplate jdbcTemplate,
+      ObjectMapper objectMapper, @Value("${employee.idempotency.ttl:PT24H}") Duration ttl) {
+    return new JdbcIdempotencyStore(jdbcTemplate, objectMapper, ttl);
+  }
+
+  @Bean
+  @ConditionalOnMissingBean(IdempotencyStore.class)
+  public IdempotencyStore inMemoryIdempotencyStore(
+      @Value("${employee.idempotency.max-size:100000}") int maxSize,
+      @Value("${employee.idempotency.ttl:PT24H}") Duration ttl) {
+    return new InMemoryIdempotencyStore(maxSize, ttl);
+  }
+
+  @Bean
+  public IdempotentRequests idempotentRequests(IdempotencyStore idempotencyStore,
+      @Value("${employee.idempotency.wait-timeout:PT10S}") Duration waitTimeout) {
+    return new IdempotentRequests(idempotencyStore, waitTimeout);
+  }
+}
@@ -0,0 +1,20 @@
+package com.test.springboottesting.employee;
+
+import java.util.Optional;
+
+/**
+ * Remembers the responses of completed POST /api/employees requests with an Idempotency-Key
+ * header, so a client which retries a request (e.g. after a timeout, without knowing whether the
+ * first attempt was processed) gets the employee of the first attempt instead of a second employee
+ * or a duplicate email error. The entries expire after a TTL, a retry after that is a new request.
+ * See {@link IdempotentRequests}
+ */
+public interface IdempotencyStore {
+
+  Optional<IdempotentResponse> get(String key);
+
+  /**
+   * the first response of a key wins, a second put of the same key is ignored
+   */
+  void put(String key, IdempotentResponse response);
+}
@@ -0,0 +1,134 @@
+package com.test.springboottesting.employee;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import com.test.springboottesting.exception.IdempotencyKeyReusedException;
+import com.test.springboottesting.exception.IdempotentRequestInProgressException;
+
+/**
+ * Runs a create request with an Idempotency-Key (see
+ * https://datatracker.ietf.org/doc/draft-ietf-httpapi-idempotency-key-header/) at most once:
+ *
+ * <ul>
+ * <li>a key with a stored response in the {@link IdempotencyStore} gets that response again</li>
+ * <li>a key which is in flight on this instance (a client which retries while its first request
+ * is still running) waits for the running request and gets its response, like the
+ * {@link SingleFlight}. But it never runs the request itself, if the wait times out it gets a
+ * 409</li>
+ * <li>a key which was used for a different body is rejected with a 422</li>
+ * </ul>
+ *
+ * Only successful responses are stored. If the request fails, the waiting retries get the same
+ * exception, but a later retry runs it again, e.g. after the database is back. The in-flight
+ * requests are only known to this instance, two instances may run the same key at the same time.
+ * The unique email index makes sure only one of them creates the employee.
+ */
+public class IdempotentRequests {
+
+  private final ConcurrentMap<String, Flight> flights = new ConcurrentHashMap<>();
+  private final IdempotencyStore store;
+  private final long waitTimeoutNanos;
+
+  public IdempotentRequests(IdempotencyStore store, Duration waitTimeout) {
+    this.store = store;
+    this.waitTimeoutNanos = waitTimeout.toNanos();
+  }
+
+  public Employee execute(String key, Employee request, Supplier<Employee> create) {
+    String fingerprint = fingerprint(request);
+    Optional<IdempotentResponse> stored = store.get(key);
+    if (stored.isPresent())
+      return replay(key, fingerprint, stored.get());
+    Flight newFlight = new Flight(fingerprint);
+    Flight flight = flights.putIfAbsent(key, newFlight);
+    return flight == null ? lead(key, newFlight, create) : follow(key, fingerprint, flight);
+  }
+
+  /**
+   * @return the number of keys with a running request
+   */
+  public int inFlight() {
+    return flights.size();
+  }
+
+  private Employee lead(String key, Flight flight, Supplier<Employee> create) {
+    try {
+      // a request with the same key may have finished between the lookup and now
+      Optional<IdempotentResponse> stored = store.get(key);
+      if (stored.isPresent()) {
+        flight.response.complete(stored.get());
+        return replay(key, flight.fingerprint, stored.get());
+      }
+      IdempotentResponse response = new IdempotentResponse(flight.fingerprint, create.get());
+      store.put(key, response);
+      flight.response.complete(response);
+      return response.employee();
+    } catch (RuntimeException | Error e) {
+      flight.response.completeExceptionally(e);
+      throw e;
+    } finally {
+      flights.remove(key, flight);
+    }
+  }
+
+  private Employee follow(String key, String fingerprint, Flight flight) {
+    if (!flight.fingerprint.equals(fingerprint))
+      throw new IdempotencyKeyReusedException(key);
+    try {
+      return replay(key, fingerprint,
+          flight.response.get(waitTimeoutNanos, TimeUnit.NANOSECONDS));
+    } catch (TimeoutException e) {
+      throw new IdempotentRequestInProgressException(key);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException runtimeException)
+        throw runtimeException;
+      throw (Error) e.getCause();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for the running request", e);
+    }
+  }
+
+  private static Employee replay(String key, String fingerprint, IdempotentResponse response) {
+    if (!response.fingerprint().equals(fingerprint))
+      throw new IdempotencyKeyReusedException(key);
+    return OnHeapEmployeeCache.copy(response.employee()); // every caller may change its own
+  }
+
+  /**
+   * a hash of the fields a client sends, the email is already normalized by the employee
+   */
+  static String fingerprint(Employee request) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      for (String field : new String[] {request.getFirstName(), request.getLastName(),
+          request.getEmail()}) {
+        digest.update(String.valueOf(field).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+      }
+      return HexFormat.of().formatHex(digest.digest());
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("Every JVM has SHA-256", e);
+    }
+  }
+
+  private static class Flight {
+    private final String fingerprint;
+    private final CompletableFuture<IdempotentResponse> response = new CompletableFuture<>();
+
+    Flight(String fingerprint) {
+      this.fingerprint = fingerprint;
+    }
+  }
+}
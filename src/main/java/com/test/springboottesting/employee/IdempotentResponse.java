@@ -0,0 +1,10 @@
+package com.test.springboottesting.employee;
+
+/**
+ * The response of a completed request with an Idempotency-Key
+ *
+ * @param fingerprint identifies the request body, a key must not be reused for a different one
+ * @param employee the created employee
+ */
+public record IdempotentResponse(String fingerprint, Employee employee) {
+}
@@ -0,0 +1,73 @@
+package com.test.springboottesting.employee;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.LongSupplier;
+
+/**
+ * The {@link IdempotencyStore} of a single instance. All entries have the same TTL, so the
+ * insertion order is also the order in which they expire and the expired entries are always at
+ * the head of the map. When the store is full the oldest entry is dropped even if it didn't expire
+ * yet, so a flood of new keys can't fill the heap.
+ */
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+
+  private final Map<String, Entry> entries;
+  private final long ttlNanos;
+  private final LongSupplier nanoClock;
+
+  public InMemoryIdempotencyStore(int maxSize, Duration ttl) {
+    this(maxSize, ttl, System::nanoTime);
+  }
+
+  InMemoryIdempotencyStore(int maxSize, Duration ttl, LongSupplier nanoClock) {
+    this.ttlNanos = ttl.toNanos();
+    this.nanoClock = nanoClock;
+    entries = new LinkedHashMap<>() {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+        return size() > maxSize;
+      }
+    };
+  }
+
+  @Override
+  public synchronized Optional<IdempotentResponse> get(String key) {
+    evictExpired();
+    Entry entry = entries.get(key);
+    return entry == null ? Optional.empty() : Optional.of(copy(entry.response));
+  }
+
+  @Override
+  public synchronized void put(String key, IdempotentResponse response) {
+    evictExpired();
+    entries.putIfAbsent(key, new Entry(copy(response), nanoClock.getAsLong() + ttlNanos));
+  }
+
+  synchronized int size() {
+    return entries.size();
+  }
+
+  private void evictExpired() {
+    long now = nanoClock.getAsLong();
+    for (Iterator<Entry> iterator = entries.values().iterator(); iterator.hasNext()
+        && iterator.next().expiresAt - now <= 0;)
+      iterator.remove();
+  }
+
+  /**
+   * the employee is a mutable JPA entity, nobody must change the stored one
+   */
+  private static IdempotentResponse copy(IdempotentResponse response) {
+    return new IdempotentResponse(response.fingerprint(),
+        OnHeapEmployeeCache.copy(response.employee()));
+  }
+
+  private record Entry(IdempotentResponse response, long expiresAt) {
+  }
+}
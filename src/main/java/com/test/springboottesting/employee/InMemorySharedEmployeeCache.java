@@ -0,0 +1,60 @@
+package com.test.springboottesting.employee;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongSupplier;
+
+/**
+ * A {@link SharedEmployeeCache} within a single JVM, a stand-in for a real shared cache if we run
+ * only one instance (and for tests which simulate several instances by sharing one object).
+ * Invalidations are delivered synchronously. Like the RespSharedEmployeeCache, the entries expire
+ * after employee.cache.shared.ttl, which bounds how long a lost invalidation is served stale.
+ */
+public class InMemorySharedEmployeeCache implements SharedEmployeeCache {
+
+  private final OnHeapEmployeeCache employees;
+  private final List<InvalidationListener> listeners = new CopyOnWriteArrayList<>();
+
+  public InMemorySharedEmployeeCache(int maxSize) {
+    this(maxSize, Duration.ZERO);
+  }
+
+  /**
+   * @param ttl zero for no time to live
+   */
+  public InMemorySharedEmployeeCache(int maxSize, Duration ttl) {
+    this(maxSize, ttl, System::nanoTime);
+  }
+
+  InMemorySharedEmployeeCache(int maxSize, Duration ttl, LongSupplier clock) {
+    this.employees = new OnHeapEmployeeCache(maxSize, ttl, clock);
+  }
+
+  @Override
+  public Optional<Employee> get(long id) {
+    return employees.get(id);
+  }
+
+  @Override
+  public void put(Employee employee) {
+    employees.put(employee);
+  }
+
+  @Override
+  public void evict(long id) {
+    employees.evict(id);
+  }
+
+  @Override
+  public void publishInvalidation(String origin, long id) {
+    listeners.forEach(listener -> listener.invalidated(origin, id));
+  }
+
+  @Override
+  public void subscribeInvalidations(InvalidationListener listener) {
+    listeners.add(listener);
+    listener.subscribed();
+  }
+}
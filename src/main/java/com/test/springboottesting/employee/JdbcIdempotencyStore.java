@@ -0,0 +1,93 @@
+package com.test.springboottesting.employee;
+
+import java.io.UncheckedIOException;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * The {@link IdempotencyStore} in the table idempotency_keys, so a retry which a load balancer
+ * sends to another instance (or to this one after a restart) still finds the first response. The
+ * employee is stored as JSON, the response as the client got it. Expired rows are ignored and
+ * deleted from time to time.
+ */
+public class JdbcIdempotencyStore implements IdempotencyStore {
+
+  private JdbcTemplate jdbcTemplate;
+  private ObjectMapper objectMapper;
+  private Duration ttl;
+  private Clock clock;
+
+  public JdbcIdempotencyStore(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper,
+      Duration ttl) {
+    this(jdbcTemplate, objectMapper, ttl, Clock.systemUTC());
+  }
+
+  JdbcIdempotencyStore(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper, Duration ttl,
+      Clock clock) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.objectMapper = objectMapper;
+    this.ttl = ttl;
+    this.clock = clock;
+  }
+
+  @Override
+  public Optional<IdempotentResponse> get(String key) {
+    List<IdempotentResponse> responses = jdbcTemplate.query(
+        "select fingerprint, response from idempotency_keys "
+            + "where idempotency_key = ? and expires_at > ?",
+        (resultSet, row) -> new IdempotentResponse(resultSet.getString("fingerprint"),
+            fromJson(resultSet.getString("response"))),
+        key, Timestamp.from(clock.instant()));
+    return responses.stream().findFirst();
+  }
+
+  @Override
+  public void put(String key, IdempotentResponse response) {
+    Timestamp now = Timestamp.from(clock.instant());
+    // an expired row which wasn't purged yet blocks the key
+    jdbcTemplate.update("delete from idempotency_keys where idempotency_key = ? and expires_at <= ?",
+        key, now);
+    try {
+      jdbcTemplate.update(
+          "insert into idempotency_keys (idempotency_key, fingerprint, response, expires_at) "
+              + "values (?, ?, ?, ?)",
+          key, response.fingerprint(), toJson(response.employee()),
+          Timestamp.from(clock.instant().plus(ttl)));
+    } catch (DataIntegrityViolationException e) {
+      // another instance completed a request with the same key first, its response wins
+      if (get(key).isEmpty())
+        throw e;
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${employee.idempotency.jdbc.purge-interval:PT10M}",
+      initialDelayString = "${employee.idempotency.jdbc.purge-interval:PT10M}")
+  public int purgeExpired() {
+    return jdbcTemplate.update("delete from idempotency_keys where expires_at <= ?",
+        Timestamp.from(clock.instant()));
+  }
+
+  private String toJson(Employee employee) {
+    try {
+      return objectMapper.writeValueAsString(employee);
+    } catch (JsonProcessingException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private Employee fromJson(String json) {
+    try {
+      return objectMapper.readValue(json, Employee.class);
+    } catch (JsonProcessingException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -0,0 +1,377 @@
+package com.test.springboottesting.employee;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongSupplier;
+import java.util.stream.IntStream;
+
+/**
+ * An {@link EmployeeCache} for millions of employees which puts (almost) no pressure on the
+ * garbage collector. Instead of an Employee object with three Strings per entry (~200 bytes and 7
+ * objects the GC has to trace) we keep
+ *
+ * <ul>
+ * <li>an open addressing hash map (linear probing) from the primitive id to an offset. These are
+ * just two long[] arrays, no matter how many entries there are</li>
+ * <li>the names and the email as UTF-8 bytes in direct (off-heap) ByteBuffers, each field with a
+ * length prefix (unsigned short)</li>
+ * </ul>
+ *
+ * An update appends a new record and the old one becomes garbage. When more than half of the
+ * written bytes are garbage the records are compacted in place. If the configured off-heap memory
+ * is used up (or the JVM has less direct memory, see -XX:MaxDirectMemorySize), new employees are
+ * not cached anymore. An id of 0 is never cached, since it marks empty slots
+ * of the map (and is never the id of a persisted employee).
+ *
+ * With a time to live, the map keeps the time of the put of every entry in a third long[]. An
+ * expired entry is a miss, its slot and record are reused by the next put of the id, freed by an
+ * evict or dropped by the next compaction. A put which finds no memory left compacts before it
+ * gives up, if there is garbage or an expired entry to reclaim. Otherwise a full store with a time
+ * to live would keep its expired employees forever and never cache a new one again.
+ */
+public class OffHeapEmployeeStore implements EmployeeCache {
+
+  private static final long EMPTY = 0;
+  private static final int CHUNK_SIZE = 64 * 1024 * 1024;
+  private static final float LOAD_FACTOR = 0.7f;
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final long maxBytes;
+  private final int chunkSize;
+  private final long ttlNanos;
+  private final LongSupplier clock;
+
+  private long[] keys;
+  private long[] offsets;
+  private long[] cachedAt;
+  private int size;
+
+  private List<ByteBuffer> chunks = new ArrayList<>();
+  private long writePosition;
+  private long garbageBytes;
+  // what the last compaction couldn't reclaim: the unused ends of the chunks
+  private long garbageAfterCompaction;
+  // a lower bound of the cachedAt of all entries, for the check if one may have expired
+  private long oldestCachedAt;
+
+  public OffHeapEmployeeStore(long maxBytes) {
+    this(maxBytes, Duration.ZERO);
+  }
+
+  /**
+   * @param ttl zero for no time to live
+   */
+  public OffHeapEmployeeStore(long maxBytes, Duration ttl) {
+    this(maxBytes, CHUNK_SIZE, 1024, ttl, System::nanoTime);
+  }
+
+  OffHeapEmployeeStore(long maxBytes, int chunkSize, int initialCapacity) {
+    this(maxBytes, chunkSize, initialCapacity, Duration.ZERO, System::nanoTime);
+  }
+
+  OffHeapEmployeeStore(long maxBytes, int chunkSize, int initialCapacity, Duration ttl,
+      LongSupplier clock) {
+    this.maxBytes = maxBytes;
+    this.chunkSize = chunkSize;
+    this.ttlNanos = ttl.toNanos();
+    this.clock = clock;
+    int capacity = Integer.highestOneBit(Math.max(16, initialCapacity) - 1) << 1;
+    this.keys = new long[capacity];
+    this.offsets = new long[capacity];
+    this.cachedAt = new long[capacity];
+  }
+
+  @Override
+  public Optional<Employee> get(long id) {
+    lock.readLock().lock();
+    try {
+      int slot = slotOf(id);
+      if (slot < 0 || ttlNanos > 0 && clock.getAsLong() - cachedAt[slot] >= ttlNanos)
+        return Optional.empty();
+      return Optional.of(readRecord(id, offsets[slot]));
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public void put(Employee employee) {
+    if (employee.getId() == EMPTY)
+      return;
+    byte[][] fields = {utf8(employee.getFirstName()), utf8(employee.getLastName()),
+        utf8(employee.getEmail())};
+    int recordSize = 6 + fields[0].length + fields[1].length + fields[2].length;
+    if (recordSize > chunkSize)
+      return;
+
+    long now = clock.getAsLong();
+    lock.writeLock().lock();
+    try {
+      if (garbageBytes > writePosition / 2)
+        compact(now);
+      long offset = allocate(recordSize);
+      if (offset < 0 && mayReclaim(now)) {
+        compact(now);
+        offset = allocate(recordSize);
+      }
+      int slot = slotOf(employee.getId()); // after the compaction, it moves and drops slots
+      if (offset < 0) {
+        // no memory left: we can't cache the new version, so we must not keep the old one
+        if (slot >= 0)
+          evictSlot(slot);
+        return;
+      }
+      writeRecord(offset, fields);
+      if (slot >= 0) {
+        garbageBytes += recordSizeAt(offsets[slot]);
+        offsets[slot] = offset;
+        cachedAt[slot] = now;
+      } else {
+        if (size + 1 > keys.length * LOAD_FACTOR)
+          resize(keys.length * 2);
+        insert(employee.getId(), offset, now);
+        size++;
+        if (size == 1)
+          oldestCachedAt = now;
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void evict(long id) {
+    lock.writeLock().lock();
+    try {
+      int slot = slotOf(id);
+      if (slot >= 0)
+        evictSlot(slot);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return size;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * @return the allocated off-heap memory in bytes
+   */
+  public long offHeapBytes() {
+    lock.readLock().lock();
+    try {
+      return (long) chunks.size() * chunkSize;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  // ---- the hash map ----
+
+  private int slotOf(long id) {
+    if (id == EMPTY)
+      return -1;
+    int mask = keys.length - 1;
+    for (int slot = hash(id) & mask;; slot = (slot + 1) & mask) {
+      if (keys[slot] == id)
+        return slot;
+      if (keys[slot] == EMPTY)
+        return -1;
+    }
+  }
+
+  private void insert(long id, long offset, long time) {
+    int mask = keys.length - 1;
+    int slot = hash(id) & mask;
+    while (keys[slot] != EMPTY)
+      slot = (slot + 1) & mask;
+    keys[slot] = id;
+    offsets[slot] = offset;
+    cachedAt[slot] = time;
+  }
+
+  private void evictSlot(int slot) {
+    garbageBytes += recordSizeAt(offsets[slot]);
+    removeSlot(slot);
+  }
+
+  /**
+   * backward shift deletion, so we don't need tombstones which would slow down lookups
+   */
+  private void removeSlot(int slot) {
+    int mask = keys.length - 1;
+    int hole = slot;
+    for (int next = (hole + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+      int home = hash(keys[next]) & mask;
+      // move the entry into the hole if its home slot is not between the hole and its position
+      if (((next - home) & mask) >= ((next - hole) & mask)) {
+        keys[hole] = keys[next];
+        offsets[hole] = offsets[next];
+        cachedAt[hole] = cachedAt[next];
+        hole = next;
+      }
+    }
+    keys[hole] = EMPTY;
+    offsets[hole] = 0;
+    cachedAt[hole] = 0;
+    size--;
+  }
+
+  private void resize(int capacity) {
+    long[] oldKeys = keys;
+    long[] oldOffsets = offsets;
+    long[] oldCachedAt = cachedAt;
+    keys = new long[capacity];
+    offsets = new long[capacity];
+    cachedAt = new long[capacity];
+    for (int i = 0; i < oldKeys.length; i++)
+      if (oldKeys[i] != EMPTY)
+        insert(oldKeys[i], oldOffsets[i], oldCachedAt[i]);
+  }
+
+  private static int hash(long id) {
+    long h = id * 0x9E3779B97F4A7C15L; // fibonacci hashing spreads sequential ids
+    return (int) (h ^ (h >>> 32));
+  }
+
+  // ---- the off-heap records ----
+
+  /**
+   * @return the offset of the record or -1 if there is no memory left
+   */
+  private long allocate(int recordSize) {
+    long offset = nextOffset(recordSize);
+    while (offset + recordSize > (long) chunks.size() * chunkSize) {
+      if ((long) (chunks.size() + 1) * chunkSize > maxBytes)
+        return -1;
+      try {
+        chunks.add(ByteBuffer.allocateDirect(chunkSize));
+      } catch (OutOfMemoryError e) { // the JVM has less direct memory than maxBytes
+        return -1;
+      }
+    }
+    advance(offset, recordSize);
+    return offset;
+  }
+
+  /**
+   * the write position or the start of the next chunk, records never span chunks
+   */
+  private long nextOffset(int recordSize) {
+    long offset = writePosition;
+    if (offset % chunkSize + recordSize > chunkSize)
+      offset = (offset / chunkSize + 1) * chunkSize;
+    return offset;
+  }
+
+  private void advance(long offset, int recordSize) {
+    garbageBytes += offset - writePosition; // the unused end of the previous chunk
+    writePosition = offset + recordSize;
+  }
+
+  private void writeRecord(long offset, byte[][] fields) {
+    ByteBuffer chunk = chunks.get((int) (offset / chunkSize));
+    int position = (int) (offset % chunkSize);
+    for (byte[] field : fields) {
+      chunk.putShort(position, (short) field.length);
+      chunk.put(position + 2, field);
+      position += 2 + field.length;
+    }
+  }
+
+  private Employee readRecord(long id, long offset) {
+    ByteBuffer chunk = chunks.get((int) (offset / chunkSize));
+    int position = (int) (offset % chunkSize);
+    String[] fields = new String[3];
+    for (int i = 0; i < fields.length; i++) {
+      byte[] bytes = new byte[Short.toUnsignedInt(chunk.getShort(position))];
+      chunk.get(position + 2, bytes);
+      fields[i] = new String(bytes, StandardCharsets.UTF_8);
+      position += 2 + bytes.length;
+    }
+    return Employee.builder().id(id).firstName(fields[0]).lastName(fields[1]).email(fields[2])
+        .build();
+  }
+
+  private int recordSizeAt(long offset) {
+    ByteBuffer chunk = chunks.get((int) (offset / chunkSize));
+    int start = (int) (offset % chunkSize);
+    int position = start;
+    for (int i = 0; i < 3; i++)
+      position += 2 + Short.toUnsignedInt(chunk.getShort(position));
+    return position - start;
+  }
+
+  private boolean mayReclaim(long now) {
+    return garbageBytes > garbageAfterCompaction
+        || ttlNanos > 0 && size > 0 && now - oldestCachedAt >= ttlNanos;
+  }
+
+  private boolean isExpired(int slot, long now) {
+    return ttlNanos > 0 && now - cachedAt[slot] >= ttlNanos;
+  }
+
+  /**
+   * drops the expired entries and slides the live records down in place, in the order of their offsets. So every record moves to
+   * the same or a lower offset and never overwrites a live record which hasn't moved yet. The chunks
+   * behind the last record are freed (by the GC, together with their ByteBuffer object). Needs no
+   * direct memory beyond the chunks we have, it can't fail half way
+   */
+  private void compact(long now) {
+    for (int slot = 0; slot < keys.length; slot++) {
+      // the backward shift may move a later entry into this slot, so we check it again
+      while (keys[slot] != EMPTY && isExpired(slot, now))
+        removeSlot(slot);
+    }
+    oldestCachedAt = now;
+    for (int slot = 0; slot < keys.length; slot++)
+      if (keys[slot] != EMPTY)
+        oldestCachedAt = Math.min(oldestCachedAt, cachedAt[slot]);
+
+    int[] slots = IntStream.range(0, keys.length).filter(slot -> keys[slot] != EMPTY).boxed()
+        .sorted(Comparator.comparingLong(slot -> offsets[slot])).mapToInt(Integer::intValue)
+        .toArray();
+    writePosition = 0;
+    garbageBytes = 0;
+    byte[] record = new byte[0];
+    for (int slot : slots) {
+      long oldOffset = offsets[slot];
+      int recordSize = recordSizeAt(oldOffset);
+      long offset = nextOffset(recordSize);
+      advance(offset, recordSize);
+      if (offset == oldOffset)
+        continue;
+      if (record.length < recordSize)
+        record = new byte[recordSize];
+      chunks.get((int) (oldOffset / chunkSize)).get((int) (oldOffset % chunkSize), record, 0,
+          recordSize);
+      chunks.get((int) (offset / chunkSize)).put((int) (offset % chunkSize), record, 0,
+          recordSize);
+      offsets[slot] = offset;
+    }
+    garbageAfterCompaction = garbageBytes;
+    long usedChunks = (writePosition + chunkSize - 1) / chunkSize;
+    while (chunks.size() > usedChunks)
+      chunks.remove(chunks.size() - 1);
+  }
+
+  private static byte[] utf8(String value) {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    if (bytes.length > 0xFFFF)
+      throw new IllegalArgumentException("Field is too long to be cached: " + bytes.length);
+    return bytes;
+  }
+}
@@ -0,0 +1,151 @@
+package com.test.springboottesting.employee;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongSupplier;
+
+/**
+ * The simplest {@link EmployeeCache}: a map on the java heap. We store and return copies, since
+ * an {@link Employee} is a mutable JPA entity and callers must not change the cached instance.
+ *
+ * Every entry expires after the time to live, so a change we never heard of (e.g. a lost
+ * invalidation of the {@link TwoTierEmployeeCache}) is not served forever. When the cache is full
+ * a put evicts the oldest of a few entries, which costs (almost) the same no matter how large the
+ * cache is. That's not an exact LRU, but close enough to keep new employees coming in. The entries
+ * are taken from a random place of the map: the first entries of a ConcurrentHashMap are always
+ * the ones in its first buckets (for our ids: the smallest ones), so they would be evicted again
+ * and again however new they are.
+ */
+public class OnHeapEmployeeCache implements EmployeeCache {
+
+  private static final int EVICTION_SAMPLES = 8;
+
+  private final Map<Long, Entry> employees = new ConcurrentHashMap<>();
+  private final int maxSize;
+  private final long ttlNanos;
+  private final LongSupplier clock;
+
+  /**
+   * without time to live, the entries only leave the cache by eviction
+   */
+  public OnHeapEmployeeCache(int maxSize) {
+    this(maxSize, Duration.ZERO);
+  }
+
+  /**
+   * @param ttl zero for no time to live
+   */
+  public OnHeapEmployeeCache(int maxSize, Duration ttl) {
+    this(maxSize, ttl, System::nanoTime);
+  }
+
+  OnHeapEmployeeCache(int maxSize, Duration ttl, LongSupplier clock) {
+    this.maxSize = maxSize;
+    this.ttlNanos = ttl.toNanos();
+    this.clock = clock;
+  }
+
+  @Override
+  public Optional<Employee> get(long id) {
+    Entry entry = employees.get(id);
+    if (entry == null)
+      return Optional.empty();
+    if (isExpired(entry, clock.getAsLong())) {
+      employees.remove(id, entry);
+      return Optional.empty();
+    }
+    return Optional.of(copy(entry.employee()));
+  }
+
+  @Override
+  public void put(Employee employee) {
+    long now = clock.getAsLong();
+    if (employees.size() >= maxSize && !employees.containsKey(employee.getId()))
+      evictOne(now);
+    employees.put(employee.getId(), new Entry(copy(employee), now));
+  }
+
+  @Override
+  public void evict(long id) {
+    employees.remove(id);
+  }
+
+  public void clear() {
+    employees.clear();
+  }
+
+  public int size() {
+    return employees.size();
+  }
+
+  static Employee copy(Employee employee) {
+    return Employee.builder().id(employee.getId()).firstName(employee.getFirstName())
+        .lastName(employee.getLastName()).email(employee.getEmail()).build();
+  }
+
+  /**
+   * removes an expired entry or else the oldest of a few entries from a random place of the map
+   */
+  private void evictOne(long now) {
+    Map.Entry<Long, Entry> oldest = null;
+    for (Map.Entry<Long, Entry> candidate : sampleFromRandomPlace()) {
+      if (isExpired(candidate.getValue(), now)) {
+        oldest = candidate;
+        break;
+      }
+      if (oldest == null || candidate.getValue().cachedAt() - oldest.getValue().cachedAt() < 0)
+        oldest = candidate;
+    }
+    if (oldest != null)
+      employees.remove(oldest.getKey(), oldest.getValue());
+  }
+
+  /**
+   * The parts of the table we pick may be empty (or have fewer entries than we need), the table
+   * of a ConcurrentHashMap has up to twice as many buckets as entries. Then we pick another part,
+   * going on with the entries behind it would again prefer the entries behind the empty parts
+   */
+  private List<Map.Entry<Long, Entry>> sampleFromRandomPlace() {
+    List<Map.Entry<Long, Entry>> samples = new ArrayList<>(EVICTION_SAMPLES);
+    for (int attempt = 0; attempt < EVICTION_SAMPLES && samples.size() < EVICTION_SAMPLES;
+        attempt++) {
+      Spliterator<Map.Entry<Long, Entry>> part = randomPart();
+      while (samples.size() < EVICTION_SAMPLES && part.tryAdvance(samples::add)) {
+      }
+    }
+    if (samples.isEmpty()) // an (almost) empty map
+      employees.entrySet().stream().findFirst().ifPresent(samples::add);
+    return samples;
+  }
+
+  /**
+   * The spliterator of a ConcurrentHashMap splits its table in halves. Picking one of them at
+   * random until a part has only a few entries left gets us to a random bucket in log(size) steps,
+   * without walking through the entries before it
+   */
+  private Spliterator<Map.Entry<Long, Entry>> randomPart() {
+    Spliterator<Map.Entry<Long, Entry>> part = employees.entrySet().spliterator();
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    while (part.estimateSize() > EVICTION_SAMPLES) {
+      Spliterator<Map.Entry<Long, Entry>> otherHalf = part.trySplit();
+      if (otherHalf == null)
+        break;
+      if (random.nextBoolean())
+        part = otherHalf;
+    }
+    return part;
+  }
+
+  private boolean isExpired(Entry entry, long now) {
+    return ttlNanos > 0 && now - entry.cachedAt() >= ttlNanos;
+  }
+
+  private record Entry(Employee employee, long cachedAt) {
+  }
+}
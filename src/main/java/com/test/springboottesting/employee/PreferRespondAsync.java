@@ -0,0 +1,15 @@
+package com.test.springboottesting.employee;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The handler method only handles requests with the preference respond-async, e.g. "Prefer:
+ * respond-async, wait=10", see {@link PreferRespondAsyncMapping}.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface PreferRespondAsync {
+}
@@ -0,0 +1,65 @@
+package com.test.springboottesting.employee;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.Locale;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcRegistrations;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.condition.RequestCondition;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Maps the handler methods with {@link PreferRespondAsync}. headers = "Prefer=respond-async" of a
+ * mapping compares the whole header value, so a request with more preferences in the same header
+ * (e.g. "Prefer: respond-async, wait=10") would quietly take the synchronous path. The preferences
+ * are separated by commas, their parameters by semicolons and the tokens are case insensitive
+ * (https://datatracker.ietf.org/doc/html/rfc7240#section-2).
+ *
+ * A mapping with the condition is more specific than the same mapping without it, so POST
+ * /api/employees goes to the asynchronous handler if the client prefers it and to the synchronous
+ * one otherwise.
+ */
+@Component
+public class PreferRespondAsyncMapping implements WebMvcRegistrations {
+
+  @Override
+  public RequestMappingHandlerMapping getRequestMappingHandlerMapping() {
+    return new RequestMappingHandlerMapping() {
+      @Override
+      protected RequestCondition<?> getCustomMethodCondition(Method method) {
+        return AnnotatedElementUtils.hasAnnotation(method, PreferRespondAsync.class)
+            ? new RespondAsyncCondition()
+            : null;
+      }
+    };
+  }
+
+  static boolean prefersRespondAsync(HttpServletRequest request) {
+    for (String header : Collections.list(request.getHeaders("Prefer")))
+      for (String preference : header.split(","))
+        if (preference.split("[;=]", 2)[0].strip().toLowerCase(Locale.ROOT)
+            .equals("respond-async"))
+          return true;
+    return false;
+  }
+
+  private static class RespondAsyncCondition implements RequestCondition<RespondAsyncCondition> {
+
+    @Override
+    public RespondAsyncCondition combine(RespondAsyncCondition other) {
+      return this;
+    }
+
+    @Override
+    public RespondAsyncCondition getMatchingCondition(HttpServletRequest request) {
+      return prefersRespondAsync(request) ? this : null;
+    }
+
+    @Override
+    public int compareTo(RespondAsyncCondition other, HttpServletRequest request) {
+      return 0;
+    }
+  }
+}
@@ -0,0 +1,159 @@
+package com.test.springboottesting.employee;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A minimal client connection for the redis serialization protocol RESP2
+ * (https://redis.io/docs/reference/protocol-spec/), enough for the few commands of the
+ * {@link RespSharedEmployeeCache}. Commands are sent as arrays of bulk strings, replies are
+ * returned as String (simple string), Long (integer), byte[] (bulk string), List (array) or null.
+ * An error reply is thrown as {@link RespException}. Not thread safe.
+ */
+final class RespConnection implements Closeable {
+
+  private final Socket socket;
+  private final InputStream in;
+  private final OutputStream out;
+  private final int timeoutMillis;
+
+  private RespConnection(Socket socket, int timeoutMillis) throws IOException {
+    this.socket = socket;
+    this.timeoutMillis = timeoutMillis;
+    this.in = new BufferedInputStream(socket.getInputStream());
+    this.out = new BufferedOutputStream(socket.getOutputStream());
+  }
+
+  /**
+   * @param timeout for connecting and for every reply
+   */
+  static RespConnection open(String host, int port, Duration timeout) throws IOException {
+    Socket socket = new Socket();
+    int timeoutMillis = (int) timeout.toMillis();
+    try {
+      socket.connect(new InetSocketAddress(host, port), timeoutMillis);
+      socket.setSoTimeout(timeoutMillis);
+      socket.setTcpNoDelay(true);
+      socket.setKeepAlive(true);
+      return new RespConnection(socket, timeoutMillis);
+    } catch (IOException e) {
+      socket.close();
+      throw e;
+    }
+  }
+
+  Object call(Object... arguments) throws IOException {
+    send(arguments);
+    return read();
+  }
+
+  /**
+   * @param arguments Strings or byte[]
+   */
+  void send(Object... arguments) throws IOException {
+    out.write(('*' + Integer.toString(arguments.length) + "\r\n").getBytes(StandardCharsets.UTF_8));
+    for (Object argument : arguments) {
+      byte[] bytes = argument instanceof byte[] b ? b
+          : argument.toString().getBytes(StandardCharsets.UTF_8);
+      out.write(('$' + Integer.toString(bytes.length) + "\r\n").getBytes(StandardCharsets.UTF_8));
+      out.write(bytes);
+      out.write('\r');
+      out.write('\n');
+    }
+    out.flush();
+  }
+
+  /**
+   * Waits for the next reply without consuming it, for connections which receive replies they
+   * didn't ask for (subscriptions). Once a reply started, the rest of it is read with the timeout
+   * of the connection again.
+   *
+   * @return false if nothing arrived within the timeout
+   */
+  boolean awaitReply(Duration timeout) throws IOException {
+    socket.setSoTimeout((int) timeout.toMillis());
+    try {
+      in.mark(1);
+      in.read();
+      in.reset();
+      return true; // or the end of the stream, which read() reports
+    } catch (SocketTimeoutException e) {
+      return false;
+    } finally {
+      socket.setSoTimeout(timeoutMillis);
+    }
+  }
+
+  Object read() throws IOException {
+    int type = in.read();
+    if (type == -1)
+      throw new EOFException("Connection closed by the server");
+    String line = readLine();
+    switch (type) {
+      case '+':
+        return line;
+      case '-':
+        throw new RespException(line);
+      case ':':
+        return Long.parseLong(line);
+      case '$': {
+        int length = Integer.parseInt(line);
+        if (length < 0)
+          return null;
+        byte[] bytes = in.readNBytes(length);
+        if (bytes.length < length)
+          throw new EOFException("Connection closed by the server");
+        readLine();
+        return bytes;
+      }
+      case '*': {
+        int length = Integer.parseInt(line);
+        if (length < 0)
+          return null;
+        List<Object> elements = new ArrayList<>(length);
+        for (int i = 0; i < length; i++)
+          elements.add(read());
+        return elements;
+      }
+      default:
+        throw new IOException("Unknown RESP type " + (char) type);
+    }
+  }
+
+  private String readLine() throws IOException {
+    ByteArrayOutputStream line = new ByteArrayOutputStream();
+    for (int b = in.read(); b != '\r'; b = in.read()) {
+      if (b == -1)
+        throw new EOFException("Connection closed by the server");
+      line.write(b);
+    }
+    in.read(); // \n
+    return line.toString(StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public void close() throws IOException {
+    socket.close();
+  }
+
+  static class RespException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    RespException(String message) {
+      super(message);
+    }
+  }
+}
@@ -0,0 +1,228 @@
+package com.test.springboottesting.employee;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * A {@link SharedEmployeeCache} on a server which speaks the redis protocol (redis, valkey,
+ * dragonfly, ...). Every employee is stored as JSON under the key employee:{id} with a time to
+ * live, invalidations are published on the channel employee-invalidations as "{origin} {id}".
+ *
+ * The cache must never break a request: if the server is not reachable, get returns nothing and
+ * writes are dropped (with a warning), the caller then simply uses the database. The commands use
+ * a small pool of connections, a connection serves one command at a time and is then returned to
+ * the pool. If all connections are busy for the timeout, the command fails like an unreachable
+ * server.
+ *
+ * The subscription needs its own connection, it is read by a background thread which reconnects
+ * if the connection is lost. Invalidations can be rare, so a silent subscription is pinged after
+ * a while, without pong in time (e.g. the server vanished without closing the connection) we
+ * reconnect.
+ */
+public class RespSharedEmployeeCache implements SharedEmployeeCache, AutoCloseable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(RespSharedEmployeeCache.class);
+  static final String CHANNEL = "employee-invalidations";
+  private static final Duration TIMEOUT = Duration.ofSeconds(1);
+  private static final Duration RECONNECT_DELAY = Duration.ofSeconds(1);
+  private static final Duration SUBSCRIPTION_PING_INTERVAL = Duration.ofSeconds(30);
+
+  private final String host;
+  private final int port;
+  private final long ttlSeconds;
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final List<InvalidationListener> listeners = new CopyOnWriteArrayList<>();
+
+  private final Semaphore connections;
+  private final BlockingQueue<RespConnection> idleConnections;
+  private volatile long reconnectAt = System.nanoTime();
+  private Thread subscriber;
+  private volatile RespConnection subscriberConnection;
+  private volatile boolean closed;
+
+  public RespSharedEmployeeCache(String host, int port, Duration ttl) {
+    this(host, port, ttl, 4);
+  }
+
+  /**
+   * @param poolSize the maximum number of connections for commands
+   */
+  public RespSharedEmployeeCache(String host, int port, Duration ttl, int poolSize) {
+    this.host = host;
+    this.port = port;
+    this.ttlSeconds = Math.max(1, ttl.toSeconds());
+    this.connections = new Semaphore(poolSize);
+    this.idleConnections = new ArrayBlockingQueue<>(poolSize);
+  }
+
+  @Override
+  public Optional<Employee> get(long id) {
+    try {
+      byte[] json = (byte[]) command("GET", key(id));
+      return json == null ? Optional.empty()
+          : Optional.of(objectMapper.readValue(json, Employee.class));
+    } catch (IOException e) {
+      LOGGER.warn("Could not get employee {} from the shared cache: {}", id, e.toString());
+      return Optional.empty();
+    }
+  }
+
+  @Override
+  public void put(Employee employee) {
+    try {
+      command("SET", key(employee.getId()), objectMapper.writeValueAsBytes(employee), "EX",
+          Long.toString(ttlSeconds));
+    } catch (IOException e) {
+      LOGGER.warn("Could not put employee {} into the shared cache: {}", employee.getId(),
+          e.toString());
+    }
+  }
+
+  @Override
+  public void evict(long id) {
+    try {
+      command("DEL", key(id));
+    } catch (IOException e) {
+      // the entry stays until its time to live is over
+      LOGGER.warn("Could not evict employee {} from the shared cache: {}", id, e.toString());
+    }
+  }
+
+  @Override
+  public void publishInvalidation(String origin, long id) {
+    try {
+      command("PUBLISH", CHANNEL, origin + " " + id);
+    } catch (IOException e) {
+      LOGGER.warn("Could not publish the invalidation of employee {}: {}", id, e.toString());
+    }
+  }
+
+  @Override
+  public synchronized void subscribeInvalidations(InvalidationListener listener) {
+    listeners.add(listener);
+    if (subscriber == null) {
+      subscriber = new Thread(this::receiveInvalidations, "employee-invalidations");
+      subscriber.setDaemon(true);
+      subscriber.start();
+    }
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    closed = true;
+    RespConnection subscription = subscriberConnection;
+    if (subscription != null)
+      subscription.close(); // unblocks the subscriber thread
+    closeIdleConnections();
+  }
+
+  private Object command(Object... arguments) throws IOException {
+    if (closed)
+      throw new IOException("The shared cache is closed");
+    try {
+      if (!connections.tryAcquire(TIMEOUT.toNanos(), TimeUnit.NANOSECONDS))
+        throw new IOException("All connections to the shared cache are busy");
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for a connection");
+    }
+    try {
+      RespConnection connection = idleConnections.poll();
+      if (connection == null) {
+        // after a failure we wait a moment, so requests don't all wait for timeouts
+        if (System.nanoTime() - reconnectAt < 0)
+          throw new IOException("The shared cache is not available");
+        connection = RespConnection.open(host, port, TIMEOUT);
+      }
+      try {
+        Object reply = connection.call(arguments);
+        release(connection);
+        return reply;
+      } catch (RespConnection.RespException e) {
+        release(connection); // the server answered, the connection is fine
+        throw e;
+      } catch (IOException | RuntimeException e) {
+        connection.close();
+        reconnectAt = System.nanoTime() + RECONNECT_DELAY.toNanos();
+        throw e;
+      }
+    } finally {
+      connections.release();
+    }
+  }
+
+  /**
+   * there is room for every connection, since there are at most pool size connections
+   */
+  private void release(RespConnection connection) throws IOException {
+    idleConnections.add(connection);
+    if (closed)
+      closeIdleConnections();
+  }
+
+  private void closeIdleConnections() throws IOException {
+    for (RespConnection connection = idleConnections.poll(); connection != null;
+        connection = idleConnections.poll())
+      connection.close();
+  }
+
+  private void receiveInvalidations() {
+    while (!closed) {
+      try (RespConnection subscription = RespConnection.open(host, port, TIMEOUT)) {
+        subscriberConnection = subscription;
+        subscription.call("SUBSCRIBE", CHANNEL);
+        listeners.forEach(InvalidationListener::subscribed);
+        boolean pinged = false;
+        while (!closed) {
+          if (!subscription.awaitReply(SUBSCRIPTION_PING_INTERVAL)) {
+            if (pinged)
+              throw new SocketTimeoutException("No pong within " + SUBSCRIPTION_PING_INTERVAL);
+            subscription.send("PING");
+            pinged = true;
+            continue;
+          }
+          pinged = false;
+          // the pong is a simple string or (redis) an array ["pong", ""]
+          if (subscription.read() instanceof List<?> message
+              && "message".equals(string(message.get(0)))) {
+            String[] payload = string(message.get(2)).split(" ");
+            long id = Long.parseLong(payload[1]);
+            listeners.forEach(listener -> listener.invalidated(payload[0], id));
+          }
+        }
+      } catch (IOException | RuntimeException e) {
+        if (closed)
+          return;
+        LOGGER.warn("Lost the subscription to {}, reconnecting: {}", CHANNEL, e.toString());
+        try {
+          Thread.sleep(RECONNECT_DELAY.toMillis());
+        } catch (InterruptedException interrupted) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+    }
+  }
+
+  private static String key(long id) {
+    return "employee:" + id;
+  }
+
+  private static String string(Object reply) {
+    return reply instanceof byte[] bytes ? new String(bytes, StandardCharsets.UTF_8)
+        : String.valueOf(reply);
+  }
+}
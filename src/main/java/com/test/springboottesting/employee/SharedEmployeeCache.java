@@ -0,0 +1,39 @@
+package com.test.springboottesting.employee;
+
+import java.util.Optional;
+
+/**
+ * The shared tier of the {@link TwoTierEmployeeCache}: a cache all instances of our service use
+ * (e.g. a redis server, see {@link RespSharedEmployeeCache}), plus a channel to tell the other
+ * instances that an employee changed, so they can drop it from their local near cache. It is no
+ * {@link EmployeeCache} itself, so it can't be injected into the {@link EmployeeService} by
+ * mistake.
+ */
+public interface SharedEmployeeCache {
+
+  Optional<Employee> get(long id);
+
+  void put(Employee employee);
+
+  void evict(long id);
+
+  /**
+   * tells all subscribers (including the publishing instance) that the employee changed
+   *
+   * @param origin identifies the instance which changed the employee
+   */
+  void publishInvalidation(String origin, long id);
+
+  void subscribeInvalidations(InvalidationListener listener);
+
+  interface InvalidationListener {
+
+    void invalidated(String origin, long id);
+
+    /**
+     * called when the subscription was (re)established. Invalidations published while we were not
+     * subscribed are lost, so everything cached locally may be stale
+     */
+    default void subscribed() {}
+  }
+}
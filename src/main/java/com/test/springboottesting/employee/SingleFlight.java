@@ -0,0 +1,111 @@
+package com.test.springboottesting.employee;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Request coalescing: if many threads ask for the same key at the same time (e.g. hundreds of
+ * requests for a popular employee which was just evicted from the cache), only the first one runs
+ * the query and all others wait for its result, instead of sending the same query hundreds of
+ * times to the database (a cache stampede).
+ *
+ * The wait is bounded: a thread waits at most the timeout (measured from the start of the shared
+ * query) and then runs the query itself. A query which runs longer than the timeout is not shared
+ * with new threads anymore, they start a new one. So a single hanging query can't block all
+ * lookups of a key. If the shared query fails, all waiting threads get the same exception.
+ *
+ * A query which started before a write of its key was committed may return the old value. Threads
+ * which arrive after the write must not get it, so the writer calls {@link #forget(Object)} after
+ * the commit and they start a new query. The threads which already wait still get the old value,
+ * they asked before the write was done.
+ *
+ * @param <K> the key, e.g. the id
+ * @param <V> the result of the query
+ */
+public class SingleFlight<K, V> {
+
+  private final ConcurrentMap<K, Flight<V>> flights = new ConcurrentHashMap<>();
+  private final long timeoutNanos;
+  private final UnaryOperator<V> shareResult;
+
+  /**
+   * @param shareResult applied to the result for every waiting thread, e.g. to give each thread
+   *        its own copy of a mutable result
+   */
+  public SingleFlight(Duration timeout, UnaryOperator<V> shareResult) {
+    this.timeoutNanos = timeout.toNanos();
+    this.shareResult = shareResult;
+  }
+
+  public V execute(K key, Supplier<V> query) {
+    Flight<V> newFlight = new Flight<>(System.nanoTime());
+    Flight<V> flight = flights.compute(key,
+        (k, existing) -> existing == null || existing.isOverdue(newFlight.start, timeoutNanos)
+            ? newFlight
+            : existing);
+    return flight == newFlight ? lead(key, flight, query) : follow(flight, query);
+  }
+
+  /**
+   * the running query of the key (if any) is not shared with new threads anymore
+   */
+  public void forget(K key) {
+    flights.remove(key);
+  }
+
+  /**
+   * @return the number of keys with a running query
+   */
+  public int inFlight() {
+    return flights.size();
+  }
+
+  private V lead(K key, Flight<V> flight, Supplier<V> query) {
+    try {
+      V result = query.get();
+      flight.result.complete(result);
+      return result;
+    } catch (RuntimeException | Error e) {
+      flight.result.completeExceptionally(e);
+      throw e;
+    } finally {
+      flights.remove(key, flight);
+    }
+  }
+
+  private V follow(Flight<V> flight, Supplier<V> query) {
+    long remainingNanos = flight.start + timeoutNanos - System.nanoTime();
+    try {
+      return shareResult.apply(flight.result.get(remainingNanos, TimeUnit.NANOSECONDS));
+    } catch (TimeoutException e) {
+      return query.get();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException runtimeException)
+        throw runtimeException;
+      throw (Error) e.getCause();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for the shared query", e);
+    }
+  }
+
+  private static class Flight<V> {
+    private final long start;
+    private final CompletableFuture<V> result = new CompletableFuture<>();
+
+    Flight(long start) {
+      this.start = start;
+    }
+
+    boolean isOverdue(long now, long timeoutNanos) {
+      return now - start > timeoutNanos;
+    }
+  }
+}
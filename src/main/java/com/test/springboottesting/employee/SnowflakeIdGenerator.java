@@ -0,0 +1,134 @@
+package com.test.springboottesting.employee;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Unique ids without asking the database or the other instances (the Snowflake scheme of Twitter):
+ *
+ * <pre>
+ * 0 | 41 bits milliseconds since the epoch | 10 bits node | 12 bits sequence
+ * </pre>
+ *
+ * Every instance needs its own node (0 - 1023, e.g. the ordinal of its pod), within an instance the
+ * sequence counts the ids of the same millisecond. So the ids are unique across all instances, grow
+ * with time (new employees are appended to the primary key index instead of being scattered over
+ * it) and last 69 years after the epoch. Mind that they are larger than 2^53, JavaScript clients
+ * need them as strings to keep all digits.
+ *
+ * The last millisecond and sequence are one AtomicLong, a new id is a single compare-and-set, so
+ * concurrent saves never wait for a lock. If the clock goes backwards (e.g. a correction of NTP),
+ * we continue with the last millisecond instead of handing out ids a second time. The same happens
+ * when the 4096 ids of a millisecond are used up, we borrow the next one. Both is fine for a short
+ * time, if our clock runs ahead of the real one by more than the max drift, the clock is broken and
+ * we fail instead of drifting further away.
+ *
+ * A restarted instance doesn't know the last id of its previous run, which may have been up to the
+ * max drift ahead of the clock. So a new generator starts its ids at the max drift ahead of the
+ * clock at startup (a startup which takes less than the max drift is the usual case) and lets them
+ * run up to another max drift ahead of that, until the clock caught up. The first ids after a
+ * start carry a timestamp up to the max drift in the future.
+ */
+public class SnowflakeIdGenerator implements EmployeeIdGenerator {
+
+  static final int NODE_BITS = 10;
+  static final int SEQUENCE_BITS = 12;
+  static final long MAX_NODE = (1L << NODE_BITS) - 1;
+  static final long MAX_SEQUENCE = (1L << SEQUENCE_BITS) - 1;
+  static final long MAX_MILLIS = (1L << (63 - NODE_BITS - SEQUENCE_BITS)) - 1;
+  public static final Instant DEFAULT_EPOCH = Instant.parse("2023-01-01T00:00:00Z");
+
+  private final long node;
+  private final long epochMillis;
+  private final long maxDriftMillis;
+  private final LongSupplier clock;
+
+  /**
+   * milliseconds since the epoch of the startup plus the max drift, the previous run of this node
+   * may have handed out ids up to here
+   */
+  private final long startMillis;
+  private volatile boolean caughtUp;
+
+  /**
+   * milliseconds since the epoch << SEQUENCE_BITS | sequence of the last id
+   */
+  private final AtomicLong last;
+
+  public SnowflakeIdGenerator(long node) {
+    this(node, DEFAULT_EPOCH, Duration.ofSeconds(5));
+  }
+
+  public SnowflakeIdGenerator(long node, Instant epoch, Duration maxDrift) {
+    this(node, epoch, maxDrift, Clock.systemUTC()::millis);
+  }
+
+  SnowflakeIdGenerator(long node, Instant epoch, Duration maxDrift, LongSupplier clock) {
+    if (node < 0 || node > MAX_NODE)
+      throw new IllegalArgumentException("The node must be between 0 and " + MAX_NODE);
+    if (epoch.toEpochMilli() > clock.getAsLong())
+      throw new IllegalArgumentException("The epoch " + epoch + " is in the future");
+    this.node = node;
+    this.epochMillis = epoch.toEpochMilli();
+    this.maxDriftMillis = maxDrift.toMillis();
+    this.clock = clock;
+    this.startMillis = clock.getAsLong() - epochMillis + maxDriftMillis;
+    this.last = new AtomicLong(startMillis << SEQUENCE_BITS | MAX_SEQUENCE);
+  }
+
+  @Override
+  public long nextId() {
+    return nextId(0, 1);
+  }
+
+  /**
+   * the next id with id % divisor == remainder, e.g. for the shard of a sharded storage. The ids
+   * in between are skipped, so the sequence of a millisecond only has room for 4096 / divisor ids
+   */
+  public long nextId(int remainder, int divisor) {
+    if (divisor < 1 || divisor > MAX_SEQUENCE + 1 || remainder < 0 || remainder >= divisor)
+      throw new IllegalArgumentException(
+          "Invalid remainder " + remainder + " of divisor " + divisor);
+    while (true) {
+      long previous = last.get();
+      long now = clock.getAsLong() - epochMillis;
+      long millis = previous >>> SEQUENCE_BITS;
+      long sequence = (previous & MAX_SEQUENCE) + 1;
+      if (now > millis) {
+        millis = now;
+        sequence = 0;
+      }
+      sequence += Math.floorMod(remainder - id(millis, sequence), (long) divisor);
+      if (sequence > MAX_SEQUENCE) { // used up, continue with the next millisecond
+        millis++;
+        sequence = Math.floorMod(remainder - id(millis, 0), (long) divisor);
+      }
+      if (!caughtUp && now >= startMillis)
+        caughtUp = true;
+      // after the start the ids may drift from startMillis, once the clock got there only from
+      // the clock (a clock going back below startMillis later must fail the check)
+      long reference = caughtUp ? now : startMillis;
+      if (millis - reference > maxDriftMillis)
+        throw new IllegalStateException("The ids are " + (millis - now)
+            + " ms ahead of the clock, did it go backwards? Refusing to drift further");
+      if (millis > MAX_MILLIS)
+        throw new IllegalStateException("The ids of the epoch are used up, it's time for a new one");
+      if (last.compareAndSet(previous, millis << SEQUENCE_BITS | sequence))
+        return id(millis, sequence);
+    }
+  }
+
+  private long id(long millis, long sequence) {
+    return millis << (NODE_BITS + SEQUENCE_BITS) | node << SEQUENCE_BITS | sequence;
+  }
+
+  /**
+   * the time the id was created, e.g. to see in a log when an employee was added
+   */
+  public Instant timestampOf(long id) {
+    return Instant.ofEpochMilli((id >>> (NODE_BITS + SEQUENCE_BITS)) + epochMillis);
+  }
+}
@@ -0,0 +1,77 @@
+package com.test.springboottesting.employee;
+
+import java.util.Optional;
+import java.util.UUID;
+import org.springframework.context.event.EventListener;
+
+/**
+ * An {@link EmployeeCache} for many instances of our service: a small local near cache in front of
+ * a {@link SharedEmployeeCache} all instances use. A lookup which misses the near cache is answered
+ * by the shared cache (and cached locally), so an employee which one instance loaded from the
+ * database is a hit for all the others.
+ *
+ * Writes go to both tiers. Since the {@link EmployeeService} publishes an
+ * {@link EmployeeChangedEvent} after every save, update and delete, we broadcast an invalidation
+ * then and all other instances drop the employee from their near cache. If the subscription was
+ * interrupted, invalidations may be lost, so the near cache is cleared whenever it is
+ * (re)established. A stale entry in the shared cache (e.g. a slow lookup which puts an old version
+ * after a concurrent update) lives until its time to live is over.
+ */
+public class TwoTierEmployeeCache implements EmployeeCache {
+
+  private final OnHeapEmployeeCache nearCache;
+  private final SharedEmployeeCache sharedCache;
+  private final String origin = UUID.randomUUID().toString();
+
+  public TwoTierEmployeeCache(OnHeapEmployeeCache nearCache, SharedEmployeeCache sharedCache) {
+    this.nearCache = nearCache;
+    this.sharedCache = sharedCache;
+    sharedCache.subscribeInvalidations(new SharedEmployeeCache.InvalidationListener() {
+      @Override
+      public void invalidated(String invalidationOrigin, long id) {
+        if (!origin.equals(invalidationOrigin))
+          nearCache.evict(id);
+      }
+
+      @Override
+      public void subscribed() {
+        nearCache.clear();
+      }
+    });
+  }
+
+  @Override
+  public Optional<Employee> get(long id) {
+    Optional<Employee> employee = nearCache.get(id);
+    if (employee.isEmpty()) {
+      employee = sharedCache.get(id);
+      employee.ifPresent(nearCache::put);
+    }
+    return employee;
+  }
+
+  @Override
+  public void put(Employee employee) {
+    nearCache.put(employee);
+    sharedCache.put(employee);
+  }
+
+  /**
+   * only the near cache, the shared cache may have a newer version which another instance put
+   */
+  @Override
+  public void putLocal(Employee employee) {
+    nearCache.put(employee);
+  }
+
+  @Override
+  public void evict(long id) {
+    nearCache.evict(id);
+    sharedCache.evict(id);
+  }
+
+  @EventListener
+  public void onEmployeeChanged(EmployeeChangedEvent event) {
+    sharedCache.publishInvalidation(origin, event.employeeId());
+  }
+}
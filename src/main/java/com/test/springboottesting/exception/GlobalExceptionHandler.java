@@ -48,6 +48,58 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
     return handleExceptionInternal(ex, body, new HttpHeaders(), HttpStatus.BAD_REQUEST, request);
   }
 
+  @ExceptionHandler(InvalidFieldsException.class)
+  public ResponseEntity<Object> handleInvalidFields(InvalidFieldsException ex,
+      WebRequest request) {
+    ProblemDetail body =
+        createProblemDetail(ex, HttpStatus.BAD_REQUEST, ex.getMessage(), null, null, request);
+    return handleExceptionInternal(ex, body, new HttpHeaders(), HttpStatus.BAD_REQUEST, request);
+  }
+
+  @ExceptionHandler(IdempotencyKeyReusedException.class)
+  public ResponseEntity<Object> handleIdempotencyKeyReused(IdempotencyKeyReusedException ex,
+      WebRequest request) {
+    ProblemDetail body = createProblemDetail(ex, HttpStatus.UNPROCESSABLE_ENTITY, ex.getMessage(),
+        null, null, request);
+    return handleExceptionInternal(ex, body, new HttpHeaders(), HttpStatus.UNPROCESSABLE_ENTITY,
+        request);
+  }
+
+  @ExceptionHandler(IdempotentRequestInProgressException.class)
+  public ResponseEntity<Object> handleIdempotentRequestInProgress(
+      IdempotentRequestInProgressException ex, WebRequest request) {
+    ProblemDetail body =
+        createProblemDetail(ex, HttpStatus.CONFLICT, ex.getMessage(), null, null, request);
+    HttpHeaders headers = new HttpHeaders();
+    headers.set(HttpHeaders.RETRY_AFTER, "1");
+    return handleExceptionInternal(ex, body, headers, HttpStatus.CONFLICT, request);
+  }
+
+  /**
+   * Retry-After is in whole seconds, so we round up. A client which retries earlier is rejected
+   * again
+   */
+  @ExceptionHandler(TooManyRequestsException.class)
+  public ResponseEntity<Object> handleTooManyRequests(TooManyRequestsException ex,
+      WebRequest request) {
+    ProblemDetail body = createProblemDetail(ex, HttpStatus.TOO_MANY_REQUESTS, ex.getMessage(),
+        null, null, request);
+    HttpHeaders headers = new HttpHeaders();
+    headers.set(HttpHeaders.RETRY_AFTER,
+        Long.toString(Math.max(1, (ex.getRetryAfter().toMillis() + 999) / 1000)));
+    return handleExceptionInternal(ex, body, headers, HttpStatus.TOO_MANY_REQUESTS, request);
+  }
+
+  @ExceptionHandler(ServiceOverloadedException.class)
+  public ResponseEntity<Object> handleServiceOverloaded(ServiceOverloadedException ex,
+      WebRequest request) {
+    ProblemDetail body = createProblemDetail(ex, HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage(),
+        null, null, request);
+    HttpHeaders headers = new HttpHeaders();
+    headers.set(HttpHeaders.RETRY_AFTER, "1");
+    return handleExceptionInternal(ex, body, headers, HttpStatus.SERVICE_UNAVAILABLE, request);
+  }
+
   /**
    * The ResponseEntityExceptionHandler which is inherited from our GlobalExceptionHandler already
    * handles MethodArgumentNotValidExceptions. So here we must overwrite the behavior if we want to
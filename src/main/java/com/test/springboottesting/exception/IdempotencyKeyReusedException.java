@@ -0,0 +1,14 @@
+package com.test.springboottesting.exception;
+
+/**
+ * A client reused an Idempotency-Key for a request with a different body. It's a bug of the
+ * client, we neither replay the old response nor process the new request
+ */
+public class IdempotencyKeyReusedException extends RuntimeException {
+
+  private static final long serialVersionUID = 1L;
+
+  public IdempotencyKeyReusedException(String key) {
+    super("Idempotency-Key \"" + key + "\" was already used for a different request");
+  }
+}
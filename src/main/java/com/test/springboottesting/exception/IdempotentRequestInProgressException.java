@@ -0,0 +1,14 @@
+package com.test.springboottesting.exception;
+
+/**
+ * The first request with an Idempotency-Key is still running and didn't finish while a retry with
+ * the same key waited for it. The client should retry again later
+ */
+public class IdempotentRequestInProgressException extends RuntimeException {
+
+  private static final long serialVersionUID = 1L;
+
+  public IdempotentRequestInProgressException(String key) {
+    super("A request with Idempotency-Key \"" + key + "\" is still in progress");
+  }
+}
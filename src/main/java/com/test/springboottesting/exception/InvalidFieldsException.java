@@ -0,0 +1,20 @@
+package com.test.springboottesting.exception;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Invalid fields of a request body which is not validated with @Valid, e.g. a merge patch. The
+ * message is the same as the one of a failed @Valid
+ */
+public class InvalidFieldsException extends RuntimeException {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * @param errors the error message by field name
+   */
+  public InvalidFieldsException(Map<String, String> errors) {
+    super("Invalid Field(s): " + new TreeMap<>(errors));
+  }
+}
@@ -0,0 +1,14 @@
+package com.test.springboottesting.exception;
+
+/**
+ * The service processes as many requests as it can handle right now. Like
+ * {@link TooManyRequestsException} it has no stack trace
+ */
+public class ServiceOverloadedException extends RuntimeException {
+
+  private static final long serialVersionUID = 1L;
+
+  public ServiceOverloadedException() {
+    super("The service is overloaded, please retry later", null, false, false);
+  }
+}
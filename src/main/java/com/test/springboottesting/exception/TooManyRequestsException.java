@@ -0,0 +1,23 @@
+package com.test.springboottesting.exception;
+
+import java.time.Duration;
+
+/**
+ * A client sent more requests than its rate limit allows. It is thrown for every rejected request,
+ * so it has no stack trace, that's the expensive part of an exception
+ */
+public class TooManyRequestsException extends RuntimeException {
+
+  private static final long serialVersionUID = 1L;
+
+  private final Duration retryAfter;
+
+  public TooManyRequestsException(Duration retryAfter) {
+    super("Too many requests, retry after " + retryAfter.toMillis() + " ms", null, false, false);
+    this.retryAfter = retryAfter;
+  }
+
+  public Duration getRetryAfter() {
+    return retryAfter;
+  }
+}
@@ -0,0 +1,7 @@
+-- the table as hibernate created it for the Employee entity, works on h2 and postgres
+CREATE TABLE employees (
+  id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  first_name varchar(255) NOT NULL,
+  last_name varchar(255) NOT NULL,
+  email varchar(255) NOT NULL
+);
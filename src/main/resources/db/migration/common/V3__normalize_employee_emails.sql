@@ -0,0 +1,4 @@
+-- emails are compared case-insensitively, so they are stored in lower case (see Employee.setEmail).
+-- Only rows with upper case letters are touched. If two employees only differ in the case of their
+-- email, the unique index of V4 fails: merge or delete one of them and run the migration again.
+UPDATE employees SET email = LOWER(email) WHERE email <> LOWER(email);
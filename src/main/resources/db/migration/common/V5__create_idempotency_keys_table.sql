@@ -0,0 +1,10 @@
+-- the responses of POST /api/employees with an Idempotency-Key header, see JdbcIdempotencyStore.
+-- Only used with employee.idempotency.store=jdbc, expired rows are deleted periodically
+CREATE TABLE idempotency_keys (
+  idempotency_key varchar(255) PRIMARY KEY,
+  fingerprint varchar(64) NOT NULL,
+  response varchar(4000) NOT NULL,
+  expires_at timestamp NOT NULL
+);
+
+CREATE INDEX idx_idempotency_keys_expires_at ON idempotency_keys (expires_at);
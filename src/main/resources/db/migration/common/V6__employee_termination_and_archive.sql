@@ -0,0 +1,14 @@
+-- the lifecycle of an employee: active (terminated_at is null) -> terminated -> archived. The
+-- Employee entity only sees the active rows. Terminated rows are moved to employees_archive by the
+-- EmployeeArchiver, so the employees table and its indexes only grow with the active employees.
+-- Adding a nullable column without default doesn't rewrite the table on postgres
+ALTER TABLE employees ADD COLUMN terminated_at timestamp with time zone;
+
+CREATE TABLE employees_archive (
+  id bigint PRIMARY KEY,
+  first_name varchar(255) NOT NULL,
+  last_name varchar(255) NOT NULL,
+  email varchar(255) NOT NULL,
+  terminated_at timestamp with time zone NOT NULL,
+  archived_at timestamp with time zone NOT NULL
+);
@@ -0,0 +1,7 @@
+-- the global email directory of a sharded employee storage: which shard has the employee with the
+-- email. Only the table of the first shard is used, see EmployeeEmailDirectory. The primary key
+-- makes the emails unique across all shards
+CREATE TABLE employee_email_directory (
+  email varchar(255) PRIMARY KEY,
+  shard int NOT NULL
+);
@@ -0,0 +1,5 @@
+-- when an email was claimed: the reconciliation of the EmployeeEmailDirectory only releases claims
+-- without employee which are older than a grace period, younger ones may belong to a save which is
+-- still running. The existing claims get the time of the migration
+ALTER TABLE employee_email_directory
+  ADD COLUMN claimed_at timestamp with time zone DEFAULT CURRENT_TIMESTAMP NOT NULL;
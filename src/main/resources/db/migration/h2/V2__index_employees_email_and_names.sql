@@ -0,0 +1,3 @@
+-- same indexes as in postgresql/V2, h2 doesn't know CREATE INDEX CONCURRENTLY
+CREATE INDEX IF NOT EXISTS idx_employees_email ON employees (email);
+CREATE INDEX IF NOT EXISTS idx_employees_last_name_first_name ON employees (last_name, first_name);
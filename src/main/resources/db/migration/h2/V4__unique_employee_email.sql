@@ -0,0 +1,3 @@
+-- same as postgresql/V4. h2 has no INCLUDE, but every h2 index contains the primary key anyway
+CREATE UNIQUE INDEX IF NOT EXISTS idx_employees_email_unique ON employees (email);
+DROP INDEX IF EXISTS idx_employees_email;
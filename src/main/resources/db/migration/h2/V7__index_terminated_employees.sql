@@ -0,0 +1,2 @@
+-- same as postgresql/V7, h2 has no partial indexes
+CREATE INDEX IF NOT EXISTS idx_employees_terminated_at ON employees (terminated_at);
@@ -0,0 +1,10 @@
+-- CONCURRENTLY builds the index without the ACCESS EXCLUSIVE lock of a plain CREATE INDEX, so
+-- inserts and updates of a large live table are not blocked (it only takes a SHARE UPDATE EXCLUSIVE
+-- lock, but scans the table twice). It can't run in a transaction, flyway detects this and runs the
+-- whole migration without one. So don't add transactional statements to this file.
+--
+-- If the migration fails, postgres leaves an INVALID index behind, which IF NOT EXISTS would keep
+-- forever. Drop it (DROP INDEX CONCURRENTLY ...) and repair flyway before running it again.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_employees_email ON employees (email);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_employees_last_name_first_name
+  ON employees (last_name, first_name);
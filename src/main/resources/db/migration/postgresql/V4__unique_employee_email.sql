@@ -0,0 +1,13 @@
+-- the unique index replaces the plain email index of V2: the email check of a new employee and the
+-- lookup by email are a single index probe, and concurrent creates of the same email can't both
+-- succeed anymore. With INCLUDE (id) the existence check (select id ... where email = ?) is an
+-- index only scan, the table itself is not read. Built CONCURRENTLY like V2, so again: no
+-- transactional statements in this file.
+--
+-- A concurrent build which fails (e.g. because of duplicate emails, see V3) leaves an INVALID index
+-- behind, which enforces nothing. So a rerun drops whatever is left of it and builds it again, and
+-- the old index is only dropped after the new one was built successfully.
+DROP INDEX CONCURRENTLY IF EXISTS idx_employees_email_unique;
+CREATE UNIQUE INDEX CONCURRENTLY idx_employees_email_unique
+  ON employees (email) INCLUDE (id);
+DROP INDEX CONCURRENTLY IF EXISTS idx_employees_email;
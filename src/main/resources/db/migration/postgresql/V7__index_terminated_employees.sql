@@ -0,0 +1,5 @@
+-- the EmployeeArchiver looks for terminated employees. A partial index only contains them, so it
+-- stays tiny (they are archived soon) and costs nothing for the writes of active employees. Built
+-- CONCURRENTLY like V2, so no transactional statements in this file.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_employees_terminated_at
+  ON employees (terminated_at) WHERE terminated_at IS NOT NULL;
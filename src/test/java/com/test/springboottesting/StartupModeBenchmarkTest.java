@@ -0,0 +1,92 @@
+package com.test.springboottesting;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+/**
+ * Compares the startup time of the default configuration with the prod profile (lazy
+ * initialization, no springdoc, no schema handling by hibernate). Every start needs a fresh JVM,
+ * otherwise the second start profits from the classes already loaded by the first one. So we start
+ * the application as a separate process with the {@link StartupTrainingRun}, which logs the
+ * startup time and the time to the first request and exits. The benchmark is skipped per default,
+ * run it with
+ *
+ * mvn test -Dtest=StartupModeBenchmarkTest -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class StartupModeBenchmarkTest {
+
+  private static final int ROUNDS = 5;
+  private static final Pattern TRAINING_RUN =
+      Pattern.compile("Training run: started in (\\d+) ms, .* after (\\d+) ms");
+
+  @Test
+  void compareDefaultAndProdProfile() throws Exception {
+    System.out.printf("%-10s %14s %20s%n", "profile", "startup [ms]", "first request [ms]");
+    run("default");
+    run("prod");
+  }
+
+  private void run(String profile) throws Exception {
+    long[] startup = new long[ROUNDS];
+    long[] firstRequest = new long[ROUNDS];
+    for (int i = 0; i < ROUNDS; i++) {
+      long[] result = start(profile);
+      startup[i] = result[0];
+      firstRequest[i] = result[1];
+    }
+    System.out.printf("%-10s %14d %20d (medians of %d starts)%n", profile, median(startup),
+        median(firstRequest), ROUNDS);
+  }
+
+  private static long[] start(String profile) throws Exception {
+    List<String> command = new ArrayList<>(List.of(
+        System.getProperty("java.home") + File.separator + "bin" + File.separator + "java", "-cp",
+        applicationClassPath(), SpringBootTestingApplication.class.getName(),
+        "--startup.training-run=true", "--server.port=0", "--employee.id.node=0"));
+    if (!profile.equals("default"))
+      command.add("--spring.profiles.active=" + profile);
+
+    Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+    long[] result = null;
+    try (BufferedReader reader = new BufferedReader(
+        new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        Matcher matcher = TRAINING_RUN.matcher(line);
+        if (matcher.find())
+          result = new long[] {Long.parseLong(matcher.group(1)), Long.parseLong(matcher.group(2))};
+      }
+    }
+    assertThat(process.waitFor()).isZero();
+    assertThat(result).as("training run output of the %s profile", profile).isNotNull();
+    return result;
+  }
+
+  /**
+   * the test classpath without our test classes, otherwise the component scan of the application
+   * would pick up test configurations like TestConfig
+   */
+  private static String applicationClassPath() {
+    return Arrays.stream(System.getProperty("java.class.path").split(File.pathSeparator))
+        .filter(entry -> !entry.endsWith("test-classes"))
+        .collect(Collectors.joining(File.pathSeparator));
+  }
+
+  private static long median(long[] values) {
+    long[] sorted = values.clone();
+    Arrays.sort(sorted);
+    return sorted[sorted.length / 2];
+  }
+}
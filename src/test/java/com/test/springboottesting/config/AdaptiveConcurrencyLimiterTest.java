@@ -0,0 +1,71 @@
+package com.test.springboottesting.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+
+class AdaptiveConcurrencyLimiterTest {
+
+  private static final long MILLIS = 1_000_000L;
+
+  @Test
+  void givenLimitIsReached_whenTryAcquire_thenRejected() {
+    AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10);
+
+    assertThat(limiter.tryAcquire()).isTrue();
+    assertThat(limiter.tryAcquire()).isTrue();
+    assertThat(limiter.tryAcquire()).isFalse();
+
+    limiter.release(MILLIS);
+    assertThat(limiter.tryAcquire()).isTrue();
+  }
+
+  @Test
+  void givenResponseTimesJump_whenRelease_thenLimitShrinksToAShortQueue() {
+    AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(50, 5, 100);
+    runRequests(limiter, 50, 20, 10 * MILLIS);
+
+    assertThat(limiter.getLimit()).isEqualTo(100);
+
+    // the requests queue up somewhere, each one takes 5 times as long. The limit shrinks until only
+    // a few requests wait (beta = 6 for small limits)
+    for (int i = 0; i < 20; i++)
+      runRequests(limiter, limiter.getLimit(), 1, 50 * MILLIS);
+
+    assertThat(limiter.getLimit()).isBetween(5, 8);
+  }
+
+  @Test
+  void givenConstantResponseTimesUnderFullLoad_whenRelease_thenLimitGrowsUpToMaxLimit() {
+    AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 5, 100);
+
+    for (int i = 0; i < 100; i++)
+      runRequests(limiter, limiter.getLimit(), 10, 10 * MILLIS);
+
+    assertThat(limiter.getLimit()).isEqualTo(100);
+  }
+
+  @Test
+  void givenFewConcurrentRequests_whenRelease_thenLimitDoesNotGrow() {
+    AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 5, 100);
+
+    for (int i = 0; i < 1000; i++)
+      runRequests(limiter, 1, 1, 10 * MILLIS);
+
+    assertThat(limiter.getLimit()).isEqualTo(10);
+  }
+
+  /**
+   * acquires concurrent permits and then releases them all with the same response time, repeated
+   * rounds times
+   */
+  private static void runRequests(AdaptiveConcurrencyLimiter limiter, int concurrent, int rounds,
+      long rttNanos) {
+    for (int round = 0; round < rounds; round++) {
+      int acquired = 0;
+      while (acquired < concurrent && limiter.tryAcquire())
+        acquired++;
+      for (int i = 0; i < acquired; i++)
+        limiter.release(rttNanos);
+    }
+  }
+}
@@ -0,0 +1,116 @@
+package com.test.springboottesting.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Drives a real (H2) HikariCP pool into saturation and back to check that the
+ * {@link AdaptiveConnectionPoolSizer} grows and shrinks it within its bounds
+ */
+class AdaptiveConnectionPoolSizerTest {
+
+  private HikariDataSource dataSource;
+  private AdaptiveConnectionPoolSizer sizer;
+
+  @BeforeEach
+  void setup() {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    dataSource = new HikariDataSource();
+    dataSource.setJdbcUrl("jdbc:h2:mem:pool");
+    dataSource.setPoolName("test");
+    dataSource.setMaximumPoolSize(2);
+    dataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+    sizer = new AdaptiveConnectionPoolSizer(dataSource, meterRegistry, 2, 5, Duration.ofMillis(5));
+  }
+
+  @AfterEach
+  void tearDown() {
+    dataSource.close();
+  }
+
+  @Test
+  void givenThreadsWaitForConnections_whenAdjust_thenPoolGrowsUpToMaxSize() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      for (int round = 0; round < 4; round++) {
+        holdConnections(executor, 8, 50);
+        sizer.adjust();
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    assertThat(dataSource.getMaximumPoolSize()).isEqualTo(5);
+  }
+
+  @Test
+  void givenIdlePool_whenAdjustRepeatedly_thenPoolShrinksDownToMinSize() throws Exception {
+    dataSource.getHikariConfigMXBean().setMaximumPoolSize(4);
+    try (Connection connection = dataSource.getConnection()) {
+      // starts the pool
+    }
+
+    for (int i = 0; i < AdaptiveConnectionPoolSizer.SHRINK_AFTER - 1; i++)
+      sizer.adjust();
+    assertThat(dataSource.getMaximumPoolSize()).isEqualTo(4);
+    for (int i = 0; i < 10 * AdaptiveConnectionPoolSizer.SHRINK_AFTER; i++)
+      sizer.adjust();
+
+    assertThat(dataSource.getMaximumPoolSize()).isEqualTo(2);
+    assertThat(dataSource.getMinimumIdle()).isEqualTo(2);
+  }
+
+  @Test
+  void givenNoHikariPool_whenAdjust_thenNothingHappens() {
+    new AdaptiveConnectionPoolSizer(null, new SimpleMeterRegistry(), 2, 5, Duration.ofMillis(5))
+        .adjust();
+  }
+
+  @Test
+  void givenCoresAndDatabaseLimit_whenPoolSize_thenTwiceTheCoresPlusOneWithinLimit() {
+    assertThat(ConnectionPoolConfig.poolSize(1, 20)).isEqualTo(3);
+    assertThat(ConnectionPoolConfig.poolSize(4, 20)).isEqualTo(9);
+    assertThat(ConnectionPoolConfig.poolSize(32, 20)).isEqualTo(20);
+  }
+
+  @Test
+  void givenPostgresUrl_whenTune_thenStatementCacheIsConfigured() {
+    HikariDataSource postgres = new HikariDataSource();
+    postgres.setJdbcUrl("jdbc:postgresql://localhost:5432/ems");
+    postgres.addDataSourceProperty("prepareThreshold", "1");
+
+    ConnectionPoolConfig.tune(postgres, new MockEnvironment(), 20);
+
+    assertThat(postgres.getDataSourceProperties()).containsEntry("prepareThreshold", "1")
+        .containsEntry("preparedStatementCacheQueries", "512");
+    assertThat(postgres.getMaximumPoolSize())
+        .isEqualTo(ConnectionPoolConfig.poolSize(Runtime.getRuntime().availableProcessors(), 20));
+  }
+
+  private void holdConnections(ExecutorService executor, int threads, long millis)
+      throws Exception {
+    List<Future<?>> futures = new ArrayList<>();
+    for (int i = 0; i < threads; i++)
+      futures.add(executor.submit(() -> {
+        try (Connection connection = dataSource.getConnection()) {
+          Thread.sleep(millis);
+        }
+        return null;
+      }));
+    for (Future<?> future : futures)
+      future.get();
+  }
+}
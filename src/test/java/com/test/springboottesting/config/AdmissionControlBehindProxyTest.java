@@ -0,0 +1,41 @@
+package com.test.springboottesting.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+
+/**
+ * Our requests come from 127.0.0.1 like from a proxy in front of the service, the rate limit must
+ * still be per client and not one for all clients of the proxy
+ */
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT,
+    properties = {"employee.admission.rate-limit.permits-per-second=0.01",
+        "employee.admission.rate-limit.burst=1"})
+class AdmissionControlBehindProxyTest {
+
+  @Autowired
+  private TestRestTemplate restTemplate;
+
+  private HttpStatusCode getEmployeesFor(String client) {
+    HttpHeaders headers = new HttpHeaders();
+    headers.set("X-Forwarded-For", client);
+    return restTemplate.exchange("/api/employees", HttpMethod.GET, new HttpEntity<>(headers),
+        String.class).getStatusCode();
+  }
+
+  @Test
+  void givenClientsBehindAProxy_whenOneUsedItsBurst_thenTheOtherIsNotLimited() {
+    assertThat(getEmployeesFor("203.0.113.1")).isEqualTo(HttpStatus.OK);
+    assertThat(getEmployeesFor("203.0.113.1")).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+
+    assertThat(getEmployeesFor("203.0.113.2")).isEqualTo(HttpStatus.OK);
+  }
+}
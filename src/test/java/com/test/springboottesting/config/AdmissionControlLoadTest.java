@@ -0,0 +1,192 @@
+package com.test.springboottesting.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import com.test.springboottesting.employee.EmployeeRepository;
+
+/**
+ * An open load (new requests at a fixed rate, no matter how fast the service answers) of twice the
+ * capacity of the service, once without and once with admission control. The capacity is simulated
+ * by the repository: at most 2 lookups at the same time, each one takes 40 ms, so 50 requests per
+ * second (small enough for a single cpu which runs the service and the load). Without admission
+ * control the requests queue up and the response times grow as long as the overload lasts, with it
+ * the requests above the capacity get a fast 503 and the admitted ones stay fast. The rate limit is
+ * set very high, all requests come from the same client. Run it with
+ *
+ * mvn test -Dtest=AdmissionControlLoadTest -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT,
+    properties = {"employee.admission.rate-limit.permits-per-second=1000000",
+        "employee.admission.rate-limit.burst=1000000"})
+@Import(AdmissionControlLoadTest.LimitedCapacityConfig.class)
+class AdmissionControlLoadTest {
+
+  private static final int CAPACITY_PER_SECOND = 50;
+  private static final int REQUESTS_PER_SECOND = 2 * CAPACITY_PER_SECOND;
+  private static final Duration WARMUP = Duration.ofSeconds(5);
+  private static final Duration DURATION = Duration.ofSeconds(10);
+
+  @Nested
+  @TestPropertySource(properties = "employee.admission.enabled=false")
+  class WithoutAdmissionControl {
+
+    @LocalServerPort
+    int port;
+
+    @Test
+    void twiceTheCapacity() throws Exception {
+      run("without", port);
+    }
+  }
+
+  @Nested
+  @TestPropertySource(properties = "employee.admission.enabled=true")
+  class WithAdmissionControl {
+
+    @LocalServerPort
+    int port;
+
+    @Test
+    void twiceTheCapacity() throws Exception {
+      Result result = run("with", port);
+
+      assertThat(result.percentile(result.admitted, 0.99)).isLessThan(500);
+    }
+  }
+
+  @TestConfiguration
+  static class LimitedCapacityConfig {
+
+    @Bean
+    static BeanPostProcessor limitedCapacityEmployeeRepository() {
+      Semaphore capacity = new Semaphore(2);
+      return new BeanPostProcessor() {
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+          if (!(bean instanceof EmployeeRepository repository))
+            return bean;
+          return Proxy.newProxyInstance(getClass().getClassLoader(),
+              new Class<?>[] {EmployeeRepository.class}, (proxy, method, args) -> {
+                if (!method.getName().equals("findById"))
+                  return invoke(repository, method, args);
+                capacity.acquire();
+                try {
+                  Thread.sleep(40);
+                  return invoke(repository, method, args);
+                } finally {
+                  capacity.release();
+                }
+              });
+        }
+      };
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args)
+        throws Throwable {
+      try {
+        return method.invoke(target, args);
+      } catch (InvocationTargetException e) {
+        throw e.getCause();
+      }
+    }
+  }
+
+  private static Result run(String name, int port) throws Exception {
+    load(port, WARMUP); // jit, connections, thread pools
+    Result result = load(port, DURATION);
+    System.out.printf("%-9s %8s %8s %8s %10s %10s %10s %12s%n", "admission", "requests",
+        "admitted", "rejected", "p50 [ms]", "p99 [ms]", "max [ms]", "rejected p99");
+    System.out.printf("%-9s %8d %8d %8d %10d %10d %10d %12d%n", name,
+        result.admitted.size() + result.rejected.size(), result.admitted.size(),
+        result.rejected.size(), result.percentile(result.admitted, 0.5),
+        result.percentile(result.admitted, 0.99), result.percentile(result.admitted, 1),
+        result.percentile(result.rejected, 0.99));
+    return result;
+  }
+
+  private static Result load(int port, Duration duration) throws Exception {
+    Result result = new Result();
+    // a thread per open request, so a slow response never delays the next request
+    ExecutorService clients = Executors.newCachedThreadPool();
+    ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    AtomicLong sent = new AtomicLong();
+    scheduler.scheduleAtFixedRate(() -> {
+      long id = 1 + sent.getAndIncrement() % 1000;
+      long start = System.nanoTime();
+      clients.execute(() -> result.add(get(port, id), (System.nanoTime() - start) / 1_000_000));
+    }, 0, 1_000_000 / REQUESTS_PER_SECOND, TimeUnit.MICROSECONDS);
+    Thread.sleep(duration.toMillis());
+    scheduler.shutdownNow();
+    scheduler.awaitTermination(1, TimeUnit.SECONDS);
+    clients.shutdown();
+    clients.awaitTermination(2, TimeUnit.MINUTES);
+    return result;
+  }
+
+  /**
+   * @return the status code or -1 if the request failed
+   */
+  private static int get(int port, long id) {
+    try {
+      HttpURLConnection connection = (HttpURLConnection) new URL(
+          "http://localhost:" + port + "/api/employees/" + id).openConnection();
+      connection.setConnectTimeout(5000);
+      connection.setReadTimeout(60000);
+      int status = connection.getResponseCode();
+      InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+      if (body != null)
+        try (body) {
+          body.readAllBytes(); // so the connection can be reused
+        }
+      return status;
+    } catch (IOException e) {
+      return -1;
+    }
+  }
+
+  private static class Result {
+    private final List<Long> admitted = new ArrayList<>();
+    private final List<Long> rejected = new ArrayList<>();
+
+    synchronized void add(int status, long millis) {
+      (status == 503 || status == 429 ? rejected : admitted).add(millis);
+    }
+
+    synchronized long percentile(List<Long> millis, double percentile) {
+      if (millis.isEmpty())
+        return 0;
+      List<Long> sorted = new ArrayList<>(millis);
+      Collections.sort(sorted);
+      int index = (int) Math.ceil(percentile * sorted.size()) - 1;
+      return sorted.get(Math.min(sorted.size() - 1, index));
+    }
+  }
+}
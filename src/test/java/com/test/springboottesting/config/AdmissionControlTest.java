@@ -0,0 +1,97 @@
+package com.test.springboottesting.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.CoreMatchers.is;
+import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+import com.test.springboottesting.employee.EmployeeController;
+import com.test.springboottesting.employee.EmployeeService;
+
+/**
+ * The {@link AdmissionControlInterceptor} with tiny limits in front of the
+ * {@link EmployeeController}, the service is mocked
+ */
+@WebMvcTest(controllers = EmployeeController.class, properties = {
+    "employee.admission.rate-limit.permits-per-second=0.01",
+    "employee.admission.rate-limit.burst=2", "employee.admission.concurrency.initial-limit=1",
+    "employee.admission.concurrency.min-limit=1", "employee.admission.concurrency.max-limit=1"})
+class AdmissionControlTest {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @MockBean
+  private EmployeeService employeeService;
+
+  @Test
+  void givenClientUsedItsBurst_whenGetEmployees_then429WithRetryAfter() throws Exception {
+    given(employeeService.getAllEmployees()).willReturn(List.of());
+    mockMvc.perform(get("/api/employees").with(remoteAddr("10.0.0.1")))
+        .andExpect(status().isOk());
+    mockMvc.perform(get("/api/employees").with(remoteAddr("10.0.0.1")))
+        .andExpect(status().isOk());
+
+    mockMvc.perform(get("/api/employees").with(remoteAddr("10.0.0.1")))
+        .andExpect(status().isTooManyRequests())
+        .andExpect(content().contentType(MediaType.APPLICATION_PROBLEM_JSON))
+        .andExpect(header().string("Retry-After", "100"))
+        .andExpect(jsonPath("$.status", is(429)));
+    // other clients have their own bucket
+    mockMvc.perform(get("/api/employees").with(remoteAddr("10.0.0.2")))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  void givenConcurrencyLimitIsReached_whenGetEmployee_then503() throws Exception {
+    CountDownLatch running = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    given(employeeService.getEmployeeById(1L)).willAnswer(invocation -> {
+      running.countDown();
+      release.await(10, TimeUnit.SECONDS);
+      return Optional.empty();
+    });
+    CompletableFuture<Integer> blockingRequest = CompletableFuture.supplyAsync(() -> {
+      try {
+        return mockMvc.perform(get("/api/employees/1").with(remoteAddr("10.0.0.3")))
+            .andReturn().getResponse().getStatus();
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    running.await(10, TimeUnit.SECONDS);
+
+    mockMvc.perform(get("/api/employees/1").with(remoteAddr("10.0.0.4")))
+        .andExpect(status().isServiceUnavailable())
+        .andExpect(content().contentType(MediaType.APPLICATION_PROBLEM_JSON))
+        .andExpect(header().string("Retry-After", "1"));
+
+    release.countDown();
+    // the blocked request was admitted and is released again
+    assertThat(blockingRequest.get(10, TimeUnit.SECONDS)).isEqualTo(404);
+    mockMvc.perform(get("/api/employees/1").with(remoteAddr("10.0.0.4")))
+        .andExpect(status().isNotFound());
+  }
+
+  private static RequestPostProcessor remoteAddr(String address) {
+    return request -> {
+      request.setRemoteAddr(address);
+      return request;
+    };
+  }
+}
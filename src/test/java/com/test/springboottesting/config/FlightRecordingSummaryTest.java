@@ -0,0 +1,70 @@
+package com.test.springboottesting.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import com.test.springboottesting.config.FlightRecordingSummary.Row;
+import com.test.springboottesting.employee.EmployeeRepository;
+import jdk.jfr.Recording;
+
+/**
+ * Records our events while the api is used and checks that the summary finds every layer of the
+ * requests: the request itself, the service calls (including the email check) and the queries
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class FlightRecordingSummaryTest {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired
+  private EmployeeRepository employeeRepository;
+
+  @Test
+  void givenRecordedRequests_whenSummarize_thenLatencyPerOperation(@TempDir Path directory)
+      throws Exception {
+    employeeRepository.deleteAll();
+    Path file = directory.resolve("recording.jfr");
+    try (Recording recording = new Recording()) {
+      for (String event : List.of("EmployeeRequest", "EmployeeService", "EmployeeQuery"))
+        recording.enable(FlightRecordingSummary.EVENT_PREFIX + event);
+      recording.start();
+      mockMvc.perform(post("/api/employees").contentType(MediaType.APPLICATION_JSON)
+          .content("{\"firstName\":\"John\",\"lastName\":\"Doe\",\"email\":\"john@email.com\"}"))
+          .andExpect(status().isCreated());
+      for (int i = 0; i < 3; i++)
+        mockMvc.perform(get("/api/employees/{id}", 999_999)).andExpect(status().isNotFound());
+      recording.stop();
+      recording.dump(file);
+    }
+
+    List<Row> rows = FlightRecordingSummary.summarize(file);
+
+    Map<String, Integer> counts = rows.stream()
+        .collect(Collectors.toMap(row -> row.event() + " " + row.operation(), Row::count));
+    assertThat(counts).containsEntry("EmployeeRequest POST /api/employees", 1)
+        .containsEntry("EmployeeRequest GET /api/employees/{id}", 3)
+        .containsEntry("EmployeeService saveEmployee", 1)
+        .containsEntry("EmployeeService validateThatEmailDoesNotExist", 1)
+        .containsEntry("EmployeeService getEmployeeById", 3)
+        .containsEntry("EmployeeQuery existsByEmail", 1)
+        .containsEntry("EmployeeQuery save", 1)
+        .containsEntry("EmployeeQuery findById", 3);
+    assertThat(rows).allSatisfy(row -> assertThat(row.p50()).isLessThanOrEqualTo(row.p99())
+        .isLessThanOrEqualTo(row.max()).isLessThanOrEqualTo(row.total()));
+    assertThat(FlightRecordingSummary.format(rows)).contains("GET /api/employees/{id}");
+  }
+}
@@ -0,0 +1,55 @@
+package com.test.springboottesting.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+import org.springframework.data.repository.Repository;
+import org.springframework.transaction.interceptor.TransactionalProxy;
+import com.test.springboottesting.employee.Employee;
+import com.test.springboottesting.employee.EmployeeIdentifierGenerator;
+import com.test.springboottesting.employee.EmployeeRepository;
+
+/**
+ * We can't build a native image in a unit test, but we can check that our hints are registered
+ */
+class NativeRuntimeHintsTest {
+
+  private RuntimeHints hints;
+
+  @BeforeEach
+  void setup() {
+    hints = new RuntimeHints();
+    new NativeRuntimeHints().registerHints(hints, getClass().getClassLoader());
+  }
+
+  @Test
+  void employeeIsRegisteredForReflection() {
+    assertThat(RuntimeHintsPredicates.reflection().onType(Employee.class)
+        .withMemberCategories(MemberCategory.DECLARED_FIELDS)).accepts(hints);
+  }
+
+  @Test
+  void employeeIdGeneratorIsRegisteredForReflection() {
+    assertThat(RuntimeHintsPredicates.reflection().onType(EmployeeIdentifierGenerator.class)
+        .withMemberCategories(MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS)).accepts(hints);
+  }
+
+  @Test
+  void employeeRepositoryProxyIsRegistered() {
+    assertThat(RuntimeHintsPredicates.proxies()
+        .forInterfaces(AopProxyUtils.completeJdkProxyInterfaces(EmployeeRepository.class,
+            Repository.class, TransactionalProxy.class))).accepts(hints);
+    assertThat(RuntimeHintsPredicates.proxies().forInterfaces(EmployeeRepository.class))
+        .accepts(hints);
+  }
+
+  @Test
+  void swaggerUiResourcesAreRegistered() {
+    assertThat(RuntimeHintsPredicates.resource()
+        .forResource("META-INF/resources/webjars/swagger-ui/5.13.0/index.html")).accepts(hints);
+  }
+}
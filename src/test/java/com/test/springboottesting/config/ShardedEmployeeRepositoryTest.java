@@ -0,0 +1,233 @@
+package com.test.springboottesting.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import com.test.springboottesting.employee.Employee;
+import com.test.springboottesting.employee.EmployeeRepository;
+import com.test.springboottesting.employee.EmployeeMergePatch;
+import com.test.springboottesting.employee.EmployeeService;
+import com.test.springboottesting.employee.EmployeeStatsSummary;
+import com.test.springboottesting.exception.DuplicateEmailException;
+
+/**
+ * The employees spread over three in-memory H2 databases. We look into the shards directly to see
+ * where the employees are.
+ */
+@SpringBootTest(properties = {"employee.sharding.enabled=true",
+    "employee.sharding.urls=jdbc:h2:mem:shard0;DB_CLOSE_DELAY=-1,"
+        + "jdbc:h2:mem:shard1;DB_CLOSE_DELAY=-1,jdbc:h2:mem:shard2;DB_CLOSE_DELAY=-1"})
+class ShardedEmployeeRepositoryTest {
+
+  private static final int SHARDS = 3;
+
+  @Autowired
+  private EmployeeService employeeService;
+
+  @Autowired
+  private EmployeeRepository employeeRepository;
+
+  @Autowired
+  private EmployeeStatsSummary statsSummary;
+
+  @Autowired
+  private ShardedDataSources shards;
+
+  @Autowired
+  private EmployeeEmailDirectory emailDirectory;
+
+  @BeforeEach
+  void setup() {
+    employeeRepository.deleteAll();
+  }
+
+  private static Employee employee(int i) {
+    return Employee.builder().firstName("John" + i).lastName("Doe")
+        .email("johndoe" + i + "@email.com").build();
+  }
+
+  private List<Employee> saveEmployees(int count) {
+    List<Employee> employees = new ArrayList<>();
+    for (int i = 0; i < count; i++)
+      employees.add(employeeService.saveEmployee(employee(i)));
+    return employees;
+  }
+
+  private List<Long> idsOnShard(int shard) {
+    return new JdbcTemplate(shards.shard(shard)).queryForList("select id from employees",
+        Long.class);
+  }
+
+  private List<String> directory() {
+    return new JdbcTemplate(shards.shard(0))
+        .queryForList("select email from employee_email_directory order by email", String.class);
+  }
+
+  @Test
+  void givenEmployees_whenSaveEmployee_thenEachOneIsStoredOnTheShardOfItsId() {
+    List<Employee> employees = saveEmployees(12);
+
+    int stored = 0;
+    for (int shard = 0; shard < SHARDS; shard++) {
+      List<Long> ids = idsOnShard(shard);
+      stored += ids.size();
+      for (long id : ids)
+        assertThat(Math.floorMod(id, SHARDS)).isEqualTo(shard);
+    }
+    assertThat(stored).isEqualTo(12);
+    assertThat(employees).extracting(Employee::getId).doesNotHaveDuplicates();
+    assertThat(directory()).hasSize(12);
+  }
+
+  @Test
+  void givenEmployeesOnAllShards_whenGetAllEmployees_thenTheyAreGatheredFromAllShards() {
+    List<Employee> employees = saveEmployees(12);
+
+    assertThat(employeeService.getAllEmployees()).extracting(Employee::getEmail)
+        .containsExactlyInAnyOrderElementsOf(employees.stream().map(Employee::getEmail).toList());
+    assertThat(employeeRepository.count()).isEqualTo(12);
+    assertThat(statsSummary.recompute().total()).isEqualTo(12);
+  }
+
+  @Test
+  void givenEmployeesOnAllShards_whenFindById_thenTheEmployeeIsFound() {
+    List<Employee> employees = saveEmployees(6);
+
+    for (Employee employee : employees)
+      assertThat(employeeRepository.findById(employee.getId())).get()
+          .extracting(Employee::getEmail).isEqualTo(employee.getEmail());
+    assertThat(employeeRepository.findAllById(employees.stream().map(Employee::getId).toList()))
+        .hasSize(6);
+  }
+
+  @Test
+  void givenEmployeesOnAllShards_whenFindByEmail_thenTheDirectoryKnowsTheShard() {
+    List<Employee> employees = saveEmployees(6);
+
+    for (Employee employee : employees)
+      assertThat(employeeRepository.findByEmail(employee.getEmail())).get()
+          .extracting(Employee::getId).isEqualTo(employee.getId());
+    assertThat(employeeRepository.findByEmail("unknown@email.com")).isEmpty();
+    assertThat(employeeRepository.findAllByEmailIn(
+        List.of(employees.get(0).getEmail(), employees.get(1).getEmail(), "unknown@email.com")))
+            .hasSize(2);
+  }
+
+  @Test
+  void givenSort_whenFindAll_thenEmployeesOfAllShardsInOrder() {
+    saveEmployees(12);
+
+    assertThat(employeeRepository.findAll(Sort.by(Sort.Direction.DESC, "email")))
+        .extracting(Employee::getEmail).hasSize(12)
+        .isSortedAccordingTo(Comparator.reverseOrder());
+  }
+
+  @Test
+  void givenPage_whenFindAll_thenThePageOfAllShardsMerged() {
+    List<String> emails = saveEmployees(12).stream().map(Employee::getEmail).sorted().toList();
+
+    Page<Employee> page = employeeRepository.findAll(PageRequest.of(2, 5, Sort.by("email")));
+
+    assertThat(page.getContent()).extracting(Employee::getEmail)
+        .containsExactlyElementsOf(emails.subList(10, 12));
+    assertThat(page.getTotalElements()).isEqualTo(12);
+    assertThat(page.getTotalPages()).isEqualTo(3);
+    // without a sort the pages are in the order of the ids
+    assertThat(employeeRepository.findAll(PageRequest.of(0, 5)).getContent())
+        .extracting(Employee::getId).isSorted().hasSize(5);
+    assertThat(employeeRepository.findAll(Pageable.unpaged()).getContent())
+        .extracting(Employee::getId).isSorted().hasSize(12);
+  }
+
+  @Test
+  void givenExistingEmail_whenSaveEmployee_thenDuplicateEmailException() {
+    saveEmployees(1);
+
+    assertThrows(DuplicateEmailException.class, () -> employeeService.saveEmployee(employee(0)));
+    // without the check of the service the directory rejects it, like a unique index
+    assertThrows(DataIntegrityViolationException.class,
+        () -> employeeRepository.save(employee(0)));
+    assertThat(employeeRepository.count()).isEqualTo(1);
+  }
+
+  @Test
+  void givenChangedEmail_whenUpdateEmployee_thenTheOldEmailIsReleased() {
+    Employee employee = saveEmployees(1).get(0);
+    employee.setEmail("jdoe@email.com");
+
+    employeeService.updateEmployee(employee);
+
+    assertThat(directory()).containsExactly("jdoe@email.com");
+    assertThat(employeeRepository.findByEmail("jdoe@email.com")).isPresent();
+    assertThat(employeeService.saveEmployee(employee(0)).getEmail())
+        .isEqualTo("johndoe0@email.com");
+  }
+
+  @Test
+  void givenEmployeesOnAllShards_whenPatchEmployee_thenPatchedOnTheShardOfItsId() {
+    List<Employee> employees = saveEmployees(3);
+
+    for (Employee employee : employees)
+      employeeService.patchEmployee(employee.getId(),
+          new EmployeeMergePatch(Map.of("lastName", "Roe")));
+
+    for (Employee employee : employees)
+      assertThat(employeeRepository.findById(employee.getId())).get()
+          .extracting(Employee::getLastName).isEqualTo("Roe");
+  }
+
+  @Test
+  void givenChangedEmail_whenPatchEmployee_thenTheOldEmailIsReleased() {
+    List<Employee> employees = saveEmployees(2);
+
+    employeeService.patchEmployee(employees.get(1).getId(),
+        new EmployeeMergePatch(Map.of("email", "jdoe@email.com")));
+
+    assertThat(directory()).containsExactly("jdoe@email.com", "johndoe0@email.com");
+    assertThat(employeeRepository.findByEmail("jdoe@email.com")).get()
+        .extracting(Employee::getId).isEqualTo(employees.get(1).getId());
+    assertThrows(DuplicateEmailException.class,
+        () -> employeeService.patchEmployee(employees.get(1).getId(),
+            new EmployeeMergePatch(Map.of("email", "johndoe0@email.com"))));
+  }
+
+  @Test
+  void givenEmployee_whenDeleteEmployee_thenItsEmailIsReleased() {
+    List<Employee> employees = saveEmployees(3);
+
+    employeeService.deleteEmployee(employees.get(1).getId());
+
+    assertThat(employeeRepository.count()).isEqualTo(2);
+    assertThat(directory()).containsExactly("johndoe0@email.com", "johndoe2@email.com");
+  }
+
+  @Test
+  void givenOldAndNewClaimsWithoutEmployee_whenReconciled_thenOnlyTheOldOnesAreReleased() {
+    saveEmployees(3);
+    JdbcTemplate directoryJdbcTemplate = new JdbcTemplate(shards.shard(0));
+    directoryJdbcTemplate.update("insert into employee_email_directory (email, shard, claimed_at) "
+        + "values ('crashed@email.com', 1, timestamp '2020-01-01 00:00:00')");
+    directoryJdbcTemplate.update("update employee_email_directory set claimed_at = "
+        + "timestamp '2020-01-01 00:00:00' where email = 'johndoe1@email.com'");
+    directoryJdbcTemplate.update(
+        "insert into employee_email_directory (email, shard) values ('saving@email.com', 2)");
+
+    assertThat(emailDirectory.releaseOrphanedClaims()).isEqualTo(1);
+
+    assertThat(directory()).containsExactly("johndoe0@email.com", "johndoe1@email.com",
+        "johndoe2@email.com", "saving@email.com");
+  }
+}
@@ -0,0 +1,91 @@
+package com.test.springboottesting.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.time.Duration;
+import javax.sql.DataSource;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+
+class SlowQueryLoggingTest {
+
+  private JdbcDataSource h2;
+  private ListAppender<ILoggingEvent> appender = new ListAppender<>();
+  private Logger logger = (Logger) LoggerFactory.getLogger(SlowQueryLogging.class);
+
+  @BeforeEach
+  void setup() throws Exception {
+    h2 = new JdbcDataSource();
+    h2.setURL("jdbc:h2:mem:slow-query;DB_CLOSE_DELAY=-1");
+    try (Connection connection = h2.getConnection();
+        Statement statement = connection.createStatement()) {
+      statement.execute("CREATE TABLE IF NOT EXISTS employees (id bigint, email varchar(255))");
+    }
+    appender.start();
+    logger.addAppender(appender);
+  }
+
+  @AfterEach
+  void tearDown() {
+    logger.detachAppender(appender);
+  }
+
+  @Test
+  void givenSlowStatement_whenExecute_thenLogSqlParametersAndCaller() throws Exception {
+    DataSource dataSource = SlowQueryLogging.wrap(h2, Duration.ZERO, 1);
+
+    try (Connection connection = dataSource.getConnection(); PreparedStatement statement =
+        connection.prepareStatement("SELECT * FROM employees WHERE id = ? AND email = ?")) {
+      statement.setLong(1, 42);
+      statement.setString(2, "johndoe@email.com");
+      statement.executeQuery().close();
+    }
+
+    assertThat(appender.list).hasSize(1);
+    assertThat(appender.list.get(0).getFormattedMessage())
+        .contains("SELECT * FROM employees WHERE id = ? AND email = ?")
+        .contains("[42, johndoe@email.com]")
+        .contains("from SlowQueryLoggingTest.givenSlowStatement_whenExecute_then");
+  }
+
+  @Test
+  void givenFastStatement_whenExecute_thenNothingIsLogged() throws Exception {
+    DataSource dataSource = SlowQueryLogging.wrap(h2, Duration.ofMinutes(1), 1);
+
+    try (Connection connection = dataSource.getConnection();
+        Statement statement = connection.createStatement()) {
+      statement.executeQuery("SELECT * FROM employees").close();
+    }
+
+    assertThat(appender.list).isEmpty();
+  }
+
+  @Test
+  void givenSampleRate_whenManySlowStatements_thenOnlySomeAreLogged() throws Exception {
+    DataSource dataSource = SlowQueryLogging.wrap(h2, Duration.ZERO, 0.1);
+
+    try (Connection connection = dataSource.getConnection();
+        Statement statement = connection.createStatement()) {
+      for (int i = 0; i < 1000; i++)
+        statement.executeQuery("SELECT * FROM employees").close();
+    }
+
+    assertThat(appender.list).hasSizeBetween(20, 300);
+  }
+
+  @Test
+  void givenWrappedDataSource_whenUnwrap_thenReturnOriginalDataSource() throws Exception {
+    DataSource dataSource = SlowQueryLogging.wrap(h2, Duration.ZERO, 1);
+
+    assertThat(dataSource.isWrapperFor(JdbcDataSource.class)).isTrue();
+    assertThat(dataSource.unwrap(JdbcDataSource.class)).isSameAs(h2);
+  }
+}
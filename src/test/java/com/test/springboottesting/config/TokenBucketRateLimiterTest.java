@@ -0,0 +1,93 @@
+package com.test.springboottesting.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class TokenBucketRateLimiterTest {
+
+  private static final long SECOND = 1_000_000_000L;
+
+  private AtomicLong now = new AtomicLong(42 * SECOND);
+
+  @Test
+  void givenFullBucket_whenBurstIsUsed_thenNextRequestMustWaitForOneToken() {
+    TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter(10, 5, 100, now::get);
+
+    for (int i = 0; i < 5; i++)
+      assertThat(rateLimiter.tryAcquire("client")).isZero();
+
+    assertThat(rateLimiter.tryAcquire("client")).isEqualTo(SECOND / 10);
+    now.addAndGet(SECOND / 10);
+    assertThat(rateLimiter.tryAcquire("client")).isZero();
+    assertThat(rateLimiter.tryAcquire("client")).isPositive();
+  }
+
+  @Test
+  void givenTwoClients_whenOneUsedItsBurst_thenTheOtherIsNotLimited() {
+    TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter(1, 1, 100, now::get);
+
+    assertThat(rateLimiter.tryAcquire("first")).isZero();
+    assertThat(rateLimiter.tryAcquire("first")).isPositive();
+
+    assertThat(rateLimiter.tryAcquire("second")).isZero();
+  }
+
+  @Test
+  void givenIdleClients_whenMaxClientsIsReached_thenFullBucketsAreDropped() {
+    TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter(10, 5, 2, now::get);
+    rateLimiter.tryAcquire("first");
+    rateLimiter.tryAcquire("second");
+    now.addAndGet(SECOND);
+
+    rateLimiter.tryAcquire("third");
+
+    assertThat(rateLimiter.clients()).isEqualTo(1);
+  }
+
+  @Test
+  void givenBusyClients_whenMaxClientsIsReached_thenTheFullestBucketIsDropped() {
+    TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter(10, 5, 2, now::get);
+    for (int i = 0; i < 5; i++)
+      rateLimiter.tryAcquire("first"); // full again in 0.5s
+    rateLimiter.tryAcquire("second"); // full again in 0.1s
+
+    rateLimiter.tryAcquire("third");
+
+    assertThat(rateLimiter.clients()).isEqualTo(2);
+    assertThat(rateLimiter.tryAcquire("first")).isPositive(); // still limited
+  }
+
+  @Test
+  void givenManyNewClients_whenTryAcquire_thenNeverMoreThanMaxClients() {
+    TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter(10, 5, 100, now::get);
+
+    for (int i = 0; i < 10_000; i++) {
+      rateLimiter.tryAcquire("client" + i);
+      now.addAndGet(SECOND / 1000);
+    }
+
+    assertThat(rateLimiter.clients()).isLessThanOrEqualTo(100);
+  }
+
+  @Test
+  void givenConcurrentRequestsOfOneClient_whenTryAcquire_thenExactlyBurstAreAllowed()
+      throws Exception {
+    TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter(1, 100, 100, now::get);
+    AtomicInteger allowed = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    for (int i = 0; i < 1000; i++)
+      executor.execute(() -> {
+        if (rateLimiter.tryAcquire("client") == 0)
+          allowed.incrementAndGet();
+      });
+    executor.shutdown();
+    assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+    assertThat(allowed.get()).isEqualTo(100);
+  }
+}
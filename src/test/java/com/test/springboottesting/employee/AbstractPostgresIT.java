@@ -29,10 +29,9 @@ public abstract class AbstractPostgresIT {
     registry.add("spring.datasource.url", POSTGRES_CONTAINER::getJdbcUrl);
     registry.add("spring.datasource.username", POSTGRES_CONTAINER::getUsername);
     registry.add("spring.datasource.password", POSTGRES_CONTAINER::getPassword);
-    // for h2 tests create-drop is selected per default, for a production database (postgres) we
-    // need to set it per hand. create-drop ensures that the database schema is created fresh at the
-    // start of the application and dropped when the application shuts down
-    // https://docs.spring.io/spring-boot/docs/1.1.0.M1/reference/html/howto-database-initialization.html
-    registry.add("spring.jpa.hibernate.ddl-auto", () -> "create-drop");
+    // the schema is created by the flyway migrations (db/migration/common and
+    // db/migration/postgresql) and hibernate only validates it, like in production. The container
+    // is shared by all tests, so the tests clean up the table themselves
+    registry.add("spring.jpa.hibernate.ddl-auto", () -> "validate");
   }
 }
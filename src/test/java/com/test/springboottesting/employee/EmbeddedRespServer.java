@@ -0,0 +1,181 @@
+package com.test.springboottesting.employee;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * An in-process stand-in for a redis server, so the {@link RespSharedEmployeeCache} can be tested
+ * without docker or any other outside service. It speaks just enough RESP2 for our client: PING,
+ * GET, SET (an expiry is accepted and ignored), DEL, PUBLISH and SUBSCRIBE. Every client gets its
+ * own thread.
+ */
+class EmbeddedRespServer implements Closeable {
+
+  private final ServerSocket serverSocket;
+  private final Map<String, byte[]> values = new ConcurrentHashMap<>();
+  private final Map<String, List<Client>> subscribers = new ConcurrentHashMap<>();
+  private final List<Socket> sockets = new CopyOnWriteArrayList<>();
+
+  EmbeddedRespServer() throws IOException {
+    this(0);
+  }
+
+  /**
+   * @param port 0 for a random free port
+   */
+  EmbeddedRespServer(int port) throws IOException {
+    serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+    Thread acceptor = new Thread(this::accept, "resp-server");
+    acceptor.setDaemon(true);
+    acceptor.start();
+  }
+
+  int getPort() {
+    return serverSocket.getLocalPort();
+  }
+
+  Map<String, byte[]> getValues() {
+    return values;
+  }
+
+  /**
+   * closes all client connections (like a restarted server), the data is kept
+   */
+  void disconnectClients() throws IOException {
+    for (Socket socket : sockets)
+      socket.close();
+    sockets.clear();
+    subscribers.clear();
+  }
+
+  @Override
+  public void close() throws IOException {
+    serverSocket.close();
+    disconnectClients();
+  }
+
+  private void accept() {
+    while (!serverSocket.isClosed()) {
+      try {
+        Socket socket = serverSocket.accept();
+        sockets.add(socket);
+        Thread thread = new Thread(() -> serve(socket), "resp-client");
+        thread.setDaemon(true);
+        thread.start();
+      } catch (IOException e) {
+        // closed
+      }
+    }
+  }
+
+  private void serve(Socket socket) {
+    try (socket) {
+      Client client = new Client(new BufferedOutputStream(socket.getOutputStream()));
+      InputStream in = new BufferedInputStream(socket.getInputStream());
+      for (List<String> command = readCommand(in); command != null; command = readCommand(in))
+        execute(client, command);
+    } catch (IOException e) {
+      // client is gone
+    }
+  }
+
+  private void execute(Client client, List<String> command) throws IOException {
+    switch (command.get(0).toUpperCase()) {
+      case "PING" -> client.write("+PONG\r\n");
+      case "GET" -> client.writeBulk(values.get(command.get(1)));
+      case "SET" -> {
+        values.put(command.get(1), command.get(2).getBytes(StandardCharsets.UTF_8));
+        client.write("+OK\r\n");
+      }
+      case "DEL" -> {
+        long deleted = command.subList(1, command.size()).stream()
+            .filter(key -> values.remove(key) != null).count();
+        client.write(":" + deleted + "\r\n");
+      }
+      case "PUBLISH" -> {
+        List<Client> receivers = subscribers.getOrDefault(command.get(1), List.of());
+        for (Client receiver : receivers)
+          receiver.writeArray("message", command.get(1), command.get(2));
+        client.write(":" + receivers.size() + "\r\n");
+      }
+      case "SUBSCRIBE" -> {
+        subscribers.computeIfAbsent(command.get(1), channel -> new CopyOnWriteArrayList<>())
+            .add(client);
+        client.write("*3\r\n$9\r\nsubscribe\r\n");
+        client.writeBulk(command.get(1).getBytes(StandardCharsets.UTF_8));
+        client.write(":1\r\n");
+      }
+      default -> client.write("-ERR unknown command '" + command.get(0) + "'\r\n");
+    }
+  }
+
+  /**
+   * @return the command as array of bulk strings or null if the client closed the connection
+   */
+  private static List<String> readCommand(InputStream in) throws IOException {
+    String header = readLine(in);
+    if (header == null)
+      return null;
+    int length = Integer.parseInt(header.substring(1));
+    List<String> command = new ArrayList<>(length);
+    for (int i = 0; i < length; i++) {
+      int bytes = Integer.parseInt(readLine(in).substring(1));
+      command.add(new String(in.readNBytes(bytes), StandardCharsets.UTF_8));
+      readLine(in);
+    }
+    return command;
+  }
+
+  private static String readLine(InputStream in) throws IOException {
+    StringBuilder line = new StringBuilder();
+    for (int b = in.read(); b != '\r'; b = in.read()) {
+      if (b == -1)
+        return null;
+      line.append((char) b);
+    }
+    in.read(); // \n
+    return line.toString();
+  }
+
+  private static class Client {
+    private final OutputStream out;
+
+    Client(OutputStream out) {
+      this.out = out;
+    }
+
+    synchronized void write(String reply) throws IOException {
+      out.write(reply.getBytes(StandardCharsets.UTF_8));
+      out.flush();
+    }
+
+    synchronized void writeBulk(byte[] value) throws IOException {
+      if (value == null) {
+        write("$-1\r\n");
+        return;
+      }
+      out.write(("$" + value.length + "\r\n").getBytes(StandardCharsets.UTF_8));
+      out.write(value);
+      write("\r\n");
+    }
+
+    synchronized void writeArray(String... elements) throws IOException {
+      out.write(("*" + elements.length + "\r\n").getBytes(StandardCharsets.UTF_8));
+      for (String element : elements)
+        writeBulk(element.getBytes(StandardCharsets.UTF_8));
+    }
+  }
+}
@@ -0,0 +1,80 @@
+package com.test.springboottesting.employee;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * The tables are created by the flyway migrations of the embedded h2 database
+ */
+@JdbcTest
+class EmployeeArchiverTest {
+
+  private static final Instant NOW = Instant.parse("2026-01-31T12:00:00Z");
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  private TransactionTemplate transactionTemplate;
+
+  private EmployeeArchiver archiver;
+
+  @BeforeEach
+  void setup() {
+    jdbcTemplate.update("delete from employees");
+    jdbcTemplate.update("delete from employees_archive");
+    archiver = new EmployeeArchiver(jdbcTemplate, transactionTemplate, Duration.ofDays(30), 2,
+        Duration.ofSeconds(1), Duration.ZERO, Clock.fixed(NOW, ZoneOffset.UTC));
+  }
+
+  private void insert(long id, Instant terminatedAt) {
+    jdbcTemplate.update(
+        "insert into employees (id, first_name, last_name, email, terminated_at) "
+            + "values (?, 'John', 'Doe', ?, ?)",
+        id, "johndoe" + id + "@email.com",
+        terminatedAt == null ? null : Timestamp.from(terminatedAt));
+  }
+
+  private long count(String table) {
+    return jdbcTemplate.queryForObject("select count(*) from " + table, Long.class);
+  }
+
+  @Test
+  void givenEmployeesTerminatedBeforeGracePeriod_whenArchive_thenMovedInBatches()
+      throws Exception {
+    for (long id = 1; id <= 5; id++)
+      insert(id, NOW.minus(Duration.ofDays(30 + id)));
+    insert(6, NOW.minus(Duration.ofDays(1))); // still in the grace period
+    insert(7, null); // active
+
+    long archived = archiver.archive();
+
+    assertThat(archived).isEqualTo(5);
+    assertThat(jdbcTemplate.queryForList("select id from employees order by id", Long.class))
+        .containsExactly(6L, 7L);
+    assertThat(jdbcTemplate.queryForList("select id from employees_archive order by id",
+        Long.class)).containsExactly(1L, 2L, 3L, 4L, 5L);
+    assertThat(jdbcTemplate.queryForObject(
+        "select email from employees_archive where id = 3", String.class))
+        .isEqualTo("johndoe3@email.com");
+  }
+
+  @Test
+  void givenNothingToArchive_whenArchive_thenNothingChanges() throws Exception {
+    insert(1, null);
+
+    assertThat(archiver.archive()).isZero();
+    assertThat(count("employees")).isEqualTo(1);
+    assertThat(count("employees_archive")).isZero();
+  }
+}
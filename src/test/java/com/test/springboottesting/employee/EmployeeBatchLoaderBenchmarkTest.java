@@ -0,0 +1,78 @@
+package com.test.springboottesting.employee;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.LongFunction;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Database round trips and duration of many concurrent lookups of different ids, one query per id
+ * vs. the {@link EmployeeBatchLoader}. Run it with
+ *
+ * mvn test -Dtest=EmployeeBatchLoaderBenchmarkTest -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@SpringBootTest(properties = {"spring.jpa.properties.hibernate.generate_statistics=true",
+    "employee.batch.enabled=true"})
+class EmployeeBatchLoaderBenchmarkTest {
+
+  private static final int EMPLOYEES = 10_000;
+  private static final int THREADS = 64;
+  private static final int ROUNDS = 5;
+
+  @Autowired
+  private EmployeeRepository employeeRepository;
+
+  @Autowired
+  private EmployeeBatchLoader batchLoader;
+
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+
+  @Test
+  void compareSingleAndBatchedLookups() throws Exception {
+    employeeRepository.deleteAll();
+    List<Employee> employees = new ArrayList<>();
+    for (int i = 0; i < EMPLOYEES; i++)
+      employees.add(Employee.builder().firstName("John" + i).lastName("Doe")
+          .email("johndoe" + i + "@email.com").build());
+    List<Long> ids = employeeRepository.saveAll(employees).stream().map(Employee::getId).toList();
+    Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+    System.out.printf("%-8s %11s %13s %15s%n", "lookups", "round trips", "duration [ms]",
+        "per lookup [us]");
+    for (int round = 0; round < ROUNDS; round++) {
+      run("single", ids, statistics, id -> employeeRepository.findById(id));
+      run("batched", ids, statistics, id -> batchLoader.get(id));
+    }
+  }
+
+  private void run(String name, List<Long> ids, Statistics statistics, LongFunction<?> lookup)
+      throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      statistics.clear();
+      long start = System.nanoTime();
+      List<Future<?>> futures = new ArrayList<>(ids.size());
+      for (long id : ids)
+        futures.add(executor.submit((Callable<?>) () -> lookup.apply(id)));
+      for (Future<?> future : futures)
+        future.get();
+      long nanos = System.nanoTime() - start;
+      System.out.printf("%-8s %11d %13d %15d%n", name, statistics.getPrepareStatementCount(),
+          nanos / 1_000_000, nanos / 1_000 / ids.size());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,122 @@
+package com.test.springboottesting.employee;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+@ExtendWith(MockitoExtension.class)
+class EmployeeBatchLoaderTest {
+
+  @Mock
+  private EmployeeRepository employeeRepository;
+
+  private EmployeeBatchLoader batchLoader;
+
+  @AfterEach
+  void tearDown() {
+    if (batchLoader != null)
+      batchLoader.close();
+  }
+
+  private static Employee employee(long id) {
+    return Employee.builder().id(id).firstName("John" + id).lastName("Doe")
+        .email("johndoe" + id + "@email.com").build();
+  }
+
+  @Test
+  void givenLookupsWithinWindow_whenLoad_thenOneQueryForAllIds() throws Exception {
+    batchLoader = new EmployeeBatchLoader(employeeRepository, Duration.ofMillis(200), 100,
+        Duration.ofSeconds(5), 1);
+    given(employeeRepository.findAllById(Set.of(1L, 2L, 3L)))
+        .willReturn(List.of(employee(1), employee(3)));
+
+    CompletableFuture<Optional<Employee>> first = batchLoader.load(1);
+    CompletableFuture<Optional<Employee>> second = batchLoader.load(2);
+    CompletableFuture<Optional<Employee>> third = batchLoader.load(3);
+
+    assertThat(first.get(5, TimeUnit.SECONDS)).get().extracting(Employee::getId).isEqualTo(1L);
+    assertThat(second.get(5, TimeUnit.SECONDS)).isEmpty();
+    assertThat(third.get(5, TimeUnit.SECONDS)).get().extracting(Employee::getId).isEqualTo(3L);
+    assertThat(batchLoader.batches()).isEqualTo(1);
+  }
+
+  @Test
+  void givenFullBatch_whenLoad_thenItIsSentWithoutWaitingForTheWindow() {
+    batchLoader = new EmployeeBatchLoader(employeeRepository, Duration.ofHours(1), 2,
+        Duration.ofSeconds(5), 1);
+    given(employeeRepository.findAllById(Set.of(1L, 2L)))
+        .willReturn(List.of(employee(1), employee(2)));
+
+    CompletableFuture<Optional<Employee>> first = batchLoader.load(1);
+    CompletableFuture<Optional<Employee>> second = batchLoader.load(2);
+
+    // the thread which filled the batch loaded it
+    assertThat(first).isCompletedWithValueMatching(Optional::isPresent);
+    assertThat(second).isCompletedWithValueMatching(Optional::isPresent);
+  }
+
+  @Test
+  void givenManyLookups_whenGetAll_thenOneQueryPerMaxBatchSize() {
+    batchLoader = new EmployeeBatchLoader(employeeRepository, Duration.ofMillis(50), 10,
+        Duration.ofSeconds(5), 1);
+    given(employeeRepository.findAllById(any())).willAnswer(invocation -> {
+      List<Employee> employees = new ArrayList<>();
+      for (Long id : invocation.<Iterable<Long>>getArgument(0))
+        employees.add(employee(id));
+      return employees;
+    });
+    List<Long> ids = new ArrayList<>();
+    for (long id = 1; id <= 25; id++)
+      ids.add(id);
+
+    Map<Long, Employee> employees = batchLoader.getAll(ids);
+
+    assertThat(employees).hasSize(25);
+    verify(employeeRepository, times(3)).findAllById(any());
+  }
+
+  @Test
+  void givenSameIdTwice_whenLoad_thenEachCallerGetsItsOwnInstance() throws Exception {
+    batchLoader = new EmployeeBatchLoader(employeeRepository, Duration.ofHours(1), 2,
+        Duration.ofSeconds(5), 1);
+    given(employeeRepository.findAllById(Set.of(1L))).willReturn(List.of(employee(1)));
+
+    CompletableFuture<Optional<Employee>> first = batchLoader.load(1);
+    CompletableFuture<Optional<Employee>> second = batchLoader.load(1);
+
+    assertThat(first.get().get()).isNotSameAs(second.get().get()).usingRecursiveComparison()
+        .isEqualTo(second.get().get());
+  }
+
+  @Test
+  void givenFailingQuery_whenLoad_thenAllCallersOfTheBatchGetTheException() {
+    batchLoader = new EmployeeBatchLoader(employeeRepository, Duration.ofHours(1), 2,
+        Duration.ofSeconds(5), 1);
+    given(employeeRepository.findAllById(any()))
+        .willThrow(new DataAccessResourceFailureException("database is down"));
+
+    CompletableFuture<Optional<Employee>> first = batchLoader.load(1);
+    CompletableFuture<Optional<Employee>> second = batchLoader.load(2);
+
+    assertThrows(ExecutionException.class, first::get);
+    assertThrows(ExecutionException.class, second::get);
+  }
+}
@@ -0,0 +1,80 @@
+package com.test.springboottesting.employee;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+/**
+ * Compares heap/off-heap footprint and GC cost of the {@link OnHeapEmployeeCache} and the
+ * {@link OffHeapEmployeeStore} with 5M employees. The on-heap cache needs a big heap, run it with
+ *
+ * mvn test -Dtest=EmployeeCacheFootprintBenchmarkTest -Dbenchmark=true -DargLine="-Xmx4g
+ * -XX:MaxDirectMemorySize=1g"
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class EmployeeCacheFootprintBenchmarkTest {
+
+  private static final int ENTRIES = 5_000_000;
+
+  @Test
+  void compareOnHeapAndOffHeap() {
+    System.out.printf("%-10s %10s %10s %12s %14s %14s%n", "cache", "heap [MB]", "direct [MB]",
+        "full gc [ms]", "young gcs", "young gc [ms]");
+    run("on-heap", () -> new OnHeapEmployeeCache(ENTRIES));
+    run("off-heap", () -> new OffHeapEmployeeStore(1024L * 1024 * 1024));
+  }
+
+  private void run(String name, Supplier<EmployeeCache> cacheSupplier) {
+    fullGc();
+    long heapBefore = usedHeap();
+    long directBefore = usedDirect();
+
+    EmployeeCache cache = cacheSupplier.get();
+    for (long id = 1; id <= ENTRIES; id++)
+      cache.put(Employee.builder().id(id).firstName("John" + id).lastName("Doe" + id)
+          .email("johndoe" + id + "@email.com").build());
+
+    long fullGcMillis = fullGc();
+    long heap = usedHeap() - heapBefore;
+    long direct = usedDirect() - directBefore;
+
+    // a request like workload: lookups which produce short living garbage
+    long[] gcBefore = gcCountAndTime();
+    long checksum = 0;
+    for (int i = 0; i < 20_000_000; i++)
+      checksum += cache.get(1 + (i * 7919L) % ENTRIES).map(e -> e.getEmail().length()).orElse(0);
+    long[] gcAfter = gcCountAndTime();
+
+    System.out.printf("%-10s %10d %10d %12d %14d %14d (checksum %d)%n", name, heap >> 20,
+        direct >> 20, fullGcMillis, gcAfter[0] - gcBefore[0], gcAfter[1] - gcBefore[1], checksum);
+  }
+
+  private static long fullGc() {
+    long start = System.nanoTime();
+    System.gc();
+    return (System.nanoTime() - start) / 1_000_000;
+  }
+
+  private static long usedHeap() {
+    return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+  }
+
+  private static long usedDirect() {
+    return ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class).stream()
+        .filter(pool -> pool.getName().equals("direct")).mapToLong(BufferPoolMXBean::getMemoryUsed)
+        .sum();
+  }
+
+  private static long[] gcCountAndTime() {
+    long count = 0;
+    long time = 0;
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      count += gc.getCollectionCount();
+      time += gc.getCollectionTime();
+    }
+    return new long[] {count, time};
+  }
+}
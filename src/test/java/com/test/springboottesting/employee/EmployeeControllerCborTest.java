@@ -0,0 +1,123 @@
+package com.test.springboottesting.employee;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.http.ProblemDetail;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.test.springboottesting.config.WebConfig;
+import com.test.springboottesting.exception.DuplicateEmailException;
+
+/**
+ * Round trip tests for the binary CBOR format. The requests and responses are (de)serialized with
+ * a plain {@link CBORMapper}, so we can be sure that a client without spring can talk to us.
+ */
+@WebMvcTest(EmployeeController.class)
+@Import(WebConfig.class)
+class EmployeeControllerCborTest {
+
+  private static final MediaType APPLICATION_CBOR = MediaType.valueOf("application/cbor");
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @MockBean
+  private EmployeeService employeeService;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  private CBORMapper cborMapper = new CBORMapper();
+
+  private Employee employee;
+
+  @BeforeEach
+  void setup() {
+    employee =
+        Employee.builder().id(1).firstName("John").lastName("Doe").email("johndoe@email.com").build();
+  }
+
+  @Test
+  void givenCborBody_whenCreateEmployee_thenReturnCborEmployee() throws Exception {
+    given(employeeService.saveEmployee(any(Employee.class)))
+        .willAnswer(invocation -> invocation.getArgument(0));
+
+    MvcResult result = mockMvc
+        .perform(post("/api/employees").contentType(APPLICATION_CBOR).accept(APPLICATION_CBOR)
+            .content(cborMapper.writeValueAsBytes(employee)))
+        .andExpect(status().isCreated()).andExpect(content().contentType(APPLICATION_CBOR))
+        .andReturn();
+
+    Employee savedEmployee =
+        cborMapper.readValue(result.getResponse().getContentAsByteArray(), Employee.class);
+    assertThat(savedEmployee).usingRecursiveComparison().isEqualTo(employee);
+  }
+
+  @Test
+  void givenAcceptCbor_whenGetEmployeeById_thenReturnCborEmployee() throws Exception {
+    given(employeeService.getEmployeeById(employee.getId())).willReturn(Optional.of(employee));
+
+    MvcResult result = mockMvc.perform(get("/api/employees/1").accept(APPLICATION_CBOR))
+        .andExpect(status().isOk()).andExpect(content().contentType(APPLICATION_CBOR))
+        .andReturn();
+
+    Employee returnedEmployee =
+        cborMapper.readValue(result.getResponse().getContentAsByteArray(), Employee.class);
+    assertThat(returnedEmployee).usingRecursiveComparison().isEqualTo(employee);
+  }
+
+  @Test
+  void givenEmailAlreadyExist_whenCreateEmployeeWithCbor_thenReturnCborProblemDetail()
+      throws Exception {
+    given(employeeService.saveEmployee(any(Employee.class)))
+        .willThrow(new DuplicateEmailException(employee.getEmail()));
+
+    MvcResult result = mockMvc
+        .perform(post("/api/employees").contentType(APPLICATION_CBOR).accept(APPLICATION_CBOR)
+            .content(cborMapper.writeValueAsBytes(employee)))
+        .andExpect(status().isBadRequest()).andExpect(content().contentType(APPLICATION_CBOR))
+        .andReturn();
+
+    ProblemDetail problemDetail =
+        cborMapper.readValue(result.getResponse().getContentAsByteArray(), ProblemDetail.class);
+    assertThat(problemDetail.getStatus()).isEqualTo(400);
+    assertThat(problemDetail.getDetail())
+        .isEqualTo("Email \"" + employee.getEmail() + "\" already exists");
+  }
+
+  @Test
+  void givenListOfEmployees_whenGetAllEmployeesAsCbor_thenPayloadIsSmallerThanJson()
+      throws Exception {
+    List<Employee> listOfEmployees = new ArrayList<>();
+    for (int i = 0; i < 1000; i++)
+      listOfEmployees.add(Employee.builder().id(i).firstName("John" + i).lastName("Doe" + i)
+          .email("johndoe" + i + "@email.com").build());
+    given(employeeService.getAllEmployees()).willReturn(listOfEmployees);
+
+    byte[] cbor = mockMvc.perform(get("/api/employees").accept(APPLICATION_CBOR))
+        .andExpect(status().isOk()).andReturn().getResponse().getContentAsByteArray();
+    byte[] json = mockMvc.perform(get("/api/employees").accept(MediaType.APPLICATION_JSON))
+        .andExpect(status().isOk()).andReturn().getResponse().getContentAsByteArray();
+
+    assertThat(cborMapper.readValue(cbor, Employee[].class)).hasSize(listOfEmployees.size());
+    assertThat(objectMapper.readValue(json, Employee[].class)).hasSize(listOfEmployees.size());
+    assertThat(cbor.length).isLessThan(json.length);
+  }
+}
@@ -3,8 +3,14 @@ package com.test.springboottesting.employee;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,8 +19,10 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.ResultActions;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
  * This test runs the same integration test as {@link EmployeeControllerPostgresIT}, but with an in
@@ -36,11 +44,24 @@ class EmployeeControllerH2IT {
   @Autowired
   private EmployeeControllerRequests requests;
 
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Autowired
+  private EmployeeStatsSummary statsSummary;
+
+  @Autowired
+  private EmployeeExportSnapshot exportSnapshot;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
   private Employee employee;
 
   @BeforeEach
   void setup() {
-    employeeRepository.deleteAll();
+    // not employeeRepository.deleteAll(), the repository doesn't see the terminated employees
+    jdbcTemplate.update("delete from employees");
     employee =
         Employee.builder().firstName("John").lastName("Doe").email("johndoe@email.com").build();
   }
@@ -81,6 +102,35 @@ class EmployeeControllerH2IT {
   }
 
 
+  @Test
+  void givenRetryWithSameIdempotencyKey_whenCreateEmployee_thenReturnFirstEmployee()
+      throws Exception {
+    String key = UUID.randomUUID().toString(); // the stored responses outlive the test
+    Employee createdEmployee = objectMapper.readValue(requests.postEmployee(employee, key)
+        .andReturn().getResponse().getContentAsString(), Employee.class);
+
+    ResultActions response = requests.postEmployee(employee, key);
+
+    EmployeeControllerAssertions.assertThat(response).hasStatus(HttpStatus.CREATED)
+        .hasEmployeeInBody(createdEmployee);
+    assertThat(employeeRepository.count()).isEqualTo(1);
+  }
+
+  @Test
+  void givenIdempotencyKeyOfDifferentRequest_whenCreateEmployee_then422() throws Exception {
+    String key = UUID.randomUUID().toString();
+    requests.postEmployee(employee, key);
+    employee.setEmail("janedoe@email.com");
+
+    ResultActions response = requests.postEmployee(employee, key);
+
+    EmployeeControllerAssertions.assertThat(response).hasStatus(HttpStatus.UNPROCESSABLE_ENTITY)
+        .hasMediaType(MediaType.APPLICATION_PROBLEM_JSON)
+        .hasProblemJsonDetail(
+            "Idempotency-Key \"" + key + "\" was already used for a different request");
+    assertThat(employeeRepository.count()).isEqualTo(1);
+  }
+
   @Test
   void givenListOfEmployees_whenGetAllEmployees_thenReturnEmployeesList() throws Exception {
     List<Employee> listOfEmployees = new ArrayList<>();
@@ -95,6 +145,24 @@ class EmployeeControllerH2IT {
         .hasSize(listOfEmployees.size());
   }
 
+  @Test
+  void givenCreatedEmployees_whenGetEmployeesExport_thenReturnGzippedEmployeesList()
+      throws Exception {
+    requests.postEmployee(employee);
+    requests.postEmployee(
+        Employee.builder().firstName("Jane").lastName("Roe").email("janeroe@email.com").build());
+    exportSnapshot.refresh(); // a request only starts the refresh, see EmployeeExportSnapshot
+
+    ResultActions response = requests.getEmployeesExport();
+
+    EmployeeControllerAssertions.assertThat(response).hasStatus(HttpStatus.OK)
+        .hasMediaType(MediaType.APPLICATION_JSON);
+    byte[] body = response.andReturn().getResponse().getContentAsByteArray();
+    try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+      assertThat(objectMapper.readValue(in, Employee[].class)).hasSize(2);
+    }
+  }
+
   @Test
   void givenExistingEmployee_whenGetEmployeeById_thenReturnEmployee() throws Exception {
     Employee savedEmployee = employeeRepository.save(employee);
@@ -124,6 +192,50 @@ class EmployeeControllerH2IT {
         .hasEmployeeInBody(updatedEmployee);
   }
 
+  @Test
+  void givenMergePatch_whenPatchEmployee_thenOnlyPatchedFieldsChange() throws Exception {
+    Employee savedEmployee = employeeRepository.save(employee);
+
+    ResultActions response =
+        requests.patchEmployee(savedEmployee.getId(), Map.of("email", "John.Doe@Email.com"));
+
+    savedEmployee.setEmail("john.doe@email.com");
+    EmployeeControllerAssertions.assertThat(response).hasStatus(HttpStatus.OK)
+        .hasEmployeeInBody(savedEmployee);
+    assertThat(employeeRepository.findById(savedEmployee.getId()).get().getEmail())
+        .isEqualTo("john.doe@email.com");
+  }
+
+  /**
+   * the stats are updated with every change, they must always match a count of the whole table
+   */
+  @Test
+  void givenChangesThroughTheApi_whenGetEmployeeStats_thenSameAsFullRecompute() throws Exception {
+    statsSummary.recompute(); // the setup deleted the employees behind the back of the service
+    Employee jane =
+        Employee.builder().firstName("Jane").lastName("Roe").email("janeroe@example.com").build();
+    requests.postEmployee(employee);
+    requests.postEmployee(jane);
+    requests.postEmployee(
+        Employee.builder().firstName("Max").lastName("Mustermann").email("max@email.de").build());
+    long janeId = employeeRepository.findByEmail("janeroe@example.com").get().getId();
+    long maxId = employeeRepository.findByEmail("max@email.de").get().getId();
+    jane.setId(janeId);
+    jane.setLastName("doe");
+    requests.putEmployee(jane);
+    requests.patchEmployee(janeId, Map.of("email", "janedoe@email.com"));
+    mockMvc.perform(delete("/api/employees/{id}", maxId));
+
+    ResultActions response = mockMvc.perform(get("/api/employees/stats"));
+
+    EmployeeControllerAssertions.assertThat(response).hasStatus(HttpStatus.OK);
+    EmployeeStats stats = objectMapper
+        .readValue(response.andReturn().getResponse().getContentAsString(), EmployeeStats.class);
+    assertThat(stats).isEqualTo(statsSummary.recompute());
+    assertThat(stats.byEmailDomain()).containsExactly(Map.entry("email.com", 2L));
+    assertThat(stats.byLastNameInitial()).containsExactly(Map.entry("D", 2L));
+  }
+
   @Test
   void givenEmployeeId_whenDeleteEmployee_thenReturn200() throws Exception {
     Employee savedEmployee = employeeRepository.save(employee);
@@ -133,4 +245,21 @@ class EmployeeControllerH2IT {
     EmployeeControllerAssertions.assertThat(response).hasStatus(HttpStatus.OK);
     assertThat(employeeRepository.count()).isZero();
   }
+
+  @Test
+  void givenTerminatedEmployee_whenGetEmployeeById_thenNotFoundButEmailStillTaken()
+      throws Exception {
+    Employee savedEmployee = employeeRepository.save(employee);
+
+    ResultActions termination =
+        mockMvc.perform(post("/api/employees/{id}/termination", savedEmployee.getId()));
+
+    EmployeeControllerAssertions.assertThat(termination).hasStatus(HttpStatus.NO_CONTENT);
+    EmployeeControllerAssertions.assertThat(requests.getEmployee(savedEmployee.getId()))
+        .hasStatus(HttpStatus.NOT_FOUND);
+    EmployeeControllerAssertions.assertThat(requests.postEmployee(employee))
+        .hasStatus(HttpStatus.BAD_REQUEST);
+    assertThat(statsSummary.get().total()).isZero();
+    jdbcTemplate.update("delete from employees"); // other test classes use the same database
+  }
 }
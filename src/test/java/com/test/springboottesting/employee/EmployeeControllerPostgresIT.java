@@ -48,6 +48,9 @@ class EmployeeControllerPostgresIT extends AbstractPostgresIT {
   @Autowired
   private ObjectMapper objectMapper;
 
+  @Autowired
+  private EmployeeStatsSummary statsSummary;
+
   private Employee employee;
 
   @BeforeEach
@@ -153,4 +156,23 @@ class EmployeeControllerPostgresIT extends AbstractPostgresIT {
     response.andExpect(status().isOk()).andDo(print());
   }
 
+  @Test
+  void givenChangesThroughTheApi_whenGetEmployeeStats_thenSameAsFullRecompute() throws Exception {
+    statsSummary.recompute(); // the setup deleted the employees behind the back of the service
+    Employee jane =
+        Employee.builder().firstName("Jane").lastName("Roe").email("janeroe@example.com").build();
+    for (Employee newEmployee : List.of(employee, jane))
+      mockMvc.perform(post("/api/employees").contentType(MediaType.APPLICATION_JSON)
+          .content(objectMapper.writeValueAsString(newEmployee)));
+    jane.setId(employeeRepository.findByEmail(jane.getEmail()).get().getId());
+    jane.setLastName("doe");
+    mockMvc.perform(put("/api/employees").contentType(MediaType.APPLICATION_JSON)
+        .content(objectMapper.writeValueAsString(jane)));
+
+    ResultActions response = mockMvc.perform(get("/api/employees/stats"));
+
+    response.andDo(print()).andExpect(status().isOk())
+        .andExpect(content().json(objectMapper.writeValueAsString(statsSummary.recompute())))
+        .andExpect(jsonPath("$.byLastNameInitial.D", is(2)));
+  }
 }
@@ -1,10 +1,13 @@
 package com.test.springboottesting.employee;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import java.util.Map;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.TestComponent;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.ResultActions;
@@ -27,11 +30,22 @@ public class EmployeeControllerRequests {
         .content(objectMapper.writeValueAsString(employee)));
   }
 
+  ResultActions postEmployee(Employee employee, String idempotencyKey) throws Exception {
+    return mockMvc.perform(post("/api/employees").contentType(MediaType.APPLICATION_JSON)
+        .header("Idempotency-Key", idempotencyKey)
+        .content(objectMapper.writeValueAsString(employee)));
+  }
+
   ResultActions putEmployee(Employee employee) throws Exception {
     return mockMvc.perform(put("/api/employees").contentType(MediaType.APPLICATION_JSON)
         .content(objectMapper.writeValueAsString(employee)));
   }
 
+  ResultActions patchEmployee(long id, Map<String, Object> patch) throws Exception {
+    return mockMvc.perform(patch("/api/employees/{id}", id)
+        .contentType("application/merge-patch+json").content(objectMapper.writeValueAsString(patch)));
+  }
+
   ResultActions getEmployees() throws Exception {
     return mockMvc.perform(get("/api/employees"));
   }
@@ -39,4 +53,9 @@ public class EmployeeControllerRequests {
   ResultActions getEmployee(long id) throws Exception {
     return mockMvc.perform(get("/api/employees/{id}", id));
   }
+
+  ResultActions getEmployeesExport() throws Exception {
+    return mockMvc
+        .perform(get("/api/employees/export").header(HttpHeaders.ACCEPT_ENCODING, "gzip"));
+  }
 }
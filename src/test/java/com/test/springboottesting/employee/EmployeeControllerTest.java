@@ -2,10 +2,15 @@ package com.test.springboottesting.employee;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.willDoNothing;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
@@ -13,7 +18,9 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -26,6 +33,7 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.ResultActions;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.test.springboottesting.exception.DuplicateEmailException;
+import com.test.springboottesting.exception.IdempotencyKeyReusedException;
 
 /**
  * This is a unit test where with {@link MockMvc} requests are send to our
@@ -33,7 +41,7 @@ import com.test.springboottesting.exception.DuplicateEmailException;
  * duplication with {@link EmployeeControllerPostgresIT}. In {@link EmployeeControllerH2IT} an
  * approach which is more readable and with less code duplication is presented.
  */
-@WebMvcTest
+@WebMvcTest(EmployeeController.class)
 class EmployeeControllerTest {
 
   @Autowired
@@ -99,6 +107,45 @@ class EmployeeControllerTest {
             "$.detail", is("Invalid Field(s): {email=must be a well-formed email address}")));
   }
 
+  @Test
+  void givenIdempotencyKey_whenCreateEmployee_thenKeyIsPassedToService() throws Exception {
+    given(employeeService.saveEmployee(any(Employee.class), eq("key-1")))
+        .willAnswer(invocation -> invocation.getArgument(0));
+
+    ResultActions response = mockMvc.perform(post("/api/employees")
+        .contentType(MediaType.APPLICATION_JSON).header("Idempotency-Key", "key-1")
+        .content(objectMapper.writeValueAsString(employee)));
+
+    response.andDo(print()).andExpect(status().isCreated())
+        .andExpect(jsonPath("$.email", is(employee.getEmail())));
+    verify(employeeService, never()).saveEmployee(any(Employee.class));
+  }
+
+  @Test
+  void givenTooLongIdempotencyKey_whenCreateEmployee_then400() throws Exception {
+    ResultActions response = mockMvc.perform(post("/api/employees")
+        .contentType(MediaType.APPLICATION_JSON)
+        .header("Idempotency-Key", "k".repeat(EmployeeController.MAX_IDEMPOTENCY_KEY_LENGTH + 1))
+        .content(objectMapper.writeValueAsString(employee)));
+
+    response.andDo(print()).andExpect(status().isBadRequest());
+    verify(employeeService, never()).saveEmployee(any(Employee.class), any());
+  }
+
+  @Test
+  void givenIdempotencyKeyOfDifferentRequest_whenCreateEmployee_then422() throws Exception {
+    given(employeeService.saveEmployee(any(Employee.class), eq("key-1")))
+        .willThrow(new IdempotencyKeyReusedException("key-1"));
+
+    ResultActions response = mockMvc.perform(post("/api/employees")
+        .contentType(MediaType.APPLICATION_JSON).header("Idempotency-Key", "key-1")
+        .content(objectMapper.writeValueAsString(employee)));
+
+    response.andDo(print()).andExpect(status().isUnprocessableEntity())
+        .andExpect(content().contentType(MediaType.APPLICATION_PROBLEM_JSON))
+        .andExpect(jsonPath("$.status", is(HttpStatus.UNPROCESSABLE_ENTITY.value())));
+  }
+
   @Test
   void givenListOfEmployees_whenGetAllEmployees_thenReturnEmployeesList() throws Exception {
     List<Employee> listOfEmployees = new ArrayList<>();
@@ -113,6 +160,27 @@ class EmployeeControllerTest {
         .andExpect(jsonPath("$.size()", is(listOfEmployees.size())));
   }
 
+  @Test
+  void givenIds_whenGetEmployeesByIds_thenReturnFoundEmployees() throws Exception {
+    given(employeeService.getEmployeesByIds(List.of(1L, 2L))).willReturn(List.of(employee));
+
+    ResultActions response = mockMvc.perform(get("/api/employees").param("ids", "1,2"));
+
+    response.andDo(print()).andExpect(status().isOk())
+        .andExpect(jsonPath("$.size()", is(1)))
+        .andExpect(jsonPath("$[0].firstName", is(employee.getFirstName())));
+  }
+
+  @Test
+  void givenTooManyIds_whenGetEmployeesByIds_then400() throws Exception {
+    String ids = String.join(",",
+        Collections.nCopies(EmployeeController.MAX_IDS + 1, "1"));
+
+    ResultActions response = mockMvc.perform(get("/api/employees").param("ids", ids));
+
+    response.andDo(print()).andExpect(status().isBadRequest());
+  }
+
   @Test
   void givenExistingEmployee_whenGetEmployeeById_thenReturnEmployee() throws Exception {
     given(employeeService.getEmployeeById(employee.getId())).willReturn(Optional.of(employee));
@@ -146,6 +214,39 @@ class EmployeeControllerTest {
         .andExpect(jsonPath("$.email", is(employee.getEmail())));
   }
 
+  @Test
+  void givenMergePatch_whenPatchEmployee_thenOnlyPatchedFieldsArePassed() throws Exception {
+    given(employeeService.patchEmployee(1L,
+        new EmployeeMergePatch(Map.of("email", "john@email.com")))).willReturn(employee);
+
+    ResultActions response = mockMvc.perform(patch("/api/employees/{id}", 1L)
+        .contentType("application/merge-patch+json").content("{\"email\":\"john@email.com\"}"));
+
+    response.andDo(print()).andExpect(status().isOk())
+        .andExpect(jsonPath("$.firstName", is(employee.getFirstName())));
+  }
+
+  @Test
+  void givenInvalidMergePatch_whenPatchEmployee_thenReturn400() throws Exception {
+    ResultActions response = mockMvc.perform(patch("/api/employees/{id}", 1L)
+        .contentType("application/merge-patch+json")
+        .content("{\"id\":2,\"firstName\":null,\"email\":\"invalid@comma,com\",\"age\":42}"));
+
+    response.andDo(print()).andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.detail", is("Invalid Field(s): {age=is unknown, "
+            + "email=must be a well-formed email address, firstName=must not be blank, "
+            + "id=must be the id of the path}")));
+    verify(employeeService, never()).patchEmployee(anyLong(), any());
+  }
+
+  @Test
+  void givenJsonBody_whenPatchEmployee_thenReturn415() throws Exception {
+    ResultActions response = mockMvc.perform(patch("/api/employees/{id}", 1L)
+        .contentType(MediaType.APPLICATION_JSON).content("{\"email\":\"john@email.com\"}"));
+
+    response.andDo(print()).andExpect(status().isUnsupportedMediaType());
+  }
+
   @Test
   void givenEmployeeId_whenDeleteEmployee_thenReturn200() throws Exception {
     long employeeId = 1L;
@@ -156,4 +257,14 @@ class EmployeeControllerTest {
     response.andExpect(status().isOk()).andDo(print());
   }
 
+  @Test
+  void givenEmployeeId_whenTerminateEmployee_thenReturn204() throws Exception {
+    willDoNothing().given(employeeService).terminateEmployee(1L);
+
+    ResultActions response = mockMvc.perform(post("/api/employees/{id}/termination", 1L));
+
+    response.andExpect(status().isNoContent()).andDo(print());
+    verify(employeeService).terminateEmployee(1L);
+  }
+
 }
@@ -0,0 +1,64 @@
+package com.test.springboottesting.employee;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.head;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+@WebMvcTest(controllers = {EmployeeCountController.class, EmployeeController.class})
+class EmployeeCountControllerTest {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @MockBean
+  private EmployeeCounter counter;
+
+  @MockBean
+  private EmployeeService employeeService;
+
+  @Test
+  void givenEmployees_whenGetCount_thenExactCount() throws Exception {
+    given(counter.count(false)).willReturn(new EmployeeCount(42, false));
+
+    ResultActions response = mockMvc.perform(get("/api/employees/count"));
+
+    response.andDo(print()).andExpect(status().isOk()).andExpect(jsonPath("$.count", is(42)))
+        .andExpect(jsonPath("$.approximate", is(false)));
+  }
+
+  @Test
+  void givenEmployees_whenGetApproximateCount_thenApproximateCount() throws Exception {
+    given(counter.count(true)).willReturn(new EmployeeCount(1_000_000, true));
+
+    ResultActions response = mockMvc.perform(get("/api/employees/count?approximate=true"));
+
+    response.andDo(print()).andExpect(status().isOk())
+        .andExpect(jsonPath("$.count", is(1_000_000))).andExpect(jsonPath("$.approximate", is(true)));
+  }
+
+  @Test
+  void givenEmployees_whenHeadEmployees_thenTotalCountHeaderWithoutLoadingEmployees()
+      throws Exception {
+    given(counter.count(false)).willReturn(new EmployeeCount(42, false));
+
+    ResultActions response = mockMvc.perform(head("/api/employees"));
+
+    response.andDo(print()).andExpect(status().isOk())
+        .andExpect(header().string(EmployeeCountController.TOTAL_COUNT, "42"))
+        .andExpect(content().string(""));
+    verifyNoInteractions(employeeService);
+  }
+}
@@ -0,0 +1,101 @@
+package com.test.springboottesting.employee;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+@ExtendWith(MockitoExtension.class)
+class EmployeeCounterTest {
+
+  @Mock
+  private EmployeeRepository employeeRepository;
+
+  @Mock
+  private JdbcTemplate jdbcTemplate;
+
+  private EmployeeChangeCounter changeCounter = new EmployeeChangeCounter();
+  private AtomicLong nanos = new AtomicLong();
+  private EmployeeCounter counter;
+
+  @BeforeEach
+  void setup() {
+    counter = new EmployeeCounter(employeeRepository, jdbcTemplate, changeCounter,
+        Duration.ofSeconds(5), nanos::get);
+  }
+
+  @Test
+  void givenCachedCount_whenCountWithinTtl_thenTableIsCountedOnce() {
+    given(employeeRepository.count()).willReturn(42L);
+
+    counter.count(false);
+    nanos.addAndGet(Duration.ofSeconds(4).toNanos());
+    EmployeeCount count = counter.count(false);
+
+    assertThat(count).isEqualTo(new EmployeeCount(42, false));
+    verify(employeeRepository, times(1)).count();
+  }
+
+  @Test
+  void givenCachedCount_whenTtlIsOver_thenTableIsCountedAgain() {
+    given(employeeRepository.count()).willReturn(42L, 43L);
+
+    counter.count(false);
+    nanos.addAndGet(Duration.ofSeconds(5).toNanos());
+
+    assertThat(counter.count(false).count()).isEqualTo(43);
+  }
+
+  @Test
+  void givenCachedCount_whenEmployeeChanged_thenTableIsCountedAgain() {
+    given(employeeRepository.count()).willReturn(42L, 43L);
+
+    counter.count(false);
+    changeCounter.onEmployeeChanged(new EmployeeChangedEvent(43));
+
+    assertThat(counter.count(false).count()).isEqualTo(43);
+  }
+
+  @Test
+  void givenPostgres_whenCountApproximate_thenEstimateOfPgClassWithoutTerminated() {
+    given(jdbcTemplate.execute(any(ConnectionCallback.class))).willReturn(true);
+    given(employeeRepository.estimateRowsAndTerminated())
+        .willReturn(List.<Object[]>of(new Object[] {1_000_000f, 20_000f}));
+
+    EmployeeCount count = counter.count(true);
+
+    assertThat(count).isEqualTo(new EmployeeCount(980_000, true));
+  }
+
+  @Test
+  void givenShards_whenCountApproximate_thenEstimatesOfAllShardsSummedUp() {
+    given(jdbcTemplate.execute(any(ConnectionCallback.class))).willReturn(true);
+    given(employeeRepository.estimateRowsAndTerminated()).willReturn(List.<Object[]>of(
+        new Object[] {1000f, 100f}, new Object[] {2000f, 0f}, new Object[] {3000f, 200f}));
+
+    assertThat(counter.count(true)).isEqualTo(new EmployeeCount(5700, true));
+  }
+
+  @Test
+  void givenNeverAnalyzedPostgresTable_whenCountApproximate_thenExactCount() {
+    given(jdbcTemplate.execute(any(ConnectionCallback.class))).willReturn(true);
+    given(employeeRepository.estimateRowsAndTerminated())
+        .willReturn(List.<Object[]>of(new Object[] {-1f, -1f}));
+    given(employeeRepository.count()).willReturn(42L);
+
+    EmployeeCount count = counter.count(true);
+
+    assertThat(count).isEqualTo(new EmployeeCount(42, false));
+  }
+}
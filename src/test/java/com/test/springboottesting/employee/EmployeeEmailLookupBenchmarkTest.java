@@ -0,0 +1,73 @@
+package com.test.springboottesting.employee;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntPredicate;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Case-insensitive email lookups in a large table: the old workaround which wraps the column in
+ * lower() and can't use any index vs. the exact match on the normalized email and its unique index
+ * (existsByEmail). The plans of both queries are printed, on postgres the second one is an index
+ * only scan (run it against postgres with the spring.datasource.* properties). Run it with
+ *
+ * mvn test -Dtest=EmployeeEmailLookupBenchmarkTest -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@SpringBootTest
+class EmployeeEmailLookupBenchmarkTest {
+
+  private static final int EMPLOYEES = 200_000;
+  private static final int LOOKUPS = 500;
+  private static final int ROUNDS = 3;
+  private static final String LOWER_EMAIL =
+      "select id from employees where lower(email) = lower(?) fetch first 1 rows only";
+
+  @Autowired
+  private EmployeeRepository employeeRepository;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Test
+  void compareLowerAndNormalizedEmailLookups() {
+    employeeRepository.deleteAll();
+    List<Object[]> employees = new ArrayList<>(EMPLOYEES);
+    for (int x = 1; x <= EMPLOYEES; x++)
+      employees.add(new Object[] {"John" + x, "Doe" + x, "johndoe" + x + "@email.com"});
+    jdbcTemplate.batchUpdate(
+        "insert into employees (first_name, last_name, email) values (?, ?, ?)", employees);
+    jdbcTemplate.execute("analyze");
+    System.out.println(plan(LOWER_EMAIL));
+    System.out.println(plan("select id from employees where email = ? fetch first 1 rows only"));
+
+    System.out.printf("%-10s %8s %13s %15s%n", "lookup", "lookups", "duration [ms]",
+        "per lookup [us]");
+    for (int round = 0; round < ROUNDS; round++) {
+      run("lower()", x -> !jdbcTemplate.queryForList(LOWER_EMAIL, Long.class,
+          "JohnDoe" + x + "@Email.com").isEmpty());
+      run("normalized", x -> employeeRepository
+          .existsByEmail(Employee.normalizeEmail("JohnDoe" + x + "@Email.com")));
+    }
+  }
+
+  private String plan(String query) {
+    return jdbcTemplate.queryForList("explain " + query.replace("?", "'johndoe1@email.com'"))
+        .toString();
+  }
+
+  private static void run(String name, IntPredicate exists) {
+    long start = System.nanoTime();
+    for (int i = 0; i < LOOKUPS; i++)
+      if (!exists.test(1 + ThreadLocalRandom.current().nextInt(EMPLOYEES)))
+        throw new IllegalStateException("employee not found");
+    long nanos = System.nanoTime() - start;
+    System.out.printf("%-10s %8d %13d %15d%n", name, LOOKUPS, nanos / 1_000_000,
+        nanos / 1_000 / LOOKUPS);
+  }
+}
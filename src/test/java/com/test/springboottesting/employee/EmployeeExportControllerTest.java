@@ -0,0 +1,28 @@
+package com.test.springboottesting.employee;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+
+class EmployeeExportControllerTest {
+
+  @Test
+  void givenGzipOrAnyCoding_whenAcceptsGzip_thenTrue() {
+    assertThat(EmployeeExportController.acceptsGzip("gzip, deflate, br")).isTrue();
+    assertThat(EmployeeExportController.acceptsGzip("br;q=1.0, GZIP;q=0.8")).isTrue();
+    assertThat(EmployeeExportController.acceptsGzip("*")).isTrue();
+  }
+
+  @Test
+  void givenGzipWithQualityZero_whenAcceptsGzip_thenFalse() {
+    assertThat(EmployeeExportController.acceptsGzip("gzip;q=0, deflate")).isFalse();
+    assertThat(EmployeeExportController.acceptsGzip("gzip; q=0.0, *")).isFalse();
+    assertThat(EmployeeExportController.acceptsGzip("*;q=0")).isFalse();
+  }
+
+  @Test
+  void givenNoGzip_whenAcceptsGzip_thenFalse() {
+    assertThat(EmployeeExportController.acceptsGzip(null)).isFalse();
+    assertThat(EmployeeExportController.acceptsGzip("identity")).isFalse();
+    assertThat(EmployeeExportController.acceptsGzip("gzip;q=broken")).isFalse();
+  }
+}
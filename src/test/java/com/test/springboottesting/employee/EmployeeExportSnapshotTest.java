@@ -0,0 +1,152 @@
+package com.test.springboottesting.employee;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@ExtendWith(MockitoExtension.class)
+class EmployeeExportSnapshotTest {
+
+  @Mock
+  private EmployeeRepository employeeRepository;
+
+  @TempDir
+  private Path directory;
+
+  private ObjectMapper objectMapper = new ObjectMapper();
+  private EmployeeChangeCounter changeCounter = new EmployeeChangeCounter();
+  private AtomicReference<Instant> now =
+      new AtomicReference<>(Instant.parse("2024-01-01T12:00:00Z"));
+  private AtomicReference<List<Object[]>> watermark =
+      new AtomicReference<>(List.<Object[]>of(new Object[] {1L, 1L}));
+  private EmployeeExportSnapshot exportSnapshot;
+  private Employee employee;
+
+  @BeforeEach
+  void setup() {
+    Clock clock = new Clock() {
+      @Override
+      public Instant instant() {
+        return now.get();
+      }
+
+      @Override
+      public ZoneOffset getZone() {
+        return ZoneOffset.UTC;
+      }
+
+      @Override
+      public Clock withZone(ZoneId zone) {
+        return this;
+      }
+    };
+    exportSnapshot = new EmployeeExportSnapshot(employeeRepository, changeCounter, objectMapper,
+        directory, 6, Duration.ofMinutes(10), clock);
+    lenient().when(employeeRepository.countAndMaxId()).thenAnswer(invocation -> watermark.get());
+    employee = Employee.builder().id(1L).firstName("John").lastName("Doe")
+        .email("johndoe@email.com").build();
+  }
+
+  @AfterEach
+  void tearDown() {
+    exportSnapshot.close();
+  }
+
+  @Test
+  void givenEmployees_whenCurrent_thenReturnGzippedEmployeesList() throws Exception {
+    given(employeeRepository.findAll()).willReturn(List.of(employee));
+
+    Path snapshot = exportSnapshot.current();
+
+    try (InputStream in = new GZIPInputStream(Files.newInputStream(snapshot))) {
+      Employee[] employees = objectMapper.readValue(in, Employee[].class);
+      assertThat(employees).hasSize(1);
+      assertThat(employees[0]).usingRecursiveComparison().isEqualTo(employee);
+    }
+  }
+
+  @Test
+  void givenNoChanges_whenCurrent_thenSnapshotIsReused() {
+    given(employeeRepository.findAll()).willReturn(List.of(employee));
+
+    Path first = exportSnapshot.current();
+    Path second = exportSnapshot.current();
+
+    assertThat(second).isEqualTo(first);
+    verify(employeeRepository, times(1)).findAll();
+  }
+
+  @Test
+  void givenChange_whenCurrent_thenCurrentFileIsServedAndRefreshedInTheBackground() {
+    given(employeeRepository.findAll()).willReturn(List.of(employee));
+    Path first = exportSnapshot.current();
+
+    changeCounter.onEmployeeChanged(new EmployeeChangedEvent(1L));
+    Path stale = exportSnapshot.current();
+
+    assertThat(stale).isEqualTo(first);
+    verify(employeeRepository, timeout(5000).times(2)).findAll();
+  }
+
+  @Test
+  void givenInsertOfAnotherInstance_whenRefresh_thenSnapshotIsRefreshed() {
+    given(employeeRepository.findAll()).willReturn(List.of(employee));
+    Path first = exportSnapshot.current();
+
+    watermark.set(List.<Object[]>of(new Object[] {2L, 2L}));
+    Path second = exportSnapshot.refresh().file();
+
+    assertThat(second).isNotEqualTo(first);
+    verify(employeeRepository, times(2)).findAll();
+  }
+
+  @Test
+  void givenSnapshotOlderThanMaxAge_whenCurrent_thenRefreshedInTheBackground() {
+    given(employeeRepository.findAll()).willReturn(List.of(employee));
+    exportSnapshot.current();
+
+    now.set(now.get().plus(Duration.ofMinutes(11))); // an update elsewhere isn't seen otherwise
+    exportSnapshot.current();
+
+    verify(employeeRepository, timeout(5000).times(2)).findAll();
+  }
+
+  @Test
+  void givenChange_whenRefresh_thenSnapshotIsRefreshedAndOldestFileRemoved() {
+    given(employeeRepository.findAll()).willReturn(List.of(employee));
+
+    Path first = exportSnapshot.refresh().file();
+    changeCounter.onEmployeeChanged(new EmployeeChangedEvent(1L));
+    Path second = exportSnapshot.refresh().file();
+    changeCounter.onEmployeeChanged(new EmployeeChangedEvent(1L));
+    Path third = exportSnapshot.refresh().file();
+
+    assertThat(second).isNotEqualTo(first);
+    assertThat(first).doesNotExist();
+    assertThat(second).exists();
+    assertThat(third).exists();
+    verify(employeeRepository, times(3)).findAll();
+  }
+}
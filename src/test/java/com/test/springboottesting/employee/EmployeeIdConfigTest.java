@@ -0,0 +1,29 @@
+package com.test.springboottesting.employee;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+class EmployeeIdConfigTest {
+
+  @Test
+  void givenNodeProperty_whenNode_thenThePropertyWins() {
+    assertThat(EmployeeIdConfig.node("7", "employees-3", true)).isEqualTo(7);
+  }
+
+  @Test
+  void givenPodOfStatefulSet_whenNode_thenTheOrdinalIsTheNode() {
+    assertThat(EmployeeIdConfig.node("", "employees-3", true)).isEqualTo(3);
+  }
+
+  @Test
+  void givenNoNodeInProduction_whenNode_thenIllegalStateException() {
+    assertThrows(IllegalStateException.class,
+        () -> EmployeeIdConfig.node("", "employees-7d9f8b6c4-x2x7k", true));
+  }
+
+  @Test
+  void givenNoNodeOutsideProduction_whenNode_thenNodeZero() {
+    assertThat(EmployeeIdConfig.node("", "my-laptop", false)).isZero();
+  }
+}
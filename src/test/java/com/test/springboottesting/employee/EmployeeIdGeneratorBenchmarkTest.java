@@ -0,0 +1,112 @@
+package com.test.springboottesting.employee;
+
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Ids per second of the {@link SnowflakeIdGenerator} with 1 - 8 threads (a node is limited to 4096
+ * ids per millisecond by the id layout, this shows the cost of the compare-and-set), and the
+ * throughput of inserting employees with them: one save per employee, a saveAll (which hibernate
+ * sends in JDBC batches) and, for comparison, the IDENTITY column with one insert per employee that
+ * returns the generated key. Run it with
+ *
+ * mvn test -Dtest=EmployeeIdGeneratorBenchmarkTest -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class EmployeeIdGeneratorBenchmarkTest {
+
+  private static final int IDS = 10_000_000;
+  private static final int EMPLOYEES = 10_000;
+  private static final int ROUNDS = 3;
+
+  @Autowired
+  private EmployeeRepository employeeRepository;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+
+  @Test
+  void idsPerSecond() throws Exception {
+    // a node has 4096 ids per millisecond, faster than that the generator borrows the future
+    // milliseconds. We want to see the cost of an id, so we let it borrow as much as it wants
+    SnowflakeIdGenerator idGenerator = new SnowflakeIdGenerator(0,
+        SnowflakeIdGenerator.DEFAULT_EPOCH, Duration.ofDays(1));
+    System.out.printf("%-7s %12s%n", "threads", "ids/s");
+    for (int round = 0; round < ROUNDS; round++)
+      for (int threads : new int[] {1, 2, 4, 8}) {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+          long start = System.nanoTime();
+          List<Future<?>> futures = new ArrayList<>();
+          for (int thread = 0; thread < threads; thread++)
+            futures.add(executor.submit((Callable<?>) () -> {
+              for (int i = 0; i < IDS / threads; i++)
+                idGenerator.nextId();
+              return null;
+            }));
+          for (Future<?> future : futures)
+            future.get();
+          long nanos = System.nanoTime() - start;
+          System.out.printf("%-7d %12d%n", threads, IDS * 1_000_000_000L / nanos);
+        } finally {
+          executor.shutdownNow();
+        }
+      }
+  }
+
+  @Test
+  void insertThroughput() {
+    Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    System.out.printf("%-14s %12s %11s%n", "inserts", "employees/s", "statements");
+    for (int round = 0; round < ROUNDS; round++) {
+      insert("save", statistics, employees -> employees.forEach(employeeRepository::save));
+      insert("saveAll", statistics, employeeRepository::saveAll);
+      insert("identity", statistics, employees -> employees.forEach(
+          employee -> jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                "insert into employees (first_name, last_name, email) values (?, ?, ?)",
+                new String[] {"id"});
+            statement.setString(1, employee.getFirstName());
+            statement.setString(2, employee.getLastName());
+            statement.setString(3, employee.getEmail());
+            return statement;
+          }, new GeneratedKeyHolder())));
+    }
+  }
+
+  private void insert(String name, Statistics statistics,
+      Consumer<List<Employee>> inserts) {
+    jdbcTemplate.update("delete from employees");
+    List<Employee> employees = new ArrayList<>();
+    for (int i = 0; i < EMPLOYEES; i++)
+      employees.add(Employee.builder().firstName("John" + i).lastName("Doe")
+          .email("johndoe" + i + "@email.com").build());
+    statistics.clear();
+    long start = System.nanoTime();
+    inserts.accept(employees);
+    long nanos = System.nanoTime() - start;
+    long statements = name.equals("identity") ? EMPLOYEES
+        : statistics.getPrepareStatementCount();
+    System.out.printf("%-14s %12d %11d%n", name, EMPLOYEES * 1_000_000_000L / nanos, statements);
+  }
+}
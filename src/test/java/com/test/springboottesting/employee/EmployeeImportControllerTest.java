@@ -0,0 +1,63 @@
+package com.test.springboottesting.employee;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import java.io.InputStream;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import com.test.springboottesting.employee.EmployeeImportResult.RowError;
+import com.test.springboottesting.employee.EmployeeImporter.Format;
+
+@WebMvcTest(controllers = EmployeeImportController.class)
+class EmployeeImportControllerTest {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @MockBean
+  private EmployeeImporter importer;
+
+  @Test
+  void givenCsv_whenPostImport_thenResult() throws Exception {
+    given(importer.importEmployees(any(InputStream.class), eq(Format.CSV))).willReturn(
+        new EmployeeImportResult(2, 1, 1, 0, List.of(new RowError(2, "email must not be blank"))));
+
+    ResultActions response = mockMvc.perform(post("/api/employees/import")
+        .contentType("text/csv").content("John,Doe,johndoe@email.com\nJane,Doe,\n"));
+
+    response.andDo(print()).andExpect(status().isOk()).andExpect(jsonPath("$.imported", is(1)))
+        .andExpect(jsonPath("$.errors[0].line", is(2)));
+  }
+
+  @Test
+  void givenNdjson_whenPostImport_thenResult() throws Exception {
+    given(importer.importEmployees(any(InputStream.class), eq(Format.NDJSON)))
+        .willReturn(new EmployeeImportResult(1, 1, 0, 0, List.of()));
+
+    ResultActions response = mockMvc.perform(post("/api/employees/import")
+        .contentType("application/x-ndjson")
+        .content("{\"firstName\":\"John\",\"lastName\":\"Doe\",\"email\":\"johndoe@email.com\"}"));
+
+    response.andDo(print()).andExpect(status().isOk()).andExpect(jsonPath("$.imported", is(1)));
+  }
+
+  @Test
+  void givenJson_whenPostImport_then415() throws Exception {
+    ResultActions response = mockMvc.perform(post("/api/employees/import")
+        .contentType(MediaType.APPLICATION_JSON).content("[]"));
+
+    response.andDo(print()).andExpect(status().isUnsupportedMediaType());
+  }
+}
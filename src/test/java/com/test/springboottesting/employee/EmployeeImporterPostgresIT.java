@@ -0,0 +1,71 @@
+package com.test.springboottesting.employee;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import com.test.springboottesting.employee.EmployeeImportResult.RowError;
+import com.test.springboottesting.employee.EmployeeImporter.Format;
+
+/**
+ * The COPY path of the {@link EmployeeImporter}: COPY into the staging table and the merge in one
+ * statement.
+ */
+@SpringBootTest
+class EmployeeImporterPostgresIT extends AbstractPostgresIT {
+
+  @Autowired
+  private EmployeeImporter importer;
+
+  @Autowired
+  private EmployeeRepository employeeRepository;
+
+  @BeforeEach
+  void setup() {
+    employeeRepository.deleteAll();
+  }
+
+  @Test
+  void givenValidInvalidAndDuplicateRows_whenImport_thenOnlyFirstValidRowsAreSaved()
+      throws Exception {
+    employeeRepository.save(Employee.builder().firstName("Existing").lastName("Doe")
+        .email("existing@email.com").build());
+    String csv = """
+        first_name,last_name,email
+        John,Doe,johndoe@email.com
+        "Jane ""JJ""\","Doe, Jr.",janedoe@email.com
+        Max,Doe,existing@email.com
+        Johnny,Doe,johndoe@email.com
+        ,Doe,nobody@email.com
+        """;
+
+    EmployeeImportResult result = importer.importEmployees(
+        new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), Format.CSV);
+
+    assertThat(result.rows()).isEqualTo(5);
+    assertThat(result.imported()).isEqualTo(2);
+    assertThat(result.invalid()).isEqualTo(1);
+    assertThat(result.duplicates()).isEqualTo(2);
+    assertThat(result.errors()).extracting(RowError::line).containsExactly(4L, 5L, 6L);
+    // snowflake ids, so in the order of the save and the lines
+    assertThat(employeeRepository.findAll(Sort.by("id"))).extracting(Employee::getFirstName)
+        .containsExactly("Existing", "John", "Jane \"JJ\"");
+  }
+
+  @Test
+  void givenManyRows_whenImport_thenAllAreSaved() throws Exception {
+    StringBuilder csv = new StringBuilder();
+    for (int i = 0; i < 100_000; i++)
+      csv.append("John").append(i).append(",Doe,johndoe").append(i).append("@email.com\n");
+
+    EmployeeImportResult result = importer.importEmployees(
+        new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)), Format.CSV);
+
+    assertThat(result.imported()).isEqualTo(100_000);
+    assertThat(employeeRepository.count()).isEqualTo(100_000);
+  }
+}
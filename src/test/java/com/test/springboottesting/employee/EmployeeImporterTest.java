@@ -0,0 +1,134 @@
+package com.test.springboottesting.employee;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import com.test.springboottesting.employee.EmployeeImportResult.RowError;
+import com.test.springboottesting.employee.EmployeeImporter.Format;
+
+/**
+ * The importer works with plain sql on the database, so we test it against the h2 database (the
+ * batched insert path). {@link EmployeeImporterPostgresIT} runs the COPY path.
+ */
+@SpringBootTest
+class EmployeeImporterTest {
+
+  @Autowired
+  private EmployeeImporter importer;
+
+  @Autowired
+  private EmployeeRepository employeeRepository;
+
+  @Autowired
+  private EmployeeChangeCounter changeCounter;
+
+  @Autowired
+  private EmployeeIdGenerator idGenerator;
+
+  @BeforeEach
+  void setup() {
+    employeeRepository.deleteAll();
+  }
+
+  private static InputStream body(String body) {
+    return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void givenCsvWithHeader_whenImport_thenAllRowsAreSaved() throws Exception {
+    long changes = changeCounter.get();
+
+    EmployeeImportResult result = importer.importEmployees(body("""
+        first_name,last_name,email
+        John,Doe,johndoe@email.com
+        "Jane ""JJ""\","Doe, Jr.",janedoe@email.com
+        """), Format.CSV);
+
+    assertThat(result).isEqualTo(new EmployeeImportResult(2, 2, 0, 0, List.of()));
+    assertThat(employeeRepository.findAll())
+        .extracting(Employee::getFirstName, Employee::getLastName)
+        .containsExactlyInAnyOrder(tuple("John", "Doe"), tuple("Jane \"JJ\"", "Doe, Jr."));
+    assertThat(changeCounter.get()).isEqualTo(changes + 2);
+  }
+
+  @Test
+  void givenInvalidRows_whenImport_thenValidRowsAreSavedAndInvalidOnesReported()
+      throws Exception {
+    EmployeeImportResult result = importer.importEmployees(body("""
+        John,Doe,johndoe@email.com
+        Jane,Doe,invalid@comma,com
+        ,Doe,nobody@email.com
+        "Max,Doe,max@email.com
+        """), Format.CSV);
+
+    assertThat(result.rows()).isEqualTo(4);
+    assertThat(result.imported()).isEqualTo(1);
+    assertThat(result.invalid()).isEqualTo(3);
+    assertThat(result.errors()).extracting(RowError::line).containsExactly(2L, 3L, 4L);
+    assertThat(result.errors().get(1).message()).contains("firstName");
+    assertThat(employeeRepository.count()).isEqualTo(1);
+  }
+
+  @Test
+  void givenDuplicateEmails_whenImport_thenFirstRowIsSavedAndOthersReported() throws Exception {
+    employeeRepository.save(Employee.builder().firstName("Existing").lastName("Doe")
+        .email("existing@email.com").build());
+
+    EmployeeImportResult result = importer.importEmployees(body("""
+        {"firstName":"John","lastName":"Doe","email":"johndoe@email.com"}
+        {"firstName":"Max","lastName":"Doe","email":"existing@email.com"}
+        {"firstName":"Johnny","lastName":"Doe","email":"johndoe@email.com"}
+        {"firstName":"Jane","lastName":
+        """), Format.NDJSON);
+
+    assertThat(result.rows()).isEqualTo(4);
+    assertThat(result.imported()).isEqualTo(1);
+    assertThat(result.invalid()).isEqualTo(1);
+    assertThat(result.duplicates()).isEqualTo(2);
+    assertThat(result.errors()).extracting(RowError::line).containsExactly(2L, 3L, 4L);
+    assertThat(employeeRepository.findAll()).extracting(Employee::getFirstName)
+        .containsExactlyInAnyOrder("Existing", "John");
+  }
+
+  @Test
+  void givenManyRows_whenImport_thenAllBatchesAreSaved() throws Exception {
+    StringBuilder csv = new StringBuilder();
+    for (int i = 0; i < 2500; i++)
+      csv.append("John").append(i).append(",Doe,johndoe").append(i).append("@email.com\n");
+
+    EmployeeImportResult result = importer.importEmployees(body(csv.toString()), Format.CSV);
+
+    assertThat(result.imported()).isEqualTo(2500);
+    assertThat(employeeRepository.count()).isEqualTo(2500);
+  }
+
+  @Test
+  void givenRows_whenImport_thenIdsComeFromTheIdGeneratorInLineOrder() throws Exception {
+    long idBefore = idGenerator.nextId();
+
+    importer.importEmployees(body("""
+        John,Doe,johndoe@email.com
+        Jane,Doe,janedoe@email.com
+        """), Format.CSV);
+
+    assertThat(employeeRepository.findAll(Sort.by("id"))).extracting(Employee::getFirstName)
+        .containsExactly("John", "Jane");
+    assertThat(employeeRepository.findAll()).allSatisfy(
+        employee -> assertThat(employee.getId()).isGreaterThan(idBefore));
+  }
+
+  @Test
+  void givenWrongNumberOfFields_whenParseCsv_thenException() {
+    assertThrows(IllegalArgumentException.class,
+        () -> EmployeeImporter.parseCsv("John,Doe,johndoe@email.com,42"));
+  }
+}
@@ -0,0 +1,57 @@
+package com.test.springboottesting.employee;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.output.MigrateResult;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Runs the flyway migrations (db/migration/common and db/migration/h2) against a seeded large
+ * table, like a deployment would do on an existing database. We only need flyway and a database
+ * for this, no spring context. See {@link EmployeeMigrationPostgresIT} for the interesting part,
+ * the concurrent index creation on postgres.
+ */
+class EmployeeMigrationH2IT {
+
+  private static final String URL = "jdbc:h2:mem:migration;DB_CLOSE_DELAY=-1";
+  private static final int EMPLOYEES = 500_000;
+
+  @Test
+  void givenLargeEmployeesTable_whenMigrate_thenIndexesAreCreatedInTime() throws Exception {
+    Flyway.configure().dataSource(URL, "sa", "").locations(locations("h2")).target("1").load()
+        .migrate();
+    try (Connection connection = DriverManager.getConnection(URL, "sa", "");
+        Statement statement = connection.createStatement()) {
+      statement.execute("INSERT INTO employees (first_name, last_name, email) "
+          + "SELECT 'John' || x, 'Doe' || x, 'johndoe' || x || '@email.com' "
+          + "FROM SYSTEM_RANGE(1, " + EMPLOYEES + ")");
+
+      long start = System.nanoTime();
+      MigrateResult result =
+          Flyway.configure().dataSource(URL, "sa", "").locations(locations("h2")).load().migrate();
+      Duration duration = Duration.ofNanos(System.nanoTime() - start);
+      System.out.printf("Migrated %d employees to version %s in %d ms%n", EMPLOYEES,
+          result.targetSchemaVersion, duration.toMillis());
+
+      assertThat(result.success).isTrue();
+      assertThat(result.targetSchemaVersion).isEqualTo("9");
+      assertThat(duration).isLessThan(Duration.ofMinutes(1));
+      ResultSet indexes = statement.executeQuery("SELECT INDEX_NAME "
+          + "FROM INFORMATION_SCHEMA.INDEXES "
+          + "WHERE TABLE_NAME = 'EMPLOYEES' AND INDEX_NAME LIKE 'IDX_EMPLOYEES_%'");
+      int count = 0;
+      while (indexes.next())
+        count++;
+      assertThat(count).isEqualTo(3);
+    }
+  }
+
+  static String[] locations(String vendor) {
+    return new String[] {"classpath:db/migration/common", "classpath:db/migration/" + vendor};
+  }
+}
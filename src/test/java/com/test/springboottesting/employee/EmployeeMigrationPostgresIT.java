@@ -0,0 +1,88 @@
+package com.test.springboottesting.employee;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.configuration.FluentConfiguration;
+import org.flywaydb.core.api.output.MigrateResult;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Migrates a seeded large employees table on postgres while another connection keeps inserting
+ * employees. A plain CREATE INDEX would block the inserts until the index is built, with CREATE
+ * INDEX CONCURRENTLY (db/migration/postgresql/V2) they go through. Every insert runs with a lock
+ * timeout, so a blocked insert fails the test instead of just being slow.
+ *
+ * The other tests share the container and their schema is already migrated, so we migrate our own
+ * schema.
+ */
+class EmployeeMigrationPostgresIT extends AbstractPostgresIT {
+
+  private static final String SCHEMA = "migration_test";
+  private static final int EMPLOYEES = 1_000_000;
+
+  @Test
+  void givenLargeEmployeesTable_whenMigrate_thenInsertsAreNotBlocked() throws Exception {
+    flyway().target("1").cleanDisabled(false).load().clean();
+    flyway().target("1").load().migrate();
+    try (Connection connection = connection(); Statement statement = connection.createStatement()) {
+      statement.execute("INSERT INTO employees (first_name, last_name, email) "
+          + "SELECT 'John' || x, 'Doe' || x, 'johndoe' || x || '@email.com' "
+          + "FROM generate_series(1, " + EMPLOYEES + ") x");
+      statement.execute("ANALYZE employees");
+
+      long start = System.nanoTime();
+      CompletableFuture<MigrateResult> migration =
+          CompletableFuture.supplyAsync(() -> flyway().load().migrate());
+      int inserts = 0;
+      statement.execute("SET lock_timeout = '1s'");
+      while (!migration.isDone()) {
+        statement.execute("INSERT INTO employees (first_name, last_name, email) "
+            + "VALUES ('Jane', 'Roe', 'janeroe" + inserts++ + "@email.com')");
+        Thread.sleep(10);
+      }
+      MigrateResult result = migration.get();
+      Duration duration = Duration.ofNanos(System.nanoTime() - start);
+      System.out.printf("Migrated %d employees to version %s in %d ms, %d concurrent inserts%n",
+          EMPLOYEES, result.targetSchemaVersion, duration.toMillis(), inserts);
+
+      assertThat(result.success).isTrue();
+      assertThat(result.targetSchemaVersion).isEqualTo("9");
+      assertThat(duration).isLessThan(Duration.ofMinutes(2));
+      assertThat(inserts).isPositive();
+      assertThat(validIndexes(statement)).isEqualTo(3);
+    }
+  }
+
+  private static int validIndexes(Statement statement) throws SQLException {
+    ResultSet resultSet = statement.executeQuery("SELECT count(*) FROM pg_index i "
+        + "JOIN pg_class c ON c.oid = i.indexrelid JOIN pg_namespace n ON n.oid = c.relnamespace "
+        + "WHERE n.nspname = '" + SCHEMA + "' AND c.relname LIKE 'idx_employees_%' "
+        + "AND i.indisvalid");
+    resultSet.next();
+    return resultSet.getInt(1);
+  }
+
+  private static FluentConfiguration flyway() {
+    return Flyway.configure()
+        .dataSource(POSTGRES_CONTAINER.getJdbcUrl(), POSTGRES_CONTAINER.getUsername(),
+            POSTGRES_CONTAINER.getPassword())
+        .schemas(SCHEMA).locations(EmployeeMigrationH2IT.locations("postgresql"))
+        // see FlywayConfig
+        .configuration(Map.of("flyway.postgresql.transactional.lock", "false"));
+  }
+
+  private static Connection connection() throws SQLException {
+    Connection connection = DriverManager.getConnection(POSTGRES_CONTAINER.getJdbcUrl(),
+        POSTGRES_CONTAINER.getUsername(), POSTGRES_CONTAINER.getPassword());
+    connection.createStatement().execute("SET search_path TO " + SCHEMA);
+    return connection;
+  }
+}
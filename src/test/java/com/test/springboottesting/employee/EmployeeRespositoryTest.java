@@ -1,19 +1,36 @@
 package com.test.springboottesting.employee;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
 
 /**
- * a {@link DataJpaTest} which tests interactions with an in-memory h2 database
+ * a {@link DataJpaTest} which tests interactions with an in-memory h2 database. The sql statements
+ * of hibernate are recorded by the {@link RecordingStatementInspector}
  */
-@DataJpaTest
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+    + "com.test.springboottesting.employee.EmployeeRespositoryTest$RecordingStatementInspector")
 class EmployeeRespositoryTest {
 
+  public static class RecordingStatementInspector implements StatementInspector {
+    private static final long serialVersionUID = 1L;
+    static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+    @Override
+    public String inspect(String sql) {
+      STATEMENTS.add(sql);
+      return sql;
+    }
+  }
+
   @Autowired
   private EmployeeRepository employeeRepository;
 
@@ -71,6 +88,56 @@ class EmployeeRespositoryTest {
     assertThat(employeeDB).isNotNull();
   }
 
+  @Test
+  void givenSavedEmployee_whenExistsByEmailInOtherCase_thenTrue() {
+    employeeRepository.save(employee);
+
+    boolean exists =
+        employeeRepository.existsByEmail(Employee.normalizeEmail("JohnDoe@Email.com"));
+
+    assertThat(exists).isTrue();
+  }
+
+  @Test
+  void givenTerminatedEmployee_whenFindByIdEmailOrName_thenEmptyButEmailStillExists() {
+    employeeRepository.save(employee);
+
+    int terminated = employeeRepository.terminateById(employee.getId());
+
+    assertThat(terminated).isEqualTo(1);
+    assertThat(employeeRepository.findById(employee.getId())).isEmpty();
+    assertThat(employeeRepository.findByEmail(employee.getEmail())).isEmpty();
+    assertThat(employeeRepository.findByNativeSQL(employee.getFirstName(), employee.getLastName()))
+        .isEmpty();
+    assertThat(employeeRepository.count()).isZero();
+    assertThat(employeeRepository.existsByEmail(employee.getEmail())).isTrue();
+    assertThat(employeeRepository.findAllByEmailIn(List.of(employee.getEmail())))
+        .extracting(Employee::getId).containsExactly(employee.getId());
+    assertThat(employeeRepository.terminateById(employee.getId())).isZero();
+  }
+
+  @Test
+  void givenSavedEmployee_whenSaveEmailInOtherCase_thenDataIntegrityViolation() {
+    employeeRepository.save(employee);
+    Employee employee2 =
+        Employee.builder().firstName("John").lastName("Doe").email("JohnDoe@Email.com").build();
+
+    assertThrows(DataIntegrityViolationException.class,
+        () -> employeeRepository.saveAndFlush(employee2));
+  }
+
+  @Test
+  void givenChangedEmail_whenSaveAndFlush_thenOnlyEmailIsUpdated() {
+    employeeRepository.saveAndFlush(employee);
+    RecordingStatementInspector.STATEMENTS.clear();
+
+    employee.setEmail("john@email.com");
+    employeeRepository.saveAndFlush(employee);
+
+    assertThat(RecordingStatementInspector.STATEMENTS).filteredOn(sql -> sql.startsWith("update"))
+        .singleElement().asString().contains("email").doesNotContain("first_name", "last_name");
+  }
+
   @Test
   void givenSavedEmployee_whenSaveUpdatedEmployee_thenReturnUpdatedEmployee() {
     employeeRepository.save(employee);
@@ -92,6 +159,32 @@ class EmployeeRespositoryTest {
     assertThat(employeeOptional).isEmpty();
   }
 
+  @Test
+  void givenSavedEmployee_whenDeleteReturningById_thenRemovedEmployeeReturned() {
+    employeeRepository.save(employee);
+
+    Optional<Employee> deleted = employeeRepository.deleteReturningById(employee.getId());
+
+    assertThat(deleted).hasValueSatisfying(removed -> {
+      assertThat(removed.getId()).isEqualTo(employee.getId());
+      assertThat(removed.getEmail()).isEqualTo("johndoe@email.com");
+    });
+    assertThat(employeeRepository.findById(employee.getId())).isEmpty();
+    assertThat(employeeRepository.deleteReturningById(employee.getId())).isEmpty();
+  }
+
+  @Test
+  void givenSavedEmployee_whenTerminateReturningById_thenTerminatedEmployeeReturned() {
+    employeeRepository.save(employee);
+
+    Optional<Employee> terminated = employeeRepository.terminateReturningById(employee.getId());
+
+    assertThat(terminated.map(Employee::getLastName)).hasValue("Doe");
+    assertThat(employeeRepository.findById(employee.getId())).isEmpty();
+    assertThat(employeeRepository.existsByEmail(employee.getEmail())).isTrue();
+    assertThat(employeeRepository.terminateReturningById(employee.getId())).isEmpty();
+  }
+
   @Test
   void givenSavedEmployee_whenFindByJPQL_thenReturnEmployeeObject() {
     employeeRepository.save(employee);
@@ -0,0 +1,67 @@
+package com.test.springboottesting.employee;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+
+/**
+ * A small benchmark which compares payload size and encode/decode time of JSON and CBOR for a
+ * single {@link Employee} and a large list of employees. It is not a replacement for JMH, but good
+ * enough to see the order of magnitude. The benchmark is skipped per default, run it with
+ *
+ * mvn test -Dtest=EmployeeSerializationBenchmarkTest -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class EmployeeSerializationBenchmarkTest {
+
+  private static final int WARMUP_ROUNDS = 20;
+  private static final int MEASURED_ROUNDS = 50;
+
+  private ObjectMapper jsonMapper = new ObjectMapper();
+  private ObjectMapper cborMapper = new CBORMapper();
+
+  @Test
+  void compareJsonAndCbor() throws Exception {
+    Employee employee = employee(1);
+    List<Employee> employees = new ArrayList<>();
+    for (int i = 0; i < 100_000; i++)
+      employees.add(employee(i));
+    JavaType listType =
+        jsonMapper.getTypeFactory().constructCollectionType(List.class, Employee.class);
+
+    System.out.printf("%-28s %12s %12s %12s%n", "payload", "bytes", "encode [us]", "decode [us]");
+    run("json / single employee", jsonMapper, employee, jsonMapper.constructType(Employee.class));
+    run("cbor / single employee", cborMapper, employee, cborMapper.constructType(Employee.class));
+    run("json / 100k employees", jsonMapper, employees, listType);
+    run("cbor / 100k employees", cborMapper, employees, listType);
+  }
+
+  private void run(String name, ObjectMapper mapper, Object value, JavaType type)
+      throws Exception {
+    byte[] bytes = mapper.writeValueAsBytes(value);
+    for (int i = 0; i < WARMUP_ROUNDS; i++)
+      mapper.readValue(mapper.writeValueAsBytes(value), type);
+
+    long encodeNanos = 0;
+    long decodeNanos = 0;
+    for (int i = 0; i < MEASURED_ROUNDS; i++) {
+      long start = System.nanoTime();
+      bytes = mapper.writeValueAsBytes(value);
+      long encoded = System.nanoTime();
+      mapper.readValue(bytes, type);
+      encodeNanos += encoded - start;
+      decodeNanos += System.nanoTime() - encoded;
+    }
+    System.out.printf("%-28s %12d %12d %12d%n", name, bytes.length,
+        encodeNanos / MEASURED_ROUNDS / 1000, decodeNanos / MEASURED_ROUNDS / 1000);
+  }
+
+  private static Employee employee(int i) {
+    return Employee.builder().id(i).firstName("John" + i).lastName("Doe" + i)
+        .email("johndoe" + i + "@email.com").build();
+  }
+}
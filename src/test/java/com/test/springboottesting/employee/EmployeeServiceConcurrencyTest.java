@@ -0,0 +1,133 @@
+package com.test.springboottesting.employee;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Many parallel lookups of the same employee (a cache stampede) against the real database. The
+ * repository is slowed down a bit, so all lookups arrive while the first query is still running.
+ * The statements are counted by the hibernate statistics. (Mockito can't spy on the repository,
+ * it is a JDK proxy without real methods, so we wrap it with our own proxy.)
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class EmployeeServiceConcurrencyTest {
+
+  private static final int THREADS = 50;
+
+  @Autowired
+  private EmployeeService employeeService;
+
+  @Autowired
+  private EmployeeRepository employeeRepository;
+
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+
+  private ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+  private Statistics statistics;
+  private Employee employee;
+
+  @BeforeEach
+  void setup() {
+    employeeRepository.deleteAll();
+    employee = employeeRepository.save(
+        Employee.builder().firstName("John").lastName("Doe").email("johndoe@email.com").build());
+    statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    statistics.clear();
+  }
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void givenParallelLookupsOfSameId_whenGetEmployeeById_thenOneSqlStatement() throws Exception {
+    List<Optional<Employee>> results =
+        runInParallel(() -> employeeService.getEmployeeById(employee.getId()));
+
+    assertThat(results).allSatisfy(result -> assertThat(result).get()
+        .usingRecursiveComparison().isEqualTo(employee));
+    assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+  }
+
+  @Test
+  void givenParallelCreatesWithSameEmail_whenSaveEmployee_thenOneEmailLookup() throws Exception {
+    List<Boolean> results = runInParallel(() -> {
+      try {
+        employeeService.saveEmployee(Employee.builder().firstName("John").lastName("Doe")
+            .email(employee.getEmail()).build());
+        return true;
+      } catch (RuntimeException e) {
+        return false;
+      }
+    });
+
+    assertThat(results).containsOnly(false);
+    assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+  }
+
+  @TestConfiguration
+  static class SlowRepositoryConfig {
+
+    @Bean
+    static BeanPostProcessor slowEmployeeRepository() {
+      return new BeanPostProcessor() {
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+          if (!(bean instanceof EmployeeRepository repository))
+            return bean;
+          return Proxy.newProxyInstance(getClass().getClassLoader(),
+              new Class<?>[] {EmployeeRepository.class}, (proxy, method, args) -> {
+                if (method.getName().equals("findById") || method.getName().equals("existsByEmail"))
+                  Thread.sleep(200);
+                try {
+                  return method.invoke(repository, args);
+                } catch (InvocationTargetException e) {
+                  throw e.getCause();
+                }
+              });
+        }
+      };
+    }
+  }
+
+  /**
+   * starts all tasks at the same moment
+   */
+  private <T> List<T> runInParallel(Callable<T> task) throws Exception {
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<T>> futures = new ArrayList<>();
+    for (int i = 0; i < THREADS; i++)
+      futures.add(executor.submit(() -> {
+        start.await();
+        return task.call();
+      }));
+    start.countDown();
+    List<T> results = new ArrayList<>();
+    for (Future<T> future : futures)
+      results.add(future.get(10, TimeUnit.SECONDS));
+    return results;
+  }
+}
@@ -3,20 +3,24 @@ package com.test.springboottesting.employee;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.BDDMockito.given;
-import static org.mockito.BDDMockito.willDoNothing;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import com.test.springboottesting.exception.DuplicateEmailException;
 import com.test.springboottesting.exception.ResourceNotFoundException;
 
@@ -29,6 +33,12 @@ class EmployeeServiceTest {
   @Mock
   private EmployeeRepository employeeRepository;
 
+  @Mock
+  private EmployeeCache employeeCache;
+
+  @Mock
+  private ApplicationEventPublisher eventPublisher;
+
   @InjectMocks
   private EmployeeService employeeService;
 
@@ -46,23 +56,37 @@ class EmployeeServiceTest {
 
   @Test
   void givenEmployeeObject_whenSaveEmployee_thenReturnEmployeeObject() {
-    given(employeeRepository.findByEmail(employee.getEmail())).willReturn(Optional.empty());
+    given(employeeRepository.existsByEmail(employee.getEmail())).willReturn(false);
     given(employeeRepository.save(employee)).willReturn(employee);
 
     Employee savedEmployee = employeeService.saveEmployee(employee);
 
     assertThat(savedEmployee.getId()).isPositive();
+    verify(eventPublisher, times(1)).publishEvent(new EmployeeChangedEvent(1L));
   }
 
   @Test
   void givenExistingEmail_whenSaveEmployee_thenThrowsException() {
-    given(employeeRepository.findByEmail(employee.getEmail())).willReturn(Optional.of(employee));
+    given(employeeRepository.existsByEmail(employee.getEmail())).willReturn(true);
 
     Exception exception =
         assertThrows(DuplicateEmailException.class, () -> employeeService.saveEmployee(employee));
 
     assertThat(exception).hasMessageEndingWith("already exists");
     verify(employeeRepository, never()).save(any(Employee.class));
+    verify(eventPublisher, never()).publishEvent(any(EmployeeChangedEvent.class));
+  }
+
+  @Test
+  void givenConcurrentSaveOfSameEmail_whenSaveEmployee_thenThrowsDuplicateEmailException() {
+    // the other request saved the email between our check and our save
+    given(employeeRepository.existsByEmail(employee.getEmail())).willReturn(false, true);
+    given(employeeRepository.save(employee))
+        .willThrow(new DataIntegrityViolationException("idx_employees_email_unique"));
+
+    assertThrows(DuplicateEmailException.class, () -> employeeService.saveEmployee(employee));
+
+    verify(eventPublisher, never()).publishEvent(any(EmployeeChangedEvent.class));
   }
 
   @Test
@@ -95,6 +119,47 @@ class EmployeeServiceTest {
     assertThat(savedEmployee).isNotNull();
   }
 
+  @Test
+  void givenCachedEmployee_whenGetEmployeeById_thenRepositoryIsNotCalled() {
+    given(employeeCache.get(1L)).willReturn(Optional.of(employee));
+
+    Employee cachedEmployee = employeeService.getEmployeeById(employee.getId()).get();
+
+    assertThat(cachedEmployee).isEqualTo(employee);
+    verify(employeeRepository, never()).findById(any(Long.class));
+  }
+
+  @Test
+  void givenDeleteDuringLookup_whenGetEmployeeById_thenLoadedEmployeeIsNotCached() {
+    given(employeeRepository.deleteReturningById(1L)).willReturn(Optional.of(employee()));
+    given(employeeRepository.findById(1L)).willAnswer(invocation -> {
+      Optional<Employee> loadedEmployee = Optional.of(employee());
+      employeeService.deleteEmployee(1L); // commits after our query read the row
+      return loadedEmployee;
+    });
+
+    employeeService.getEmployeeById(1L);
+
+    verify(employeeCache).evict(1L);
+    verify(employeeCache, never()).put(any(Employee.class));
+  }
+
+  @Test
+  void givenCachedAndMissingIds_whenGetEmployeesByIds_thenOnlyMissingIdsAreQueried() {
+    Employee jane =
+        Employee.builder().id(2L).firstName("Jane").lastName("Roe").email("janeroe@email.com")
+            .build();
+    given(employeeCache.get(1L)).willReturn(Optional.of(employee));
+    given(employeeCache.get(2L)).willReturn(Optional.empty());
+    given(employeeCache.get(3L)).willReturn(Optional.empty());
+    given(employeeRepository.findAllById(Set.of(2L, 3L))).willReturn(List.of(jane));
+
+    List<Employee> employees = employeeService.getEmployeesByIds(List.of(2L, 3L, 1L));
+
+    assertThat(employees).containsExactly(jane, employee);
+    verify(employeeCache).put(jane);
+  }
+
   @Test
   void givenSavedEmployee_whenUpdateEmployee_thenReturnUpdatedEmployee() {
     given(employeeRepository.save(employee)).willReturn(employee);
@@ -106,6 +171,61 @@ class EmployeeServiceTest {
     assertThat(updatedEmployee.getEmail()).isEqualTo("john@email.com");
   }
 
+  @Test
+  void givenNamePatch_whenPatchEmployee_thenEmailIsNotChecked() {
+    given(employeeRepository.findById(1L)).willReturn(Optional.of(employee));
+    given(employeeRepository.save(any(Employee.class)))
+        .willAnswer(invocation -> invocation.getArgument(0));
+
+    Employee patchedEmployee =
+        employeeService.patchEmployee(1L, new EmployeeMergePatch(Map.of("firstName", "Johnny")));
+
+    assertThat(patchedEmployee.getFirstName()).isEqualTo("Johnny");
+    assertThat(patchedEmployee.getEmail()).isEqualTo(employee.getEmail());
+    assertThat(employee.getFirstName()).isEqualTo("Johnny"); // the managed entity is patched
+    verify(employeeRepository, never()).existsByEmail(any());
+    verify(eventPublisher).publishEvent(new EmployeeChangedEvent(1L));
+  }
+
+  @Test
+  void givenStaleCachedEmployee_whenPatchEmployee_thenTheCurrentRowIsPatched() {
+    Employee current = Employee.builder().id(1L).firstName("John").lastName("Roe")
+        .email("johndoe@email.com").build(); // a concurrent patch changed the last name
+    given(employeeRepository.findById(1L)).willReturn(Optional.of(current));
+    given(employeeRepository.save(any(Employee.class)))
+        .willAnswer(invocation -> invocation.getArgument(0));
+
+    Employee patchedEmployee =
+        employeeService.patchEmployee(1L, new EmployeeMergePatch(Map.of("firstName", "Johnny")));
+
+    assertThat(patchedEmployee.getFirstName()).isEqualTo("Johnny");
+    assertThat(patchedEmployee.getLastName()).isEqualTo("Roe");
+    verify(employeeCache, never()).get(anyLong());
+  }
+
+  @Test
+  void givenPatchWithExistingEmail_whenPatchEmployee_thenThrowsException() {
+    given(employeeRepository.findById(1L)).willReturn(Optional.of(employee));
+    given(employeeRepository.existsByEmail("janeroe@email.com")).willReturn(true);
+
+    assertThrows(DuplicateEmailException.class, () -> employeeService.patchEmployee(1L,
+        new EmployeeMergePatch(Map.of("email", "JaneRoe@email.com"))));
+
+    verify(employeeRepository, never()).save(any(Employee.class));
+  }
+
+  @Test
+  void givenPatchWithoutChanges_whenPatchEmployee_thenNothingIsSaved() {
+    given(employeeRepository.findById(1L)).willReturn(Optional.of(employee));
+
+    Employee patchedEmployee = employeeService.patchEmployee(1L,
+        new EmployeeMergePatch(Map.of("email", "JohnDoe@email.com", "lastName", "Doe")));
+
+    assertThat(patchedEmployee).isSameAs(employee);
+    verify(employeeRepository, never()).existsByEmail(any());
+    verify(employeeRepository, never()).save(any(Employee.class));
+  }
+
   @Test
   void givenNotExistingEmployee_whenUpdateEmployee_thenThrowsException() {
     Exception exception = assertThrows(ResourceNotFoundException.class,
@@ -121,7 +241,7 @@ class EmployeeServiceTest {
     Employee employee2 = Employee.builder().id(2L).firstName("Jane").lastName("Roe")
         .email("janeroe@email.com").build();
     given(employeeRepository.findById(1L)).willReturn(Optional.of(employee));
-    given(employeeRepository.findByEmail(employee2.getEmail())).willReturn(Optional.of(employee2));
+    given(employeeRepository.existsByEmail(employee2.getEmail())).willReturn(true);
 
     // Note: we can't update "employee", since then the findById mock would return an
     // "oldEmployee" which would already have the new email
@@ -137,10 +257,43 @@ class EmployeeServiceTest {
   @Test
   void givenEmployeeId_whenDeleteEmployee_thenNothing() {
     long employeeId = 1L;
-    willDoNothing().given(employeeRepository).deleteById(employeeId);
+    given(employeeRepository.deleteReturningById(employeeId)).willReturn(Optional.of(employee));
 
     employeeService.deleteEmployee(employeeId);
 
-    verify(employeeRepository, times(1)).deleteById(employeeId);
+    verify(employeeRepository, times(1)).deleteReturningById(employeeId);
+    verify(employeeRepository, never()).findById(anyLong());
+    verify(employeeCache, times(1)).evict(employeeId);
+    verify(eventPublisher, times(1)).publishEvent(new EmployeeChangedEvent(employeeId));
+  }
+
+  @Test
+  void givenNotExistingEmployee_whenDeleteEmployee_thenResourceNotFoundException() {
+    given(employeeRepository.deleteReturningById(1L)).willReturn(Optional.empty());
+
+    assertThrows(ResourceNotFoundException.class, () -> employeeService.deleteEmployee(1L));
+
+    verify(employeeCache, never()).evict(anyLong());
+    verify(eventPublisher, never()).publishEvent(any());
+  }
+
+  @Test
+  void givenEmployeeId_whenTerminateEmployee_thenEvictedAndPublished() {
+    given(employeeRepository.terminateReturningById(1L)).willReturn(Optional.of(employee));
+
+    employeeService.terminateEmployee(1L);
+
+    verify(employeeCache, times(1)).evict(1L);
+    verify(eventPublisher, times(1)).publishEvent(new EmployeeChangedEvent(1L));
+  }
+
+  @Test
+  void givenNotExistingEmployee_whenTerminateEmployee_thenResourceNotFoundException() {
+    given(employeeRepository.terminateReturningById(1L)).willReturn(Optional.empty());
+
+    assertThrows(ResourceNotFoundException.class, () -> employeeService.terminateEmployee(1L));
+
+    verify(employeeCache, never()).evict(anyLong());
+    verify(eventPublisher, never()).publishEvent(any());
   }
 }
@@ -2,7 +2,6 @@ package com.test.springboottesting.employee;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.BDDMockito.given;
-import java.util.Optional;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
@@ -27,7 +26,7 @@ class EmployeeServiceWithoutMockitoExtensionTest {
 
   @Test
   void test() {
-    given(employeeRepository.findByEmail(employee.getEmail())).willReturn(Optional.empty());
+    given(employeeRepository.existsByEmail(employee.getEmail())).willReturn(false);
     given(employeeRepository.save(employee)).willReturn(employee);
 
     Employee savedEmployee = employeeService.saveEmployee(employee);
@@ -0,0 +1,30 @@
+package com.test.springboottesting.employee;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+/**
+ * the store is off by default, so no other test creates it with spring
+ */
+@SpringBootTest(properties = {"employee.snapshot.enabled=true",
+    "employee.snapshot.file=${java.io.tmpdir}/employee-snapshot-test/employees.bin"})
+class EmployeeSnapshotStoreContextTest {
+
+  @Autowired
+  private EmployeeSnapshotStore snapshotStore;
+
+  @Test
+  void givenSnapshotsEnabled_whenContextLoads_thenTheStoreWritesTheSnapshot() throws Exception {
+    Path file = Path.of(System.getProperty("java.io.tmpdir"), "employee-snapshot-test",
+        "employees.bin");
+    Files.deleteIfExists(file);
+
+    snapshotStore.writeIfChanged();
+
+    assertThat(file).exists();
+  }
+}
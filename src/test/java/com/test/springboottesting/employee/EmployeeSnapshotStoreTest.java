@@ -0,0 +1,137 @@
+package com.test.springboottesting.employee;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class EmployeeSnapshotStoreTest {
+
+  private static final Instant NOW = Instant.parse("2024-01-01T12:00:00Z");
+
+  @Mock
+  private EmployeeRepository employeeRepository;
+
+  @TempDir
+  private Path directory;
+
+  private Path file;
+  private EmployeeChangeCounter changeCounter = new EmployeeChangeCounter();
+  private OnHeapEmployeeCache employeeCache = new OnHeapEmployeeCache(100);
+  private Employee employee;
+  private Employee employee2;
+
+  @BeforeEach
+  void setup() {
+    file = directory.resolve("employees.bin");
+    employee = Employee.builder().id(1L).firstName("John").lastName("Doe")
+        .email("johndoe@email.com").build();
+    employee2 = Employee.builder().id(2L).firstName("Jäne").lastName("Röe")
+        .email("janeroe@email.com").build();
+  }
+
+  private EmployeeSnapshotStore store(Instant now) {
+    return new EmployeeSnapshotStore(employeeRepository, changeCounter, employeeCache, file,
+        Duration.ofMinutes(10), Clock.fixed(now, ZoneOffset.UTC));
+  }
+
+  @Test
+  void givenEmployees_whenWriteSnapshot_thenEmployeesCanBeFoundById() throws Exception {
+    EmployeeSnapshotFile.write(file, List.of(employee2, employee), 42,
+        new EmployeeSnapshotFile.Watermark(2, 2), NOW);
+
+    EmployeeSnapshotFile snapshot = EmployeeSnapshotFile.open(file);
+
+    assertThat(snapshot.size()).isEqualTo(2);
+    assertThat(snapshot.changeCount()).isEqualTo(42);
+    assertThat(snapshot.createdAt()).isEqualTo(NOW);
+    assertThat(snapshot.watermark()).isEqualTo(new EmployeeSnapshotFile.Watermark(2, 2));
+    assertThat(snapshot.find(2L)).get().usingRecursiveComparison().isEqualTo(employee2);
+    assertThat(snapshot.find(1L)).get().usingRecursiveComparison().isEqualTo(employee);
+    assertThat(snapshot.find(3L)).isEmpty();
+  }
+
+  private void givenWatermark(long count, long maxId) {
+    given(employeeRepository.countAndMaxId())
+        .willReturn(List.<Object[]>of(new Object[] {count, maxId}));
+  }
+
+  @Test
+  void givenFreshSnapshot_whenWarmUp_thenCacheContainsEmployees() throws Exception {
+    given(employeeRepository.findAll()).willReturn(List.of(employee, employee2));
+    givenWatermark(2, 2);
+    store(NOW).writeIfChanged();
+
+    int warmedUp = store(NOW.plusSeconds(60)).warmUp();
+
+    assertThat(warmedUp).isEqualTo(2);
+    assertThat(employeeCache.get(2L)).get().usingRecursiveComparison().isEqualTo(employee2);
+  }
+
+  @Test
+  void givenSnapshotOfAnotherDatabaseState_whenWarmUp_thenSnapshotIsIgnored() throws Exception {
+    given(employeeRepository.findAll()).willReturn(List.of(employee, employee2));
+    givenWatermark(2, 2);
+    store(NOW).writeIfChanged();
+
+    givenWatermark(3, 3); // another instance created an employee
+    int warmedUp = store(NOW.plusSeconds(60)).warmUp();
+
+    assertThat(warmedUp).isZero();
+    assertThat(employeeCache.size()).isZero();
+  }
+
+  @Test
+  void givenOldSnapshot_whenWarmUp_thenSnapshotIsIgnored() throws Exception {
+    given(employeeRepository.findAll()).willReturn(List.of(employee, employee2));
+    givenWatermark(2, 2);
+    store(NOW).writeIfChanged();
+
+    int warmedUp = store(NOW.plus(Duration.ofHours(1))).warmUp();
+
+    assertThat(warmedUp).isZero();
+    assertThat(employeeCache.size()).isZero();
+  }
+
+  @Test
+  void givenNoChanges_whenWriteIfChanged_thenSnapshotIsWrittenOnce() throws Exception {
+    given(employeeRepository.findAll()).willReturn(List.of(employee));
+    givenWatermark(1, 1);
+    EmployeeSnapshotStore store = store(NOW);
+
+    store.writeIfChanged();
+    store.writeIfChanged();
+    changeCounter.onEmployeeChanged(new EmployeeChangedEvent(1L));
+    store.writeIfChanged();
+    givenWatermark(2, 2); // a change of another instance
+    store.writeIfChanged();
+
+    verify(employeeRepository, times(3)).findAll();
+    assertThat(EmployeeSnapshotFile.open(file).changeCount()).isEqualTo(1);
+    assertThat(EmployeeSnapshotFile.open(file).watermark())
+        .isEqualTo(new EmployeeSnapshotFile.Watermark(2, 2));
+  }
+
+  @Test
+  void givenBrokenSnapshot_whenWarmUp_thenNothingIsCached() throws Exception {
+    Files.writeString(file, "not a snapshot");
+
+    int warmedUp = store(NOW).warmUp();
+
+    assertThat(warmedUp).isZero();
+  }
+}
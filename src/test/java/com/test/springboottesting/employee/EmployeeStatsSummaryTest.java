@@ -0,0 +1,93 @@
+package com.test.springboottesting.employee;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class EmployeeStatsSummaryTest {
+
+  @Mock
+  private EmployeeRepository employeeRepository;
+
+  private EmployeeStatsSummary statsSummary;
+
+  @BeforeEach
+  void setup() {
+    statsSummary = new EmployeeStatsSummary(employeeRepository);
+    lenient().when(employeeRepository.countByEmailDomain())
+        .thenReturn(List.<Object[]>of(new Object[] {"email.com", 2L}));
+    lenient().when(employeeRepository.countByLastNameInitial())
+        .thenReturn(List.<Object[]>of(new Object[] {"D", 1L}, new Object[] {"R", 1L}));
+  }
+
+  private static Employee employee(String lastName, String email) {
+    return Employee.builder().firstName("John").lastName(lastName).email(email).build();
+  }
+
+  @Test
+  void givenNoCounters_whenGet_thenCountedOnceWithTheDatabase() {
+    statsSummary.get();
+    EmployeeStats stats = statsSummary.get();
+
+    assertThat(stats).isEqualTo(new EmployeeStats(2, new TreeMap<>(Map.of("email.com", 2L)),
+        new TreeMap<>(Map.of("D", 1L, "R", 1L))));
+    verify(employeeRepository, times(1)).countByEmailDomain();
+  }
+
+  @Test
+  void givenCounters_whenEmployeesChange_thenOnlyTheirGroupsChange() {
+    statsSummary.get();
+    long generation = statsSummary.generation();
+
+    statsSummary.added(generation, employee("doe", "johndoe@example.com"));
+    statsSummary.changed(generation, employee("Roe", "janeroe@email.com"),
+        employee("Doe", "janeroe@email.com"));
+    statsSummary.removed(generation, employee("Doe", "johndoe@email.com"));
+    EmployeeStats stats = statsSummary.get();
+
+    assertThat(stats.total()).isEqualTo(2);
+    assertThat(stats.byEmailDomain()).containsExactly(Map.entry("email.com", 1L),
+        Map.entry("example.com", 1L));
+    assertThat(stats.byLastNameInitial()).containsExactly(Map.entry("D", 2L));
+  }
+
+  @Test
+  void givenWriteStartedBeforeARecount_whenApplied_thenNotCountedTwice() {
+    statsSummary.get();
+    long generation = statsSummary.generation(); // read before the write
+
+    // the write is committed, then the counters are recounted and already see it
+    statsSummary.onEmployeesImported(new EmployeesImportedEvent(1));
+    statsSummary.get();
+    statsSummary.added(generation, employee("Doe", "johndoe@email.com"));
+
+    assertThat(statsSummary.get().total()).isEqualTo(2);
+    assertThat(statsSummary.generation()).isNotEqualTo(generation);
+  }
+
+  @Test
+  void givenCounters_whenEmployeesImported_thenCountedAgain() {
+    statsSummary.get();
+
+    statsSummary.onEmployeesImported(new EmployeesImportedEvent(1000));
+    statsSummary.get();
+
+    verify(employeeRepository, times(2)).countByLastNameInitial();
+  }
+
+  @Test
+  void givenLastNameWithSurrogatePair_whenLastNameInitial_thenWholeCodePoint() {
+    assertThat(EmployeeStatsSummary.lastNameInitial("𝒜oe")).isEqualTo("𝒜");
+    assertThat(EmployeeStatsSummary.lastNameInitial("ödegaard")).isEqualTo("Ö");
+  }
+}
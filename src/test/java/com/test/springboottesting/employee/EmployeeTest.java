@@ -35,4 +35,13 @@ class EmployeeTest {
     assertThat(violations).extracting(ConstraintViolation::getMessage)
         .containsExactlyInAnyOrder("must be a well-formed email address", "must not be blank");
   }
+
+  @Test
+  void testEmailIsStoredInLowerCase() {
+    var employee = Employee.builder().email("John.Doe@Email.COM").build();
+    assertEquals("john.doe@email.com", employee.getEmail());
+
+    employee.setEmail("JANE.ROE@EMAIL.COM");
+    assertEquals("jane.roe@email.com", employee.getEmail());
+  }
 }
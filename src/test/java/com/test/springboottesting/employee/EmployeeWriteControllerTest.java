@@ -0,0 +1,121 @@
+package com.test.springboottesting.employee;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.test.springboottesting.exception.ServiceOverloadedException;
+
+@WebMvcTest(controllers = {EmployeeWriteController.class, EmployeeController.class},
+    properties = "employee.async-write.enabled=true")
+class EmployeeWriteControllerTest {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @MockBean
+  private EmployeeWriteQueue writeQueue;
+
+  @MockBean
+  private EmployeeService employeeService;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  private Employee employee =
+      Employee.builder().firstName("John").lastName("Doe").email("johndoe@email.com").build();
+
+  private ResultActions postAsync(Employee employee) throws Exception {
+    return postWithPrefer(employee, "respond-async");
+  }
+
+  private ResultActions postWithPrefer(Employee employee, String prefer) throws Exception {
+    return mockMvc.perform(post("/api/employees").header("Prefer", prefer)
+        .contentType(MediaType.APPLICATION_JSON).content(objectMapper.writeValueAsString(employee)));
+  }
+
+  @Test
+  void givenEmployee_whenPostWithRespondAsync_thenAcceptedWithStatusLocation() throws Exception {
+    given(writeQueue.submit(any(Employee.class))).willReturn(EmployeeWriteStatus.queued("t1"));
+
+    ResultActions response = postAsync(employee);
+
+    response.andDo(print()).andExpect(status().isAccepted())
+        .andExpect(header().string("Location", "/api/employees/writes/t1"))
+        .andExpect(jsonPath("$.state", is("QUEUED")));
+  }
+
+  @Test
+  void givenMorePreferences_whenPostWithRespondAsync_thenAccepted() throws Exception {
+    given(writeQueue.submit(any(Employee.class))).willReturn(EmployeeWriteStatus.queued("t1"));
+
+    ResultActions response = postWithPrefer(employee, "return=minimal, Respond-Async; x=1, wait=10");
+
+    response.andDo(print()).andExpect(status().isAccepted());
+  }
+
+  @Test
+  void givenOtherPreference_whenPost_thenCreatedSynchronously() throws Exception {
+    given(employeeService.saveEmployee(any(Employee.class), any()))
+        .willAnswer(invocation -> invocation.getArgument(0));
+
+    ResultActions response = postWithPrefer(employee, "return=minimal");
+
+    response.andDo(print()).andExpect(status().isCreated());
+    verify(writeQueue, never()).submit(any(Employee.class));
+  }
+
+  @Test
+  void givenInvalidEmployee_whenPostWithRespondAsync_then400() throws Exception {
+    employee.setEmail("invalid@comma,com");
+
+    ResultActions response = postAsync(employee);
+
+    response.andDo(print()).andExpect(status().isBadRequest());
+  }
+
+  @Test
+  void givenFullQueue_whenPostWithRespondAsync_then503() throws Exception {
+    given(writeQueue.submit(any(Employee.class))).willThrow(new ServiceOverloadedException());
+
+    ResultActions response = postAsync(employee);
+
+    response.andDo(print()).andExpect(status().isServiceUnavailable())
+        .andExpect(header().string("Retry-After", "1"));
+  }
+
+  @Test
+  void givenSavedTicket_whenGetWriteStatus_thenReturnEmployeeId() throws Exception {
+    given(writeQueue.getStatus("t1")).willReturn(Optional.of(EmployeeWriteStatus.saved("t1", 7)));
+
+    ResultActions response = mockMvc.perform(get("/api/employees/writes/t1"));
+
+    response.andDo(print()).andExpect(status().isOk())
+        .andExpect(jsonPath("$.state", is("SAVED"))).andExpect(jsonPath("$.employeeId", is(7)));
+  }
+
+  @Test
+  void givenUnknownTicket_whenGetWriteStatus_thenNotFound() throws Exception {
+    given(writeQueue.getStatus("unknown")).willReturn(Optional.empty());
+
+    ResultActions response = mockMvc.perform(get("/api/employees/writes/unknown"));
+
+    response.andDo(print()).andExpect(status().isNotFound());
+  }
+}
@@ -0,0 +1,79 @@
+package com.test.springboottesting.employee;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+/**
+ * Throughput of creating employees with the synchronous {@link EmployeeService#saveEmployee} (an
+ * email lookup and an insert in its own transaction per employee) vs. the
+ * {@link EmployeeWriteQueue} (one journal append per employee, one email query and one transaction
+ * per batch). The async numbers include the time until the queue is drained. Run it with
+ *
+ * mvn test -Dtest=EmployeeWriteQueueBenchmarkTest -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@SpringBootTest(properties = {"employee.async-write.enabled=true",
+    "employee.async-write.journal=${java.io.tmpdir}/employee-writes-benchmark/journal.log",
+    "employee.async-write.capacity=100000"})
+class EmployeeWriteQueueBenchmarkTest {
+
+  private static final int EMPLOYEES = 20_000;
+  private static final int THREADS = 8;
+  private static final int ROUNDS = 3;
+
+  @Autowired
+  private EmployeeService employeeService;
+
+  @Autowired
+  private EmployeeWriteQueue writeQueue;
+
+  @Autowired
+  private EmployeeRepository employeeRepository;
+
+  private AtomicInteger sequence = new AtomicInteger();
+
+  @Test
+  void compareSyncAndAsyncWrites() throws Exception {
+    System.out.printf("%-6s %10s %12s %14s%n", "path", "employees", "duration [ms]",
+        "employees/s");
+    for (int round = 0; round < ROUNDS; round++) {
+      run("sync", employeeService::saveEmployee);
+      run("async", employee -> writeQueue.submit(employee));
+    }
+  }
+
+  private void run(String name, Consumer<Employee> create) throws Exception {
+    employeeRepository.deleteAllInBatch();
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      long start = System.nanoTime();
+      List<Future<?>> futures = new ArrayList<>();
+      for (int thread = 0; thread < THREADS; thread++)
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < EMPLOYEES / THREADS; i++) {
+            int number = sequence.incrementAndGet();
+            create.accept(Employee.builder().firstName("John" + number).lastName("Doe")
+                .email("johndoe" + number + "@email.com").build());
+          }
+        }));
+      for (Future<?> future : futures)
+        future.get();
+      writeQueue.awaitDrained(Duration.ofMinutes(5));
+      long nanos = System.nanoTime() - start;
+      System.out.printf("%-6s %10d %12d %14d%n", name, employeeRepository.count(),
+          nanos / 1_000_000, EMPLOYEES * 1_000_000_000L / nanos);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
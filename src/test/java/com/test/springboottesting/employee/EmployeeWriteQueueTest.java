@@ -0,0 +1,216 @@
+package com.test.springboottesting.employee;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.lenient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.test.springboottesting.employee.EmployeeWriteStatus.State;
+import com.test.springboottesting.exception.ServiceOverloadedException;
+
+@ExtendWith(MockitoExtension.class)
+class EmployeeWriteQueueTest {
+
+  @Mock
+  private EmployeeRepository employeeRepository;
+
+  @TempDir
+  private Path directory;
+
+  private List<Object> events = new CopyOnWriteArrayList<>();
+  private AtomicLong ids = new AtomicLong();
+  private EmployeeWriteQueue writeQueue;
+
+  @BeforeEach
+  void setup() {
+    lenient().when(employeeRepository.saveAll(any())).thenAnswer(invocation -> {
+      List<Employee> saved = new ArrayList<>();
+      for (Employee employee : invocation.<Iterable<Employee>>getArgument(0)) {
+        employee.setId(ids.incrementAndGet());
+        saved.add(employee);
+      }
+      return saved;
+    });
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    if (writeQueue != null)
+      writeQueue.close();
+  }
+
+  private EmployeeWriteQueue writeQueue(int capacity) throws Exception {
+    writeQueue = new EmployeeWriteQueue(employeeRepository, events::add, new ObjectMapper(),
+        directory.resolve("journal.log"), capacity, 100, 1000);
+    writeQueue.setMaxRetryBackoff(Duration.ofMillis(50));
+    writeQueue.start();
+    return writeQueue;
+  }
+
+  private static Employee employee(String name) {
+    return Employee.builder().firstName(name).lastName("Doe").email(name + "@email.com").build();
+  }
+
+  @Test
+  void givenSubmittedEmployees_whenDrained_thenSavedAndStatusHasTheId() throws Exception {
+    writeQueue(100);
+
+    EmployeeWriteStatus john = writeQueue.submit(employee("john"));
+    EmployeeWriteStatus jane = writeQueue.submit(employee("jane"));
+    assertThat(john.state()).isEqualTo(State.QUEUED);
+
+    assertThat(writeQueue.awaitDrained(Duration.ofSeconds(5))).isTrue();
+    assertThat(writeQueue.getStatus(john.ticket())).get().satisfies(status -> {
+      assertThat(status.state()).isEqualTo(State.SAVED);
+      assertThat(status.employeeId()).isPositive();
+    });
+    assertThat(writeQueue.getStatus(jane.ticket())).get().extracting(EmployeeWriteStatus::state)
+        .isEqualTo(State.SAVED);
+    assertThat(events).hasSize(2);
+  }
+
+  @Test
+  void givenExistingAndRepeatedEmails_whenDrained_thenDuplicatesFail() throws Exception {
+    CountDownLatch submitted = new CountDownLatch(1);
+    // nothing is written before all employees are queued, so they end up in one batch
+    given(employeeRepository.findAllByEmailIn(anyCollection())).willAnswer(invocation -> {
+      submitted.await(5, TimeUnit.SECONDS);
+      return List.of(Employee.builder().id(42).firstName("john").lastName("Doe")
+          .email("john@email.com").build());
+    });
+    writeQueue(100);
+
+    EmployeeWriteStatus john = writeQueue.submit(employee("john"));
+    EmployeeWriteStatus jane = writeQueue.submit(employee("jane"));
+    EmployeeWriteStatus secondJane = writeQueue.submit(employee("jane"));
+    submitted.countDown();
+
+    assertThat(writeQueue.awaitDrained(Duration.ofSeconds(5))).isTrue();
+    assertThat(writeQueue.getStatus(john.ticket())).get().extracting(EmployeeWriteStatus::state)
+        .isEqualTo(State.FAILED);
+    assertThat(writeQueue.getStatus(jane.ticket())).get().extracting(EmployeeWriteStatus::state)
+        .isEqualTo(State.SAVED);
+    assertThat(writeQueue.getStatus(secondJane.ticket())).get()
+        .extracting(EmployeeWriteStatus::detail)
+        .isEqualTo("Email \"jane@email.com\" already exists");
+  }
+
+  @Test
+  void givenEmailTakenAfterTheCheck_whenDrained_thenDuplicateEmailAndNotTheSqlMessage()
+      throws Exception {
+    given(employeeRepository.findAllByEmailIn(anyCollection())).willReturn(List.of());
+    willThrow(new DataIntegrityViolationException("Unique index or primary key violation"))
+        .given(employeeRepository).saveAll(any());
+    given(employeeRepository.save(any(Employee.class))).willThrow(
+        new DataIntegrityViolationException("Unique index or primary key violation"));
+    given(employeeRepository.existsByEmail("john@email.com")).willReturn(true);
+    writeQueue(100);
+
+    EmployeeWriteStatus john = writeQueue.submit(employee("john"));
+
+    assertThat(writeQueue.awaitDrained(Duration.ofSeconds(5))).isTrue();
+    assertThat(writeQueue.getStatus(john.ticket())).get().extracting(EmployeeWriteStatus::detail)
+        .isEqualTo("Email \"john@email.com\" already exists");
+  }
+
+  @Test
+  void givenFullQueue_whenSubmit_thenServiceOverloaded() throws Exception {
+    CountDownLatch writing = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    given(employeeRepository.findAllByEmailIn(anyCollection())).willAnswer(invocation -> {
+      writing.countDown();
+      release.await(5, TimeUnit.SECONDS);
+      return List.of();
+    });
+    writeQueue(1);
+    writeQueue.submit(employee("john"));
+    writing.await(5, TimeUnit.SECONDS); // the writer took john, the queue is empty again
+    writeQueue.submit(employee("jane"));
+
+    assertThrows(ServiceOverloadedException.class, () -> writeQueue.submit(employee("joe")));
+
+    release.countDown();
+    assertThat(writeQueue.awaitDrained(Duration.ofSeconds(5))).isTrue();
+    assertThat(ids.get()).isEqualTo(2);
+  }
+
+  @Test
+  void givenSubmittedEmployee_whenWritten_thenItWasInTheJournalBefore() throws Exception {
+    List<String> journalWhenWritten = new CopyOnWriteArrayList<>();
+    given(employeeRepository.findAllByEmailIn(anyCollection())).willAnswer(invocation -> {
+      journalWhenWritten.add(Files.readString(directory.resolve("journal.log")));
+      return List.of();
+    });
+    writeQueue(100);
+
+    EmployeeWriteStatus john = writeQueue.submit(employee("john"));
+
+    assertThat(writeQueue.awaitDrained(Duration.ofSeconds(5))).isTrue();
+    assertThat(journalWhenWritten).singleElement().asString()
+        .contains("Q\t" + john.ticket() + "\t");
+  }
+
+  @Test
+  void givenDatabaseOutage_whenDrained_thenTheBatchIsWrittenAgain() throws Exception {
+    given(employeeRepository.findAllByEmailIn(anyCollection()))
+        .willThrow(new DataAccessResourceFailureException("database is down"))
+        .willThrow(new DataAccessResourceFailureException("database is down"))
+        .willReturn(List.of());
+    writeQueue(100);
+
+    EmployeeWriteStatus john = writeQueue.submit(employee("john"));
+
+    assertThat(writeQueue.awaitDrained(Duration.ofSeconds(5))).isTrue();
+    assertThat(writeQueue.getStatus(john.ticket())).get().extracting(EmployeeWriteStatus::state)
+        .isEqualTo(State.SAVED);
+    assertThat(Files.readString(directory.resolve("journal.log")))
+        .contains("D\t" + john.ticket() + "\tSAVED");
+  }
+
+  @Test
+  void givenJournalOfACrash_whenStart_thenQueuedEmployeesAreWrittenAgain() throws Exception {
+    ObjectMapper objectMapper = new ObjectMapper();
+    Files.writeString(directory.resolve("journal.log"), String.join("\n",
+        "Q\tdone\t" + objectMapper.writeValueAsString(employee("john")),
+        "Q\tsaved-before-crash\t" + objectMapper.writeValueAsString(employee("jane")),
+        "Q\tpending\t" + objectMapper.writeValueAsString(employee("joe")),
+        "D\tdone\tSAVED\t7\t",
+        "Q\ttorn\t{\"firstName\":\"ji"), StandardCharsets.UTF_8);
+    given(employeeRepository.findAllByEmailIn(anyCollection())).willReturn(List.of(
+        Employee.builder().id(8).firstName("jane").lastName("Doe").email("jane@email.com")
+            .build()));
+
+    writeQueue(100);
+
+    assertThat(writeQueue.awaitDrained(Duration.ofSeconds(5))).isTrue();
+    assertThat(writeQueue.getStatus("done")).contains(EmployeeWriteStatus.saved("done", 7));
+    assertThat(writeQueue.getStatus("saved-before-crash"))
+        .contains(EmployeeWriteStatus.saved("saved-before-crash", 8));
+    assertThat(writeQueue.getStatus("pending")).get().extracting(EmployeeWriteStatus::state)
+        .isEqualTo(State.SAVED);
+    assertThat(writeQueue.getStatus("torn")).isEmpty();
+    assertThat(ids.get()).isEqualTo(1);
+  }
+}
@@ -0,0 +1,144 @@
+package com.test.springboottesting.employee;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import com.test.springboottesting.exception.IdempotencyKeyReusedException;
+import com.test.springboottesting.exception.IdempotentRequestInProgressException;
+
+class IdempotentRequestsTest {
+
+  private final AtomicInteger creates = new AtomicInteger();
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+  private IdempotentRequests idempotentRequests;
+  private Employee employee;
+
+  @BeforeEach
+  void setup() {
+    idempotentRequests = new IdempotentRequests(
+        new InMemoryIdempotencyStore(100, Duration.ofHours(1)), Duration.ofSeconds(5));
+    employee = Employee.builder().firstName("John").lastName("Doe").email("johndoe@email.com")
+        .build();
+  }
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
+  }
+
+  private Employee create() {
+    return Employee.builder().id(creates.incrementAndGet()).firstName(employee.getFirstName())
+        .lastName(employee.getLastName()).email(employee.getEmail()).build();
+  }
+
+  @Test
+  void givenCompletedRequest_whenRetry_thenFirstEmployeeWithoutCreatingAgain() {
+    Employee first = idempotentRequests.execute("key-1", employee, this::create);
+
+    Employee retry = idempotentRequests.execute("key-1", employee, this::create);
+
+    assertThat(retry).isNotSameAs(first).usingRecursiveComparison().isEqualTo(first);
+    assertThat(creates).hasValue(1);
+  }
+
+  @Test
+  void givenDifferentKeys_whenExecute_thenEachOneCreates() {
+    idempotentRequests.execute("key-1", employee, this::create);
+    idempotentRequests.execute("key-2", employee, this::create);
+
+    assertThat(creates).hasValue(2);
+  }
+
+  @Test
+  void givenKeyOfDifferentRequest_whenExecute_thenIdempotencyKeyReusedException() {
+    idempotentRequests.execute("key-1", employee, this::create);
+    Employee otherEmployee = Employee.builder().firstName("Jane").lastName("Doe")
+        .email("janedoe@email.com").build();
+
+    assertThrows(IdempotencyKeyReusedException.class,
+        () -> idempotentRequests.execute("key-1", otherEmployee, this::create));
+    assertThat(creates).hasValue(1);
+  }
+
+  @Test
+  void givenEmailInDifferentCase_whenFingerprint_thenSameRequest() {
+    Employee upperCase = Employee.builder().firstName("John").lastName("Doe")
+        .email("JohnDoe@Email.com").build();
+
+    assertThat(IdempotentRequests.fingerprint(upperCase))
+        .isEqualTo(IdempotentRequests.fingerprint(employee));
+  }
+
+  @Test
+  void givenRunningRequest_whenRetry_thenItWaitsForTheResultInsteadOfCreating() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    Future<Employee> first = executor.submit(() -> idempotentRequests.execute("key-1", employee,
+        () -> {
+          started.countDown();
+          await(release);
+          return create();
+        }));
+    started.await();
+    Future<Employee> retry =
+        executor.submit(() -> idempotentRequests.execute("key-1", employee, this::create));
+
+    Thread.sleep(100); // the retry is waiting now
+    assertThat(retry).isNotDone();
+    release.countDown();
+
+    assertThat(retry.get(5, TimeUnit.SECONDS).getId())
+        .isEqualTo(first.get(5, TimeUnit.SECONDS).getId());
+    assertThat(creates).hasValue(1);
+    assertThat(idempotentRequests.inFlight()).isZero();
+  }
+
+  @Test
+  void givenRequestRunningLongerThanWaitTimeout_whenRetry_thenInProgressException()
+      throws Exception {
+    idempotentRequests = new IdempotentRequests(
+        new InMemoryIdempotencyStore(100, Duration.ofHours(1)), Duration.ofMillis(50));
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    executor.submit(() -> idempotentRequests.execute("key-1", employee, () -> {
+      started.countDown();
+      await(release);
+      return create();
+    }));
+    started.await();
+
+    assertThrows(IdempotentRequestInProgressException.class,
+        () -> idempotentRequests.execute("key-1", employee, this::create));
+    release.countDown();
+  }
+
+  @Test
+  void givenFailedRequest_whenRetry_thenItRunsAgain() {
+    assertThrows(DataAccessResourceFailureException.class,
+        () -> idempotentRequests.execute("key-1", employee, () -> {
+          throw new DataAccessResourceFailureException("database is down");
+        }));
+
+    Employee retry = idempotentRequests.execute("key-1", employee, this::create);
+
+    assertThat(retry.getId()).isEqualTo(1);
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,67 @@
+package com.test.springboottesting.employee;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class InMemoryIdempotencyStoreTest {
+
+  private final AtomicLong nanos = new AtomicLong();
+
+  private static IdempotentResponse response(long id) {
+    return new IdempotentResponse("fingerprint" + id, Employee.builder().id(id).firstName("John")
+        .lastName("Doe").email("johndoe" + id + "@email.com").build());
+  }
+
+  @Test
+  void givenStoredResponse_whenGet_thenCopyOfTheResponse() {
+    InMemoryIdempotencyStore store =
+        new InMemoryIdempotencyStore(10, Duration.ofMinutes(1), nanos::get);
+    IdempotentResponse response = response(1);
+    store.put("key-1", response);
+    response.employee().setFirstName("Changed");
+
+    assertThat(store.get("key-1")).get().extracting(stored -> stored.employee().getFirstName())
+        .isEqualTo("John");
+  }
+
+  @Test
+  void givenSecondPutOfSameKey_whenGet_thenFirstResponse() {
+    InMemoryIdempotencyStore store =
+        new InMemoryIdempotencyStore(10, Duration.ofMinutes(1), nanos::get);
+    store.put("key-1", response(1));
+    store.put("key-1", response(2));
+
+    assertThat(store.get("key-1")).get().extracting(IdempotentResponse::fingerprint)
+        .isEqualTo("fingerprint1");
+  }
+
+  @Test
+  void givenExpiredResponse_whenGet_thenEmptyAndRemoved() {
+    InMemoryIdempotencyStore store =
+        new InMemoryIdempotencyStore(10, Duration.ofMinutes(1), nanos::get);
+    store.put("key-1", response(1));
+    nanos.addAndGet(Duration.ofSeconds(30).toNanos());
+    store.put("key-2", response(2));
+
+    nanos.addAndGet(Duration.ofSeconds(31).toNanos());
+
+    assertThat(store.get("key-1")).isEmpty();
+    assertThat(store.get("key-2")).isPresent();
+    assertThat(store.size()).isEqualTo(1);
+  }
+
+  @Test
+  void givenFullStore_whenPut_thenOldestResponseIsDropped() {
+    InMemoryIdempotencyStore store =
+        new InMemoryIdempotencyStore(2, Duration.ofMinutes(1), nanos::get);
+    store.put("key-1", response(1));
+    store.put("key-2", response(2));
+    store.put("key-3", response(3));
+
+    assertThat(store.get("key-1")).isEmpty();
+    assertThat(store.get("key-2")).isPresent();
+    assertThat(store.get("key-3")).isPresent();
+  }
+}
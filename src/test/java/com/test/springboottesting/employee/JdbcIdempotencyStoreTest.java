@@ -0,0 +1,82 @@
+package com.test.springboottesting.employee;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * The table idempotency_keys is created by the flyway migrations of the embedded h2 database
+ */
+@JdbcTest
+class JdbcIdempotencyStoreTest {
+
+  private static final Instant NOW = Instant.parse("2026-01-01T12:00:00Z");
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  private JdbcIdempotencyStore store;
+
+  @BeforeEach
+  void setup() {
+    store = storeAt(NOW);
+  }
+
+  private JdbcIdempotencyStore storeAt(Instant now) {
+    return new JdbcIdempotencyStore(jdbcTemplate, new ObjectMapper(), Duration.ofHours(1),
+        Clock.fixed(now, ZoneOffset.UTC));
+  }
+
+  private static IdempotentResponse response(long id) {
+    return new IdempotentResponse("fingerprint" + id, Employee.builder().id(id).firstName("John")
+        .lastName("Doe").email("johndoe" + id + "@email.com").build());
+  }
+
+  @Test
+  void givenStoredResponse_whenGet_thenSameResponse() {
+    store.put("key-1", response(1));
+
+    assertThat(store.get("key-1")).get().usingRecursiveComparison().isEqualTo(response(1));
+    assertThat(store.get("key-2")).isEmpty();
+  }
+
+  @Test
+  void givenSecondPutOfSameKey_whenGet_thenFirstResponse() {
+    store.put("key-1", response(1));
+    store.put("key-1", response(2));
+
+    assertThat(store.get("key-1")).get().extracting(IdempotentResponse::fingerprint)
+        .isEqualTo("fingerprint1");
+  }
+
+  @Test
+  void givenExpiredResponse_whenGetAndPut_thenTheKeyIsFreeAgain() {
+    store.put("key-1", response(1));
+    JdbcIdempotencyStore later = storeAt(NOW.plus(Duration.ofHours(2)));
+
+    assertThat(later.get("key-1")).isEmpty();
+    later.put("key-1", response(2));
+    assertThat(later.get("key-1")).get().extracting(IdempotentResponse::fingerprint)
+        .isEqualTo("fingerprint2");
+  }
+
+  @Test
+  void givenExpiredResponses_whenPurgeExpired_thenOnlyTheyAreDeleted() {
+    store.put("key-1", response(1));
+    storeAt(NOW.plus(Duration.ofMinutes(90))).put("key-2", response(2));
+
+    int purged = storeAt(NOW.plus(Duration.ofMinutes(61))).purgeExpired();
+
+    assertThat(purged).isEqualTo(1);
+    assertThat(jdbcTemplate.queryForObject("select count(*) from idempotency_keys", Long.class))
+        .isEqualTo(1);
+  }
+}
@@ -0,0 +1,139 @@
+package com.test.springboottesting.employee;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class OffHeapEmployeeStoreTest {
+
+  private static Employee employee(long id, String suffix) {
+    return Employee.builder().id(id).firstName("John" + suffix).lastName("Doe")
+        .email("johndoe" + id + suffix + "@email.com").build();
+  }
+
+  @Test
+  void givenStoredEmployee_whenGet_thenReturnEmployee() {
+    OffHeapEmployeeStore store = new OffHeapEmployeeStore(1024 * 1024, 1024, 16);
+    Employee employee = Employee.builder().id(7L).firstName("Jürgen").lastName("Müller")
+        .email("juergen@email.com").build();
+
+    store.put(employee);
+
+    assertThat(store.get(7L)).get().usingRecursiveComparison().isEqualTo(employee);
+    assertThat(store.get(8L)).isEmpty();
+    assertThat(store.size()).isEqualTo(1);
+  }
+
+  @Test
+  void givenUpdatedAndEvictedEmployees_whenGet_thenReturnLatestState() {
+    OffHeapEmployeeStore store = new OffHeapEmployeeStore(1024 * 1024, 1024, 16);
+
+    store.put(employee(1L, "a"));
+    store.put(employee(2L, "a"));
+    store.put(employee(1L, "b"));
+    store.evict(2L);
+
+    assertThat(store.get(1L)).get().usingRecursiveComparison().isEqualTo(employee(1L, "b"));
+    assertThat(store.get(2L)).isEmpty();
+    assertThat(store.size()).isEqualTo(1);
+  }
+
+  @Test
+  void givenRandomOperations_whenGet_thenStoreBehavesLikeAMap() {
+    // small chunks and a small table, so we resize and compact a lot
+    OffHeapEmployeeStore store = new OffHeapEmployeeStore(64 * 1024 * 1024, 4096, 16);
+    Map<Long, Employee> expected = new HashMap<>();
+    Random random = new Random(42);
+
+    for (int i = 0; i < 200_000; i++) {
+      long id = 1 + random.nextInt(5_000);
+      if (random.nextInt(4) == 0) {
+        store.evict(id);
+        expected.remove(id);
+      } else {
+        Employee employee = employee(id, Integer.toString(i));
+        store.put(employee);
+        expected.put(id, employee);
+      }
+    }
+
+    assertThat(store.size()).isEqualTo(expected.size());
+    for (long id = 1; id <= 5_000; id++) {
+      if (expected.containsKey(id))
+        assertThat(store.get(id)).get().usingRecursiveComparison().isEqualTo(expected.get(id));
+      else
+        assertThat(store.get(id)).isEmpty();
+    }
+    // compaction keeps the memory bounded by the live data
+    assertThat(store.offHeapBytes()).isLessThan(4 * 1024 * 1024);
+  }
+
+  @Test
+  void givenFullStore_whenCompacted_thenTheMemoryStaysWithinMaxBytes() {
+    OffHeapEmployeeStore store = new OffHeapEmployeeStore(4 * 1024, 1024, 16);
+    for (long id = 1; id <= 20; id++)
+      store.put(employee(id, "0"));
+
+    for (int round = 1; round <= 100; round++) {
+      for (long id = 1; id <= 20; id++)
+        store.put(employee(id, Integer.toString(round)));
+      assertThat(store.offHeapBytes()).isLessThanOrEqualTo(4 * 1024);
+    }
+
+    assertThat(store.size()).isEqualTo(20);
+    for (long id = 1; id <= 20; id++)
+      assertThat(store.get(id)).get().usingRecursiveComparison().isEqualTo(employee(id, "100"));
+  }
+
+  @Test
+  void givenNoMemoryLeft_whenPut_thenEmployeeIsNotCached() {
+    OffHeapEmployeeStore store = new OffHeapEmployeeStore(1024, 1024, 16);
+
+    for (long id = 1; id <= 100; id++)
+      store.put(employee(id, ""));
+
+    assertThat(store.size()).isBetween(1, 99);
+    assertThat(store.offHeapBytes()).isEqualTo(1024);
+    assertThat(store.get(100L)).isEmpty();
+  }
+
+  @Test
+  void givenStoredEmployee_whenTimeToLiveIsOver_thenGetReturnsEmpty() {
+    AtomicLong clock = new AtomicLong();
+    OffHeapEmployeeStore store =
+        new OffHeapEmployeeStore(1024 * 1024, 1024, 16, Duration.ofSeconds(60), clock::get);
+    store.put(employee(1L, "a"));
+
+    clock.addAndGet(Duration.ofSeconds(59).toNanos());
+    assertThat(store.get(1L)).isPresent();
+
+    clock.addAndGet(Duration.ofSeconds(1).toNanos());
+    assertThat(store.get(1L)).isEmpty();
+
+    store.put(employee(1L, "b"));
+    assertThat(store.get(1L)).get().usingRecursiveComparison().isEqualTo(employee(1L, "b"));
+  }
+
+  @Test
+  void givenFullStoreWithExpiredEmployees_whenPut_thenExpiredAreDroppedAndNewCached() {
+    AtomicLong clock = new AtomicLong();
+    OffHeapEmployeeStore store =
+        new OffHeapEmployeeStore(1024, 1024, 16, Duration.ofSeconds(60), clock::get);
+    for (long id = 1; id <= 100; id++)
+      store.put(employee(id, ""));
+    assertThat(store.get(100L)).isEmpty();
+
+    clock.addAndGet(Duration.ofSeconds(60).toNanos());
+    for (long id = 101; id <= 110; id++)
+      store.put(employee(id, ""));
+
+    assertThat(store.size()).isEqualTo(10);
+    assertThat(store.offHeapBytes()).isEqualTo(1024);
+    for (long id = 101; id <= 110; id++)
+      assertThat(store.get(id)).get().usingRecursiveComparison().isEqualTo(employee(id, ""));
+  }
+}
@@ -0,0 +1,63 @@
+package com.test.springboottesting.employee;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.Test;
+
+class OnHeapEmployeeCacheTest {
+
+  private final AtomicLong clock = new AtomicLong();
+
+  private static Employee employee(long id) {
+    return Employee.builder().id(id).firstName("John").lastName("Doe")
+        .email("johndoe" + id + "@email.com").build();
+  }
+
+  @Test
+  void givenCachedEmployee_whenTimeToLiveIsOver_thenGetReturnsEmpty() {
+    OnHeapEmployeeCache cache = new OnHeapEmployeeCache(10, Duration.ofSeconds(60), clock::get);
+    cache.put(employee(1));
+
+    clock.addAndGet(Duration.ofSeconds(59).toNanos());
+    assertThat(cache.get(1)).isPresent();
+
+    clock.addAndGet(Duration.ofSeconds(1).toNanos());
+    assertThat(cache.get(1)).isEmpty();
+    assertThat(cache.size()).isZero();
+  }
+
+  @Test
+  void givenNewestEmployeesInFirstBuckets_whenFullCacheGetsPuts_thenMostOfThemStay() {
+    OnHeapEmployeeCache cache = new OnHeapEmployeeCache(1000, Duration.ZERO, clock::get);
+    // small ids are the first entries of the map, here they are the newest ones
+    for (long id = 1000; id >= 1; id--) {
+      clock.incrementAndGet();
+      cache.put(employee(id));
+    }
+
+    for (long id = 1001; id <= 1500; id++) {
+      clock.incrementAndGet();
+      cache.put(employee(id));
+    }
+
+    long newestStaying = LongStream.rangeClosed(1, 100).filter(id -> cache.get(id).isPresent())
+        .count();
+    assertThat(newestStaying).isGreaterThan(25); // the first entries only: 0
+    assertThat(cache.size()).isEqualTo(1000);
+  }
+
+  @Test
+  void givenFullCache_whenPut_thenNewEmployeeIsCachedAndSizeIsKept() {
+    OnHeapEmployeeCache cache = new OnHeapEmployeeCache(100, Duration.ZERO, clock::get);
+
+    for (long id = 1; id <= 1000; id++) {
+      clock.incrementAndGet();
+      cache.put(employee(id));
+    }
+
+    assertThat(cache.get(1000)).get().usingRecursiveComparison().isEqualTo(employee(1000));
+    assertThat(cache.size()).isEqualTo(100);
+  }
+}
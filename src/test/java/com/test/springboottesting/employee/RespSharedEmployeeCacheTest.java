@@ -0,0 +1,129 @@
+package com.test.springboottesting.employee;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the redis protocol client against the {@link EmbeddedRespServer}, no redis needed
+ */
+class RespSharedEmployeeCacheTest {
+
+  private EmbeddedRespServer server;
+  private RespSharedEmployeeCache cache;
+  private RespSharedEmployeeCache otherInstance;
+  private Employee employee;
+
+  @BeforeEach
+  void setup() throws Exception {
+    server = new EmbeddedRespServer();
+    cache = new RespSharedEmployeeCache("localhost", server.getPort(), Duration.ofMinutes(10));
+    otherInstance =
+        new RespSharedEmployeeCache("localhost", server.getPort(), Duration.ofMinutes(10));
+    employee =
+        Employee.builder().id(1).firstName("John").lastName("Doe").email("johndoe@email.com").build();
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    cache.close();
+    otherInstance.close();
+    server.close();
+  }
+
+  @Test
+  void givenEmployee_whenPut_thenOtherInstanceGetsIt() {
+    cache.put(employee);
+
+    assertThat(server.getValues()).containsKey("employee:1");
+    assertThat(otherInstance.get(1)).get().usingRecursiveComparison().isEqualTo(employee);
+  }
+
+  @Test
+  void givenCachedEmployee_whenEvict_thenGetReturnsEmpty() {
+    cache.put(employee);
+
+    otherInstance.evict(1);
+
+    assertThat(cache.get(1)).isEmpty();
+  }
+
+  @Test
+  void givenSubscribedInstance_whenPublishInvalidation_thenInvalidationIsReceived()
+      throws Exception {
+    BlockingQueue<String> invalidations = new LinkedBlockingQueue<>();
+    Semaphore subscribed = new Semaphore(0);
+    otherInstance.subscribeInvalidations(new SharedEmployeeCache.InvalidationListener() {
+      @Override
+      public void invalidated(String origin, long id) {
+        invalidations.add(origin + " " + id);
+      }
+
+      @Override
+      public void subscribed() {
+        subscribed.release();
+      }
+    });
+    assertThat(subscribed.tryAcquire(5, TimeUnit.SECONDS)).isTrue();
+
+    cache.publishInvalidation("instance-1", 42);
+
+    assertThat(invalidations.poll(5, TimeUnit.SECONDS)).isEqualTo("instance-1 42");
+  }
+
+  @Test
+  void givenLostConnection_whenServerIsBack_thenSubscribedAgain() throws Exception {
+    Semaphore subscribed = new Semaphore(0);
+    cache.subscribeInvalidations(new SharedEmployeeCache.InvalidationListener() {
+      @Override
+      public void invalidated(String origin, long id) {}
+
+      @Override
+      public void subscribed() {
+        subscribed.release();
+      }
+    });
+    assertThat(subscribed.tryAcquire(5, TimeUnit.SECONDS)).isTrue();
+
+    server.disconnectClients();
+
+    assertThat(subscribed.tryAcquire(5, TimeUnit.SECONDS)).isTrue();
+  }
+
+  @Test
+  void givenConcurrentRequests_whenGet_thenEveryRequestGetsTheEmployee() throws Exception {
+    cache.put(employee);
+    ExecutorService executor = Executors.newFixedThreadPool(16);
+    try {
+      List<Future<Optional<Employee>>> gets = new ArrayList<>();
+      for (int i = 0; i < 1000; i++)
+        gets.add(executor.submit(() -> cache.get(1)));
+
+      for (Future<Optional<Employee>> get : gets)
+        assertThat(get.get(5, TimeUnit.SECONDS)).isPresent();
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void givenServerIsDown_whenGetAndPut_thenNoExceptionAndNothingCached() throws Exception {
+    server.close();
+
+    cache.put(employee);
+
+    assertThat(cache.get(1)).isEmpty();
+  }
+}
@@ -0,0 +1,151 @@
+package com.test.springboottesting.employee;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class SingleFlightTest {
+
+  private ExecutorService executor = Executors.newFixedThreadPool(8);
+  private AtomicInteger queries = new AtomicInteger();
+  private CountDownLatch release = new CountDownLatch(1);
+
+  @AfterEach
+  void tearDown() {
+    release.countDown();
+    executor.shutdownNow();
+  }
+
+  @Test
+  void givenConcurrentCallsForSameKey_whenExecute_thenOneQueryAndSameResult() throws Exception {
+    SingleFlight<Long, String> singleFlight =
+        new SingleFlight<>(Duration.ofSeconds(5), UnaryOperator.identity());
+
+    List<Future<String>> results = submit(8, () -> singleFlight.execute(1L, this::blockingQuery));
+    awaitWaiting(singleFlight);
+    release.countDown();
+
+    for (Future<String> result : results)
+      assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("result 1");
+    assertThat(queries.get()).isEqualTo(1);
+    assertThat(singleFlight.inFlight()).isZero();
+  }
+
+  @Test
+  void givenDifferentKeys_whenExecute_thenOneQueryPerKey() throws Exception {
+    SingleFlight<Long, String> singleFlight =
+        new SingleFlight<>(Duration.ofSeconds(5), UnaryOperator.identity());
+
+    List<Future<String>> first = submit(3, () -> singleFlight.execute(1L, this::blockingQuery));
+    List<Future<String>> second = submit(3, () -> singleFlight.execute(2L, this::blockingQuery));
+    awaitWaiting(singleFlight);
+    release.countDown();
+
+    for (Future<String> result : first)
+      result.get(5, TimeUnit.SECONDS);
+    for (Future<String> result : second)
+      result.get(5, TimeUnit.SECONDS);
+    assertThat(queries.get()).isEqualTo(2);
+  }
+
+  @Test
+  void givenSlowSharedQuery_whenTimeoutIsOver_thenWaitingThreadQueriesItself() throws Exception {
+    SingleFlight<Long, String> singleFlight =
+        new SingleFlight<>(Duration.ofMillis(100), UnaryOperator.identity());
+    submit(1, () -> singleFlight.execute(1L, this::blockingQuery));
+    awaitWaiting(singleFlight);
+
+    String result = singleFlight.execute(1L, () -> "own query");
+
+    assertThat(result).isEqualTo("own query");
+  }
+
+  @Test
+  void givenForgottenKey_whenExecute_thenNewThreadsRunANewQuery() throws Exception {
+    SingleFlight<Long, String> singleFlight =
+        new SingleFlight<>(Duration.ofSeconds(5), UnaryOperator.identity());
+    Future<String> before = submit(1, () -> singleFlight.execute(1L, this::blockingQuery)).get(0);
+    awaitWaiting(singleFlight);
+
+    singleFlight.forget(1L); // a write of the key was committed
+    String after = singleFlight.execute(1L, () -> "after the write");
+    release.countDown();
+
+    assertThat(after).isEqualTo("after the write");
+    assertThat(before.get(5, TimeUnit.SECONDS)).isEqualTo("result 1");
+  }
+
+  @Test
+  void givenFailingSharedQuery_whenExecute_thenAllThreadsGetTheException() throws Exception {
+    SingleFlight<Long, String> singleFlight =
+        new SingleFlight<>(Duration.ofSeconds(5), UnaryOperator.identity());
+
+    List<Future<String>> results = submit(4, () -> singleFlight.execute(1L, () -> {
+      blockingQuery();
+      throw new IllegalStateException("database down");
+    }));
+    awaitWaiting(singleFlight);
+    release.countDown();
+
+    for (Future<String> result : results) {
+      Exception exception = assertThrows(Exception.class, () -> result.get(5, TimeUnit.SECONDS));
+      assertThat(exception).hasRootCauseMessage("database down");
+    }
+    assertThat(queries.get()).isEqualTo(1);
+  }
+
+  @Test
+  void givenShareResult_whenExecute_thenWaitingThreadsGetCopies() throws Exception {
+    SingleFlight<Long, StringBuilder> singleFlight =
+        new SingleFlight<>(Duration.ofSeconds(5), result -> new StringBuilder(result));
+
+    List<Future<StringBuilder>> results = submit(4,
+        () -> singleFlight.execute(1L, () -> new StringBuilder(blockingQuery())));
+    awaitWaiting(singleFlight);
+    release.countDown();
+
+    List<StringBuilder> values = new ArrayList<>();
+    for (Future<StringBuilder> result : results)
+      values.add(result.get(5, TimeUnit.SECONDS));
+    assertThat(values).extracting(StringBuilder::toString).containsOnly("result 1");
+    assertThat(values).doesNotHaveDuplicates();
+  }
+
+  private String blockingQuery() {
+    int query = queries.incrementAndGet();
+    try {
+      release.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return "result " + query;
+  }
+
+  private <T> List<Future<T>> submit(int threads, Callable<T> task) {
+    List<Future<T>> futures = new ArrayList<>();
+    for (int i = 0; i < threads; i++)
+      futures.add(executor.submit(task));
+    return futures;
+  }
+
+  /**
+   * waits until a query started and the other threads had a moment to join it
+   */
+  private void awaitWaiting(SingleFlight<?, ?> singleFlight) throws InterruptedException {
+    while (singleFlight.inFlight() == 0)
+      Thread.sleep(1);
+    Thread.sleep(100);
+  }
+}
@@ -0,0 +1,137 @@
+package com.test.springboottesting.employee;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class SnowflakeIdGeneratorTest {
+
+  private static final Instant EPOCH = SnowflakeIdGenerator.DEFAULT_EPOCH;
+
+  private final AtomicLong millis = new AtomicLong(EPOCH.plusSeconds(3600).toEpochMilli());
+
+  /**
+   * a generator which has been running for longer than the max drift, so its ids follow the clock
+   */
+  private SnowflakeIdGenerator idGenerator(long node) {
+    SnowflakeIdGenerator idGenerator =
+        new SnowflakeIdGenerator(node, EPOCH, Duration.ofSeconds(5), millis::get);
+    millis.addAndGet(Duration.ofSeconds(6).toMillis());
+    return idGenerator;
+  }
+
+  @Test
+  void givenSameMillisecond_whenNextId_thenTheSequenceCounts() {
+    SnowflakeIdGenerator idGenerator = idGenerator(3);
+
+    long first = idGenerator.nextId();
+    long second = idGenerator.nextId();
+
+    assertThat(second).isEqualTo(first + 1);
+    assertThat(first >>> SnowflakeIdGenerator.SEQUENCE_BITS & SnowflakeIdGenerator.MAX_NODE)
+        .isEqualTo(3);
+    assertThat(idGenerator.timestampOf(first)).isEqualTo(Instant.ofEpochMilli(millis.get()));
+  }
+
+  @Test
+  void givenDifferentNodes_whenNextId_thenTheIdsDiffer() {
+    assertThat(idGenerator(1).nextId()).isNotEqualTo(idGenerator(2).nextId());
+  }
+
+  @Test
+  void givenClockGoingBackwards_whenNextId_thenTheIdsKeepGrowing() {
+    SnowflakeIdGenerator idGenerator = idGenerator(0);
+    long before = idGenerator.nextId();
+
+    millis.addAndGet(-1000);
+
+    assertThat(idGenerator.nextId()).isGreaterThan(before);
+  }
+
+  @Test
+  void givenClockGoingBackwardsBeyondTheMaxDrift_whenNextId_thenIllegalStateException() {
+    SnowflakeIdGenerator idGenerator = idGenerator(0);
+    idGenerator.nextId();
+
+    millis.addAndGet(-Duration.ofMinutes(1).toMillis());
+
+    assertThrows(IllegalStateException.class, idGenerator::nextId);
+  }
+
+  @Test
+  void givenRestart_whenNextId_thenTheIdsAreGreaterThanThoseOfThePreviousRun() {
+    SnowflakeIdGenerator previousRun = idGenerator(0);
+    long last = 0;
+    for (int i = 0; i < 3 * (SnowflakeIdGenerator.MAX_SEQUENCE + 1); i++)
+      last = previousRun.nextId(); // borrows the next milliseconds
+
+    SnowflakeIdGenerator idGenerator =
+        new SnowflakeIdGenerator(0, EPOCH, Duration.ofSeconds(5), millis::get);
+
+    assertThat(idGenerator.nextId()).isGreaterThan(last);
+    for (int i = 0; i < 3 * (SnowflakeIdGenerator.MAX_SEQUENCE + 1); i++)
+      idGenerator.nextId(); // may borrow as well, before the clock caught up
+  }
+
+  @Test
+  void givenUsedUpSequence_whenNextId_thenTheNextMillisecondIsBorrowed() {
+    SnowflakeIdGenerator idGenerator = idGenerator(0);
+    long last = 0;
+    for (int i = 0; i <= SnowflakeIdGenerator.MAX_SEQUENCE + 1; i++) {
+      long id = idGenerator.nextId();
+      assertThat(id).isGreaterThan(last);
+      last = id;
+    }
+
+    assertThat(idGenerator.timestampOf(last)).isEqualTo(Instant.ofEpochMilli(millis.get() + 1));
+  }
+
+  @Test
+  void givenRemainder_whenNextId_thenTheIdHasTheRemainder() {
+    SnowflakeIdGenerator idGenerator = idGenerator(5);
+
+    for (int i = 0; i < 100; i++) {
+      millis.addAndGet(i % 3);
+      assertThat(idGenerator.nextId(i % 3, 3) % 3).isEqualTo(i % 3);
+    }
+  }
+
+  @Test
+  void givenInvalidNode_whenCreated_thenIllegalArgumentException() {
+    assertThrows(IllegalArgumentException.class, () -> idGenerator(1024));
+  }
+
+  @Test
+  void givenConcurrentCalls_whenNextId_thenAllIdsAreUnique() throws Exception {
+    SnowflakeIdGenerator idGenerator = new SnowflakeIdGenerator(0);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<List<Long>>> futures = new ArrayList<>();
+      for (int thread = 0; thread < 8; thread++)
+        futures.add(executor.submit((Callable<List<Long>>) () -> {
+          List<Long> ids = new ArrayList<>();
+          for (int i = 0; i < 10_000; i++)
+            ids.add(idGenerator.nextId());
+          return ids;
+        }));
+      Set<Long> ids = new HashSet<>();
+      for (Future<List<Long>> future : futures)
+        ids.addAll(future.get());
+
+      assertThat(ids).hasSize(80_000);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -1,10 +1,11 @@
 package com.test.springboottesting.employee;
 
 import org.springframework.boot.test.context.TestConfiguration;
-import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Import;
 
+// @TestComponents are excluded from component scanning, so we have to import them explicitly
 @TestConfiguration
-@ComponentScan(basePackages = "init.springboottesting.employee;")
+@Import(EmployeeControllerRequests.class)
 class TestConfig {
 
 }
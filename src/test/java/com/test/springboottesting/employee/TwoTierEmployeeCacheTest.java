@@ -0,0 +1,127 @@
+package com.test.springboottesting.employee;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Simulates two instances of our service, each with its own near cache, which share one
+ * {@link SharedEmployeeCache}
+ */
+class TwoTierEmployeeCacheTest {
+
+  private OnHeapEmployeeCache nearCacheOfSecondInstance;
+  private TwoTierEmployeeCache firstInstance;
+  private TwoTierEmployeeCache secondInstance;
+  private Employee employee;
+
+  @BeforeEach
+  void setup() {
+    SharedEmployeeCache sharedCache = new InMemorySharedEmployeeCache(100);
+    nearCacheOfSecondInstance = new OnHeapEmployeeCache(100);
+    firstInstance = new TwoTierEmployeeCache(new OnHeapEmployeeCache(100), sharedCache);
+    secondInstance = new TwoTierEmployeeCache(nearCacheOfSecondInstance, sharedCache);
+    employee =
+        Employee.builder().id(1).firstName("John").lastName("Doe").email("johndoe@email.com").build();
+  }
+
+  @Test
+  void givenEmployeeCachedByOneInstance_whenGetOnOtherInstance_thenHitFromSharedCache() {
+    firstInstance.put(employee);
+
+    Optional<Employee> cachedEmployee = secondInstance.get(1);
+
+    assertThat(cachedEmployee).get().usingRecursiveComparison().isEqualTo(employee);
+    assertThat(nearCacheOfSecondInstance.get(1)).isPresent();
+  }
+
+  @Test
+  void givenEmployeeInNearCacheOfOtherInstance_whenUpdated_thenOtherInstanceGetsNewVersion() {
+    firstInstance.put(employee);
+    secondInstance.get(1);
+
+    Employee updatedEmployee = Employee.builder().id(1).firstName("Jane").lastName("Doe")
+        .email("janedoe@email.com").build();
+    firstInstance.put(updatedEmployee);
+    firstInstance.onEmployeeChanged(new EmployeeChangedEvent(1));
+
+    assertThat(secondInstance.get(1)).get().usingRecursiveComparison().isEqualTo(updatedEmployee);
+  }
+
+  @Test
+  void givenNewerEmployeeInSharedCache_whenPutLocal_thenSharedCacheKeepsIt() {
+    firstInstance.put(employee);
+    Employee olderEmployee = Employee.builder().id(1).firstName("Johnny").lastName("Doe")
+        .email("johndoe@email.com").build();
+
+    secondInstance.putLocal(olderEmployee);
+
+    assertThat(secondInstance.get(1)).get().extracting(Employee::getFirstName)
+        .isEqualTo("Johnny");
+    nearCacheOfSecondInstance.clear();
+    assertThat(secondInstance.get(1)).get().extracting(Employee::getFirstName).isEqualTo("John");
+  }
+
+  @Test
+  void givenSharedTimeToLiveIsOver_whenGetOnOtherInstance_thenMiss() {
+    AtomicLong clock = new AtomicLong();
+    SharedEmployeeCache sharedCache =
+        new InMemorySharedEmployeeCache(100, Duration.ofMinutes(10), clock::get);
+    new TwoTierEmployeeCache(new OnHeapEmployeeCache(100), sharedCache).put(employee);
+    TwoTierEmployeeCache otherInstance =
+        new TwoTierEmployeeCache(new OnHeapEmployeeCache(100), sharedCache);
+
+    clock.addAndGet(Duration.ofMinutes(10).toNanos());
+
+    assertThat(otherInstance.get(1)).isEmpty();
+  }
+
+  @Test
+  void givenEmployeeInNearCacheOfOtherInstance_whenDeleted_thenOtherInstanceMisses() {
+    firstInstance.put(employee);
+    secondInstance.get(1);
+
+    firstInstance.evict(1);
+    firstInstance.onEmployeeChanged(new EmployeeChangedEvent(1));
+
+    assertThat(secondInstance.get(1)).isEmpty();
+  }
+
+  @Test
+  void givenOwnInvalidation_whenGet_thenNearCacheIsKept() {
+    secondInstance.put(employee);
+
+    secondInstance.onEmployeeChanged(new EmployeeChangedEvent(1));
+
+    assertThat(nearCacheOfSecondInstance.get(1)).isPresent();
+  }
+
+  @Test
+  void givenEmbeddedRespServer_whenUpdatedOnOneInstance_thenOtherInstanceGetsNewVersion()
+      throws Exception {
+    try (EmbeddedRespServer server = new EmbeddedRespServer();
+        RespSharedEmployeeCache firstShared =
+            new RespSharedEmployeeCache("localhost", server.getPort(), Duration.ofMinutes(1));
+        RespSharedEmployeeCache secondShared =
+            new RespSharedEmployeeCache("localhost", server.getPort(), Duration.ofMinutes(1))) {
+      TwoTierEmployeeCache first = new TwoTierEmployeeCache(new OnHeapEmployeeCache(100),
+          firstShared);
+      TwoTierEmployeeCache second = new TwoTierEmployeeCache(new OnHeapEmployeeCache(100),
+          secondShared);
+      first.put(employee);
+      assertThat(second.get(1)).isPresent();
+
+      first.evict(1);
+      first.onEmployeeChanged(new EmployeeChangedEvent(1));
+
+      // the invalidation arrives asynchronously
+      long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+      while (second.get(1).isPresent() && System.nanoTime() < deadline)
+        Thread.sleep(10);
+      assertThat(second.get(1)).isEmpty();
+    }
+  }
+}